@@ -0,0 +1,20 @@
+import world.ScenarioFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Entry point compiling a text scenario into its binary form, which starts faster.
+ * Usage: `CompileScenario <text scenario> <compiled scenario>`
+ * */
+public class CompileScenario {
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: CompileScenario <text scenario> <compiled scenario>");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        ScenarioFile.compile(Path.of(args[0]), Path.of(args[1]));
+        System.out.printf("compiled %s in %.0f ms%n", args[1], (System.nanoTime() - start) / 1e6);
+    }
+}
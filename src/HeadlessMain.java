@@ -0,0 +1,52 @@
+import engine.HeadlessEngine;
+import physics.BarnesHutGravity;
+import physics.Integrator;
+import physics.ParallelGravity;
+import world.FlightRecorder;
+import world.MultiRateStepper;
+import world.ScenarioFile;
+import world.Scenarios;
+import world.World;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Entry point for running the simulation without a display.
+ * Usage: `HeadlessMain [duration (s)] [timeStep (s)] [integrator] [openingAngle | exact] [fleetSize | scenario] [recordingDirectory]`
+ * */
+public class HeadlessMain {
+    public static void main(String[] args) throws IOException {
+        double duration = args.length > 0 ? Double.parseDouble(args[0]) : 86400;
+        double timeStep = args.length > 1 ? Double.parseDouble(args[1]) : 1.0 / 240;
+        System.out.println("Starting Headless Engine");
+        boolean scenario = args.length > 4 && !args[4].matches("\\d+");
+        int fleetSize = args.length > 4 && !scenario ? Integer.parseInt(args[4]) : 0;
+        long buildStart = System.nanoTime();
+        World world = scenario ? ScenarioFile.load(Path.of(args[4]))
+                : fleetSize > 0 ? Scenarios.sunKerbinFleet(fleetSize) : Scenarios.sunKerbin();
+        System.out.printf("built %d bodies in %.0f ms%n", world.state.size, (System.nanoTime() - buildStart) / 1e6);
+        if (args.length > 2 && args[2].equals("multirate")) {
+            world.multiRate = new MultiRateStepper(0.01, 100000);
+        } else if (args.length > 2) {
+            world.integrator = Integrator.forName(args[2]);
+        }
+        if (args.length > 3 && !args[3].equals("exact")) {
+            world.gravity = new BarnesHutGravity(world.G, Double.parseDouble(args[3]));
+        }
+        if (fleetSize > 0 || world.fleet.size() > 1) {
+            world.gravity = new ParallelGravity(world.gravity);
+        }
+        HeadlessEngine engine = new HeadlessEngine(world, timeStep);
+        if (args.length > 5) {
+            // 64 MB segments
+            engine.recorder = new FlightRecorder(Path.of(args[5]), 64L << 20, 0);
+        }
+        engine.run(duration);
+        System.out.print(engine.report());
+        if (engine.recorder != null) {
+            engine.recorder.close();
+            System.out.println("recorded " + engine.recorder.recordedRecords + " records, dropped " + engine.recorder.droppedRecords);
+        }
+    }
+}
@@ -1,9 +1,26 @@
 import engine.Engine;
+import world.FlightRecorder;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Entry point for the interactive simulation.
+ * Usage: `Main [--record directory] [checkpoint | scenario]`, where a checkpoint saved with 'c' is resumed, or a
+ * scenario file (text or compiled, see `ScenarioFile`) is started, instead of the default scenario.
+ * With `--record`, every step is appended to a flight recording within the directory (see `FlightRecorder`),
+ * which is closed when the window is.
+ * */
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         System.out.println("Starting Engine");
         Engine engine = new Engine();
-        engine.mainLoop();
+        int argIndex = 0;
+        if (args.length > 1 && args[0].equals("--record")) {
+            // 64 MB segments
+            engine.recorder = new FlightRecorder(Path.of(args[1]), 64L << 20, 0);
+            argIndex = 2;
+        }
+        engine.mainLoop(args.length > argIndex ? Path.of(args[argIndex]) : null);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,50 @@
+import world.Planet;
+import world.Porkchop;
+import world.Satellite;
+import world.ScenarioFile;
+import world.Scenarios;
+import world.World;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Entry point evaluating a porkchop plot of transfers between two planets of a scenario.
+ * Usage: `PlotPorkchop <scenario | -> <departure planet> <arrival planet> <departure start> <departure end>
+ * <min flight time> <max flight time> <output .png | .csv | .bin> [grid size]`
+ * Times are in simulated seconds; `-` uses the default scenario. The grid is `grid size` cells (1000 by default)
+ * along both axes.
+ * */
+public class PlotPorkchop {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length != 8 && args.length != 9) {
+            System.err.println("Usage: PlotPorkchop <scenario | -> <departure planet> <arrival planet> <departure start> "
+                    + "<departure end> <min flight time> <max flight time> <output .png | .csv | .bin> [grid size]");
+            System.exit(2);
+        }
+        World world = args[0].equals("-") ? Scenarios.sunKerbin() : ScenarioFile.load(Path.of(args[0]));
+        world.setPlanetsOnRails(true);
+        Planet departure = planetNamed(world, args[1]);
+        Planet arrival = planetNamed(world, args[2]);
+        int gridSize = args.length == 9 ? Integer.parseInt(args[8]) : 1000;
+        Porkchop porkchop = new Porkchop(world, departure, arrival, Double.parseDouble(args[3]), Double.parseDouble(args[4]),
+                Double.parseDouble(args[5]), Double.parseDouble(args[6]), gridSize, gridSize);
+        long start = System.nanoTime();
+        porkchop.compute();
+        System.out.printf("evaluated %d cells in %.0f ms%n", porkchop.deltaV.length, (System.nanoTime() - start) / 1e6);
+        int cheapest = porkchop.cheapestCell();
+        if (cheapest >= 0) {
+            System.out.printf("cheapest transfer: %.4f km/s departing at t = %.0f s with a %.0f s flight%n", porkchop.deltaV[cheapest],
+                    porkchop.departureTime(cheapest % gridSize), porkchop.flightTime(cheapest / gridSize));
+        }
+        porkchop.write(Path.of(args[7]));
+    }
+    private static Planet planetNamed(World world, String name) {
+        for (Satellite body : world.state.bodies) {
+            if (body instanceof Planet planet && planet.name.equals(name)) {
+                return planet;
+            }
+        }
+        throw new IllegalArgumentException("No planet named " + name);
+    }
+}
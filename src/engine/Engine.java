@@ -5,20 +5,47 @@ import jdk.swing.interop.LightweightContentWrapper;
 import util.Coordinate;
 import world.*;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.HashSet;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
 
 public class Engine {
     public Renderer renderer;
     public Renderer3D renderer3D;
-    public boolean isRendering3d = true;
-    public final double[] timeMultiplierOptions = new double[]{1, 10, 100, 1000, 10000};
+    public volatile boolean isRendering3d = true;
+    public final double[] timeMultiplierOptions = new double[]{1, 10, 100, 1000, 10000, 1e5, 1e6, 1e7};
+    public static final double MULTI_RATE_THRESHOLD = 10000; // time multipliers above this sub-cycle spacecraft instead of stepping everything at once
+    public static final int LEAD_LENGTH = 1000; // max number of spacecraft lead intervals
+    public static final double LEAD_REANCHOR_DEVIATION = 50; // spacecraft deviation from its lead that re-anchors the lead (km)
+    public static final double LEAD_RESTART_DEVIATION = 500; // deviation, added to past re-anchoring, that predicts the lead again (km)
+    public static final int REWIND_KEYFRAME_INTERVAL = 240; // steps between rewind keyframes; one second of physics frames
+    public static final long REWIND_MEMORY_BUDGET = 128L << 20; // most bytes of rewind history kept (B)
+    public static final double MANEUVER_PLANNING_DELAY = 10; // wall-clock seconds between requesting a transfer and its earliest burn
+    public static final long PHYSICS_STOP_TIMEOUT_MILLIS = 5000; // longest wait for the physics thread to stop on exit
     public int multiplierIndex; // index deciding which of the time multiplier options control the simulation
     public double physicFPS; // number of physics frames computed every second
     public double timeStep; // distance between each calculation (s)
     public double leadStep; // distance between each lead calculation (s)
+    public double baseLeadStep; // lead step at time multipliers up to `MULTI_RATE_THRESHOLD` (s)
     public double leadFactor; // ratio of the lead step to the real simulation time step
-    public long iterationCounter; // counts the number of iterations that occur (also the # of frames rendered)
+    public long iterationCounter; // counts the number of physics iterations that occur
+    public LeadWorker leadWorker; // computes leads away from the physics thread
+    public MultiRateStepper multiRateStepper; // steps the world while the time multiplier exceeds `MULTI_RATE_THRESHOLD`
+    public SnapshotBuffer snapshots; // snapshots handed from the physics thread to the render thread
+    public Queue<Character> pendingInput; // key presses queued by the render thread for the physics thread
+    public volatile boolean running; // whether the physics thread should keep stepping
+    public Path checkpointPath = Path.of("world.checkpoint"); // file the world is saved to when 'c' is pressed
+    public FlightRecorder recorder; // records every body's state after each step, or null to record nothing; closed once physics stops
+    public RewindBuffer rewind; // recent history scrubbed through with '[' and ']'
+    public boolean scrubbing; // whether stepping is paused while the user scrubs through the rewind history
+    public ManeuverWorker maneuverWorker; // searches for transfer burns away from the physics thread
+    public ManeuverNode maneuver; // planned burn the physics loop executes once the simulation reaches it, or null
+    public volatile Satellite transferTarget; // display target when a transfer was last requested with 'n'
+    public int reportedImpacts; // number of the world's impacts already printed
 
     public void initializeEngine(double physicsFPS, double leadFactor) {
         this.renderer = new Renderer();
@@ -28,19 +55,39 @@ public class Engine {
         this.timeStep = timeMultiplierOptions[multiplierIndex] / physicFPS;
         this.leadFactor = leadFactor;
         this.leadStep = timeStep * leadFactor;
+        this.baseLeadStep = leadStep;
         this.iterationCounter = 0;
+        this.leadWorker = new LeadWorker();
+        this.multiRateStepper = new MultiRateStepper(0.01, 100000);
+        this.snapshots = new SnapshotBuffer();
+        this.pendingInput = new ConcurrentLinkedQueue<>();
+        this.rewind = new RewindBuffer(REWIND_KEYFRAME_INTERVAL, REWIND_MEMORY_BUDGET);
+        this.scrubbing = false;
+        this.maneuverWorker = new ManeuverWorker();
+        this.maneuver = null;
     }
 
     /**
      * Main engine loop for the 2D simulation logic.
+     * Physics runs on its own fixed-timestep thread and publishes a snapshot after every step,
+     * while this thread handles display input and draws the latest snapshots as fast as it can.
+     * @param start checkpoint saved with 'c' to resume from, scenario file to start, or null to start the default scenario.
      * */
-    public void mainLoop() {
-
-        Planet sun = new Planet("Sun", StdDraw.WHITE, 6378, 5.97 * Math.pow(10, 24));
-        Planet kerbin = new Planet("Kerbin", sun, StdDraw.BLUE, 4737, 0.73 * Math.pow(10, 24), 0.384 * Math.pow(10, 6) / 5, 0, 0);
-        Spacecraft spacecraft = new Spacecraft(kerbin, StdDraw.RED, 10, 7878, 0, Math.PI);
-        Camera camera = new Camera(spacecraft, 10000, 0);
-        World world = new World(sun, spacecraft, camera);
+    public void mainLoop(Path start) throws IOException {
+        World world;
+        double timeMultiplier = timeMultiplierOptions[0];
+        if (start != null && WorldCheckpoint.isCheckpoint(start)) {
+            WorldCheckpoint restored = WorldCheckpoint.restore(start);
+            world = restored.world;
+            timeMultiplier = restored.timeMultiplier;
+            checkpointPath = start;
+        } else {
+            world = start != null ? ScenarioFile.load(start) : Scenarios.sunKerbin();
+            world.setPlanetsOnRails(true);
+        }
+        Satellite sun = world.getSimulationCenter();
+        Spacecraft spacecraft = world.spacecraft;
+        Camera camera = world.camera;
 
         Entity light = new Entity(0, 0, 0, 0, 0, 0);
         Entity[] lightSources = new Entity[]{light};
@@ -55,102 +102,331 @@ public class Engine {
         int scaleFactor = initialSimulationWidth / displayWidth;
 
         initializeEngine(physicsFPS, leadFactor);
+        for (int index = 0; index < timeMultiplierOptions.length; index++) {
+            if (timeMultiplierOptions[index] == timeMultiplier) {
+                changeTimeMultiplier(index - multiplierIndex);
+            }
+        }
         renderer.initialize(displayWidth, displayHeight, scaleFactor, camera, world.getSimulationCenter(), world.getOrderedChildren());
         renderer3D.initialize(displayWidth, displayHeight, scaleFactor, camera, spacecraft, world.getOrderedChildren(), lightSources, lightEmitters);
 
-        boolean calculateLead = true; // determines whether to (re)calculate the full lead during the following iteration
+        Thread physicsThread = new Thread(() -> physicsLoop(world), "physics");
+        physicsThread.setDaemon(true);
+        running = true;
+        physicsThread.start();
+        // closing the window exits the JVM; let the physics thread finish its step and close the recorder first
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> stopPhysics(physicsThread), "shutdown"));
+
+        long stepNanos = Math.round(1e9 / physicFPS);
         while (true) {
-            performLeadCalculations(world, calculateLead);
+            // display controls are handled here; everything that touches the world is queued for the physics thread
+            while (StdDraw.hasNextKeyTyped()) {
+                char keyPress = StdDraw.nextKeyTyped();
+                if (!handleRenderInput(keyPress)) {
+                    pendingInput.add(keyPress);
+                }
+            }
+            WorldSnapshot frame = snapshots.interpolated(System.nanoTime(), stepNanos);
+            if (frame == null) {
+                Thread.onSpinWait();
+                continue;
+            }
             if (isRendering3d) {
-                renderer3D.renderFrame();
+                renderer3D.renderFrame(frame);
             } else {
-                renderer.renderFrame();
+                renderer.renderFrame(frame);
             }
+        }
+    }
+    /**
+     * Fixed-timestep physics loop. Steps the world at `physicFPS` steps per wall-clock second
+     * and publishes an immutable snapshot after each step. Only this thread may touch the world.
+     * */
+    public void physicsLoop(World world) {
+        Spacecraft spacecraft = world.spacecraft;
+        Camera camera = world.camera;
+        long stepNanos = Math.round(1e9 / physicFPS);
+        long nextStepNanos = System.nanoTime();
+        WorldSnapshot latest = null;
+
+        world.startFullLead(leadStep);
+        leadWorker.request(world, leadStep, LEAD_LENGTH, false);
+        boolean restartCraftLead = false; // determines whether to restart the spacecraft's lead during the following iteration
+        while (running) {
+            performLeadCalculations(world, restartCraftLead);
             // handle movement controls
-            boolean thrustEngaged = false; // must re-calculate lead if thrust controls engaged
-            if (StdDraw.hasNextKeyTyped()) {
-                thrustEngaged = handleMovement(spacecraft, camera, StdDraw.nextKeyTyped());
+            boolean leadInvalidated = false; // must re-calculate lead if thrust controls engaged or the lead step changed
+            Character keyPress;
+            while ((keyPress = pendingInput.poll()) != null) {
+                if (keyPress == 'c') {
+                    saveCheckpoint(world);
+                } else if (!handleRewind(world, keyPress) && !handleManeuver(world, keyPress)) {
+                    leadInvalidated |= handleMovement(spacecraft, camera, keyPress);
+                }
+            }
+            ManeuverOptimizer.Result plan = maneuverWorker.poll();
+            if (plan != null) {
+                acceptPlan(world, plan);
             }
-            world.updatePlanetMovement(timeStep);
             // must recalculate lead if the spacecraft's parent changes
-            boolean parentChanged = world.updateSpacecraftMovement(timeStep);
+            boolean parentChanged = false;
+            if (!scrubbing) {
+                world.multiRate = timeMultiplierOptions[multiplierIndex] > MULTI_RATE_THRESHOLD ? multiRateStepper : null;
+                parentChanged = stepThroughManeuver(world);
+                reportImpacts(world);
+                if (recorder != null) {
+                    recorder.record(world);
+                }
+                rewind.record(world);
+            }
             world.setCamera();
             camera.pointToward(camera.getTarget());
-            // lead calculated with larger time step, so lead will sometimes drift away from spacecraft -> must recalculate lead when this occurs
-            boolean leadDrift = spacecraft.distanceToFirstLead() > 500;
-            calculateLead = thrustEngaged || parentChanged || leadDrift;
+            // lead calculated with larger time step, so lead will sometimes drift away from spacecraft:
+            // small drift re-anchors the lead on the spacecraft, while large or accumulated drift recalculates it
+            // a stale lead deviates until its replacement arrives, so drift only counts once nothing is pending
+            boolean leadDrift = false;
+            if (!leadWorker.isPending()) {
+                double deviation = world.craftLeadDeviation();
+                if (world.craftLeadShift + deviation > LEAD_RESTART_DEVIATION) {
+                    leadDrift = true;
+                } else if (deviation > LEAD_REANCHOR_DEVIATION) {
+                    world.reanchorCraftLead();
+                }
+            }
+            restartCraftLead = leadInvalidated || parentChanged || leadDrift;
             // increment iteration counter; ensure it doesn't exceed max value
             iterationCounter = (iterationCounter + 1) % Long.MAX_VALUE;
+
+            latest = WorldSnapshot.capture(world, iterationCounter, latest);
+            snapshots.publish(latest);
+
+            // hold the fixed step rate; if physics falls more than a second behind, drop the backlog rather than racing to catch up
+            nextStepNanos += stepNanos;
+            long waitNanos = nextStepNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+            } else if (-waitNanos > stepNanos * physicFPS) {
+                nextStepNanos = System.nanoTime();
+            }
         }
+        closeRecorder();
     }
     /**
-     * Perform lead calculations during each iteration.
-     * After calculating the entire lead from scratch, it'll continue to manipulate lead position/velocity deques for each satellite.
-     * @param calculateLead boolean determining whether to recalculate the full lead.
+     * Stop the physics loop and wait for it to finish its current step.
+     * @param physicsThread thread running `physicsLoop`.
      * */
-    public void performLeadCalculations(World world, boolean calculateLead) {
-        if (calculateLead) {
-            world.calculateFullLead(leadStep, 1000);
-        } else {
-            // (leadStep > timeStep) : lead positions created less frequently so spacecraft can catch up
-            if (leadFactor > 1) {
-                if (iterationCounter % Math.round(leadFactor) == 0) {
-                    world.calculateOneLeadInterval(leadStep);
-                    world.removeLeadInterval();
-                }
-            // (leadStep < timeStep) : multiple lead calculations performed during each simulation iteration for more precise leads
-            } else if (leadFactor < 1) {
-                for (int leadIndex = 0; leadIndex < Math.round(1 / leadFactor); leadIndex++) {
-                    world.calculateOneLeadInterval(leadStep);
-                    world.removeLeadInterval();
+    public void stopPhysics(Thread physicsThread) {
+        running = false;
+        try {
+            physicsThread.join(PHYSICS_STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    /** Write the recorder's remaining records and report what it recorded. Runs on the physics thread. */
+    private void closeRecorder() {
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.close();
+            System.out.println("Recorded " + recorder.recordedRecords + " records to " + recorder.directory
+                    + ", dropped " + recorder.droppedRecords);
+        } catch (IOException e) {
+            System.err.println("Couldn't finish recording to " + recorder.directory + ": " + e.getMessage());
+        }
+        recorder = null;
+    }
+    /**
+     * Handles the rewind controls. Runs on the physics thread.
+     * '[' pauses stepping and scrubs back through the rewind history, ']' scrubs forward again while paused, and 'r'
+     * pauses or resumes. Resuming continues from the scrubbed-to step, discarding the history after it.
+     * Each scrub moves by one wall-clock second of simulation at the current time multiplier.
+     * @param keyPress character input queued by the render thread.
+     * @return whether the key press was a rewind control.
+     * */
+    public boolean handleRewind(World world, char keyPress) {
+        double scrubTime = timeStep * physicFPS;
+        switch (keyPress) {
+            case 'r' -> scrubbing = !scrubbing;
+            case '[' -> {
+                scrubbing = true;
+                scrubTo(world, world.simulationTime - scrubTime);
+            }
+            case ']' -> {
+                if (scrubbing) {
+                    scrubTo(world, world.simulationTime + scrubTime);
                 }
-            // (leadStep == timeStep) : lead positions calculated at the same rate as simulation calculations
-            } else {
-                world.calculateOneLeadInterval(leadStep);
-                world.removeLeadInterval();
+            }
+            default -> {
+                return false;
             }
         }
+        return true;
     }
     /**
-     * Handles all user inputs and triggers the corresponding behavior.
-     * @param keyPress character input from the `StdDraw` key press queue.
-     * @return boolean indicating if thrust controls were initiated by users; must trigger a lead re-calculation.
+     * Handles the maneuver controls. Runs on the physics thread.
+     * 'n' searches for the cheapest transfer to the planet displayed at the center, and 'm' cancels the search
+     * or the planned burn.
+     * @param keyPress character input queued by the render thread.
+     * @return whether the key press was a maneuver control.
      * */
-    public boolean handleMovement(Spacecraft spacecraft, Camera camera, char keyPress) {
-        boolean thrustEngaged = false;
+    public boolean handleManeuver(World world, char keyPress) {
         switch (keyPress) {
-            // ZOOM IN/OUT:
-            case '1' -> {
-                renderer.changeScaleFactor(0.5);
+            case 'n' -> planTransfer(world, transferTarget);
+            case 'm' -> {
+                maneuverWorker.cancel();
+                maneuver = null;
             }
-            case '2' -> {
-                renderer.changeScaleFactor(1.5);
+            default -> {
+                return false;
             }
+        }
+        return true;
+    }
+    /**
+     * Start searching for a transfer burn to a planet. The earliest burn leaves `MANEUVER_PLANNING_DELAY`
+     * wall-clock seconds for the search to finish at the current time multiplier.
+     * @param target planet to encounter; must orbit a parent, and mustn't be the spacecraft's parent.
+     * */
+    public void planTransfer(World world, Satellite target) {
+        if (!(target instanceof Planet planet) || planet.parent == null || planet == world.spacecraft.parent) {
+            System.out.println("Center a planet other than the spacecraft's parent with 'q'/'e' to plan a transfer");
+            return;
+        }
+        double windowStart = world.simulationTime + timeStep * physicFPS * MANEUVER_PLANNING_DELAY;
+        maneuverWorker.request(ManeuverOptimizer.transferTo(world, planet, windowStart));
+        maneuver = null;
+        System.out.println("Planning transfer to " + planet.name);
+    }
+    /** Adopt a finished search's burn, unless it found no encounter or the simulation has already passed the burn. */
+    public void acceptPlan(World world, ManeuverOptimizer.Result plan) {
+        if (!plan.encounter) {
+            System.out.printf("No transfer found; closest approach %.0f km%n", plan.closestApproach);
+        } else if (plan.node.time < world.simulationTime) {
+            System.out.println("Transfer search finished after its burn time; press 'n' to plan again");
+        } else {
+            maneuver = plan.node;
+            System.out.printf("Planned %.3f km/s burn at t = %.0f s, reaching the target at t = %.0f s%n",
+                    plan.node.deltaV(), plan.node.time, plan.closestApproachTime);
+        }
+    }
+    /**
+     * Step the world by `timeStep`, splitting the step to execute the planned burn at exactly its time.
+     * @return whether the spacecraft's parent changed or the burn was executed; either invalidates the lead.
+     * */
+    public boolean stepThroughManeuver(World world) {
+        if (maneuver == null || maneuver.time >= world.simulationTime + timeStep) {
+            return world.step(timeStep);
+        }
+        double untilBurn = Math.max(0, maneuver.time - world.simulationTime);
+        if (untilBurn > 0) {
+            world.step(untilBurn);
+        }
+        maneuver.execute(world);
+        maneuver = null;
+        world.step(timeStep - untilBurn);
+        return true;
+    }
+    /** Print every impact that happened since the last report. Runs on the physics thread. */
+    public void reportImpacts(World world) {
+        while (reportedImpacts < world.impacts.size()) {
+            ImpactEvent impact = world.impacts.get(reportedImpacts++);
+            String craft = impact.craftId == world.spacecraft.id ? "Spacecraft" : "Spacecraft #" + impact.craftId;
+            System.out.printf("%s hit %s at %.3f km/s, t = %.0f s%n",
+                    craft, ((Planet) world.state.bodies[impact.bodyId]).name, impact.speed, impact.time);
+        }
+    }
+    /**
+     * Move the world to the newest recorded step at or before a time, then restart every lead from there;
+     * leads calculated before the seek no longer describe the world's future.
+     * @param time simulation time to scrub to (s).
+     * */
+    public void scrubTo(World world, double time) {
+        if (rewind.seek(world, time)) {
+            // impacts after the restored step were forgotten, and are reported again if they happen again
+            reportedImpacts = Math.min(reportedImpacts, world.impacts.size());
+            world.startFullLead(leadStep);
+            leadWorker.request(world, leadStep, LEAD_LENGTH, false);
+        }
+    }
+    /**
+     * Save the world to `checkpointPath`, from which `Main` can resume it later. Runs on the physics thread between steps.
+     * A failed save is reported without stopping the simulation.
+     * */
+    public void saveCheckpoint(World world) {
+        try {
+            WorldCheckpoint.save(world, timeMultiplierOptions[multiplierIndex], checkpointPath);
+            System.out.println("Saved checkpoint to " + checkpointPath);
+        } catch (IOException e) {
+            System.err.println("Couldn't save checkpoint to " + checkpointPath + ": " + e.getMessage());
+        }
+    }
+    /**
+     * Perform lead calculations during each iteration.
+     * Leads are computed by the `leadWorker`; the previous lead stays in place until a fresh one is installed,
+     * so a physics step only pays for copying the world's state and advancing leads to the current time.
+     * A restart only recalculates the spacecraft's lead; the installed planet leads are kept.
+     * @param restartCraftLead boolean determining whether to recalculate the spacecraft's lead from its current state.
+     * */
+    public void performLeadCalculations(World world, boolean restartCraftLead) {
+        if (restartCraftLead) {
+            leadWorker.request(world, leadStep, LEAD_LENGTH, true);
+        }
+        LeadPrediction prediction = leadWorker.poll();
+        if (prediction != null) {
+            world.installLead(prediction);
+        }
+        world.advanceLead();
+    }
+    /**
+     * Handles user inputs that only affect the display. Runs on the render thread.
+     * @param keyPress character input from the `StdDraw` key press queue.
+     * @return whether the key press was consumed; unconsumed presses belong to the physics thread.
+     * */
+    public boolean handleRenderInput(char keyPress) {
+        switch (keyPress) {
+            // ZOOM IN/OUT:
+            case '1' -> renderer.changeScaleFactor(0.5);
+            case '2' -> renderer.changeScaleFactor(1.5);
             // CHANGE CURRENT SIMULATION TARGET:
-            case 'q' -> {
-                renderer.changeTargetIndex(1);
+            case 'q' -> renderer.changeTargetIndex(1);
+            case 'e' -> renderer.changeTargetIndex(-1);
+            case 'p' -> isRendering3d = !isRendering3d;
+            // PLAN A TRANSFER to the centered planet; the search itself is started by the physics thread
+            case 'n' -> {
+                transferTarget = renderer.getTarget();
+                return false;
             }
-            case 'e' -> {
-                renderer.changeTargetIndex(-1);
+            default -> {
+                return false;
             }
+        }
+        return true;
+    }
+    /**
+     * Handles user inputs that change the simulation and triggers the corresponding behavior. Runs on the physics thread.
+     * @param keyPress character input queued by the render thread.
+     * @return boolean indicating if thrust controls were initiated by users or the lead step changed; must trigger a lead re-calculation.
+     * */
+    public boolean handleMovement(Spacecraft spacecraft, Camera camera, char keyPress) {
+        boolean leadInvalidated = false;
+        switch (keyPress) {
             // CHANGE SIMULATION SPEED (speed up/slow down orbital calculations)
             case 'z' -> {
-                changeTimeMultiplier(1);
+                leadInvalidated = changeTimeMultiplier(1);
             }
             case 'x' -> {
-                changeTimeMultiplier(-1);
+                leadInvalidated = changeTimeMultiplier(-1);
             }
             // ENGAGE SPACECRAFT THRUST:
             case 'w' -> {
                 spacecraft.engageThrust(1, 0.005);
-                thrustEngaged = true;
+                leadInvalidated = true;
             }
             case 's' -> {
                 spacecraft.engageThrust(-1, 0.005);
-                thrustEngaged = true;
-            }
-            case 'p' -> {
-                isRendering3d = !isRendering3d;
+                leadInvalidated = true;
             }
             case 'i' -> {
                 camera.moveTowardTarget(-100);
@@ -165,19 +441,27 @@ public class Engine {
                 camera.rotateAroundTarget(-10);
             }
         };
-        return thrustEngaged;
+        return leadInvalidated;
     }
     /**
      * Changes simulation speed by adjusting the `timeStep` and `leadFactor`.
-     * Longer timeSteps give the appearance of a faster simulation, at the expense calculation precision.
+     * Longer timeSteps give the appearance of a faster simulation. Beyond `MULTI_RATE_THRESHOLD` the physics loop
+     * switches to multi-rate stepping, so spacecraft keep short substeps near planets however long the step is,
+     * and the lead step grows with the multiplier so that the lead still reaches ahead of a single step.
      * @param change changes which of the time multiplier options is selected.
+     * @return whether the lead step changed, which invalidates the lead.
      * */
-    public void changeTimeMultiplier(int change) {
+    public boolean changeTimeMultiplier(int change) {
         int newIndex = multiplierIndex + change;
-        if (newIndex >= 0 && newIndex <= timeMultiplierOptions.length - 1) {
-            multiplierIndex = newIndex;
-            timeStep = timeMultiplierOptions[multiplierIndex] / physicFPS;
-            leadFactor = leadStep / timeStep;
+        if (newIndex < 0 || newIndex > timeMultiplierOptions.length - 1) {
+            return false;
         }
+        multiplierIndex = newIndex;
+        timeStep = timeMultiplierOptions[multiplierIndex] / physicFPS;
+        double newLeadStep = baseLeadStep * Math.max(1, timeMultiplierOptions[multiplierIndex] / MULTI_RATE_THRESHOLD);
+        boolean leadStepChanged = newLeadStep != leadStep;
+        leadStep = newLeadStep;
+        leadFactor = leadStep / timeStep;
+        return leadStepChanged;
     }
 }
@@ -0,0 +1,71 @@
+package engine;
+
+import world.*;
+
+import java.util.Locale;
+
+/**
+ * Runs the simulation without a display.
+ * Advances the `World` as fast as the CPU allows and never touches `StdDraw` or either renderer,
+ * so it can be used on machines without a graphics environment.
+ * */
+public class HeadlessEngine {
+    public World world;
+    public double timeStep; // distance between each calculation (s)
+    public long stepCount; // number of physics steps performed so far
+    public long elapsedNanos; // wall-clock time spent stepping the world (ns)
+    public FlightRecorder recorder; // records every body's state after each step, or null to record nothing
+
+    public HeadlessEngine(World world, double timeStep) {
+        this.world = world;
+        this.timeStep = timeStep;
+        this.stepCount = 0;
+        this.elapsedNanos = 0;
+    }
+    /**
+     * Advance the world until the given amount of simulated time has passed.
+     * The final step is shortened so that the world lands exactly on the requested duration.
+     * @param duration simulated time to advance by (seconds).
+     * */
+    public void run(double duration) {
+        double endTime = world.simulationTime + duration;
+        long startNanos = System.nanoTime();
+        while (world.simulationTime < endTime) {
+            double step = Math.min(timeStep, endTime - world.simulationTime);
+            world.step(step);
+            if (recorder != null) {
+                recorder.record(world);
+            }
+            stepCount++;
+        }
+        elapsedNanos += System.nanoTime() - startNanos;
+    }
+    /** @return average physics steps performed per wall-clock second. */
+    public double stepsPerSecond() {
+        return elapsedNanos == 0 ? 0 : stepCount / (elapsedNanos / 1e9);
+    }
+    /**
+     * Summarize the throughput of the run along with the final position and velocity of every satellite.
+     * @return multi-line report.
+     * */
+    public String report() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.ROOT, "simulated %.1f s in %d steps (%.3f s wall, %.0f steps/s)%n",
+                world.simulationTime, stepCount, elapsedNanos / 1e9, stepsPerSecond()));
+        BodyStateStore state = world.state;
+        for (int id = 0; id < state.size; id++) {
+            Satellite satellite = state.bodies[id];
+            String parentName = satellite.parent == null ? "-" : nameOf(satellite.parent);
+            builder.append(String.format(Locale.ROOT, "%-12s parent=%-12s position=(%.3f, %.3f) km velocity=(%.6f, %.6f) km/s%n",
+                    nameOf(satellite), parentName,
+                    state.positionX[id], state.positionY[id], state.velocityX[id], state.velocityY[id]));
+        }
+        return builder.toString();
+    }
+    private static String nameOf(Satellite satellite) {
+        if (satellite instanceof Planet planet) {
+            return planet.name;
+        }
+        return satellite.getClass().getSimpleName() + "#" + satellite.id;
+    }
+}
@@ -0,0 +1,69 @@
+package engine;
+
+import world.LeadPrediction;
+import world.World;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Computes leads on a background thread so that a lead restart never stalls a physics step.
+ * Each request copies the world's state and is numbered with a new epoch; requesting again cancels the
+ * in-flight computation, and results for anything but the newest epoch are dropped. Until a fresh result
+ * is installed, the world (and so the renderer) keeps its previous lead.
+ * Requests and polls must come from the thread that steps the world.
+ * */
+public class LeadWorker {
+    private final ExecutorService executor;
+    private final AtomicReference<LeadPrediction> completed = new AtomicReference<>(); // newest finished prediction
+    private volatile long requestedEpoch; // epoch of the newest request
+    private long deliveredEpoch; // epoch of the newest prediction handed out by `poll`
+    private Future<?> inFlight;
+
+    public LeadWorker() {
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lead");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    /**
+     * Start computing a lead from the world's current state, cancelling any older computation.
+     * Only the state copy happens on the calling thread, so its cost doesn't depend on the lead's length.
+     * @param leadStep length of the time interval between lead positions (seconds).
+     * @param leadLength max number of lead intervals to be calculated.
+     * @param craftOnly whether to restart only the spacecraft lead, keeping the installed planet leads when they fit.
+     * */
+    public void request(World world, double leadStep, int leadLength, boolean craftOnly) {
+        if (inFlight != null) {
+            inFlight.cancel(true);
+        }
+        long epoch = requestedEpoch + 1;
+        LeadPrediction prediction = new LeadPrediction(world, leadStep, leadLength, epoch, craftOnly);
+        requestedEpoch = epoch;
+        inFlight = executor.submit(() -> {
+            if (prediction.compute() && prediction.epoch == requestedEpoch) {
+                completed.set(prediction);
+            }
+        });
+    }
+    /** @return the newest requested prediction if it finished since the last poll, otherwise null. */
+    public LeadPrediction poll() {
+        LeadPrediction prediction = completed.getAndSet(null);
+        if (prediction == null || prediction.epoch != requestedEpoch) {
+            return null;
+        }
+        deliveredEpoch = prediction.epoch;
+        return prediction;
+    }
+    /** @return whether the newest request hasn't been delivered yet. */
+    public boolean isPending() {
+        return deliveredEpoch != requestedEpoch;
+    }
+    /** Cancel any in-flight computation and stop the background thread. */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
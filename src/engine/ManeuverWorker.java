@@ -0,0 +1,66 @@
+package engine;
+
+import world.ManeuverOptimizer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs maneuver searches on a background thread so that planning never stalls a physics step.
+ * Requesting a new search cancels the one in flight, and only the newest search's result is delivered.
+ * Requests and polls must come from the thread that steps the world.
+ * */
+public class ManeuverWorker {
+    private final ExecutorService executor;
+    private final AtomicReference<Finished> completed = new AtomicReference<>(); // newest finished search
+    private ManeuverOptimizer requested; // newest requested search, whose result alone is delivered
+    private Future<?> inFlight;
+
+    private record Finished(ManeuverOptimizer optimizer, ManeuverOptimizer.Result result) {}
+
+    public ManeuverWorker() {
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "maneuver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    /**
+     * Start a search, cancelling any older one.
+     * @param optimizer search prepared from the world's current state.
+     * */
+    public void request(ManeuverOptimizer optimizer) {
+        cancel();
+        requested = optimizer;
+        inFlight = executor.submit(() -> {
+            ManeuverOptimizer.Result result = optimizer.optimize();
+            if (result != null) {
+                completed.set(new Finished(optimizer, result));
+            }
+        });
+    }
+    /** @return the newest requested search's result if it finished since the last poll, otherwise null. */
+    public ManeuverOptimizer.Result poll() {
+        Finished finished = completed.getAndSet(null);
+        return finished == null || finished.optimizer != requested ? null : finished.result;
+    }
+    /** @return whether a search is still running. */
+    public boolean isPending() {
+        return inFlight != null && !inFlight.isDone();
+    }
+    /** Cancel the search in flight, if any, and drop any result not yet polled. */
+    public void cancel() {
+        requested = null;
+        if (inFlight != null) {
+            inFlight.cancel(true);
+            inFlight = null;
+        }
+        completed.set(null);
+    }
+    /** Cancel any search in flight and stop the background thread. */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -5,7 +5,6 @@ import util.Coordinate;
 import world.*;
 
 import java.awt.Color;
-import java.util.Iterator;
 import java.util.List;
 
 public class Renderer {
@@ -17,6 +16,7 @@ public class Renderer {
     private Satellite simulationCenter;
     private List<Satellite> orderedTargetList;
     private Satellite targetSatellite;
+    private WorldSnapshot frame; // snapshot currently being drawn
 
     public void initialize(int width, int height, double scaleFactor, Camera camera, Satellite simulationCenter, List<Satellite> orderedChildren) {
         this.displayWidth = width;
@@ -39,8 +39,10 @@ public class Renderer {
     /**
      * Clears screen then renders all satellites and their lead positions.
      * Renders entities in an order that places children above their parents.
+     * @param frame snapshot of the world to be drawn; the live world is never read.
      * */
-    public void renderFrame() {
+    public void renderFrame(WorldSnapshot frame) {
+        this.frame = frame;
         StdDraw.clear(new Color(0, 0, 0));
         StdDraw.enableDoubleBuffering();
         // iterate through each satellite and trigger corresponding render method based on satellite type
@@ -57,11 +59,12 @@ public class Renderer {
             }
             // render a satellite marker with constant size regardless of zoom
             if (satellite.equals(targetSatellite)) {
-                renderSatelliteMarker(satellite.getPosition(), StdDraw.GREEN);
+                renderSatelliteMarker(frame.positionOf(satellite), StdDraw.GREEN);
             } else {
-                renderSatelliteMarker(satellite.getPosition(), StdDraw.PRINCETON_ORANGE);
+                renderSatelliteMarker(frame.positionOf(satellite), StdDraw.PRINCETON_ORANGE);
             }
         }
+        drawEncounters();
         renderCamera();
         StdDraw.show();
     }
@@ -70,7 +73,7 @@ public class Renderer {
      * @param planet specified planet instance.
      * */
     public void renderPlanet(Planet planet) {
-        Coordinate displayPosition = transformToDisplay(planet.getPosition());
+        Coordinate displayPosition = transformToDisplay(frame.positionOf(planet));
         StdDraw.setPenColor(planet.color);
         StdDraw.filledCircle(displayPosition.getX(), displayPosition.getY(), realToDisplayUnits(planet.radius));
     }
@@ -80,7 +83,7 @@ public class Renderer {
      * */
     public void renderSpacecraft(Spacecraft spacecraft) {
         StdDraw.setPenColor(StdDraw.RED);
-        Coordinate displayPosition = transformToDisplay(spacecraft.getPosition());
+        Coordinate displayPosition = transformToDisplay(frame.positionOf(spacecraft));
         StdDraw.filledCircle(displayPosition.getX(), displayPosition.getY(), realToDisplayUnits(spacecraft.shipSize));
     }
     /**
@@ -99,12 +102,13 @@ public class Renderer {
     public void renderCamera() {
         StdDraw.setPenColor(StdDraw.MAGENTA);
         double viewLineDistance = 1000;
-        Coordinate cameraPosition = camera.getPosition();
+        Coordinate cameraPosition = frame.getCameraPosition();
+        double cameraYaw = Math.toRadians(frame.getCameraDirection().getY());
         Coordinate cameraViewEndpoint = new Coordinate(
-                cameraPosition.getX() + viewLineDistance * Math.cos(Math.toRadians(camera.getDirection().getY())),
-                cameraPosition.getY() + viewLineDistance * Math.sin(Math.toRadians(camera.getDirection().getY()))
+                cameraPosition.getX() + viewLineDistance * Math.cos(cameraYaw),
+                cameraPosition.getY() + viewLineDistance * Math.sin(cameraYaw)
         );
-        Coordinate displayPosition = transformToDisplay(camera.getPosition());
+        Coordinate displayPosition = transformToDisplay(cameraPosition);
         Coordinate endpointDisplay = transformToDisplay(cameraViewEndpoint);
         StdDraw.filledCircle(displayPosition.getX(), displayPosition.getY(), 3);
         StdDraw.line(
@@ -119,14 +123,14 @@ public class Renderer {
      * */
     public void drawPlanetLead(Planet planet) {
         StdDraw.setPenColor(planet.color);
+        Coordinate parentPosition = frame.positionOf(planet.parent);
+        Coordinate targetPosition = frame.positionOf(targetSatellite);
         for (int degree = 0; degree < 360; degree++) {
-            Coordinate parentPosition = planet.parent.getPosition();
 
             double xPosition = parentPosition.getX() + planet.orbitalRadius * Math.cos(Math.toRadians(degree));
             double yPosition = parentPosition.getY() + planet.orbitalRadius * Math.sin(Math.toRadians(degree));
 
-            Coordinate displayPosition = transformToDisplay(new Coordinate(xPosition, yPosition));
-            StdDraw.filledCircle(displayPosition.getX(), displayPosition.getY(), 1);
+            StdDraw.filledCircle(toDisplayX(xPosition, targetPosition), toDisplayY(yPosition, targetPosition), 1);
         }
     }
     /**
@@ -136,32 +140,49 @@ public class Renderer {
      * @param spacecraft specified spacecraft instance.
      */
     public void drawSpacecraftLead(Spacecraft spacecraft) {
-        if (spacecraft.parent == null) {
+        double[] leadX = frame.leadXOf(spacecraft);
+        double[] leadY = frame.leadYOf(spacecraft);
+        Satellite parent = frame.parentOf(spacecraft);
+        // lead positions are transformed straight from the primitive arrays, without a `Coordinate` per position
+        Coordinate targetPosition = frame.positionOf(targetSatellite);
+        if (parent == null) {
             StdDraw.setPenColor(spacecraft.color);
             // transform and render absolute lead positions
-            for (Coordinate leadPosition : spacecraft.getLeadPositions()) {
-                Coordinate displayPosition = transformToDisplay(leadPosition);
-                StdDraw.filledCircle(displayPosition.getX(), displayPosition.getY(), 1);
+            for (int leadIndex = 0; leadIndex < leadX.length; leadIndex++) {
+                StdDraw.filledCircle(
+                        toDisplayX(leadX[leadIndex], targetPosition), toDisplayY(leadY[leadIndex], targetPosition), 1
+                );
             }
         } else {
-            Satellite parent = spacecraft.parent;
             StdDraw.setPenColor(parent.color);
-            Iterator<Coordinate> spacecraftLeads = spacecraft.getLeadPositions().iterator();
-            Iterator<Coordinate> parentLeads = parent.getLeadPositions().iterator();
-            while (spacecraftLeads.hasNext() && parentLeads.hasNext()) {
-                Coordinate spacecraftLeadPosition = spacecraftLeads.next();
-                Coordinate parentLeadPosition = parentLeads.next();
-                // calculate the spacecraft's lead position relative to its parent's future position
-                double distanceToParent = parentLeadPosition.distanceTo(spacecraftLeadPosition);
-                double angleBetween = parentLeadPosition.angleBetween(spacecraftLeadPosition);
-                // predict how the lead position will appear relative to its parent future position
-                Coordinate positionRelativeToParent = new Coordinate(
-                        parent.getPosition().getX() + distanceToParent * Math.cos(angleBetween),
-                        parent.getPosition().getY() + distanceToParent * Math.sin(angleBetween)
-                );
-                Coordinate displayPosition = transformToDisplay(positionRelativeToParent);
-                StdDraw.filledCircle(displayPosition.getX(), displayPosition.getY(), 1);
+            double[] parentLeadX = frame.leadXOf(parent);
+            double[] parentLeadY = frame.leadYOf(parent);
+            Coordinate parentPosition = frame.positionOf(parent);
+            int leadCount = Math.min(leadX.length, parentLeadX.length);
+            for (int leadIndex = 0; leadIndex < leadCount; leadIndex++) {
+                // predict how the lead position will appear relative to its parent's current position
+                double relativeX = parentPosition.getX() + leadX[leadIndex] - parentLeadX[leadIndex];
+                double relativeY = parentPosition.getY() + leadY[leadIndex] - parentLeadY[leadIndex];
+                StdDraw.filledCircle(toDisplayX(relativeX, targetPosition), toDisplayY(relativeY, targetPosition), 1);
+            }
+        }
+    }
+    /**
+     * Marks the encounter events ahead of the controlled spacecraft along its lead, each with a short label.
+     * Markers follow the lead, which is drawn relative to the spacecraft's parent.
+     * */
+    public void drawEncounters() {
+        StdDraw.setPenColor(StdDraw.WHITE);
+        Coordinate targetPosition = frame.positionOf(targetSatellite);
+        for (EncounterEvent event : frame.encounters) {
+            if (event.time < frame.simulationTime) {
+                continue;
             }
+            Coordinate position = frame.encounterPosition(event);
+            double displayX = toDisplayX(position.getX(), targetPosition);
+            double displayY = toDisplayY(position.getY(), targetPosition);
+            StdDraw.square(displayX, displayY, 3);
+            StdDraw.textLeft(displayX + 6, displayY, event.label(frame.bodyOf(event.bodyId)));
         }
     }
     /**
@@ -179,16 +200,36 @@ public class Renderer {
         targetIndex = (targetIndex + indexChange + orderedTargetList.size()) % orderedTargetList.size();
         targetSatellite = orderedTargetList.get(targetIndex);
     }
+    /** @return satellite currently displayed at the center. */
+    public Satellite getTarget() {
+        return targetSatellite;
+    }
     /**
      * Transform a position within the simulation to a display coordinate.
      * @param realPosition position to be transformed (km).
      * @return resulting position relative to the display (display pixels).
      * */
     private Coordinate transformToDisplay(Coordinate realPosition) {
-        return new Coordinate(
-                ((double) (displayWidth / 2)) - realToDisplayUnits(targetSatellite.getPosition().getX()) + realToDisplayUnits(realPosition.getX()),
-                ((double) (displayHeight / 2)) - realToDisplayUnits(targetSatellite.getPosition().getY()) + realToDisplayUnits(realPosition.getY())
-        );
+        Coordinate targetPosition = frame.positionOf(targetSatellite);
+        return new Coordinate(toDisplayX(realPosition.getX(), targetPosition), toDisplayY(realPosition.getY(), targetPosition));
+    }
+    /**
+     * Transform a simulation x-position to a display x-coordinate.
+     * @param realX x-position to be transformed (km).
+     * @param targetPosition position of the satellite centered on the display (km).
+     * @return resulting x-coordinate relative to the display (display pixels).
+     * */
+    private double toDisplayX(double realX, Coordinate targetPosition) {
+        return ((double) (displayWidth / 2)) - realToDisplayUnits(targetPosition.getX()) + realToDisplayUnits(realX);
+    }
+    /**
+     * Transform a simulation y-position to a display y-coordinate.
+     * @param realY y-position to be transformed (km).
+     * @param targetPosition position of the satellite centered on the display (km).
+     * @return resulting y-coordinate relative to the display (display pixels).
+     * */
+    private double toDisplayY(double realY, Coordinate targetPosition) {
+        return ((double) (displayHeight / 2)) - realToDisplayUnits(targetPosition.getY()) + realToDisplayUnits(realY);
     }
     /**
      * Scale simulation distances to display distances.
@@ -34,14 +34,16 @@ public class Renderer3D {
 
     public static class SatelliteRenderingOrderComparator implements Comparator<Satellite> {
         public Coordinate relativeCenter;
-        public SatelliteRenderingOrderComparator(Coordinate relativeCenter) {
+        public WorldSnapshot frame;
+        public SatelliteRenderingOrderComparator(Coordinate relativeCenter, WorldSnapshot frame) {
             this.relativeCenter = relativeCenter;
+            this.frame = frame;
         }
         @Override
         public int compare(Satellite o1, Satellite o2) {
             if (o1 instanceof Satellite satellite1 && o2 instanceof Satellite satellite2) {
-                double distance1 = relativeCenter.distance3D(satellite1.getPosition());
-                double distance2 = relativeCenter.distance3D(satellite2.getPosition());
+                double distance1 = relativeCenter.distance3D(frame.positionOf(satellite1));
+                double distance2 = relativeCenter.distance3D(frame.positionOf(satellite2));
                 return (int) ((distance2 - distance1) / Math.abs(distance2 - distance1));
             }
             return 0;
@@ -57,6 +59,7 @@ public class Renderer3D {
     private Entity[] lightSources;
     private Set<Entity> lightEmitters;
     private Satellite targetSatellite;
+    private WorldSnapshot frame; // snapshot currently being drawn
 
     public void initialize(int width, int height, double scaleFactor, Camera camera, Satellite targetSatellite, List<Satellite> orderedChildren, Entity[] lightSources, Set<Entity> lightEmitters) {
         this.displayWidth = width;
@@ -81,25 +84,29 @@ public class Renderer3D {
     /**
      * Clears screen then renders all satellites and their lead positions.
      * Renders entities in an order that places children above their parents.
+     * @param frame snapshot of the world to be drawn; the live world is never read.
      * */
-    public void renderFrame() {
+    public void renderFrame(WorldSnapshot frame) {
+        this.frame = frame;
         StdDraw.clear(new Color(0, 0, 0));
         StdDraw.enableDoubleBuffering();
         // iterate through each satellite and trigger corresponding render method based on satellite type
         for (Satellite satellite : orderedTargetList.stream()
-                .sorted(new SatelliteRenderingOrderComparator(camera.getPosition()))
+                .sorted(new SatelliteRenderingOrderComparator(frame.getCameraPosition(), frame))
                 .toList()
         ) {
             renderSatellite(satellite);
             // render a satellite marker with constant size regardless of zoom
-            if (camera.distanceToViewPlane(satellite.getPosition()) >= 100) {
+            Coordinate satellitePosition = frame.positionOf(satellite);
+            if (distanceToViewPlane(satellitePosition) >= 100) {
                 if (satellite.equals(targetSatellite)) {
-                    renderSatelliteMarker(satellite.getPosition(), StdDraw.GREEN);
+                    renderSatelliteMarker(satellitePosition, StdDraw.GREEN);
                 } else {
-                    renderSatelliteMarker(satellite.getPosition(), StdDraw.PRINCETON_ORANGE);
+                    renderSatelliteMarker(satellitePosition, StdDraw.PRINCETON_ORANGE);
                 }
             }
         }
+        renderEncounterMarkers();
         StdDraw.show();
     }
     /**
@@ -109,9 +116,10 @@ public class Renderer3D {
     public void renderSatellite(Satellite satellite) {
         // map each mesh to its distance relative to the camera, and place within priority queue.
         PriorityQueue<MeshRankNode> meshRank = new PriorityQueue<>();
+        Coordinate satellitePosition = frame.positionOf(satellite);
+        Coordinate cameraPosition = frame.getCameraPosition();
         for (Mesh mesh : satellite.getMeshes()) {
-            Coordinate meshPosition = mesh.averageWorldPosition();
-            Coordinate cameraPosition = camera.getPosition();
+            Coordinate meshPosition = mesh.averageWorldPosition(satellitePosition);
             double distanceToCamera = cameraPosition.distance3D(meshPosition);
             meshRank.add(new MeshRankNode(mesh, distanceToCamera));
         }
@@ -139,6 +147,23 @@ public class Renderer3D {
                 new double[]{displayY, displayY + 10, displayY + 10}
         );
     }
+    /**
+     * Marks the encounter events ahead of the controlled spacecraft that lie in front of the camera, each with a short label.
+     * */
+    public void renderEncounterMarkers() {
+        StdDraw.setPenColor(StdDraw.WHITE);
+        for (EncounterEvent event : frame.encounters) {
+            Coordinate position = frame.encounterPosition(event);
+            if (event.time < frame.simulationTime || distanceToViewPlane(position) < 100) {
+                continue;
+            }
+            Coordinate transformed = transformCoordinate(position);
+            double displayX = ((double) displayWidth / 2) - transformed.getX();
+            double displayY = ((double) displayHeight / 2) - transformed.getY();
+            StdDraw.square(displayX, displayY, 3);
+            StdDraw.textLeft(displayX + 6, displayY, event.label(frame.bodyOf(event.bodyId)));
+        }
+    }
     /**
      * Shade the mesh using the `lightSource`s in the simulation.
      * @param mesh target mesh to apply the shader too.
@@ -154,9 +179,9 @@ public class Renderer3D {
                 continue;
             }
 
-            Coordinate lightPosition = light.getPosition();
+            Coordinate lightPosition = frame.positionOf(light);
             Coordinate meshPosition = mesh.averagePosition();
-            Coordinate meshParentPosition = mesh.getParent().getPosition();
+            Coordinate meshParentPosition = frame.positionOf(mesh.getParent());
             Coordinate lightVector = Transformations.normalize(new Coordinate(
                     lightPosition.getX() - (meshParentPosition.getX() + meshPosition.getX()),
                     lightPosition.getY() - (meshParentPosition.getY() + meshPosition.getY()),
@@ -194,9 +219,9 @@ public class Renderer3D {
         int numVertices = mesh.getNumVertices();
         double[] xVertices = new double[numVertices];
         double[] yVertices = new double[numVertices];
+        Coordinate meshParentPosition = frame.positionOf(mesh.getParent());
         for (int i = 0; i < numVertices; i++) {
             Coordinate meshVertex = mesh.getVertices()[i];
-            Coordinate meshParentPosition = mesh.getParent().getPosition();
             Coordinate adjustedVertex = new Coordinate(
                     meshParentPosition.getX() + meshVertex.getX(),
                     meshParentPosition.getY() + meshVertex.getY(),
@@ -214,12 +239,12 @@ public class Renderer3D {
      * @return renderable 2D coordinate.
      * */
     public Coordinate transformCoordinate(Coordinate position) {
-        Coordinate cameraPosition = camera.getPosition();
+        Coordinate cameraPosition = frame.getCameraPosition();
         double X = position.getX() - cameraPosition.getX();
         double Y = position.getY() - cameraPosition.getY();
         double Z = position.getZ() - cameraPosition.getZ();
         // Theta = (thetaX, thetaY, thetaZ) -> tait-bryan angles
-        Coordinate cameraDirection = camera.getDirection();
+        Coordinate cameraDirection = frame.getCameraDirection();
         double pitch = Math.toRadians(cameraDirection.getX());
         double yaw = Math.toRadians(cameraDirection.getY());
 
@@ -268,8 +293,8 @@ public class Renderer3D {
      */
     public boolean shouldRenderMesh(Mesh mesh, double frontClip) {
         Coordinate meshPosition = mesh.averagePosition();
-        Coordinate meshParentPosition = mesh.getParent().getPosition();
-        return camera.distanceToViewPlane(
+        Coordinate meshParentPosition = frame.positionOf(mesh.getParent());
+        return distanceToViewPlane(
                 new Coordinate(
                         meshParentPosition.getX() + meshPosition.getX(),
                         meshParentPosition.getY() + meshPosition.getY(),
@@ -277,6 +302,14 @@ public class Renderer3D {
                 )
         ) >= frontClip;
     }
+    /**
+     * Distance from the snapshot camera's view plane to a position.
+     * @param position position within the world.
+     * @return signed distance along the camera's viewing direction.
+     * */
+    private double distanceToViewPlane(Coordinate position) {
+        return Camera.distanceToViewPlane(frame.getCameraPosition(), frame.getCameraDirection(), position);
+    }
 }
 
 
@@ -0,0 +1,47 @@
+package engine;
+
+import world.WorldSnapshot;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Double buffer of world snapshots shared between the physics and render threads.
+ * The physics thread publishes each completed step; the render thread reads the two most recent
+ * snapshots together and interpolates between them, so neither thread ever waits on the other.
+ * */
+public class SnapshotBuffer {
+    /** The two most recent snapshots, swapped in atomically as a pair. */
+    private record SnapshotPair(WorldSnapshot previous, WorldSnapshot latest) {}
+
+    private final AtomicReference<SnapshotPair> snapshots = new AtomicReference<>(new SnapshotPair(null, null));
+
+    /**
+     * Publish a newly captured snapshot, demoting the current latest snapshot to the previous one.
+     * Only the physics thread may call this.
+     * @param snapshot completed snapshot.
+     * */
+    public void publish(WorldSnapshot snapshot) {
+        SnapshotPair current = snapshots.get();
+        snapshots.set(new SnapshotPair(current.latest(), snapshot));
+    }
+    /** @return the most recently published snapshot, or null if nothing has been published yet. */
+    public WorldSnapshot latest() {
+        return snapshots.get().latest();
+    }
+    /**
+     * Interpolate between the two most recent snapshots according to how much wall-clock time has passed
+     * since the latest one was captured, relative to the physics step interval.
+     * @param nowNanos current wall-clock time (ns).
+     * @param stepNanos wall-clock interval between physics steps (ns).
+     * @return interpolated snapshot, or null if nothing has been published yet.
+     * */
+    public WorldSnapshot interpolated(long nowNanos, long stepNanos) {
+        SnapshotPair pair = snapshots.get();
+        if (pair.latest() == null) {
+            return null;
+        }
+        // render one physics step behind so there is always a pair of real snapshots to blend between
+        double alpha = (double) (nowNanos - pair.latest().capturedNanos) / stepNanos;
+        return WorldSnapshot.interpolate(pair.previous(), pair.latest(), Math.min(alpha, 1));
+    }
+}
@@ -0,0 +1,52 @@
+package physics;
+
+import world.BodyStateStore;
+
+/**
+ * An `AccelerationModel` maps body positions to the accelerations acting upon each body.
+ * Integrators evaluate it at intermediate positions, so it must only depend on the positions passed in
+ * (plus the static body data within the store such as masses and parents).
+ * */
+public interface AccelerationModel {
+    /**
+     * Compute the acceleration of a single body.
+     * @param bodies store providing masses, parents and body kinds.
+     * @param id body id whose acceleration is computed.
+     * @param positionX x-position of each body (km); may be scratch positions rather than `bodies.positionX`.
+     * @param positionY y-position of each body (km).
+     * @param acceleration output array receiving the (x, y) acceleration (km/s^2).
+     * */
+    void computeAcceleration(BodyStateStore bodies, int id, double[] positionX, double[] positionY, double[] acceleration);
+
+    /**
+     * Compute the acceleration of every body in the store.
+     * @param bodies store providing masses, parents and body kinds.
+     * @param positionX x-position of each body (km); may be scratch positions rather than `bodies.positionX`.
+     * @param positionY y-position of each body (km).
+     * @param accelerationX output x-acceleration of each body (km/s^2).
+     * @param accelerationY output y-acceleration of each body (km/s^2).
+     * */
+    default void computeAccelerations(BodyStateStore bodies, double[] positionX, double[] positionY,
+                                      double[] accelerationX, double[] accelerationY) {
+        prepare(bodies, positionX, positionY);
+        computeAccelerations(bodies, positionX, positionY, accelerationX, accelerationY, 0, bodies.size);
+    }
+
+    /**
+     * Compute the acceleration of the bodies within an id range, after `prepare` has been called for the same positions.
+     * Must only write the outputs of bodies within the range, so disjoint ranges may be computed concurrently.
+     * @param fromId first body id of the range (inclusive).
+     * @param toId last body id of the range (exclusive).
+     * */
+    void computeAccelerations(BodyStateStore bodies, double[] positionX, double[] positionY,
+                              double[] accelerationX, double[] accelerationY, int fromId, int toId);
+
+    /**
+     * Precompute whatever the ranged `computeAccelerations` shares between bodies (e.g. a spatial tree) for a set of positions.
+     * */
+    default void prepare(BodyStateStore bodies, double[] positionX, double[] positionY) {
+    }
+
+    /** @return new model of the same kind and settings with scratch space of its own, e.g. for use on another thread. */
+    AccelerationModel copy();
+}
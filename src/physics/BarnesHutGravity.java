@@ -0,0 +1,206 @@
+package physics;
+
+import world.BodyStateStore;
+
+/**
+ * Barnes-Hut approximation of `GravityModel` for systems with many planets.
+ * Every bulk evaluation rebuilds a quadtree over the planets, storing the total mass and center of mass of each node.
+ * Bodies that feel every planet then walk the tree, treating any node that appears smaller than `openingAngle`
+ * (node width / distance) as a single point mass, which makes each evaluation O(log P) instead of O(P).
+ * An opening angle of 0 opens every node and reproduces the exact pairwise sum.
+ * Planets still only feel their parent, exactly as in `GravityModel`.
+ * The tree is built by `prepare`, after which disjoint body ranges may be evaluated concurrently.
+ * */
+public class BarnesHutGravity extends GravityModel {
+    private static final int MAX_DEPTH = 48; // planets closer than ~2^-48 of the system width share a leaf
+    private static final int EMPTY = -1; // leaf without a body
+    private static final int AGGREGATE = -2; // leaf holding several coincident bodies
+
+    public double openingAngle; // node width / distance below which a node is approximated by its center of mass
+
+    // quadtree nodes; the four children of an internal node are stored consecutively starting at `nodeChild`
+    private int nodeCount;
+    private int[] nodeChild = new int[0]; // index of the first child, or -1 for leaves
+    private int[] nodeBody = new int[0]; // body held by a leaf, `EMPTY` or `AGGREGATE`
+    private double[] nodeCenterX = new double[0];
+    private double[] nodeCenterY = new double[0];
+    private double[] nodeHalfWidth = new double[0];
+    private double[] nodeMass = new double[0];
+    private double[] nodeMassX = new double[0]; // mass-weighted x-position sum, then the center of mass once built
+    private double[] nodeMassY = new double[0];
+
+    public BarnesHutGravity(double G, double openingAngle) {
+        super(G);
+        this.openingAngle = openingAngle;
+    }
+    @Override
+    public BarnesHutGravity copy() {
+        return new BarnesHutGravity(G, openingAngle);
+    }
+    @Override
+    public void computeAccelerations(BodyStateStore bodies, double[] positionX, double[] positionY,
+                                     double[] accelerationX, double[] accelerationY, int fromId, int toId) {
+        double openingAngleSquared = openingAngle * openingAngle;
+        // every expanded node pushes 4 children and pops itself, so the stack never outgrows the tree's depth
+        int[] stack = new int[3 * (MAX_DEPTH + 1) + 1];
+        for (int id = fromId; id < toId; id++) {
+            double xAcceleration = 0;
+            double yAcceleration = 0;
+            if (bodies.isPlanet[id]) {
+                int parentId = bodies.parentIds[id];
+                if (parentId != BodyStateStore.NO_PARENT) {
+                    double deltaX = positionX[id] - positionX[parentId];
+                    double deltaY = positionY[id] - positionY[parentId];
+                    double scale = accelerationScale(bodies.mass[parentId], deltaX, deltaY);
+                    xAcceleration = deltaX * scale;
+                    yAcceleration = deltaY * scale;
+                }
+            } else if (nodeCount > 0) {
+                double x = positionX[id];
+                double y = positionY[id];
+                int stackSize = 0;
+                stack[stackSize++] = 0;
+                while (stackSize > 0) {
+                    int node = stack[--stackSize];
+                    double mass = nodeMass[node];
+                    if (mass == 0) {
+                        continue;
+                    }
+                    double deltaX = x - nodeMassX[node];
+                    double deltaY = y - nodeMassY[node];
+                    double distanceSquared = deltaX * deltaX + deltaY * deltaY;
+                    int child = nodeChild[node];
+                    double width = 2 * nodeHalfWidth[node];
+                    if (child < 0 || width * width < openingAngleSquared * distanceSquared) {
+                        if (distanceSquared > 0) {
+                            double scale = accelerationScale(mass, deltaX, deltaY);
+                            xAcceleration += deltaX * scale;
+                            yAcceleration += deltaY * scale;
+                        }
+                    } else {
+                        stack[stackSize++] = child;
+                        stack[stackSize++] = child + 1;
+                        stack[stackSize++] = child + 2;
+                        stack[stackSize++] = child + 3;
+                    }
+                }
+            }
+            accelerationX[id] = xAcceleration;
+            accelerationY[id] = yAcceleration;
+        }
+    }
+    /**
+     * Rebuild the quadtree over every planet at the given positions.
+     * Node arrays are reused between builds and only grow when the tree outgrows them.
+     * */
+    @Override
+    public void prepare(BodyStateStore bodies, double[] positionX, double[] positionY) {
+        nodeCount = 0;
+        if (bodies.planetCount == 0) {
+            return;
+        }
+        // bounding square around every planet
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int planetIndex = 0; planetIndex < bodies.planetCount; planetIndex++) {
+            int planetId = bodies.planetIds[planetIndex];
+            minX = Math.min(minX, positionX[planetId]);
+            minY = Math.min(minY, positionY[planetId]);
+            maxX = Math.max(maxX, positionX[planetId]);
+            maxY = Math.max(maxY, positionY[planetId]);
+        }
+        double halfWidth = Math.max(maxX - minX, maxY - minY) / 2 * 1.0001 + 1e-9;
+        ensureNodeCapacity(4 * bodies.planetCount + 1);
+        newNode((minX + maxX) / 2, (minY + maxY) / 2, halfWidth);
+
+        for (int planetIndex = 0; planetIndex < bodies.planetCount; planetIndex++) {
+            int planetId = bodies.planetIds[planetIndex];
+            insert(planetId, positionX, positionY, bodies.mass);
+        }
+        // convert mass-weighted position sums into centers of mass
+        for (int node = 0; node < nodeCount; node++) {
+            if (nodeMass[node] > 0) {
+                nodeMassX[node] /= nodeMass[node];
+                nodeMassY[node] /= nodeMass[node];
+            }
+        }
+    }
+    private void insert(int body, double[] positionX, double[] positionY, double[] mass) {
+        double x = positionX[body];
+        double y = positionY[body];
+        double bodyMass = mass[body];
+        int node = 0;
+        int depth = 0;
+        while (true) {
+            nodeMass[node] += bodyMass;
+            nodeMassX[node] += bodyMass * x;
+            nodeMassY[node] += bodyMass * y;
+            if (nodeChild[node] >= 0) {
+                node = childContaining(node, x, y);
+                depth++;
+                continue;
+            }
+            if (nodeBody[node] == EMPTY) {
+                nodeBody[node] = body;
+                return;
+            }
+            if (depth >= MAX_DEPTH || nodeBody[node] == AGGREGATE) {
+                nodeBody[node] = AGGREGATE;
+                return;
+            }
+            // split the leaf and push its existing body down one level
+            int existing = nodeBody[node];
+            split(node);
+            int existingChild = childContaining(node, positionX[existing], positionY[existing]);
+            nodeBody[existingChild] = existing;
+            nodeMass[existingChild] = mass[existing];
+            nodeMassX[existingChild] = mass[existing] * positionX[existing];
+            nodeMassY[existingChild] = mass[existing] * positionY[existing];
+            node = childContaining(node, x, y);
+            depth++;
+        }
+    }
+    private void split(int node) {
+        ensureNodeCapacity(nodeCount + 4);
+        double quarterWidth = nodeHalfWidth[node] / 2;
+        double centerX = nodeCenterX[node];
+        double centerY = nodeCenterY[node];
+        int firstChild = nodeCount;
+        // children ordered (-x, -y), (+x, -y), (-x, +y), (+x, +y)
+        newNode(centerX - quarterWidth, centerY - quarterWidth, quarterWidth);
+        newNode(centerX + quarterWidth, centerY - quarterWidth, quarterWidth);
+        newNode(centerX - quarterWidth, centerY + quarterWidth, quarterWidth);
+        newNode(centerX + quarterWidth, centerY + quarterWidth, quarterWidth);
+        nodeChild[node] = firstChild;
+        nodeBody[node] = EMPTY;
+    }
+    private int childContaining(int node, double x, double y) {
+        int quadrant = (x >= nodeCenterX[node] ? 1 : 0) + (y >= nodeCenterY[node] ? 2 : 0);
+        return nodeChild[node] + quadrant;
+    }
+    private void newNode(double centerX, double centerY, double halfWidth) {
+        int node = nodeCount++;
+        nodeChild[node] = -1;
+        nodeBody[node] = EMPTY;
+        nodeCenterX[node] = centerX;
+        nodeCenterY[node] = centerY;
+        nodeHalfWidth[node] = halfWidth;
+        nodeMass[node] = 0;
+        nodeMassX[node] = 0;
+        nodeMassY[node] = 0;
+    }
+    private void ensureNodeCapacity(int capacity) {
+        if (capacity <= nodeChild.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, 2 * nodeChild.length);
+        nodeChild = java.util.Arrays.copyOf(nodeChild, newCapacity);
+        nodeBody = java.util.Arrays.copyOf(nodeBody, newCapacity);
+        nodeCenterX = java.util.Arrays.copyOf(nodeCenterX, newCapacity);
+        nodeCenterY = java.util.Arrays.copyOf(nodeCenterY, newCapacity);
+        nodeHalfWidth = java.util.Arrays.copyOf(nodeHalfWidth, newCapacity);
+        nodeMass = java.util.Arrays.copyOf(nodeMass, newCapacity);
+        nodeMassX = java.util.Arrays.copyOf(nodeMassX, newCapacity);
+        nodeMassY = java.util.Arrays.copyOf(nodeMassY, newCapacity);
+    }
+}
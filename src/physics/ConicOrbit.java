@@ -0,0 +1,137 @@
+package physics;
+
+/**
+ * Osculating two-body orbit of a body around an attractor, captured from its relative state at an epoch.
+ * Exposes the orbital elements directly and propagates the state to any time in closed form,
+ * so a bound trajectory can be sampled at any resolution without integrating it.
+ * */
+public class ConicOrbit {
+    private static final int MAX_ITERATIONS = 50; // newton iterations allowed when solving Kepler's equation
+    private static final double ANOMALY_TOLERANCE = 1e-13; // convergence threshold of the eccentric anomaly change (rad)
+
+    public final double epoch; // time of the captured state (s)
+    public final double gravitationalParameter; // G * attractor mass (km^3/s^2)
+    public final double semiMajorAxis; // (km); negative for unbound orbits
+    public final double eccentricity;
+    public final double argumentOfPeriapsis; // angle of the periapsis from the x-axis (rad)
+    public final double periapsis; // closest distance to the attractor (km)
+    public final double apoapsis; // furthest distance from the attractor (km); infinite for unbound orbits
+    public final double period; // (s); infinite for unbound orbits
+    private final double x0, y0, vx0, vy0; // epoch state relative to the attractor (km, km/s)
+    private final double meanMotion; // (rad/s)
+
+    /**
+     * Capture the orbit of a body from its state relative to its attractor.
+     * @param x x-position relative to the attractor (km).
+     * @param y y-position relative to the attractor (km).
+     * @param vx x-velocity relative to the attractor (km/s).
+     * @param vy y-velocity relative to the attractor (km/s).
+     * @param gravitationalParameter G * attractor mass (km^3/s^2).
+     * @param epoch time of the state (s).
+     * */
+    public ConicOrbit(double x, double y, double vx, double vy, double gravitationalParameter, double epoch) {
+        this.epoch = epoch;
+        this.gravitationalParameter = gravitationalParameter;
+        this.x0 = x;
+        this.y0 = y;
+        this.vx0 = vx;
+        this.vy0 = vy;
+        double mu = gravitationalParameter;
+        double r = Math.hypot(x, y);
+        double speedSquared = vx * vx + vy * vy;
+        double radialSpeed = x * vx + y * vy; // r . v
+        // eccentricity vector: ((v^2 - mu/r) r - (r . v) v) / mu
+        double eccentricityX = ((speedSquared - mu / r) * x - radialSpeed * vx) / mu;
+        double eccentricityY = ((speedSquared - mu / r) * y - radialSpeed * vy) / mu;
+        this.eccentricity = Math.hypot(eccentricityX, eccentricityY);
+        this.argumentOfPeriapsis = Math.atan2(eccentricityY, eccentricityX);
+        // vis-viva: 1/a = 2/r - v^2/mu
+        double inverseSemiMajorAxis = 2 / r - speedSquared / mu;
+        this.semiMajorAxis = 1 / inverseSemiMajorAxis;
+        if (inverseSemiMajorAxis > 0) {
+            this.meanMotion = Math.sqrt(mu * inverseSemiMajorAxis * inverseSemiMajorAxis * inverseSemiMajorAxis);
+            this.periapsis = semiMajorAxis * (1 - eccentricity);
+            this.apoapsis = semiMajorAxis * (1 + eccentricity);
+            this.period = Math.TAU / meanMotion;
+        } else {
+            this.meanMotion = 0;
+            double angularMomentum = x * vy - y * vx;
+            this.periapsis = angularMomentum * angularMomentum / (mu * (1 + eccentricity));
+            this.apoapsis = Double.POSITIVE_INFINITY;
+            this.period = Double.POSITIVE_INFINITY;
+        }
+    }
+    /** @return whether the orbit is closed (elliptical), i.e. `stateAt` may be used. */
+    public boolean isBound() {
+        return meanMotion > 0;
+    }
+    /**
+     * Propagate the relative state to a given time.
+     * @param time query time (s).
+     * @param output array receiving (x, y, vx, vy) relative to the attractor.
+     * @throws IllegalStateException if the orbit isn't bound.
+     * */
+    public void stateAt(double time, double[] output) {
+        if (!isBound()) {
+            throw new IllegalStateException("Only bound orbits can be propagated in closed form");
+        }
+        propagate(x0, y0, vx0, vy0, gravitationalParameter, semiMajorAxis, meanMotion, time - epoch, output);
+    }
+    /**
+     * Radius of the sphere of influence of a body orbiting a heavier attractor (Laplace's approximation).
+     * Within it, the body's gravity dominates the attractor's perturbation of anything orbiting the body.
+     * @param orbitalRadius distance between the body and its attractor (km).
+     * @param mass mass of the body (kg).
+     * @param attractorMass mass of the attractor (kg).
+     * @return sphere of influence radius (km).
+     * */
+    public static double sphereOfInfluence(double orbitalRadius, double mass, double attractorMass) {
+        return orbitalRadius * Math.pow(mass / attractorMass, 0.4);
+    }
+    /**
+     * Propagate a bound two-body state with the f and g functions of the eccentric anomaly change.
+     * This form stays well defined for circular orbits, where the argument of periapsis isn't.
+     * @param semiMajorAxis semi-major axis of the orbit; must be positive (km).
+     * @param meanMotion mean motion of the orbit (rad/s).
+     * @param elapsed time since the state (s).
+     * @param output array receiving the propagated (x, y, vx, vy).
+     * */
+    static void propagate(double x0, double y0, double vx0, double vy0, double mu, double semiMajorAxis,
+                          double meanMotion, double elapsed, double[] output) {
+        double a = semiMajorAxis;
+        double n = meanMotion;
+        // whole periods don't change the state; dropping them keeps the anomaly small and precise
+        double period = Math.TAU / n;
+        elapsed -= Math.floor(elapsed / period) * period;
+        double r0 = Math.hypot(x0, y0);
+        double sqrtA = Math.sqrt(a);
+        double sigma = (x0 * vx0 + y0 * vy0) / Math.sqrt(mu); // r0 . v0 / sqrt(mu)
+        double radialTerm = 1 - r0 / a;
+        double meanAnomalyChange = n * elapsed;
+        // kepler's equation in terms of the eccentric anomaly change from the epoch:
+        // n t = dE + (sigma / sqrt(a)) (1 - cos dE) - (1 - r0 / a) sin dE
+        double anomalyChange = meanAnomalyChange;
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double sin = Math.sin(anomalyChange);
+            double cos = Math.cos(anomalyChange);
+            double residual = anomalyChange + sigma / sqrtA * (1 - cos) - radialTerm * sin - meanAnomalyChange;
+            double derivative = 1 + sigma / sqrtA * sin - radialTerm * cos; // r / a, always positive
+            double correction = residual / derivative;
+            anomalyChange -= correction;
+            if (Math.abs(correction) < ANOMALY_TOLERANCE) {
+                break;
+            }
+        }
+        double sin = Math.sin(anomalyChange);
+        double cos = Math.cos(anomalyChange);
+        double r = a + (r0 - a) * cos + sigma * sqrtA * sin;
+        double f = 1 - a / r0 * (1 - cos);
+        double g = elapsed + Math.sqrt(a * a * a / mu) * (sin - anomalyChange);
+        double fDot = -Math.sqrt(mu * a) * sin / (r * r0);
+        double gDot = 1 - a / r * (1 - cos);
+        output[0] = f * x0 + g * vx0;
+        output[1] = f * y0 + g * vy0;
+        output[2] = fDot * x0 + gDot * vx0;
+        output[3] = fDot * y0 + gDot * vy0;
+    }
+}
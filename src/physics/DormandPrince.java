@@ -0,0 +1,208 @@
+package physics;
+
+/**
+ * Adaptive Dormand-Prince 5(4) propagator for a single body moving through a time-dependent gravity field.
+ * Each step estimates its own truncation error from the embedded 4th-order solution and grows or shrinks
+ * the next step to keep that error near `tolerance`, so long coasts take few steps and close flybys take many.
+ * States between accepted steps are recovered with quintic Hermite interpolation (position, velocity and
+ * acceleration are known at both ends of every step).
+ * */
+public class DormandPrince {
+    /** Acceleration field felt by the propagated body. */
+    public interface AccelerationField {
+        /**
+         * @param time absolute simulation time (s).
+         * @param x x-position of the body (km).
+         * @param y y-position of the body (km).
+         * @param acceleration output array receiving the (x, y) acceleration (km/s^2).
+         * */
+        void accelerationAt(double time, double x, double y, double[] acceleration);
+    }
+
+    // Butcher tableau
+    private static final double C2 = 1.0 / 5, C3 = 3.0 / 10, C4 = 4.0 / 5, C5 = 8.0 / 9;
+    private static final double A21 = 1.0 / 5;
+    private static final double A31 = 3.0 / 40, A32 = 9.0 / 40;
+    private static final double A41 = 44.0 / 45, A42 = -56.0 / 15, A43 = 32.0 / 9;
+    private static final double A51 = 19372.0 / 6561, A52 = -25360.0 / 2187, A53 = 64448.0 / 6561, A54 = -212.0 / 729;
+    private static final double A61 = 9017.0 / 3168, A62 = -355.0 / 33, A63 = 46732.0 / 5247, A64 = 49.0 / 176, A65 = -5103.0 / 18656;
+    private static final double B1 = 35.0 / 384, B3 = 500.0 / 1113, B4 = 125.0 / 192, B5 = -2187.0 / 6784, B6 = 11.0 / 84;
+    // difference between the 5th and embedded 4th order weights
+    private static final double E1 = 71.0 / 57600, E3 = -71.0 / 16695, E4 = 71.0 / 1920, E5 = -17253.0 / 339200, E6 = 22.0 / 525, E7 = -1.0 / 40;
+
+    public double tolerance; // allowed position error per step (km); velocity errors are scaled by the step length
+    public double minStep; // smallest step the controller may take (s)
+    public double maxStep; // largest step the controller may take (s)
+
+    public double time; // time of the current state (s)
+    public double positionX, positionY; // current position (km)
+    public double velocityX, velocityY; // current velocity (km/s)
+    private double accelerationX, accelerationY; // acceleration at the current state (first-same-as-last)
+    private double nextStep; // step size the controller will try next (s)
+
+    // state at the start of the last accepted step, kept for dense output
+    private double previousTime;
+    private double previousPositionX, previousPositionY;
+    private double previousVelocityX, previousVelocityY;
+    private double previousAccelerationX, previousAccelerationY;
+
+    public long acceptedSteps; // number of accepted steps since the last reset
+    public long rejectedSteps; // number of rejected step attempts since the last reset
+
+    private final double[] acceleration = new double[2];
+    private final double[] k2 = new double[4], k3 = new double[4], k4 = new double[4], k5 = new double[4], k6 = new double[4];
+
+    public DormandPrince(double tolerance, double minStep, double maxStep) {
+        this.tolerance = tolerance;
+        this.minStep = minStep;
+        this.maxStep = maxStep;
+    }
+    /**
+     * Start a new trajectory from the given state.
+     * @param initialStep first step size to attempt (s).
+     * */
+    public void reset(AccelerationField field, double time, double x, double y, double vx, double vy, double initialStep) {
+        this.time = time;
+        this.positionX = x;
+        this.positionY = y;
+        this.velocityX = vx;
+        this.velocityY = vy;
+        field.accelerationAt(time, x, y, acceleration);
+        this.accelerationX = acceleration[0];
+        this.accelerationY = acceleration[1];
+        this.nextStep = Math.max(minStep, Math.min(initialStep, maxStep));
+        this.acceptedSteps = 0;
+        this.rejectedSteps = 0;
+        markStepStart();
+    }
+    /**
+     * Take one accepted step, retrying with smaller steps until the error estimate is within tolerance.
+     * @param field acceleration field to integrate through.
+     * */
+    public void step(AccelerationField field) {
+        while (true) {
+            double h = nextStep;
+            // stage derivatives are (vx, vy, ax, ay); stage 1 is the stored first-same-as-last derivative
+            double k1x = velocityX, k1y = velocityY, k1vx = accelerationX, k1vy = accelerationY;
+            stage(field, h, C2, k2,
+                    A21 * k1x, A21 * k1y, A21 * k1vx, A21 * k1vy);
+            stage(field, h, C3, k3,
+                    A31 * k1x + A32 * k2[0], A31 * k1y + A32 * k2[1],
+                    A31 * k1vx + A32 * k2[2], A31 * k1vy + A32 * k2[3]);
+            stage(field, h, C4, k4,
+                    A41 * k1x + A42 * k2[0] + A43 * k3[0], A41 * k1y + A42 * k2[1] + A43 * k3[1],
+                    A41 * k1vx + A42 * k2[2] + A43 * k3[2], A41 * k1vy + A42 * k2[3] + A43 * k3[3]);
+            stage(field, h, C5, k5,
+                    A51 * k1x + A52 * k2[0] + A53 * k3[0] + A54 * k4[0], A51 * k1y + A52 * k2[1] + A53 * k3[1] + A54 * k4[1],
+                    A51 * k1vx + A52 * k2[2] + A53 * k3[2] + A54 * k4[2], A51 * k1vy + A52 * k2[3] + A53 * k3[3] + A54 * k4[3]);
+            stage(field, h, 1, k6,
+                    A61 * k1x + A62 * k2[0] + A63 * k3[0] + A64 * k4[0] + A65 * k5[0],
+                    A61 * k1y + A62 * k2[1] + A63 * k3[1] + A64 * k4[1] + A65 * k5[1],
+                    A61 * k1vx + A62 * k2[2] + A63 * k3[2] + A64 * k4[2] + A65 * k5[2],
+                    A61 * k1vy + A62 * k2[3] + A63 * k3[3] + A64 * k4[3] + A65 * k5[3]);
+            // 5th order solution
+            double newX = positionX + h * (B1 * k1x + B3 * k3[0] + B4 * k4[0] + B5 * k5[0] + B6 * k6[0]);
+            double newY = positionY + h * (B1 * k1y + B3 * k3[1] + B4 * k4[1] + B5 * k5[1] + B6 * k6[1]);
+            double newVx = velocityX + h * (B1 * k1vx + B3 * k3[2] + B4 * k4[2] + B5 * k5[2] + B6 * k6[2]);
+            double newVy = velocityY + h * (B1 * k1vy + B3 * k3[3] + B4 * k4[3] + B5 * k5[3] + B6 * k6[3]);
+            // stage 7 is evaluated at the new state and doubles as the next step's first stage
+            field.accelerationAt(time + h, newX, newY, acceleration);
+            double k7vx = acceleration[0], k7vy = acceleration[1];
+
+            double errorX = h * (E1 * k1x + E3 * k3[0] + E4 * k4[0] + E5 * k5[0] + E6 * k6[0] + E7 * newVx);
+            double errorY = h * (E1 * k1y + E3 * k3[1] + E4 * k4[1] + E5 * k5[1] + E6 * k6[1] + E7 * newVy);
+            double errorVx = h * (E1 * k1vx + E3 * k3[2] + E4 * k4[2] + E5 * k5[2] + E6 * k6[2] + E7 * k7vx);
+            double errorVy = h * (E1 * k1vy + E3 * k3[3] + E4 * k4[3] + E5 * k5[3] + E6 * k6[3] + E7 * k7vy);
+            double error = Math.max(
+                    Math.max(Math.abs(errorX), Math.abs(errorY)),
+                    h * Math.max(Math.abs(errorVx), Math.abs(errorVy))
+            ) / tolerance;
+
+            // standard step size controller with a safety factor, limited to a 0.2x - 5x change per step
+            double factor = error == 0 ? 5 : Math.max(0.2, Math.min(5, 0.9 * Math.pow(error, -0.2)));
+            if (error <= 1 || h <= minStep) {
+                markStepStart();
+                time += h;
+                positionX = newX;
+                positionY = newY;
+                velocityX = newVx;
+                velocityY = newVy;
+                accelerationX = k7vx;
+                accelerationY = k7vy;
+                acceptedSteps++;
+                nextStep = Math.max(minStep, Math.min(h * factor, maxStep));
+                return;
+            }
+            rejectedSteps++;
+            nextStep = Math.max(minStep, h * factor);
+        }
+    }
+    /**
+     * Evaluate one stage: the derivative at `time + c * h` of the state offset by `h` times the given weighted sums.
+     * */
+    private void stage(AccelerationField field, double h, double c, double[] k,
+                       double sumX, double sumY, double sumVx, double sumVy) {
+        double x = positionX + h * sumX;
+        double y = positionY + h * sumY;
+        field.accelerationAt(time + c * h, x, y, acceleration);
+        k[0] = velocityX + h * sumVx;
+        k[1] = velocityY + h * sumVy;
+        k[2] = acceleration[0];
+        k[3] = acceleration[1];
+    }
+    private void markStepStart() {
+        previousTime = time;
+        previousPositionX = positionX;
+        previousPositionY = positionY;
+        previousVelocityX = velocityX;
+        previousVelocityY = velocityY;
+        previousAccelerationX = accelerationX;
+        previousAccelerationY = accelerationY;
+    }
+    /**
+     * Interpolate the state at a time within the last accepted step.
+     * @param queryTime time between the start and end of the last accepted step (s).
+     * @param output array receiving (x, y, vx, vy).
+     * */
+    public void stateAt(double queryTime, double[] output) {
+        double h = time - previousTime;
+        if (h <= 0) {
+            output[0] = positionX;
+            output[1] = positionY;
+            output[2] = velocityX;
+            output[3] = velocityY;
+            return;
+        }
+        double s = (queryTime - previousTime) / h;
+        output[0] = quinticHermite(s, h, previousPositionX, previousVelocityX, previousAccelerationX, positionX, velocityX, accelerationX, output, 2);
+        output[1] = quinticHermite(s, h, previousPositionY, previousVelocityY, previousAccelerationY, positionY, velocityY, accelerationY, output, 3);
+    }
+    /**
+     * Quintic Hermite interpolation matching value, first and second derivative at both ends of an interval.
+     * @param s normalized time within the interval (0 - 1).
+     * @param h interval length (s).
+     * @param derivativeOutput array receiving the interpolated first derivative at `derivativeIndex`.
+     * @return interpolated value.
+     * */
+    private static double quinticHermite(double s, double h, double p0, double v0, double a0, double p1, double v1, double a1,
+                                         double[] derivativeOutput, int derivativeIndex) {
+        double s2 = s * s, s3 = s2 * s, s4 = s3 * s, s5 = s4 * s;
+        double h00 = 1 - 10 * s3 + 15 * s4 - 6 * s5;
+        double h10 = s - 6 * s3 + 8 * s4 - 3 * s5;
+        double h20 = 0.5 * (s2 - 3 * s3 + 3 * s4 - s5);
+        double h01 = 10 * s3 - 15 * s4 + 6 * s5;
+        double h11 = -4 * s3 + 7 * s4 - 3 * s5;
+        double h21 = 0.5 * (s3 - 2 * s4 + s5);
+        // derivatives of the basis functions with respect to s
+        double d00 = -30 * s2 + 60 * s3 - 30 * s4;
+        double d10 = 1 - 18 * s2 + 32 * s3 - 15 * s4;
+        double d20 = 0.5 * (2 * s - 9 * s2 + 12 * s3 - 5 * s4);
+        double d01 = 30 * s2 - 60 * s3 + 30 * s4;
+        double d11 = -12 * s2 + 28 * s3 - 15 * s4;
+        double d21 = 0.5 * (3 * s2 - 8 * s3 + 5 * s4);
+        double hSquared = h * h;
+        derivativeOutput[derivativeIndex] = (d00 * p0 + d10 * h * v0 + d20 * hSquared * a0
+                + d01 * p1 + d11 * h * v1 + d21 * hSquared * a1) / h;
+        return h00 * p0 + h10 * h * v0 + h20 * hSquared * a0 + h01 * p1 + h11 * h * v1 + h21 * hSquared * a1;
+    }
+}
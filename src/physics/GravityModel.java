@@ -0,0 +1,99 @@
+package physics;
+
+import world.BodyStateStore;
+
+/**
+ * Gravity as simulated by the world: planets are only attracted by their parent (keeping orbits stable),
+ * every other body is attracted by every planet, and the simulation center never accelerates.
+ * Accelerations are computed directly from displacement vectors as `-GM * r / |r|^3`.
+ * */
+public class GravityModel implements AccelerationModel {
+    public final double G; // gravitational constant (m^3 kg^-1 s^-2)
+
+    public GravityModel(double G) {
+        this.G = G;
+    }
+    /**
+     * Fastest exact gravity model available to the running JVM: `VectorGravity` when the
+     * `jdk.incubator.vector` module was added at launch, otherwise this scalar model.
+     * @param G gravitational constant (m^3 kg^-1 s^-2).
+     * */
+    public static GravityModel create(double G) {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return new VectorGravity(G);
+        }
+        return new GravityModel(G);
+    }
+    @Override
+    public GravityModel copy() {
+        return new GravityModel(G);
+    }
+    @Override
+    public void computeAccelerations(BodyStateStore bodies, double[] positionX, double[] positionY,
+                                     double[] accelerationX, double[] accelerationY, int fromId, int toId) {
+        for (int id = fromId; id < toId; id++) {
+            double xAcceleration = 0;
+            double yAcceleration = 0;
+            if (bodies.isPlanet[id]) {
+                int parentId = bodies.parentIds[id];
+                if (parentId != BodyStateStore.NO_PARENT) {
+                    double deltaX = positionX[id] - positionX[parentId];
+                    double deltaY = positionY[id] - positionY[parentId];
+                    double scale = accelerationScale(bodies.mass[parentId], deltaX, deltaY);
+                    xAcceleration = deltaX * scale;
+                    yAcceleration = deltaY * scale;
+                }
+            } else {
+                for (int planetIndex = 0; planetIndex < bodies.planetCount; planetIndex++) {
+                    int planetId = bodies.planetIds[planetIndex];
+                    double deltaX = positionX[id] - positionX[planetId];
+                    double deltaY = positionY[id] - positionY[planetId];
+                    double scale = accelerationScale(bodies.mass[planetId], deltaX, deltaY);
+                    xAcceleration += deltaX * scale;
+                    yAcceleration += deltaY * scale;
+                }
+            }
+            accelerationX[id] = xAcceleration;
+            accelerationY[id] = yAcceleration;
+        }
+    }
+    @Override
+    public void computeAcceleration(BodyStateStore bodies, int id, double[] positionX, double[] positionY, double[] acceleration) {
+        double xAcceleration = 0;
+        double yAcceleration = 0;
+        if (bodies.isPlanet[id]) {
+            int parentId = bodies.parentIds[id];
+            if (parentId != BodyStateStore.NO_PARENT) {
+                double deltaX = positionX[id] - positionX[parentId];
+                double deltaY = positionY[id] - positionY[parentId];
+                double scale = accelerationScale(bodies.mass[parentId], deltaX, deltaY);
+                xAcceleration = deltaX * scale;
+                yAcceleration = deltaY * scale;
+            }
+        } else {
+            for (int planetIndex = 0; planetIndex < bodies.planetCount; planetIndex++) {
+                int planetId = bodies.planetIds[planetIndex];
+                double deltaX = positionX[id] - positionX[planetId];
+                double deltaY = positionY[id] - positionY[planetId];
+                double scale = accelerationScale(bodies.mass[planetId], deltaX, deltaY);
+                xAcceleration += deltaX * scale;
+                yAcceleration += deltaY * scale;
+            }
+        }
+        acceleration[0] = xAcceleration;
+        acceleration[1] = yAcceleration;
+    }
+    /**
+     * Factor converting a displacement (km) away from an attracting mass into an acceleration (km/s^2).
+     * Distances are in kilometers, so `G * M / (1000 r)^2` (m/s^2) is divided by 1000 once more.
+     * @param attractorMass mass of the attracting body (kg).
+     * @param deltaX x-displacement from the attracting body (km).
+     * @param deltaY y-displacement from the attracting body (km).
+     * @return negative scale to multiply the displacement by.
+     * */
+    public double accelerationScale(double attractorMass, double deltaX, double deltaY) {
+        double distanceSquared = deltaX * deltaX + deltaY * deltaY;
+        double distance = Math.sqrt(distanceSquared);
+        return -G * attractorMass / (distanceSquared * distance * 1e9);
+    }
+}
@@ -0,0 +1,36 @@
+package physics;
+
+import world.BodyStateStore;
+
+/**
+ * An `Integrator` advances the positions and velocities of every body within a store by one time step.
+ * Implementations keep their own scratch arrays, so a single instance must not be shared between threads
+ * or between stores that are stepped concurrently.
+ * */
+public interface Integrator {
+    /**
+     * Advance every body in the store by one step, in place.
+     * @param bodies store whose positions and velocities are advanced.
+     * @param model acceleration model evaluated during the step.
+     * @param timeStep length of the time interval (seconds).
+     * */
+    void step(BodyStateStore bodies, AccelerationModel model, double timeStep);
+
+    /** @return new integrator of the same kind with scratch space of its own, e.g. for stepping on another thread. */
+    Integrator copy();
+
+    /**
+     * Create an integrator from its short name, as used on command lines.
+     * @param name one of `euler`, `verlet`, `rk4` or `yoshida4`.
+     * @return new integrator instance.
+     * */
+    static Integrator forName(String name) {
+        return switch (name) {
+            case "euler" -> new SemiImplicitEuler();
+            case "verlet" -> new VelocityVerlet();
+            case "rk4" -> new RungeKutta4();
+            case "yoshida4" -> new Yoshida4();
+            default -> throw new IllegalArgumentException("Unknown integrator: " + name);
+        };
+    }
+}
@@ -0,0 +1,190 @@
+package physics;
+
+import world.BodyStateStore;
+
+/**
+ * Closed-form "on-rails" motion for the planets of a store.
+ * Planets only feel their parent, so each one follows a two-body ellipse relative to its parent.
+ * The ellipses are captured from the states at an epoch, and states at any other time are found by solving
+ * Kepler's equation, so planets neither cost integration steps nor accumulate integration error.
+ * A planet's absolute state is its relative state plus its parent's, making a single query O(depth).
+ * Planets without a parent keep their epoch velocity, exactly as they would when integrated.
+ * Queries share scratch space, so an instance must only be used by one thread at a time.
+ * */
+public class KeplerianOrbits {
+    public final double epoch; // time at which the orbits were captured (s)
+    private final int[] planetIds; // planets ordered so that parents always precede their children
+    private final int planetCount;
+    private final int[] parentIds;
+    private final double[] epochX, epochY; // epoch state, relative to the parent for planets with one (km)
+    private final double[] epochVx, epochVy; // (km/s)
+    private final double[] gravitationalParameter; // G * parent mass (km^3/s^2)
+    private final double[] semiMajorAxis; // (km)
+    private final double[] meanMotion; // (rad/s)
+    private final double[] relative = new double[4]; // scratch relative state
+
+    /**
+     * Capture the orbit of every planet within a store.
+     * @param bodies store holding the planet states at the epoch.
+     * @param G gravitational constant (m^3 kg^-1 s^-2).
+     * @param epoch time of the store's states (s).
+     * @throws IllegalStateException if a planet isn't bound to its parent.
+     * */
+    public KeplerianOrbits(BodyStateStore bodies, double G, double epoch) {
+        this(bodies, G, epoch, null);
+    }
+    /**
+     * Recreate orbits from epoch states previously read with `epochStates`, e.g. when restoring a checkpoint.
+     * The orbits are derived exactly as when they were first captured, so they produce identical states.
+     * @param bodies store providing the planets, their parents and masses (positions and velocities are ignored).
+     * @param G gravitational constant (m^3 kg^-1 s^-2).
+     * @param epoch time the orbits were captured at (s).
+     * @param epochStates interleaved (x, y, vx, vy) epoch states in `epochStates` order.
+     * @throws IllegalStateException if a planet isn't bound to its parent.
+     * */
+    public KeplerianOrbits(BodyStateStore bodies, double G, double epoch, double[] epochStates) {
+        this.epoch = epoch;
+        this.planetCount = bodies.planetCount;
+        this.planetIds = new int[planetCount];
+        this.parentIds = new int[bodies.size];
+        this.epochX = new double[bodies.size];
+        this.epochY = new double[bodies.size];
+        this.epochVx = new double[bodies.size];
+        this.epochVy = new double[bodies.size];
+        this.gravitationalParameter = new double[bodies.size];
+        this.semiMajorAxis = new double[bodies.size];
+        this.meanMotion = new double[bodies.size];
+        // body ids follow the flattened satellite tree, so sorting planets by id places parents first
+        System.arraycopy(bodies.planetIds, 0, planetIds, 0, planetCount);
+        java.util.Arrays.sort(planetIds);
+        for (int planetIndex = 0; planetIndex < planetCount; planetIndex++) {
+            int id = planetIds[planetIndex];
+            int parentId = bodies.parentIds[id];
+            parentIds[id] = parentId;
+            if (epochStates != null) {
+                epochX[id] = epochStates[planetIndex * 4];
+                epochY[id] = epochStates[planetIndex * 4 + 1];
+                epochVx[id] = epochStates[planetIndex * 4 + 2];
+                epochVy[id] = epochStates[planetIndex * 4 + 3];
+            } else if (parentId == BodyStateStore.NO_PARENT) {
+                epochX[id] = bodies.positionX[id];
+                epochY[id] = bodies.positionY[id];
+                epochVx[id] = bodies.velocityX[id];
+                epochVy[id] = bodies.velocityY[id];
+            } else {
+                epochX[id] = bodies.positionX[id] - bodies.positionX[parentId];
+                epochY[id] = bodies.positionY[id] - bodies.positionY[parentId];
+                epochVx[id] = bodies.velocityX[id] - bodies.velocityX[parentId];
+                epochVy[id] = bodies.velocityY[id] - bodies.velocityY[parentId];
+            }
+            if (parentId == BodyStateStore.NO_PARENT) {
+                continue;
+            }
+            double x = epochX[id], y = epochY[id], vx = epochVx[id], vy = epochVy[id];
+            double mu = G * bodies.mass[parentId] / 1e9;
+            // vis-viva: 1/a = 2/r - v^2/mu
+            double inverseSemiMajorAxis = 2 / Math.hypot(x, y) - (vx * vx + vy * vy) / mu;
+            if (inverseSemiMajorAxis <= 0) {
+                throw new IllegalStateException("Planet " + id + " is not bound to its parent and can't be put on rails");
+            }
+            gravitationalParameter[id] = mu;
+            semiMajorAxis[id] = 1 / inverseSemiMajorAxis;
+            meanMotion[id] = Math.sqrt(mu * inverseSemiMajorAxis * inverseSemiMajorAxis * inverseSemiMajorAxis);
+        }
+    }
+    /** Share another instance's orbits, which never change once captured. */
+    private KeplerianOrbits(KeplerianOrbits other) {
+        this.epoch = other.epoch;
+        this.planetIds = other.planetIds;
+        this.planetCount = other.planetCount;
+        this.parentIds = other.parentIds;
+        this.epochX = other.epochX;
+        this.epochY = other.epochY;
+        this.epochVx = other.epochVx;
+        this.epochVy = other.epochVy;
+        this.gravitationalParameter = other.gravitationalParameter;
+        this.semiMajorAxis = other.semiMajorAxis;
+        this.meanMotion = other.meanMotion;
+    }
+    /** @return the same orbits with scratch space of their own, so that another thread may query them. */
+    public KeplerianOrbits copy() {
+        return new KeplerianOrbits(this);
+    }
+    /**
+     * Copy the captured epoch states, relative to the parent for planets with one.
+     * @param output array receiving interleaved (x, y, vx, vy) states of every planet, in ascending body id order.
+     * */
+    public void epochStates(double[] output) {
+        for (int planetIndex = 0; planetIndex < planetCount; planetIndex++) {
+            int id = planetIds[planetIndex];
+            output[planetIndex * 4] = epochX[id];
+            output[planetIndex * 4 + 1] = epochY[id];
+            output[planetIndex * 4 + 2] = epochVx[id];
+            output[planetIndex * 4 + 3] = epochVy[id];
+        }
+    }
+    /**
+     * Write the state of every planet at a given time into a store's position and velocity arrays.
+     * Bodies that aren't planets are left untouched.
+     * @param time query time (s).
+     * @param bodies store receiving the states; must share body ids with the captured store.
+     * */
+    public void statesAt(double time, BodyStateStore bodies) {
+        statesAt(time, bodies.positionX, bodies.positionY, bodies.velocityX, bodies.velocityY);
+    }
+    /**
+     * Write the state of every planet at a given time into arrays indexed by body id.
+     * @param velocityX output x-velocities, or null if only positions are needed.
+     * */
+    public void statesAt(double time, double[] positionX, double[] positionY, double[] velocityX, double[] velocityY) {
+        for (int planetIndex = 0; planetIndex < planetCount; planetIndex++) {
+            int id = planetIds[planetIndex];
+            int parentId = parentIds[id];
+            relativeStateAt(id, time, relative);
+            // parents precede their children, so the parent's state at `time` has already been written
+            positionX[id] = relative[0] + (parentId == BodyStateStore.NO_PARENT ? 0 : positionX[parentId]);
+            positionY[id] = relative[1] + (parentId == BodyStateStore.NO_PARENT ? 0 : positionY[parentId]);
+            if (velocityX != null) {
+                velocityX[id] = relative[2] + (parentId == BodyStateStore.NO_PARENT ? 0 : velocityX[parentId]);
+                velocityY[id] = relative[3] + (parentId == BodyStateStore.NO_PARENT ? 0 : velocityY[parentId]);
+            }
+        }
+    }
+    /**
+     * Compute a single planet's absolute state by walking up its parents.
+     * @param id body id of the planet.
+     * @param time query time (s).
+     * @param output array receiving (x, y, vx, vy).
+     * */
+    public void stateOf(int id, double time, double[] output) {
+        double x = 0, y = 0, vx = 0, vy = 0;
+        for (int current = id; current != BodyStateStore.NO_PARENT; current = parentIds[current]) {
+            relativeStateAt(current, time, output);
+            x += output[0];
+            y += output[1];
+            vx += output[2];
+            vy += output[3];
+        }
+        output[0] = x;
+        output[1] = y;
+        output[2] = vx;
+        output[3] = vy;
+    }
+    /**
+     * State of a planet relative to its parent (or absolute for parentless planets) at a given time,
+     * propagated from the epoch in closed form.
+     * */
+    private void relativeStateAt(int id, double time, double[] output) {
+        double elapsed = time - epoch;
+        double x0 = epochX[id], y0 = epochY[id], vx0 = epochVx[id], vy0 = epochVy[id];
+        double mu = gravitationalParameter[id];
+        if (mu == 0) {
+            output[0] = x0 + vx0 * elapsed;
+            output[1] = y0 + vy0 * elapsed;
+            output[2] = vx0;
+            output[3] = vy0;
+            return;
+        }
+        ConicOrbit.propagate(x0, y0, vx0, vy0, mu, semiMajorAxis[id], meanMotion[id], elapsed, output);
+    }
+}
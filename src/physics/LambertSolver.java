@@ -0,0 +1,136 @@
+package physics;
+
+/**
+ * Solves Lambert's problem: the two-body trajectory connecting two positions around an attractor in a given time.
+ * Uses the universal variable formulation, so elliptic, parabolic and hyperbolic transfers share one equation in
+ * `z` (the squared change in universal anomaly over the semi-major axis). The time of flight grows monotonically
+ * with `z` over a single revolution, so the root is bracketed and found with Newton steps, falling back to
+ * bisection whenever a step would leave the bracket. Only zero-revolution transfers are considered.
+ * Solving keeps no state, so any number of threads may solve at once.
+ * */
+public final class LambertSolver {
+    private static final int MAX_ITERATIONS = 100; // newton/bisection iterations allowed per solve
+    private static final double TIME_TOLERANCE = 1e-10; // convergence threshold of the relative time of flight error
+    private static final double SINGLE_REVOLUTION_LIMIT = 4 * Math.PI * Math.PI; // z of an infinitely long elliptic transfer
+    private static final double HYPERBOLIC_LIMIT = -1e6; // most negative z searched before giving up on a short transfer
+
+    private LambertSolver() {
+    }
+
+    /**
+     * Find the velocities at both ends of a transfer.
+     * @param x1 x-position of the departure relative to the attractor (km).
+     * @param y1 y-position of the departure relative to the attractor (km).
+     * @param x2 x-position of the arrival relative to the attractor (km).
+     * @param y2 y-position of the arrival relative to the attractor (km).
+     * @param timeOfFlight time between departure and arrival (s).
+     * @param mu G * attractor mass (km^3/s^2).
+     * @param prograde whether the transfer moves counterclockwise around the attractor.
+     * @param output array receiving (vx1, vy1, vx2, vy2), the departure and arrival velocities (km/s).
+     * @return whether a transfer was found; false for collinear positions, where the transfer plane is undefined.
+     * */
+    public static boolean solve(double x1, double y1, double x2, double y2, double timeOfFlight, double mu,
+                                boolean prograde, double[] output) {
+        double r1 = Math.hypot(x1, y1);
+        double r2 = Math.hypot(x2, y2);
+        double cross = x1 * y2 - y1 * x2;
+        double cosAngle = Math.max(-1, Math.min(1, (x1 * x2 + y1 * y2) / (r1 * r2)));
+        double sinAngle = Math.sqrt(1 - cosAngle * cosAngle);
+        // transfers sweeping more than half a turn have a negative sine
+        if (prograde ? cross < 0 : cross >= 0) {
+            sinAngle = -sinAngle;
+        }
+        double A = sinAngle * Math.sqrt(r1 * r2 / (1 - cosAngle));
+        if (!(Math.abs(A) > 0) || !Double.isFinite(A) || !(timeOfFlight > 0)) {
+            return false;
+        }
+        double scaledTime = Math.sqrt(mu) * timeOfFlight;
+        double low = -4 * Math.PI, high = SINGLE_REVOLUTION_LIMIT;
+        // widen the bracket until it holds transfers fast enough
+        while (scaledTime(low, r1, r2, A) > scaledTime) {
+            high = low;
+            low *= 2;
+            if (low < HYPERBOLIC_LIMIT) {
+                return false;
+            }
+        }
+        double z = 0 > low && 0 < high ? 0 : (low + high) / 2;
+        double y = 0;
+        boolean converged = false;
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double C = stumpffC(z), S = stumpffS(z);
+            y = r1 + r2 + A * (z * S - 1) / Math.sqrt(C);
+            if (y <= 0) {
+                // too little anomaly for the geometry to close: the transfer needs a larger z
+                low = z;
+                z = (low + high) / 2;
+                continue;
+            }
+            double chi = Math.sqrt(y / C);
+            double time = chi * chi * chi * S + A * Math.sqrt(y);
+            double error = time - scaledTime;
+            if (Math.abs(error) <= TIME_TOLERANCE * scaledTime) {
+                converged = true;
+                break;
+            }
+            if (error < 0) {
+                low = z;
+            } else {
+                high = z;
+            }
+            double next = z - error / timeDerivative(z, y, C, S, A);
+            z = next > low && next < high ? next : (low + high) / 2;
+        }
+        if (!converged) {
+            return false;
+        }
+        // lagrange coefficients of the transfer
+        double f = 1 - y / r1;
+        double g = A * Math.sqrt(y / mu);
+        double gDot = 1 - y / r2;
+        output[0] = (x2 - f * x1) / g;
+        output[1] = (y2 - f * y1) / g;
+        output[2] = (gDot * x2 - x1) / g;
+        output[3] = (gDot * y2 - y1) / g;
+        return true;
+    }
+    /** @return sqrt(mu) times the time of flight at a given z, or 0 where the geometry can't close. */
+    private static double scaledTime(double z, double r1, double r2, double A) {
+        double C = stumpffC(z), S = stumpffS(z);
+        double y = r1 + r2 + A * (z * S - 1) / Math.sqrt(C);
+        if (y <= 0) {
+            return 0;
+        }
+        double chi = Math.sqrt(y / C);
+        return chi * chi * chi * S + A * Math.sqrt(y);
+    }
+    /** @return derivative of the scaled time of flight with respect to z. */
+    private static double timeDerivative(double z, double y, double C, double S, double A) {
+        if (Math.abs(z) < 1e-8) {
+            return Math.sqrt(2) / 40 * y * Math.sqrt(y) + A / 8 * (Math.sqrt(y) + A * Math.sqrt(1 / (2 * y)));
+        }
+        double ratio = y / C;
+        return ratio * Math.sqrt(ratio) * ((C - 1.5 * S / C) / (2 * z) + 0.75 * S * S / C)
+                + A / 8 * (3 * S / C * Math.sqrt(y) + A * Math.sqrt(C / y));
+    }
+    /** Stumpff function C(z) = (1 - cos sqrt(z)) / z, continued through z = 0 by its series. */
+    static double stumpffC(double z) {
+        if (z > 1e-6) {
+            return (1 - Math.cos(Math.sqrt(z))) / z;
+        } else if (z < -1e-6) {
+            return (Math.cosh(Math.sqrt(-z)) - 1) / -z;
+        }
+        return 1.0 / 2 - z / 24 + z * z / 720;
+    }
+    /** Stumpff function S(z) = (sqrt(z) - sin sqrt(z)) / z^(3/2), continued through z = 0 by its series. */
+    static double stumpffS(double z) {
+        if (z > 1e-6) {
+            double root = Math.sqrt(z);
+            return (root - Math.sin(root)) / (root * z);
+        } else if (z < -1e-6) {
+            double root = Math.sqrt(-z);
+            return (Math.sinh(root) - root) / (root * -z);
+        }
+        return 1.0 / 6 - z / 120 + z * z / 5040;
+    }
+}
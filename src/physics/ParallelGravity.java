@@ -0,0 +1,56 @@
+package physics;
+
+import world.BodyStateStore;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Splits the bulk evaluation of another `AccelerationModel` across a fork-join pool.
+ * Bodies are divided into fixed chunks of `CHUNK_SIZE` ids, and each body's acceleration is still summed
+ * by a single thread in the wrapped model's order. No partial sums are ever combined across threads,
+ * so results are bit-for-bit identical to the sequential model regardless of the pool's parallelism.
+ * */
+public class ParallelGravity implements AccelerationModel {
+    public static final int CHUNK_SIZE = 64; // bodies evaluated per task
+
+    public final AccelerationModel model; // model whose ranged evaluation is parallelized
+    public final ForkJoinPool pool; // pool the chunks are evaluated on
+
+    public ParallelGravity(AccelerationModel model, ForkJoinPool pool) {
+        this.model = model;
+        this.pool = pool;
+    }
+    /** Parallelize a model on the common fork-join pool. */
+    public ParallelGravity(AccelerationModel model) {
+        this(model, ForkJoinPool.commonPool());
+    }
+    /** @return copy of the parallelized model, evaluated on the same pool. */
+    @Override
+    public ParallelGravity copy() {
+        return new ParallelGravity(model.copy(), pool);
+    }
+    @Override
+    public void computeAcceleration(BodyStateStore bodies, int id, double[] positionX, double[] positionY, double[] acceleration) {
+        model.computeAcceleration(bodies, id, positionX, positionY, acceleration);
+    }
+    @Override
+    public void prepare(BodyStateStore bodies, double[] positionX, double[] positionY) {
+        model.prepare(bodies, positionX, positionY);
+    }
+    @Override
+    public void computeAccelerations(BodyStateStore bodies, double[] positionX, double[] positionY,
+                                     double[] accelerationX, double[] accelerationY, int fromId, int toId) {
+        int chunks = (toId - fromId + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (chunks <= 1 || pool.getParallelism() == 1) {
+            model.computeAccelerations(bodies, positionX, positionY, accelerationX, accelerationY, fromId, toId);
+            return;
+        }
+        // streams run on the pool that invokes them
+        pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int chunkStart = fromId + chunk * CHUNK_SIZE;
+            int chunkEnd = Math.min(chunkStart + CHUNK_SIZE, toId);
+            model.computeAccelerations(bodies, positionX, positionY, accelerationX, accelerationY, chunkStart, chunkEnd);
+        })).join();
+    }
+}
@@ -0,0 +1,85 @@
+package physics;
+
+import world.BodyStateStore;
+
+/**
+ * Classic fourth-order Runge-Kutta. Four acceleration evaluations per step.
+ * Not symplectic, so energy slowly drifts over many orbits, but very accurate over short horizons.
+ * */
+public class RungeKutta4 implements Integrator {
+    private static final double[] STAGE_OFFSETS = new double[]{0.5, 0.5, 1};
+    private static final double[] STAGE_WEIGHTS = new double[]{1, 2, 2, 1};
+
+    private double[] stagePositionX = new double[0]; // positions at which the current stage is evaluated
+    private double[] stagePositionY = new double[0];
+    private double[] stageVelocityX = new double[0]; // velocities at which the current stage is evaluated
+    private double[] stageVelocityY = new double[0];
+    private double[] accelerationX = new double[0];
+    private double[] accelerationY = new double[0];
+    private double[] positionChangeX = new double[0]; // weighted sum of stage velocities
+    private double[] positionChangeY = new double[0];
+    private double[] velocityChangeX = new double[0]; // weighted sum of stage accelerations
+    private double[] velocityChangeY = new double[0];
+
+    @Override
+    public void step(BodyStateStore bodies, AccelerationModel model, double timeStep) {
+        int size = bodies.size;
+        ensureCapacity(bodies.positionX.length);
+        System.arraycopy(bodies.positionX, 0, stagePositionX, 0, size);
+        System.arraycopy(bodies.positionY, 0, stagePositionY, 0, size);
+        System.arraycopy(bodies.velocityX, 0, stageVelocityX, 0, size);
+        System.arraycopy(bodies.velocityY, 0, stageVelocityY, 0, size);
+        for (int id = 0; id < size; id++) {
+            positionChangeX[id] = 0;
+            positionChangeY[id] = 0;
+            velocityChangeX[id] = 0;
+            velocityChangeY[id] = 0;
+        }
+        for (int stage = 0; stage < STAGE_WEIGHTS.length; stage++) {
+            model.computeAccelerations(bodies, stagePositionX, stagePositionY, accelerationX, accelerationY);
+            double weight = STAGE_WEIGHTS[stage];
+            for (int id = 0; id < size; id++) {
+                positionChangeX[id] += weight * stageVelocityX[id];
+                positionChangeY[id] += weight * stageVelocityY[id];
+                velocityChangeX[id] += weight * accelerationX[id];
+                velocityChangeY[id] += weight * accelerationY[id];
+            }
+            if (stage < STAGE_OFFSETS.length) {
+                // the next stage is evaluated at the state reached by following this stage's derivative
+                double offset = STAGE_OFFSETS[stage] * timeStep;
+                for (int id = 0; id < size; id++) {
+                    stagePositionX[id] = bodies.positionX[id] + offset * stageVelocityX[id];
+                    stagePositionY[id] = bodies.positionY[id] + offset * stageVelocityY[id];
+                    stageVelocityX[id] = bodies.velocityX[id] + offset * accelerationX[id];
+                    stageVelocityY[id] = bodies.velocityY[id] + offset * accelerationY[id];
+                }
+            }
+        }
+        double sixthStep = timeStep / 6;
+        for (int id = 0; id < size; id++) {
+            bodies.positionX[id] += sixthStep * positionChangeX[id];
+            bodies.positionY[id] += sixthStep * positionChangeY[id];
+            bodies.velocityX[id] += sixthStep * velocityChangeX[id];
+            bodies.velocityY[id] += sixthStep * velocityChangeY[id];
+        }
+    }
+    @Override
+    public Integrator copy() {
+        return new RungeKutta4();
+    }
+    private void ensureCapacity(int capacity) {
+        if (stagePositionX.length >= capacity) {
+            return;
+        }
+        stagePositionX = new double[capacity];
+        stagePositionY = new double[capacity];
+        stageVelocityX = new double[capacity];
+        stageVelocityY = new double[capacity];
+        accelerationX = new double[capacity];
+        accelerationY = new double[capacity];
+        positionChangeX = new double[capacity];
+        positionChangeY = new double[capacity];
+        velocityChangeX = new double[capacity];
+        velocityChangeY = new double[capacity];
+    }
+}
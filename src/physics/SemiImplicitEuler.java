@@ -0,0 +1,33 @@
+package physics;
+
+import world.BodyStateStore;
+
+/**
+ * First-order symplectic (semi-implicit) Euler: kick the velocity with the current acceleration,
+ * then drift the position with the new velocity. One acceleration evaluation per step.
+ * This is the update the simulator originally used and is kept as the reference integrator.
+ * */
+public class SemiImplicitEuler implements Integrator {
+    private double[] accelerationX = new double[0];
+    private double[] accelerationY = new double[0];
+
+    @Override
+    public void step(BodyStateStore bodies, AccelerationModel model, double timeStep) {
+        int size = bodies.size;
+        if (accelerationX.length < size) {
+            accelerationX = new double[bodies.positionX.length];
+            accelerationY = new double[bodies.positionX.length];
+        }
+        model.computeAccelerations(bodies, bodies.positionX, bodies.positionY, accelerationX, accelerationY);
+        for (int id = 0; id < size; id++) {
+            bodies.velocityX[id] += accelerationX[id] * timeStep;
+            bodies.velocityY[id] += accelerationY[id] * timeStep;
+            bodies.positionX[id] += bodies.velocityX[id] * timeStep;
+            bodies.positionY[id] += bodies.velocityY[id] * timeStep;
+        }
+    }
+    @Override
+    public Integrator copy() {
+        return new SemiImplicitEuler();
+    }
+}
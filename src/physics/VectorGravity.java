@@ -0,0 +1,94 @@
+package physics;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import world.BodyStateStore;
+
+/**
+ * `GravityModel` whose inner loops run on SIMD lanes through the incubating Vector API.
+ * Bulk evaluation processes one lane per body over consecutive body ids, broadcasting each planet in turn.
+ * Every lane performs exactly the scalar model's operations in the same order, so bulk results are bit-for-bit identical
+ * to `GravityModel`. Single-body queries instead spread the planets across lanes, which reorders the sum.
+ * Requires `--add-modules jdk.incubator.vector`; `GravityModel.create` falls back to the scalar model without it.
+ * */
+public class VectorGravity extends GravityModel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    public VectorGravity(double G) {
+        super(G);
+    }
+    @Override
+    public VectorGravity copy() {
+        return new VectorGravity(G);
+    }
+    @Override
+    public void computeAccelerations(BodyStateStore bodies, double[] positionX, double[] positionY,
+                                     double[] accelerationX, double[] accelerationY, int fromId, int toId) {
+        int lanes = SPECIES.length();
+        int id = fromId;
+        int vectorEnd = fromId + SPECIES.loopBound(toId - fromId);
+        for (; id < vectorEnd; id += lanes) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, positionX, id);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, positionY, id);
+            DoubleVector xAcceleration = DoubleVector.zero(SPECIES);
+            DoubleVector yAcceleration = DoubleVector.zero(SPECIES);
+            for (int planetIndex = 0; planetIndex < bodies.planetCount; planetIndex++) {
+                int planetId = bodies.planetIds[planetIndex];
+                DoubleVector deltaX = x.sub(positionX[planetId]);
+                DoubleVector deltaY = y.sub(positionY[planetId]);
+                DoubleVector distanceSquared = deltaX.mul(deltaX).add(deltaY.mul(deltaY));
+                // same operations as `accelerationScale`: -G * M / (r^2 * r * 1e9)
+                DoubleVector scale = DoubleVector.broadcast(SPECIES, -G * bodies.mass[planetId])
+                        .div(distanceSquared.mul(distanceSquared.sqrt()).mul(1e9));
+                xAcceleration = xAcceleration.add(deltaX.mul(scale));
+                yAcceleration = yAcceleration.add(deltaY.mul(scale));
+            }
+            xAcceleration.intoArray(accelerationX, id);
+            yAcceleration.intoArray(accelerationY, id);
+            // planets only feel their parent, so their lanes are redone by the scalar rule
+            for (int lane = 0; lane < lanes; lane++) {
+                if (bodies.isPlanet[id + lane]) {
+                    super.computeAccelerations(bodies, positionX, positionY, accelerationX, accelerationY, id + lane, id + lane + 1);
+                }
+            }
+        }
+        super.computeAccelerations(bodies, positionX, positionY, accelerationX, accelerationY, id, toId);
+    }
+    @Override
+    public void computeAcceleration(BodyStateStore bodies, int id, double[] positionX, double[] positionY, double[] acceleration) {
+        int planetCount = bodies.planetCount;
+        if (bodies.isPlanet[id] || planetCount < SPECIES.length()) {
+            super.computeAcceleration(bodies, id, positionX, positionY, acceleration);
+            return;
+        }
+        double x = positionX[id];
+        double y = positionY[id];
+        int[] planetIds = bodies.planetIds;
+        DoubleVector xAcceleration = DoubleVector.zero(SPECIES);
+        DoubleVector yAcceleration = DoubleVector.zero(SPECIES);
+        int planetIndex = 0;
+        int vectorEnd = SPECIES.loopBound(planetCount);
+        for (; planetIndex < vectorEnd; planetIndex += SPECIES.length()) {
+            DoubleVector deltaX = DoubleVector.broadcast(SPECIES, x).sub(DoubleVector.fromArray(SPECIES, positionX, 0, planetIds, planetIndex));
+            DoubleVector deltaY = DoubleVector.broadcast(SPECIES, y).sub(DoubleVector.fromArray(SPECIES, positionY, 0, planetIds, planetIndex));
+            DoubleVector mass = DoubleVector.fromArray(SPECIES, bodies.mass, 0, planetIds, planetIndex);
+            DoubleVector distanceSquared = deltaX.mul(deltaX).add(deltaY.mul(deltaY));
+            DoubleVector scale = mass.mul(-G).div(distanceSquared.mul(distanceSquared.sqrt()).mul(1e9));
+            xAcceleration = xAcceleration.add(deltaX.mul(scale));
+            yAcceleration = yAcceleration.add(deltaY.mul(scale));
+        }
+        double xSum = xAcceleration.reduceLanes(VectorOperators.ADD);
+        double ySum = yAcceleration.reduceLanes(VectorOperators.ADD);
+        for (; planetIndex < planetCount; planetIndex++) {
+            int planetId = planetIds[planetIndex];
+            double deltaX = x - positionX[planetId];
+            double deltaY = y - positionY[planetId];
+            double scale = accelerationScale(bodies.mass[planetId], deltaX, deltaY);
+            xSum += deltaX * scale;
+            ySum += deltaY * scale;
+        }
+        acceleration[0] = xSum;
+        acceleration[1] = ySum;
+    }
+}
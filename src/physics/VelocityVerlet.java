@@ -0,0 +1,37 @@
+package physics;
+
+import world.BodyStateStore;
+
+/**
+ * Second-order symplectic velocity Verlet in kick-drift-kick form. Two acceleration evaluations per step.
+ * */
+public class VelocityVerlet implements Integrator {
+    private double[] accelerationX = new double[0];
+    private double[] accelerationY = new double[0];
+
+    @Override
+    public void step(BodyStateStore bodies, AccelerationModel model, double timeStep) {
+        int size = bodies.size;
+        if (accelerationX.length < size) {
+            accelerationX = new double[bodies.positionX.length];
+            accelerationY = new double[bodies.positionX.length];
+        }
+        double halfStep = timeStep / 2;
+        model.computeAccelerations(bodies, bodies.positionX, bodies.positionY, accelerationX, accelerationY);
+        for (int id = 0; id < size; id++) {
+            bodies.velocityX[id] += accelerationX[id] * halfStep;
+            bodies.velocityY[id] += accelerationY[id] * halfStep;
+            bodies.positionX[id] += bodies.velocityX[id] * timeStep;
+            bodies.positionY[id] += bodies.velocityY[id] * timeStep;
+        }
+        model.computeAccelerations(bodies, bodies.positionX, bodies.positionY, accelerationX, accelerationY);
+        for (int id = 0; id < size; id++) {
+            bodies.velocityX[id] += accelerationX[id] * halfStep;
+            bodies.velocityY[id] += accelerationY[id] * halfStep;
+        }
+    }
+    @Override
+    public Integrator copy() {
+        return new VelocityVerlet();
+    }
+}
@@ -0,0 +1,48 @@
+package physics;
+
+import world.BodyStateStore;
+
+/**
+ * Fourth-order symplectic integrator built by Yoshida's triple composition of leapfrog steps.
+ * Three acceleration evaluations per step, with no secular energy drift on bound orbits.
+ * */
+public class Yoshida4 implements Integrator {
+    private static final double CBRT_TWO = Math.cbrt(2);
+    private static final double W1 = 1 / (2 - CBRT_TWO);
+    private static final double W0 = -CBRT_TWO / (2 - CBRT_TWO);
+    // drift (position) and kick (velocity) coefficients
+    private static final double[] DRIFT = new double[]{W1 / 2, (W0 + W1) / 2, (W0 + W1) / 2, W1 / 2};
+    private static final double[] KICK = new double[]{W1, W0, W1};
+
+    private double[] accelerationX = new double[0];
+    private double[] accelerationY = new double[0];
+
+    @Override
+    public void step(BodyStateStore bodies, AccelerationModel model, double timeStep) {
+        int size = bodies.size;
+        if (accelerationX.length < size) {
+            accelerationX = new double[bodies.positionX.length];
+            accelerationY = new double[bodies.positionX.length];
+        }
+        for (int stage = 0; stage < KICK.length; stage++) {
+            drift(bodies, DRIFT[stage] * timeStep);
+            model.computeAccelerations(bodies, bodies.positionX, bodies.positionY, accelerationX, accelerationY);
+            double kickStep = KICK[stage] * timeStep;
+            for (int id = 0; id < size; id++) {
+                bodies.velocityX[id] += accelerationX[id] * kickStep;
+                bodies.velocityY[id] += accelerationY[id] * kickStep;
+            }
+        }
+        drift(bodies, DRIFT[KICK.length] * timeStep);
+    }
+    @Override
+    public Integrator copy() {
+        return new Yoshida4();
+    }
+    private static void drift(BodyStateStore bodies, double driftStep) {
+        for (int id = 0; id < bodies.size; id++) {
+            bodies.positionX[id] += bodies.velocityX[id] * driftStep;
+            bodies.positionY[id] += bodies.velocityY[id] * driftStep;
+        }
+    }
+}
@@ -80,6 +80,15 @@ public class Mesh {
     }
 
     public Coordinate averageWorldPosition() {
+        return averageWorldPosition(getParent().getPosition());
+    }
+
+    /**
+     * Returns the average position on a mesh, offset by a given parent position rather than the parent's live one.
+     * @param parentPosition position of the mesh's parent.
+     * @return coordinate representing average world position.
+     */
+    public Coordinate averageWorldPosition(Coordinate parentPosition) {
         double xSum = 0;
         double ySum = 0;
         double zSum = 0;
@@ -88,7 +97,6 @@ public class Mesh {
             ySum += vertex.getY();
             zSum += vertex.getZ();
         }
-        Coordinate parentPosition = getParent().getPosition();
         return new Coordinate(
                 parentPosition.getX() + (xSum / numVertices),
                 parentPosition.getY() + (ySum / numVertices),
@@ -0,0 +1,177 @@
+package world;
+
+import util.Coordinate;
+
+import java.util.Arrays;
+
+/**
+ * A `BodyStateStore` holds the dynamic state of every satellite within primitive arrays indexed by a stable body id.
+ * Registered satellites become thin views over their slot, so physics loops can walk the arrays directly
+ * instead of chasing `Coordinate` references through the satellite hierarchy.
+ * */
+public class BodyStateStore {
+    public static final int NO_PARENT = -1;
+    public int size; // number of registered bodies (body ids run from 0 to size - 1)
+    public double[] positionX; // x-position of each body (km)
+    public double[] positionY; // y-position of each body (km)
+    public double[] velocityX; // x-velocity of each body (km/s)
+    public double[] velocityY; // y-velocity of each body (km/s)
+    public double[] mass; // mass of each body (kg)
+    public int[] parentIds; // body id of each body's parent, or `NO_PARENT`
+    public boolean[] isPlanet; // whether each body is a planet (planets only feel their parent's gravity)
+    public int[] planetIds; // ids of every planet, in registration order
+    public int planetCount;
+    public Satellite[] bodies; // satellite occupying each body id (unset for detached copies)
+
+    public BodyStateStore(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        this.positionX = new double[capacity];
+        this.positionY = new double[capacity];
+        this.velocityX = new double[capacity];
+        this.velocityY = new double[capacity];
+        this.mass = new double[capacity];
+        this.parentIds = new int[capacity];
+        this.isPlanet = new boolean[capacity];
+        this.planetIds = new int[capacity];
+        this.bodies = new Satellite[capacity];
+        this.size = 0;
+        this.planetCount = 0;
+    }
+    /**
+     * Assign the satellite the next body id, copy its current state into the store, and bind it as a view.
+     * Parents must be registered before their children.
+     * @param satellite satellite to be tracked by the store.
+     * @return the satellite's body id.
+     * */
+    public int register(Satellite satellite) {
+        Coordinate position = satellite.getPosition();
+        Coordinate velocity = satellite.getVelocity();
+        int id = addBody(
+                position.getX(), position.getY(),
+                velocity == null ? 0 : velocity.getX(), velocity == null ? 0 : velocity.getY(),
+                satellite.mass, satellite.parent == null ? NO_PARENT : satellite.parent.id, satellite instanceof Planet
+        );
+        bodies[id] = satellite;
+        satellite.bindState(this, id);
+        return id;
+    }
+    /**
+     * Append a body that isn't backed by a `Satellite`, e.g. for synthetic or detached systems.
+     * @param parentId body id of the parent, or `NO_PARENT`.
+     * @param planet whether the body is a planet.
+     * @return the body's id.
+     * */
+    public int addBody(double x, double y, double vx, double vy, double bodyMass, int parentId, boolean planet) {
+        ensureCapacity(size + 1);
+        int id = size++;
+        positionX[id] = x;
+        positionY[id] = y;
+        velocityX[id] = vx;
+        velocityY[id] = vy;
+        mass[id] = bodyMass;
+        parentIds[id] = parentId;
+        isPlanet[id] = planet;
+        if (planet) {
+            planetIds[planetCount++] = id;
+        }
+        return id;
+    }
+    /**
+     * Overwrite this store with the contents of another store.
+     * Arrays are only reallocated when the other store has outgrown this one.
+     * @param other store to be copied.
+     * */
+    public void copyFrom(BodyStateStore other) {
+        ensureCapacity(other.size);
+        int count = other.size;
+        System.arraycopy(other.positionX, 0, positionX, 0, count);
+        System.arraycopy(other.positionY, 0, positionY, 0, count);
+        System.arraycopy(other.velocityX, 0, velocityX, 0, count);
+        System.arraycopy(other.velocityY, 0, velocityY, 0, count);
+        System.arraycopy(other.mass, 0, mass, 0, count);
+        System.arraycopy(other.parentIds, 0, parentIds, 0, count);
+        System.arraycopy(other.isPlanet, 0, isPlanet, 0, count);
+        System.arraycopy(other.planetIds, 0, planetIds, 0, other.planetCount);
+        this.size = count;
+        this.planetCount = other.planetCount;
+    }
+    /**
+     * Overwrite the positions and velocities of this store with those of another store with the same bodies,
+     * leaving masses, parents and planets untouched. Used to roll a store back to an earlier state.
+     * @param other store to be copied.
+     * */
+    public void copyMotionFrom(BodyStateStore other) {
+        ensureCapacity(other.size);
+        int count = other.size;
+        System.arraycopy(other.positionX, 0, positionX, 0, count);
+        System.arraycopy(other.positionY, 0, positionY, 0, count);
+        System.arraycopy(other.velocityX, 0, velocityX, 0, count);
+        System.arraycopy(other.velocityY, 0, velocityY, 0, count);
+        this.size = count;
+    }
+    /**
+     * Grow every array so that at least `capacity` bodies fit, doubling to amortize repeated registrations.
+     * @param capacity minimum number of bodies the store must hold.
+     * */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= positionX.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, 2 * positionX.length);
+        positionX = Arrays.copyOf(positionX, newCapacity);
+        positionY = Arrays.copyOf(positionY, newCapacity);
+        velocityX = Arrays.copyOf(velocityX, newCapacity);
+        velocityY = Arrays.copyOf(velocityY, newCapacity);
+        mass = Arrays.copyOf(mass, newCapacity);
+        parentIds = Arrays.copyOf(parentIds, newCapacity);
+        isPlanet = Arrays.copyOf(isPlanet, newCapacity);
+        planetIds = Arrays.copyOf(planetIds, newCapacity);
+        bodies = Arrays.copyOf(bodies, newCapacity);
+    }
+
+    /** `Coordinate` view over a body's position slot. Z-components aren't simulated, so they stay local to the view. */
+    public static class PositionView extends Coordinate {
+        private final BodyStateStore store;
+        private final int id;
+        public PositionView(BodyStateStore store, int id, double z) {
+            super(0, 0, z);
+            this.store = store;
+            this.id = id;
+        }
+        @Override
+        public void setX(double x) { store.positionX[id] = x; }
+        @Override
+        public void setY(double y) { store.positionY[id] = y; }
+        @Override
+        public void shiftX(double xChange) { store.positionX[id] += xChange; }
+        @Override
+        public void shiftY(double yChange) { store.positionY[id] += yChange; }
+        @Override
+        public double getX() { return store.positionX[id]; }
+        @Override
+        public double getY() { return store.positionY[id]; }
+    }
+
+    /** `Coordinate` view over a body's velocity slot. */
+    public static class VelocityView extends Coordinate {
+        private final BodyStateStore store;
+        private final int id;
+        public VelocityView(BodyStateStore store, int id) {
+            super(0, 0, 0);
+            this.store = store;
+            this.id = id;
+        }
+        @Override
+        public void setX(double x) { store.velocityX[id] = x; }
+        @Override
+        public void setY(double y) { store.velocityY[id] = y; }
+        @Override
+        public void shiftX(double xChange) { store.velocityX[id] += xChange; }
+        @Override
+        public void shiftY(double yChange) { store.velocityY[id] += yChange; }
+        @Override
+        public double getX() { return store.velocityX[id]; }
+        @Override
+        public double getY() { return store.velocityY[id]; }
+    }
+}
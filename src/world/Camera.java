@@ -53,12 +53,20 @@ public class Camera extends Entity {
     }
 
     public double distanceToViewPlane(Coordinate coordinate) {
-        Coordinate cameraPosition = getPosition();
+        return distanceToViewPlane(getPosition(), getDirection(), coordinate);
+    }
+    /**
+     * Compute the distance from a camera placement's view plane to a coordinate.
+     * @param cameraPosition position of the camera.
+     * @param cameraDirection (pitch, yaw, roll) of the camera in degrees.
+     * @param coordinate target position.
+     * @return signed distance along the camera's viewing direction.
+     * */
+    public static double distanceToViewPlane(Coordinate cameraPosition, Coordinate cameraDirection, Coordinate coordinate) {
         double X = coordinate.getX() - cameraPosition.getX();
         double Y = coordinate.getY() - cameraPosition.getY();
         double Z = coordinate.getZ() - cameraPosition.getZ();
         // Theta = (thetaX, thetaY, thetaZ) -> tait-bryan angles
-        Coordinate cameraDirection = getDirection();
         double pitch = Math.toRadians(cameraDirection.getX());
         double yaw = Math.toRadians(cameraDirection.getY());
         // I have no idea if this is going to work
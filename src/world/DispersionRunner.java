@@ -0,0 +1,249 @@
+package world;
+
+import physics.AccelerationModel;
+import physics.Integrator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Monte Carlo dispersion analysis of a flight plan: runs many copies of a prototype world, each with its own seeded
+ * perturbation of the controlled spacecraft's burns, its starting true anomaly and the planet masses, and reports
+ * how the outcomes spread.
+ * Every sample rebuilds the prototype from one shared in-memory `WorldCheckpoint` and runs with its own copies of the
+ * prototype's integrators, gravity model and multi-rate stepper, so samples share no mutable state and run on a
+ * work-stealing pool of `parallelism` threads. Only a summary of each sample is kept, never its
+ * trajectory, and at most a few samples per thread are in flight, so memory doesn't grow with the sample count.
+ * A sample's perturbation depends only on the seed and its index, so results don't depend on the thread count.
+ * */
+public class DispersionRunner {
+    private static final long SAMPLE_SEED_STRIDE = 0x9E3779B97F4A7C15L; // golden ratio increment between sample seeds
+    private static final int SAMPLES_IN_FLIGHT_PER_THREAD = 4;
+
+    public final double timeStep; // distance between each calculation (s)
+    public final double duration; // simulated time each sample runs for (s)
+    public final int targetId; // body id of the planet whose closest approach is tracked
+    public final List<Burn> burns = new ArrayList<>(); // flight plan, in time order
+    public double burnSigma; // standard deviation of each burn's percentage, relative to the planned percentage
+    public double anomalySigma; // standard deviation of the spacecraft's starting true anomaly (radians)
+    public double massSigma; // standard deviation of every planet's mass, relative to its nominal mass
+    public int parallelism = Runtime.getRuntime().availableProcessors(); // threads propagating samples
+    private final ByteBuffer prototype; // encoded prototype world, decoded once per sample
+    private final Integrator integrator; // prototype's integrator, copied into every sample
+    private final AccelerationModel gravity; // prototype's gravity model, copied into every sample
+    private final Integrator leadIntegrator; // prototype's ephemeris integrator, copied into every sample
+    private final MultiRateStepper multiRate; // prototype's multi-rate stepper, copied into every sample, or null
+
+    /** Thrust applied to the controlled spacecraft at a given time, as passed to `Spacecraft.engageThrust`. */
+    public static final class Burn {
+        public final double time; // simulation time of the burn (s)
+        public final int direction; // 1: forward, -1: backward
+        public final double percent; // planned change in speed, as a fraction of the current speed
+
+        public Burn(double time, int direction, double percent) {
+            this.time = time;
+            this.direction = direction;
+            this.percent = percent;
+        }
+    }
+
+    /** Outcome of a single sample. */
+    public static final class SampleResult {
+        public final long index; // sample index, from 0
+        public final double closestApproach; // least distance between the spacecraft and the target at any step (km)
+        public final double closestApproachTime; // simulation time of the closest approach (s)
+        public final int finalParentId; // body id the spacecraft orbits at the end of the run
+        public final double deltaV; // total speed change applied by the burns (km/s)
+
+        SampleResult(long index, double closestApproach, double closestApproachTime, int finalParentId, double deltaV) {
+            this.index = index;
+            this.closestApproach = closestApproach;
+            this.closestApproachTime = closestApproachTime;
+            this.finalParentId = finalParentId;
+            this.deltaV = deltaV;
+        }
+    }
+
+    /** Running mean, standard deviation and range of one outcome, accumulated without storing the samples. */
+    public static final class Statistics {
+        public long count;
+        public double mean;
+        public double min = Double.POSITIVE_INFINITY;
+        public double max = Double.NEGATIVE_INFINITY;
+        private double squaredDeviations; // sum of squared deviations from the mean (Welford)
+
+        void add(double value) {
+            count++;
+            double delta = value - mean;
+            mean += delta / count;
+            squaredDeviations += delta * (value - mean);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        /** @return sample standard deviation, or 0 for fewer than two samples. */
+        public double standardDeviation() {
+            return count < 2 ? 0 : Math.sqrt(squaredDeviations / (count - 1));
+        }
+    }
+
+    /** Aggregated outcomes of every sample of a run. */
+    public static final class Summary {
+        public final Statistics closestApproach = new Statistics(); // km
+        public final Statistics deltaV = new Statistics(); // km/s
+        public final Map<Integer, Long> finalParents = new TreeMap<>(); // number of samples ending around each body id
+
+        void add(SampleResult result) {
+            closestApproach.add(result.closestApproach);
+            deltaV.add(result.deltaV);
+            finalParents.merge(result.finalParentId, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * @param prototype world every sample starts from; only read here, so it must not be stepped concurrently.
+     * @param timeStep distance between each calculation (s).
+     * @param duration simulated time each sample runs for (s).
+     * @param target planet whose closest approach is tracked.
+     * */
+    public DispersionRunner(World prototype, double timeStep, double duration, Planet target) {
+        this.prototype = WorldCheckpoint.encode(prototype, 1);
+        this.integrator = prototype.integrator.copy();
+        this.gravity = prototype.gravity.copy();
+        this.leadIntegrator = prototype.leadIntegrator.copy();
+        this.multiRate = prototype.multiRate == null ? null : prototype.multiRate.copy();
+        this.timeStep = timeStep;
+        this.duration = duration;
+        this.targetId = target.id;
+    }
+    /**
+     * Run every sample and aggregate their outcomes.
+     * @param samples number of samples.
+     * @param seed seed from which each sample's perturbation is derived.
+     * @param results receives each sample's outcome on the calling thread as soon as it completes, or null.
+     * @return outcomes aggregated over every sample.
+     * */
+    public Summary run(long samples, long seed, Consumer<SampleResult> results) {
+        Summary summary = new Summary();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            ExecutorCompletionService<SampleResult> completion = new ExecutorCompletionService<>(pool);
+            long submitted = 0;
+            long inFlightLimit = (long) parallelism * SAMPLES_IN_FLIGHT_PER_THREAD;
+            for (long completed = 0; completed < samples; completed++) {
+                // keep every thread busy without queuing every sample up front
+                while (submitted < samples && submitted - completed < inFlightLimit) {
+                    long index = submitted++;
+                    completion.submit(() -> runSample(index, seed));
+                }
+                SampleResult result = completion.take().get();
+                summary.add(result);
+                if (results != null) {
+                    results.accept(result);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Dispersion sample failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return summary;
+    }
+    /**
+     * Propagate a single perturbed copy of the prototype. Steps are shortened to land exactly on every burn.
+     * @param index sample index.
+     * @param seed seed of the whole run.
+     * @return the sample's outcome.
+     * */
+    public SampleResult runSample(long index, long seed) {
+        World world;
+        try {
+            world = WorldCheckpoint.decode(prototype, this::configure).world;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        SplittableRandom random = new SplittableRandom(seed + index * SAMPLE_SEED_STRIDE);
+        perturb(world, random);
+        BodyStateStore state = world.state;
+        Spacecraft spacecraft = world.spacecraft;
+        int craftId = spacecraft.id;
+        double endTime = world.simulationTime + duration;
+        double closestApproach = distanceToTarget(state, craftId);
+        double closestApproachTime = world.simulationTime;
+        double deltaV = 0;
+        int nextBurn = 0;
+        while (nextBurn < burns.size() && burns.get(nextBurn).time < world.simulationTime) {
+            nextBurn++;
+        }
+        while (world.simulationTime < endTime) {
+            while (nextBurn < burns.size() && burns.get(nextBurn).time <= world.simulationTime) {
+                Burn burn = burns.get(nextBurn++);
+                double velocityX = state.velocityX[craftId], velocityY = state.velocityY[craftId];
+                double percent = burn.percent * (1 + burnSigma * random.nextGaussian());
+                spacecraft.engageThrust(burn.direction, percent);
+                deltaV += Math.hypot(state.velocityX[craftId] - velocityX, state.velocityY[craftId] - velocityY);
+            }
+            double stepEnd = Math.min(world.simulationTime + timeStep, endTime);
+            if (nextBurn < burns.size()) {
+                stepEnd = Math.min(stepEnd, burns.get(nextBurn).time);
+            }
+            world.step(stepEnd - world.simulationTime);
+            double distance = distanceToTarget(state, craftId);
+            if (distance < closestApproach) {
+                closestApproach = distance;
+                closestApproachTime = world.simulationTime;
+            }
+        }
+        return new SampleResult(index, closestApproach, closestApproachTime, state.parentIds[craftId], deltaV);
+    }
+    /** Run a sample the way the prototype runs, with copies of its settings that no other sample touches. */
+    private void configure(World world) {
+        world.integrator = integrator.copy();
+        world.gravity = gravity.copy();
+        world.leadIntegrator = leadIntegrator.copy();
+        world.multiRate = multiRate == null ? null : multiRate.copy();
+    }
+    /**
+     * Scale every planet's mass and rotate the spacecraft about its parent by its true anomaly perturbation.
+     * Burn perturbations are drawn as the burns happen.
+     * */
+    private void perturb(World world, SplittableRandom random) {
+        BodyStateStore state = world.state;
+        if (massSigma != 0) {
+            for (int planetIndex = 0; planetIndex < state.planetCount; planetIndex++) {
+                int planetId = state.planetIds[planetIndex];
+                state.mass[planetId] *= 1 + massSigma * random.nextGaussian();
+            }
+            world.updateMasses();
+        }
+        int craftId = world.spacecraft.id;
+        int parentId = state.parentIds[craftId];
+        if (anomalySigma != 0 && parentId != BodyStateStore.NO_PARENT) {
+            double angle = anomalySigma * random.nextGaussian();
+            double cos = Math.cos(angle), sin = Math.sin(angle);
+            double relativeX = state.positionX[craftId] - state.positionX[parentId];
+            double relativeY = state.positionY[craftId] - state.positionY[parentId];
+            double relativeVelocityX = state.velocityX[craftId] - state.velocityX[parentId];
+            double relativeVelocityY = state.velocityY[craftId] - state.velocityY[parentId];
+            state.positionX[craftId] = state.positionX[parentId] + relativeX * cos - relativeY * sin;
+            state.positionY[craftId] = state.positionY[parentId] + relativeX * sin + relativeY * cos;
+            state.velocityX[craftId] = state.velocityX[parentId] + relativeVelocityX * cos - relativeVelocityY * sin;
+            state.velocityY[craftId] = state.velocityY[parentId] + relativeVelocityX * sin + relativeVelocityY * cos;
+            world.updateSpacecraftParent(world.spacecraft);
+        }
+    }
+    private double distanceToTarget(BodyStateStore state, int craftId) {
+        return Math.hypot(state.positionX[craftId] - state.positionX[targetId], state.positionY[craftId] - state.positionY[targetId]);
+    }
+}
@@ -0,0 +1,57 @@
+package world;
+
+/**
+ * Something that happens to the controlled spacecraft along its lead: passing the periapsis or apoapsis of the body
+ * whose sphere of influence it is in, passing close to a planet without entering its sphere of influence, crossing
+ * a sphere of influence, or hitting a planet's surface, where the lead ends. Events are found while a lead is
+ * predicted and are immutable.
+ * */
+public final class EncounterEvent {
+    public enum Type {
+        PERIAPSIS("Pe"),
+        APOAPSIS("Ap"),
+        CLOSEST_APPROACH("CA"),
+        SPHERE_ENTRY("SOI in"),
+        SPHERE_EXIT("SOI out"),
+        IMPACT("Impact");
+
+        public final String abbreviation; // short marker label
+
+        Type(String abbreviation) {
+            this.abbreviation = abbreviation;
+        }
+    }
+
+    public final Type type;
+    public final double time; // simulation time of the event (s)
+    public final int bodyId; // body id of the planet the event relates to
+    public final double distance; // distance between the spacecraft and the planet at the event (km)
+    public final double x, y; // spacecraft position at the event (km)
+    public final int referenceId; // body id the lead is drawn relative to (the spacecraft's parent), or `NO_PARENT`
+    public final double referenceX, referenceY; // position of the reference body at the event (km)
+
+    public EncounterEvent(Type type, double time, int bodyId, double distance, double x, double y,
+                          int referenceId, double referenceX, double referenceY) {
+        this.type = type;
+        this.time = time;
+        this.bodyId = bodyId;
+        this.distance = distance;
+        this.x = x;
+        this.y = y;
+        this.referenceId = referenceId;
+        this.referenceX = referenceX;
+        this.referenceY = referenceY;
+    }
+    /**
+     * @param body the planet the event relates to.
+     * @return marker label, e.g. "Pe Kerbin 7878 km".
+     * */
+    public String label(Satellite body) {
+        String name = body instanceof Planet planet ? planet.name : "#" + bodyId;
+        return String.format("%s %s %.0f km", type.abbreviation, name, distance);
+    }
+    @Override
+    public String toString() {
+        return String.format("%s body %d at t = %.1f s, %.1f km", type, bodyId, time, distance);
+    }
+}
@@ -0,0 +1,356 @@
+package world;
+
+import physics.ConicOrbit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the encounter events along a predicted lead, where the spacecraft and every planet share the same sample times.
+ * Rather than comparing every spacecraft lead point with every planet, lead points are indexed in time buckets of
+ * `BUCKET_SAMPLES` consecutive samples: within a bucket, the box bounding each planet's path, grown by its approach
+ * range, is entered into a uniform grid, and each spacecraft point is only checked against the planets whose boxes
+ * share its cell, plus the planets it is already passing. The spacecraft's sphere of influence is followed along the
+ * way, as `World` would, so apsides are found relative to whichever planet it orbits at the time.
+ * */
+final class EncounterFinder {
+    static final double APPROACH_RANGE = 3; // spheres of influence within which passing a planet counts as an approach
+    static final double MIN_APSIS_ECCENTRICITY = 1e-3; // orbits closer to circular have no marked apsides
+    private static final int BUCKET_SAMPLES = 32; // lead samples sharing one grid
+    private static final int MAX_CELLS_PER_BOX = 64; // larger boxes are checked against every point of their bucket
+    private static final int STRIDE = 4; // (x, y, vx, vy) per lead sample
+
+    private final BodyStateStore bodies; // masses and parents of the predicted bodies
+    private final double G;
+    private final double startTime; // time of the first lead sample (s)
+    private final double interval; // time between lead samples (s)
+    private final int size; // number of lead samples
+    private final double[] craft; // spacecraft lead
+    private final int[] planetIds; // body id of each column
+    private final double[][] planets; // lead of each column
+    private final int[] parentColumn; // column of each column's parent, or -1
+    private final double[] influenceScale; // sphere of influence per unit distance from the parent; infinite for roots
+    private final int referenceColumn; // column of the body the lead is drawn relative to, or -1
+    private final List<EncounterEvent> events = new ArrayList<>();
+
+    // state of the pass by each planet; a pass lasts while the spacecraft is within the planet's approach range
+    private final boolean[] passing;
+    private final boolean[] inside; // whether the spacecraft was within the planet's sphere of influence when last checked
+    private final boolean[] passEntered; // whether the current pass entered the sphere of influence
+    private final double[] passMinimum; // least distance of the current pass (km)
+    private final int[] passMinimumSample; // sample of `passMinimum`
+    private final int[] checkedAt; // sample + 1 each column was last checked at
+    private int[] passingColumns = new int[4];
+    private int passingCount;
+
+    private EncounterFinder(BodyStateStore bodies, double G, int parentId, double startTime, double interval, int size,
+                            double[] craftLead, int[] planetIds, double[][] planetLeads) {
+        this.bodies = bodies;
+        this.G = G;
+        this.startTime = startTime;
+        this.interval = interval;
+        this.size = size;
+        this.craft = craftLead;
+        this.planetIds = planetIds;
+        this.planets = planetLeads;
+        int columns = planetIds.length;
+        int[] columnOfBody = new int[bodies.size];
+        Arrays.fill(columnOfBody, -1);
+        for (int column = 0; column < columns; column++) {
+            columnOfBody[planetIds[column]] = column;
+        }
+        this.parentColumn = new int[columns];
+        this.influenceScale = new double[columns];
+        for (int column = 0; column < columns; column++) {
+            int planetParentId = bodies.parentIds[planetIds[column]];
+            parentColumn[column] = planetParentId == BodyStateStore.NO_PARENT ? -1 : columnOfBody[planetParentId];
+            influenceScale[column] = planetParentId == BodyStateStore.NO_PARENT ? Double.POSITIVE_INFINITY
+                    : ConicOrbit.sphereOfInfluence(1, bodies.mass[planetIds[column]], bodies.mass[planetParentId]);
+        }
+        this.referenceColumn = parentId == BodyStateStore.NO_PARENT ? -1 : columnOfBody[parentId];
+        this.passing = new boolean[columns];
+        this.inside = new boolean[columns];
+        this.passEntered = new boolean[columns];
+        this.passMinimum = new double[columns];
+        this.passMinimumSample = new int[columns];
+        this.checkedAt = new int[columns];
+    }
+    /**
+     * Find every event along a lead.
+     * @param bodies store providing the masses and parents of the predicted bodies.
+     * @param G gravitational constant (m^3 kg^-1 s^-2).
+     * @param parentId body id of the spacecraft's parent at the first sample, or `NO_PARENT`.
+     * @param startTime time of the first lead sample (s).
+     * @param interval time between lead samples (s).
+     * @param size number of lead samples.
+     * @param craftLead interleaved (x, y, vx, vy) spacecraft lead states.
+     * @param planetIds body ids of the predicted planets.
+     * @param planetLeads interleaved lead states of each planet, in `planetIds` order.
+     * @return unmodifiable list of events in time order.
+     * */
+    static List<EncounterEvent> find(BodyStateStore bodies, double G, int parentId, double startTime, double interval, int size,
+                                     double[] craftLead, int[] planetIds, double[][] planetLeads) {
+        return new EncounterFinder(bodies, G, parentId, startTime, interval, size, craftLead, planetIds, planetLeads).run();
+    }
+    private List<EncounterEvent> run() {
+        int orbitColumn = referenceColumn; // column whose sphere of influence the spacecraft is in
+        int apsisColumn = -1; // column `previousRadialVelocity` was measured against
+        double previousRadialVelocity = 0;
+        for (int bucketStart = 0; bucketStart < size; bucketStart += BUCKET_SAMPLES) {
+            int bucketEnd = Math.min(size, bucketStart + BUCKET_SAMPLES);
+            Grid grid = new Grid(bucketStart, bucketEnd);
+            for (int sample = bucketStart; sample < bucketEnd; sample++) {
+                double x = craft[sample * STRIDE], y = craft[sample * STRIDE + 1];
+                // planets already being passed are checked until the spacecraft leaves their approach range
+                int[] previouslyPassing = Arrays.copyOf(passingColumns, passingCount);
+                for (int column : previouslyPassing) {
+                    orbitColumn = check(column, sample, orbitColumn);
+                }
+                for (int column : grid.candidates(x, y)) {
+                    orbitColumn = check(column, sample, orbitColumn);
+                }
+                for (int column : grid.oversized) {
+                    orbitColumn = check(column, sample, orbitColumn);
+                }
+                if (orbitColumn < 0) {
+                    continue;
+                }
+                // apsides are where the radial velocity relative to the orbited planet changes sign
+                double radialVelocity = radialVelocity(orbitColumn, sample);
+                if (apsisColumn == orbitColumn && eccentricity(orbitColumn, sample) >= MIN_APSIS_ECCENTRICITY
+                        && (previousRadialVelocity < 0) != (radialVelocity < 0)) {
+                    double fraction = previousRadialVelocity / (previousRadialVelocity - radialVelocity);
+                    EncounterEvent.Type type = previousRadialVelocity < 0 ? EncounterEvent.Type.PERIAPSIS : EncounterEvent.Type.APOAPSIS;
+                    addEvent(type, sample - 1 + fraction, orbitColumn);
+                }
+                apsisColumn = orbitColumn;
+                previousRadialVelocity = radialVelocity;
+            }
+        }
+        for (int index = passingCount - 1; index >= 0; index--) {
+            endPass(passingColumns[index]);
+        }
+        events.sort(Comparator.comparingDouble(event -> event.time));
+        return List.copyOf(events);
+    }
+    /**
+     * Update a planet's pass and sphere of influence state at a sample, adding the events it causes.
+     * @param orbitColumn column whose sphere of influence the spacecraft was in.
+     * @return column whose sphere of influence the spacecraft is in afterwards.
+     * */
+    private int check(int column, int sample, int orbitColumn) {
+        if (checkedAt[column] == sample + 1) {
+            return orbitColumn;
+        }
+        checkedAt[column] = sample + 1;
+        double influence = influenceRadius(column, sample);
+        double distance = distance(column, sample);
+        boolean nowInside = distance < influence;
+        if (nowInside != inside[column]) {
+            inside[column] = nowInside;
+            // the state at the first sample is where the lead starts, not a crossing
+            if (sample > 0) {
+                double previousExcess = distance(column, sample - 1) - influenceRadius(column, sample - 1);
+                double fraction = previousExcess / (previousExcess - (distance - influence));
+                addEvent(nowInside ? EncounterEvent.Type.SPHERE_ENTRY : EncounterEvent.Type.SPHERE_EXIT, sample - 1 + fraction, column);
+                if (nowInside && parentColumn[column] == orbitColumn) {
+                    orbitColumn = column;
+                } else if (!nowInside && column == orbitColumn) {
+                    orbitColumn = parentColumn[column];
+                }
+            }
+        }
+        if (distance < APPROACH_RANGE * influence) {
+            if (!passing[column]) {
+                passing[column] = true;
+                passEntered[column] = false;
+                passMinimum[column] = distance;
+                passMinimumSample[column] = sample;
+                if (passingCount == passingColumns.length) {
+                    passingColumns = Arrays.copyOf(passingColumns, passingCount * 2);
+                }
+                passingColumns[passingCount++] = column;
+            } else if (distance < passMinimum[column]) {
+                passMinimum[column] = distance;
+                passMinimumSample[column] = sample;
+            }
+            passEntered[column] |= nowInside;
+        } else if (passing[column]) {
+            endPass(column);
+        }
+        return orbitColumn;
+    }
+    /**
+     * Finish a pass, adding its closest approach unless the pass entered the sphere of influence, where the
+     * periapsis marks the closest approach instead. The minimum is refined with a parabola through its neighbors.
+     * */
+    private void endPass(int column) {
+        passing[column] = false;
+        for (int index = 0; index < passingCount; index++) {
+            if (passingColumns[index] == column) {
+                passingColumns[index] = passingColumns[--passingCount];
+                break;
+            }
+        }
+        int sample = passMinimumSample[column];
+        // a minimum at either end of the lead is where the lead was cut, not where the distance turned
+        if (passEntered[column] || sample == 0 || sample == size - 1) {
+            return;
+        }
+        double offset = 0;
+        double before = distance(column, sample - 1), after = distance(column, sample + 1);
+        double curvature = before - 2 * passMinimum[column] + after;
+        if (curvature > 0) {
+            offset = Math.max(-1, Math.min(1, (before - after) / (2 * curvature)));
+        }
+        addEvent(EncounterEvent.Type.CLOSEST_APPROACH, sample + offset, column);
+    }
+    /** Add an event at a fractional sample, interpolating positions and the distance linearly. */
+    private void addEvent(EncounterEvent.Type type, double samplePosition, int column) {
+        int sample = Math.max(0, Math.min(size - 2, (int) Math.floor(samplePosition)));
+        double fraction = size == 1 ? 0 : samplePosition - sample;
+        int next = Math.min(size - 1, sample + 1);
+        double x = lerp(craft[sample * STRIDE], craft[next * STRIDE], fraction);
+        double y = lerp(craft[sample * STRIDE + 1], craft[next * STRIDE + 1], fraction);
+        double[] planet = planets[column];
+        double planetX = lerp(planet[sample * STRIDE], planet[next * STRIDE], fraction);
+        double planetY = lerp(planet[sample * STRIDE + 1], planet[next * STRIDE + 1], fraction);
+        int referenceId = BodyStateStore.NO_PARENT;
+        double referenceX = 0, referenceY = 0;
+        if (referenceColumn >= 0) {
+            double[] reference = planets[referenceColumn];
+            referenceId = planetIds[referenceColumn];
+            referenceX = lerp(reference[sample * STRIDE], reference[next * STRIDE], fraction);
+            referenceY = lerp(reference[sample * STRIDE + 1], reference[next * STRIDE + 1], fraction);
+        }
+        events.add(new EncounterEvent(type, startTime + samplePosition * interval, planetIds[column],
+                Math.hypot(x - planetX, y - planetY), x, y, referenceId, referenceX, referenceY));
+    }
+    private double distance(int column, int sample) {
+        int offset = sample * STRIDE;
+        return Math.hypot(craft[offset] - planets[column][offset], craft[offset + 1] - planets[column][offset + 1]);
+    }
+    /** @return sphere of influence of a planet at a sample, from its distance to its parent at the time. */
+    private double influenceRadius(int column, int sample) {
+        int parent = parentColumn[column];
+        if (parent < 0) {
+            return influenceScale[column];
+        }
+        int offset = sample * STRIDE;
+        return influenceScale[column] * Math.hypot(planets[column][offset] - planets[parent][offset],
+                planets[column][offset + 1] - planets[parent][offset + 1]);
+    }
+    /** @return rate at which the spacecraft's distance to a planet changes at a sample (km/s). */
+    private double radialVelocity(int column, int sample) {
+        int offset = sample * STRIDE;
+        double[] planet = planets[column];
+        double relativeX = craft[offset] - planet[offset], relativeY = craft[offset + 1] - planet[offset + 1];
+        return (relativeX * (craft[offset + 2] - planet[offset + 2]) + relativeY * (craft[offset + 3] - planet[offset + 3]))
+                / Math.hypot(relativeX, relativeY);
+    }
+    /** @return eccentricity of the spacecraft's osculating orbit around a planet at a sample. */
+    private double eccentricity(int column, int sample) {
+        int offset = sample * STRIDE;
+        double[] planet = planets[column];
+        double x = craft[offset] - planet[offset], y = craft[offset + 1] - planet[offset + 1];
+        double vx = craft[offset + 2] - planet[offset + 2], vy = craft[offset + 3] - planet[offset + 3];
+        double mu = G * bodies.mass[planetIds[column]] / 1e9;
+        double r = Math.hypot(x, y);
+        double speedSquared = vx * vx + vy * vy;
+        double radialSpeed = x * vx + y * vy;
+        return Math.hypot((speedSquared - mu / r) * x - radialSpeed * vx, (speedSquared - mu / r) * y - radialSpeed * vy) / mu;
+    }
+    private static double lerp(double from, double to, double fraction) {
+        return from + fraction * (to - from);
+    }
+
+    /**
+     * Uniform grid over one bucket of samples, holding every planet whose approach range may contain a
+     * spacecraft point of the bucket. Cells are as wide as the median planet box, so most boxes cover a few cells.
+     * */
+    private final class Grid {
+        private static final int[] NONE = new int[0];
+        private final Map<Long, int[]> cells = new HashMap<>(); // columns per cell; the first element counts them
+        private double cellSize;
+        int[] oversized = NONE; // columns whose boxes cover more than `MAX_CELLS_PER_BOX` cells
+
+        Grid(int from, int to) {
+            int columns = planetIds.length;
+            double[] boxes = new double[columns * 4]; // (minX, minY, maxX, maxY) per column
+            double[] extents = new double[columns];
+            int boxCount = 0;
+            for (int column = 0; column < columns; column++) {
+                if (parentColumn[column] < 0) {
+                    // a root's sphere of influence is unbounded; nothing crosses it
+                    continue;
+                }
+                double[] planet = planets[column];
+                double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+                double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+                double range = 0;
+                for (int sample = from; sample < to; sample++) {
+                    int offset = sample * STRIDE;
+                    minX = Math.min(minX, planet[offset]);
+                    maxX = Math.max(maxX, planet[offset]);
+                    minY = Math.min(minY, planet[offset + 1]);
+                    maxY = Math.max(maxY, planet[offset + 1]);
+                    range = Math.max(range, APPROACH_RANGE * influenceRadius(column, sample));
+                }
+                boxes[column * 4] = minX - range;
+                boxes[column * 4 + 1] = minY - range;
+                boxes[column * 4 + 2] = maxX + range;
+                boxes[column * 4 + 3] = maxY + range;
+                extents[boxCount++] = Math.max(maxX - minX, maxY - minY) + 2 * range;
+            }
+            if (boxCount == 0) {
+                return;
+            }
+            Arrays.sort(extents, 0, boxCount);
+            this.cellSize = Math.max(extents[boxCount / 2], Double.MIN_NORMAL);
+            for (int column = 0; column < columns; column++) {
+                if (parentColumn[column] < 0) {
+                    continue;
+                }
+                long minCellX = cell(boxes[column * 4]), minCellY = cell(boxes[column * 4 + 1]);
+                long maxCellX = cell(boxes[column * 4 + 2]), maxCellY = cell(boxes[column * 4 + 3]);
+                if ((maxCellX - minCellX + 1) * (maxCellY - minCellY + 1) > MAX_CELLS_PER_BOX) {
+                    oversized = Arrays.copyOf(oversized, oversized.length + 1);
+                    oversized[oversized.length - 1] = column;
+                    continue;
+                }
+                for (long cellX = minCellX; cellX <= maxCellX; cellX++) {
+                    for (long cellY = minCellY; cellY <= maxCellY; cellY++) {
+                        cells.merge(key(cellX, cellY), new int[]{1, column}, Grid::append);
+                    }
+                }
+            }
+        }
+        /** @return columns whose boxes share the cell containing a point, excluding `oversized` ones. */
+        int[] candidates(double x, double y) {
+            if (cells.isEmpty()) {
+                return NONE;
+            }
+            int[] cell = cells.get(key(cell(x), cell(y)));
+            return cell == null ? NONE : Arrays.copyOfRange(cell, 1, cell[0] + 1);
+        }
+        private long cell(double coordinate) {
+            return (long) Math.floor(coordinate / cellSize);
+        }
+        private static long key(long cellX, long cellY) {
+            return (cellX << 32) ^ (cellY & 0xFFFFFFFFL);
+        }
+        private static int[] append(int[] existing, int[] added) {
+            int count = existing[0];
+            if (count + 1 == existing.length) {
+                existing = Arrays.copyOf(existing, existing.length * 2);
+            }
+            existing[++count] = added[1];
+            existing[0] = count;
+            return existing;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package world;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Append-only log of every body's state after every step, for post-flight analysis.
+ * Each step appends one fixed-width record per body (time, body id, parent id, position, velocity) to a batch buffer;
+ * full batches are handed to a background thread, which copies them into memory-mapped segment files of
+ * `segmentBytes` each, rolling over to a new segment whenever one fills up. The stepping thread never waits on
+ * the disk: if every batch buffer is still queued for writing, the step's records are dropped and counted instead.
+ * At most `maxSegments` segments are kept (0 keeps every segment); the oldest are deleted first.
+ * Recordings are read back with `FlightRecordingReader`.
+ * `record` and `close` must be called from the thread that steps the world.
+ * */
+public class FlightRecorder implements AutoCloseable {
+    public static final int MAGIC = 0x5242524F; // "ORBR" in little-endian order
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 32; // magic, version, record size, padding, record count, segment index
+    public static final int RECORD_BYTES = 48; // time, body id, parent id, x, y, vx, vy
+    static final int RECORD_COUNT_OFFSET = 16; // header offset of the number of records within the segment
+    private static final int BATCH_BYTES = 1 << 20; // smallest batch buffer handed to the writer
+    private static final int BATCHES = 4; // batch buffers shared between the stepping and writing threads
+
+    public final Path directory; // directory holding the segment files
+    public final long segmentBytes; // size of each segment file, header included
+    public final int maxSegments; // most segments kept on disk, or 0 to keep every segment
+    public long recordedRecords; // records accepted by `record`
+    public long droppedRecords; // records dropped because the writer fell behind
+
+    private final BlockingQueue<ByteBuffer> freeBatches = new ArrayBlockingQueue<>(BATCHES);
+    private final BlockingQueue<ByteBuffer> fullBatches = new ArrayBlockingQueue<>(BATCHES + 1);
+    private final ByteBuffer endOfRecording = ByteBuffer.allocate(0); // handed to the writer once closed
+    private final Thread writer;
+    private volatile IOException writeFailure;
+    private ByteBuffer batch; // batch currently being filled, or null
+    private int allocatedBatches;
+
+    // writer thread state
+    private final ArrayDeque<Path> segments = new ArrayDeque<>(); // segment files on disk, oldest first
+    private long segmentIndex;
+    private MappedByteBuffer segment;
+    private long segmentRecords;
+
+    /**
+     * Start recording into a directory, which is created if needed. Existing segments within it are left alone;
+     * new segments continue the numbering after them.
+     * @param directory directory receiving the segment files.
+     * @param segmentBytes size of each segment file; must fit at least one record after the header.
+     * @param maxSegments most segments kept on disk, or 0 to keep every segment.
+     * */
+    public FlightRecorder(Path directory, long segmentBytes, int maxSegments) throws IOException {
+        if (segmentBytes < HEADER_BYTES + RECORD_BYTES || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segments must hold between one record and 2 GB: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(directory);
+        for (Path existing : FlightRecordingReader.segmentFiles(directory)) {
+            segments.add(existing);
+            segmentIndex = Math.max(segmentIndex, FlightRecordingReader.segmentIndexOf(existing) + 1);
+        }
+        this.writer = new Thread(this::writeBatches, "recorder");
+        writer.setDaemon(true);
+        writer.start();
+    }
+    /**
+     * Append the current state of every body within the world.
+     * @param world world that has just been stepped.
+     * */
+    public void record(World world) {
+        BodyStateStore state = world.state;
+        int size = state.size;
+        int bytes = size * RECORD_BYTES;
+        if (batch != null && batch.remaining() < bytes) {
+            submit();
+        }
+        if (batch == null && (batch = takeBatch(bytes)) == null) {
+            droppedRecords += size;
+            return;
+        }
+        double time = world.simulationTime;
+        for (int id = 0; id < size; id++) {
+            batch.putDouble(time);
+            batch.putInt(id);
+            batch.putInt(state.parentIds[id]);
+            batch.putDouble(state.positionX[id]);
+            batch.putDouble(state.positionY[id]);
+            batch.putDouble(state.velocityX[id]);
+            batch.putDouble(state.velocityY[id]);
+        }
+        recordedRecords += size;
+    }
+    /** Hand the partially filled batch to the writer, so that readers see every record appended so far. */
+    public void flush() {
+        if (batch != null && batch.position() > 0) {
+            submit();
+        }
+    }
+    /**
+     * Write every remaining record and stop the writer.
+     * @throws IOException if any batch couldn't be written.
+     * */
+    @Override
+    public void close() throws IOException {
+        flush();
+        putUninterruptibly(endOfRecording);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (writeFailure != null) {
+            throw writeFailure;
+        }
+    }
+    /** @return an empty batch holding at least `bytes`, or null if every batch is still queued for writing. */
+    private ByteBuffer takeBatch(int bytes) {
+        ByteBuffer free = freeBatches.poll();
+        if (free == null && allocatedBatches < BATCHES) {
+            allocatedBatches++;
+            free = ByteBuffer.allocate(Math.max(BATCH_BYTES, bytes));
+        }
+        if (free != null && free.capacity() < bytes) {
+            // the world has grown beyond the batch size
+            free = ByteBuffer.allocate(bytes);
+        }
+        return free == null ? null : free.clear().order(ByteOrder.LITTLE_ENDIAN);
+    }
+    private void submit() {
+        batch.flip();
+        // there are never more batches than queue slots, so this doesn't wait
+        putUninterruptibly(batch);
+        batch = null;
+    }
+    private void putUninterruptibly(ByteBuffer buffer) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                fullBatches.put(buffer);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    /** Writer thread: copy batches into segments until the end of the recording. */
+    private void writeBatches() {
+        while (true) {
+            ByteBuffer full;
+            try {
+                full = fullBatches.take();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (full == endOfRecording) {
+                if (segment != null) {
+                    segment.force();
+                }
+                return;
+            }
+            try {
+                if (writeFailure == null) {
+                    write(full);
+                }
+            } catch (IOException e) {
+                writeFailure = e;
+            }
+            freeBatches.offer(full);
+        }
+    }
+    private void write(ByteBuffer full) throws IOException {
+        while (full.hasRemaining()) {
+            if (segment == null || segment.remaining() < RECORD_BYTES) {
+                rollSegment();
+            }
+            // records never straddle two segments
+            int length = Math.min(full.remaining(), segment.remaining() / RECORD_BYTES * RECORD_BYTES);
+            segment.put(segment.position(), full, full.position(), length);
+            segment.position(segment.position() + length);
+            full.position(full.position() + length);
+            segmentRecords += length / RECORD_BYTES;
+            // published after the records themselves, so a concurrent reader never sees a partial record
+            segment.putLong(RECORD_COUNT_OFFSET, segmentRecords);
+        }
+    }
+    private void rollSegment() throws IOException {
+        if (segment != null) {
+            segment.force();
+        }
+        Path path = directory.resolve(String.format(Locale.ROOT, "segment-%08d%s", segmentIndex, FlightRecordingReader.SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segment.putInt(MAGIC);
+        segment.putInt(VERSION);
+        segment.putInt(RECORD_BYTES);
+        segment.putInt(0);
+        segment.putLong(0);
+        segment.putLong(segmentIndex);
+        segmentIndex++;
+        segmentRecords = 0;
+        segments.add(path);
+        while (maxSegments > 0 && segments.size() > maxSegments) {
+            Files.deleteIfExists(segments.removeFirst());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package world;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Streams the records of a `FlightRecorder` recording, oldest first.
+ * Only one segment is mapped at a time and records are read in place, so recordings much larger than memory can
+ * be scanned; the operating system pages segments in and out as the cursor moves through them.
+ * Segments still being written are read up to the last record published when the segment was opened.
+ * */
+public class FlightRecordingReader implements AutoCloseable {
+    static final String SEGMENT_SUFFIX = ".rec";
+
+    private final List<Path> segmentFiles;
+    private int nextSegment; // index of the next segment file to map
+    private MappedByteBuffer segment; // segment currently being read, or null
+    private long segmentRecords; // records published within the current segment
+    private long recordIndex = -1; // index of the current record within the current segment
+    private int offset; // byte offset of the current record
+
+    private FlightRecordingReader(List<Path> segmentFiles) {
+        this.segmentFiles = segmentFiles;
+    }
+    /**
+     * Open every segment within a recording directory.
+     * @param directory directory passed to the `FlightRecorder`.
+     * */
+    public static FlightRecordingReader open(Path directory) throws IOException {
+        return new FlightRecordingReader(segmentFiles(directory));
+    }
+    /**
+     * Move to the next record.
+     * @return whether there was another record.
+     * @throws IOException if a segment can't be read or isn't a recording segment.
+     * */
+    public boolean next() throws IOException {
+        while (segment == null || recordIndex + 1 >= segmentRecords) {
+            if (nextSegment >= segmentFiles.size()) {
+                return false;
+            }
+            mapSegment(segmentFiles.get(nextSegment++));
+        }
+        recordIndex++;
+        offset = FlightRecorder.HEADER_BYTES + (int) recordIndex * FlightRecorder.RECORD_BYTES;
+        return true;
+    }
+    /** @return simulation time of the current record (s). */
+    public double time() {
+        return segment.getDouble(offset);
+    }
+    /** @return body id of the current record. */
+    public int bodyId() {
+        return segment.getInt(offset + 8);
+    }
+    /** @return body id of the body's parent, or `BodyStateStore.NO_PARENT`. */
+    public int parentId() {
+        return segment.getInt(offset + 12);
+    }
+    /** @return x-position (km). */
+    public double x() {
+        return segment.getDouble(offset + 16);
+    }
+    /** @return y-position (km). */
+    public double y() {
+        return segment.getDouble(offset + 24);
+    }
+    /** @return x-velocity (km/s). */
+    public double vx() {
+        return segment.getDouble(offset + 32);
+    }
+    /** @return y-velocity (km/s). */
+    public double vy() {
+        return segment.getDouble(offset + 40);
+    }
+    /** Release the current segment; mappings are unmapped once they're garbage collected. */
+    @Override
+    public void close() {
+        segment = null;
+        nextSegment = segmentFiles.size();
+    }
+    private void mapSegment(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        if (segment.capacity() < FlightRecorder.HEADER_BYTES || segment.getInt(0) != FlightRecorder.MAGIC
+                || segment.getInt(4) != FlightRecorder.VERSION || segment.getInt(8) != FlightRecorder.RECORD_BYTES) {
+            throw new IOException("Not a flight recording segment: " + path);
+        }
+        segmentRecords = segment.getLong(FlightRecorder.RECORD_COUNT_OFFSET);
+        recordIndex = -1;
+    }
+    /** @return every segment file within a recording directory, in recording order. */
+    static List<Path> segmentFiles(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> listing = Files.list(directory)) {
+            listing.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).forEach(files::add);
+        }
+        // zero-padded indices sort in recording order
+        files.sort(null);
+        return files;
+    }
+    /** @return index encoded within a segment file's name. */
+    static long segmentIndexOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(name.indexOf('-') + 1, name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,26 @@
+package world;
+
+/**
+ * A spacecraft reaching a planet's surface during a step. The spacecraft comes to rest on the surface where it hit,
+ * and moves along with the planet until a burn carries it away. Impacts are immutable.
+ * */
+public final class ImpactEvent {
+    public final double time; // simulation time of the impact (s)
+    public final int craftId; // body id of the spacecraft
+    public final int bodyId; // body id of the planet hit
+    public final double x, y; // spacecraft position at the impact (km)
+    public final double speed; // spacecraft speed relative to the planet at the impact (km/s)
+
+    public ImpactEvent(double time, int craftId, int bodyId, double x, double y, double speed) {
+        this.time = time;
+        this.craftId = craftId;
+        this.bodyId = bodyId;
+        this.x = x;
+        this.y = y;
+        this.speed = speed;
+    }
+    @Override
+    public String toString() {
+        return String.format("body %d hit body %d at t = %.1f s, %.3f km/s", craftId, bodyId, time, speed);
+    }
+}
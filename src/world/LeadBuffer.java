@@ -0,0 +1,133 @@
+package world;
+
+/**
+ * Ring buffer of predicted lead states, stored as interleaved (x, y, vx, vy) doubles.
+ * Appending to the end and removing from the front are O(1), and any lead position can be read by index.
+ * Capacity only grows (by doubling) when an append finds the buffer full, so once a lead has reached its
+ * usual length, maintaining it allocates nothing. Buffers start empty, so satellites that never get a lead cost nothing.
+ * */
+public class LeadBuffer {
+    private static final int STRIDE = 4; // doubles stored per lead state
+    private static final double[] EMPTY = new double[0]; // shared by every buffer that has never held a lead state
+
+    private double[] states; // ring of interleaved lead states
+    private int capacity; // number of lead states the ring can hold
+    private int first; // ring index of the oldest lead state
+    private int size; // number of lead states currently held
+
+    public LeadBuffer() {
+        this.states = EMPTY;
+    }
+    /** @return number of lead states currently held. */
+    public int size() {
+        return size;
+    }
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    /** Remove every lead state, keeping the allocated capacity. */
+    public void clear() {
+        first = 0;
+        size = 0;
+    }
+    /**
+     * Append a lead state after the newest one.
+     * @param x x-position (km).
+     * @param y y-position (km).
+     * @param vx x-velocity (km/s).
+     * @param vy y-velocity (km/s).
+     * */
+    public void append(double x, double y, double vx, double vy) {
+        if (size == capacity) {
+            grow();
+        }
+        int index = offset(size);
+        states[index] = x;
+        states[index + 1] = y;
+        states[index + 2] = vx;
+        states[index + 3] = vy;
+        size++;
+    }
+    /** Remove the oldest lead state. */
+    public void removeFirst() {
+        if (size == 0) {
+            throw new java.util.NoSuchElementException("Lead buffer is empty");
+        }
+        first = (first + 1) % capacity;
+        size--;
+    }
+    /**
+     * Remove every lead state after the first `newSize` ones.
+     * @param newSize number of lead states to keep; must not exceed `size()`.
+     * */
+    public void truncate(int newSize) {
+        if (newSize < 0 || newSize > size) {
+            throw new IndexOutOfBoundsException("Can't truncate a lead of size " + size + " to " + newSize);
+        }
+        size = newSize;
+    }
+    /**
+     * Move the position of every lead state from an index onward by an offset, leaving velocities unchanged.
+     * @param fromIndex index of the first lead state to move, counted from the oldest.
+     * @param deltaX x-offset (km).
+     * @param deltaY y-offset (km).
+     * */
+    public void shift(int fromIndex, double deltaX, double deltaY) {
+        for (int lead = fromIndex; lead < size; lead++) {
+            int index = checkedOffset(lead);
+            states[index] += deltaX;
+            states[index + 1] += deltaY;
+        }
+    }
+    /** @return x-position of the lead state at an index, counted from the oldest (km). */
+    public double x(int index) {
+        return states[checkedOffset(index)];
+    }
+    /** @return y-position of the lead state at an index, counted from the oldest (km). */
+    public double y(int index) {
+        return states[checkedOffset(index) + 1];
+    }
+    /** @return x-velocity of the lead state at an index, counted from the oldest (km/s). */
+    public double vx(int index) {
+        return states[checkedOffset(index) + 2];
+    }
+    /** @return y-velocity of the lead state at an index, counted from the oldest (km/s). */
+    public double vy(int index) {
+        return states[checkedOffset(index) + 3];
+    }
+    /**
+     * Copy every lead position, oldest first.
+     * @param positionX array receiving at least `size()` x-positions.
+     * @param positionY array receiving at least `size()` y-positions.
+     * */
+    public void copyPositions(double[] positionX, double[] positionY) {
+        int index = first * STRIDE;
+        for (int lead = 0; lead < size; lead++) {
+            positionX[lead] = states[index];
+            positionY[lead] = states[index + 1];
+            index += STRIDE;
+            if (index == states.length) {
+                index = 0;
+            }
+        }
+    }
+    private int checkedOffset(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Lead index " + index + " out of bounds for size " + size);
+        }
+        return offset(index);
+    }
+    private int offset(int index) {
+        return ((first + index) % capacity) * STRIDE;
+    }
+    private void grow() {
+        int newCapacity = Math.max(16, capacity * 2);
+        double[] newStates = new double[newCapacity * STRIDE];
+        for (int lead = 0; lead < size; lead++) {
+            System.arraycopy(states, offset(lead), newStates, lead * STRIDE, STRIDE);
+        }
+        this.states = newStates;
+        this.capacity = newCapacity;
+        this.first = 0;
+    }
+}
@@ -0,0 +1,331 @@
+package world;
+
+import physics.ConicOrbit;
+import physics.DormandPrince;
+import physics.GravityModel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A lead calculation that runs away from the thread stepping the world.
+ * A full prediction replaces every lead. A craft-only prediction restarts the spacecraft lead after a burn, a parent
+ * change or a drift: positions the spacecraft has already reached are kept, everything after them is propagated again
+ * on the installed leads' time grid, and the installed planet leads stay in place.
+ * Preparing a prediction copies everything it needs from the world (body states, a snapshot of the shared planet
+ * ephemeris, propagator settings), so computing it never touches live world state and may happen on any single thread.
+ * A spacecraft bound to its parent, with its whole orbit inside the parent's sphere of influence, follows its osculating
+ * conic, which is sampled in closed form; only unbound or perturbed trajectories are propagated numerically.
+ * A propagated lead ends where the spacecraft would hit a planet's surface, and a landed spacecraft's lead follows
+ * its planet.
+ * Encounter events along the finished lead are found on the same thread, once every lead is sampled.
+ * Each prediction carries the `epoch` it was requested for, letting whoever installs it discard stale results.
+ * Once `compute` has returned true the prediction is immutable and can be handed to `World.installLead`.
+ * */
+public class LeadPrediction {
+    public final long epoch; // request number the prediction was started for; newer requests have larger epochs
+    public final boolean craftOnly; // whether only the spacecraft lead is restarted, keeping the installed planet leads
+    public final double requestTime; // simulation time the world's state was copied at (s)
+    public final double startTime; // simulation time of the first lead position (s)
+    public final double leadInterval; // time between consecutive lead positions (s)
+    public final int craftId; // body id of the spacecraft whose lead is predicted
+    public final int[] planetIds; // body ids of every predicted planet
+    public int leadSize; // number of positions within every predicted lead (valid once computed)
+    public double[] craftLead; // interleaved (x, y, vx, vy) spacecraft lead states
+    public double[][] planetLeads; // interleaved (x, y, vx, vy) lead states of each planet, in `planetIds` order
+    public ConicOrbit conic; // orbit the spacecraft lead was sampled from, or null if it was propagated numerically
+    public List<EncounterEvent> encounters; // events along the spacecraft lead, in time order (valid once computed)
+    public EncounterEvent impact; // where the spacecraft lead hits a planet's surface and ends, or null
+
+    private final int leadLimit; // max number of lead positions
+    private final int keptSize; // lead positions reached before `requestTime`, copied rather than predicted
+    private final double[] keptStates; // interleaved (x, y, vx, vy) states of the kept positions
+    private final int parentId; // body id of the spacecraft's parent, or `NO_PARENT`
+    private final int landedId; // body id of the planet the spacecraft rests on, or `NO_PARENT`
+    private final double landedX, landedY; // spacecraft's offset from the planet it rests on (km)
+    private final SurfaceCollisions collisions;
+    private final BodyStateStore bodies; // detached copy of the world's bodies at `requestTime`
+    private final double G;
+    private final PlanetEphemeris ephemeris; // snapshot of the world's ephemeris, owned by the computing thread
+    private final DormandPrince propagator;
+    private final GravityModel gravity;
+    private double[] positionX, positionY, velocityX, velocityY; // scratch states indexed by body id
+    private final double[] sample = new double[4];
+    private final double[] parentSample = new double[4];
+    private final double[] previousSample = new double[4];
+
+    /** Copy the world's current state for a full prediction. Must be called from the thread that steps the world. */
+    public LeadPrediction(World world, double leadStep, int leadLength, long epoch) {
+        this(world, leadStep, leadLength, epoch, false);
+    }
+    /**
+     * Copy the world's current state. Must be called from the thread that steps the world.
+     * @param world world whose controlled spacecraft's lead is predicted.
+     * @param leadStep length of the time interval between lead positions (seconds).
+     * @param leadLength max number of lead intervals to be calculated.
+     * @param epoch request number identifying this prediction.
+     * @param craftOnly whether to restart only the spacecraft lead; falls back to a full prediction when the installed
+     *                  leads can't be reused, i.e. when their lead step differs or they don't reach the current time.
+     * */
+    public LeadPrediction(World world, double leadStep, int leadLength, long epoch, boolean craftOnly) {
+        LeadBuffer installedLead = world.spacecraft.getLead();
+        // lead positions at or before the current time, which the burn can't have changed
+        double reachedPositions = Math.floor((world.simulationTime - world.leadStartTime) / world.leadInterval) + 1;
+        this.epoch = epoch;
+        this.craftOnly = craftOnly && leadStep == world.leadInterval && reachedPositions >= 1
+                && installedLead.size() >= reachedPositions;
+        this.requestTime = world.simulationTime;
+        this.startTime = this.craftOnly ? world.leadStartTime : requestTime;
+        this.leadInterval = leadStep;
+        this.leadLimit = leadLength + 1;
+        this.craftId = world.spacecraft.id;
+        if (this.craftOnly) {
+            this.keptSize = (int) Math.min(leadLimit, reachedPositions);
+            this.keptStates = new double[keptSize * 4];
+            for (int index = 0; index < keptSize; index++) {
+                writeState(keptStates, index, installedLead.x(index), installedLead.y(index), installedLead.vx(index), installedLead.vy(index));
+            }
+        } else {
+            this.keptSize = 1;
+            this.keptStates = new double[4];
+            BodyStateStore state = world.state;
+            writeState(keptStates, 0, state.positionX[craftId], state.positionY[craftId], state.velocityX[craftId], state.velocityY[craftId]);
+        }
+        this.parentId = world.spacecraft.parent == null ? BodyStateStore.NO_PARENT : world.spacecraft.parent.id;
+        Planet landedOn = world.spacecraft.landedOn;
+        this.landedId = landedOn == null ? BodyStateStore.NO_PARENT : landedOn.id;
+        this.landedX = world.spacecraft.landedX;
+        this.landedY = world.spacecraft.landedY;
+        this.collisions = new SurfaceCollisions(world.state);
+        this.bodies = new BodyStateStore(world.state.size);
+        bodies.copyFrom(world.state);
+        this.planetIds = new int[bodies.planetCount];
+        System.arraycopy(bodies.planetIds, 0, planetIds, 0, bodies.planetCount);
+        this.G = world.G;
+        DormandPrince livePropagator = world.leadPropagator;
+        this.propagator = new DormandPrince(livePropagator.tolerance, livePropagator.minStep, livePropagator.maxStep);
+        // the lead only needs single-body sums, which are exact for every gravity model
+        this.gravity = GravityModel.create(G);
+        this.ephemeris = world.ephemeris.snapshot(startTime, gravity);
+    }
+    /**
+     * Calculate every lead. Stops early, returning false, if the calling thread is interrupted.
+     * A lead is complete once it reaches its max length, or once a stable orbit returns to where it started.
+     * Conic leads cover exactly one period from the request.
+     * Planet leads are sampled even for craft-only predictions, since encounters are found against them.
+     * @return whether the prediction finished.
+     * */
+    public boolean compute() {
+        if (Thread.currentThread().isInterrupted()) {
+            return false;
+        }
+        int size = bodies.size;
+        positionX = new double[size];
+        positionY = new double[size];
+        velocityX = new double[size];
+        velocityY = new double[size];
+        if (landedId != BodyStateStore.NO_PARENT) {
+            double[][] planets = planetLeads(leadLimit);
+            double[] planetLead = planets[columnOf(landedId)];
+            double[] craft = keptLead(leadLimit);
+            for (int index = keptSize; index < leadLimit; index++) {
+                int offset = index * 4;
+                writeState(craft, index, planetLead[offset] + landedX, planetLead[offset + 1] + landedY,
+                        planetLead[offset + 2], planetLead[offset + 3]);
+            }
+            this.craftLead = craft;
+            this.planetLeads = planets;
+            this.leadSize = leadLimit;
+            this.encounters = findEncounters();
+            return true;
+        }
+        conic = boundOrbit();
+        if (conic != null) {
+            int count = (int) Math.min(leadLimit, Math.ceil((requestTime + conic.period - startTime) / leadInterval) + 1);
+            double[][] planets = planetLeads(count);
+            double[] craft = keptLead(count);
+            double[] parentLead = planets[columnOf(parentId)];
+            for (int index = keptSize; index < count; index++) {
+                conic.stateAt(startTime + index * leadInterval, sample);
+                int offset = index * 4;
+                writeState(craft, index, parentLead[offset] + sample[0], parentLead[offset + 1] + sample[1],
+                        parentLead[offset + 2] + sample[2], parentLead[offset + 3] + sample[3]);
+            }
+            this.craftLead = craft;
+            this.planetLeads = planets;
+            this.leadSize = count;
+            this.encounters = findEncounters();
+            return true;
+        }
+        DormandPrince.AccelerationField field = this::craftAcceleration;
+        propagator.reset(field, requestTime, bodies.positionX[craftId], bodies.positionY[craftId],
+                bodies.velocityX[craftId], bodies.velocityY[craftId], leadInterval);
+        double[] craft = keptLead(leadLimit);
+        // planets are sampled as the spacecraft reaches each lead time, while their ephemeris segments are still cached
+        double[][] planets = new double[planetIds.length][leadLimit * 4];
+        for (int index = 0; index < keptSize; index++) {
+            samplePlanets(planets, index);
+        }
+        // surfaces are checked from the requested state on, not from the kept positions before it
+        double previousTime = requestTime;
+        previousSample[0] = bodies.positionX[craftId];
+        previousSample[1] = bodies.positionY[craftId];
+        previousSample[2] = bodies.velocityX[craftId];
+        previousSample[3] = bodies.velocityY[craftId];
+        double anchorX = 0, anchorY = 0;
+        if (parentId != BodyStateStore.NO_PARENT) {
+            anchorX = bodies.positionX[craftId] - bodies.positionX[parentId];
+            anchorY = bodies.positionY[craftId] - bodies.positionY[parentId];
+        }
+        boolean outsideRadius = false;
+        int count = keptSize;
+        while (count < leadLimit) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            double targetTime = startTime + count * leadInterval;
+            while (propagator.time < targetTime) {
+                propagator.step(field);
+            }
+            propagator.stateAt(targetTime, sample);
+            if (collisions.leadImpact(ephemeris, craftId, previousTime, previousSample, targetTime, sample)) {
+                impact = impactEvent(previousTime + collisions.impactFraction * (targetTime - previousTime));
+                break;
+            }
+            writeState(craft, count, sample[0], sample[1], sample[2], sample[3]);
+            previousTime = targetTime;
+            System.arraycopy(sample, 0, previousSample, 0, 4);
+            samplePlanets(planets, count);
+            count++;
+            // duplicate lead positions may be calculated during a stable orbit around a parent satellite
+            if (parentId != BodyStateStore.NO_PARENT) {
+                ephemeris.stateOf(parentId, targetTime, parentSample);
+                double distance = Math.hypot(sample[0] - parentSample[0] - anchorX, sample[1] - parentSample[1] - anchorY);
+                if (!outsideRadius && distance >= 1000) {
+                    outsideRadius = true;
+                }
+                if (outsideRadius && distance < 1000) {
+                    break;
+                }
+            }
+        }
+        this.craftLead = craft;
+        this.planetLeads = planets;
+        this.leadSize = count;
+        this.encounters = findEncounters();
+        return true;
+    }
+    private List<EncounterEvent> findEncounters() {
+        List<EncounterEvent> events = EncounterFinder.find(bodies, G, parentId, startTime, leadInterval, leadSize, craftLead, planetIds, planetLeads);
+        if (impact == null) {
+            return events;
+        }
+        // the impact comes after every lead position
+        List<EncounterEvent> withImpact = new ArrayList<>(events);
+        withImpact.add(impact);
+        return List.copyOf(withImpact);
+    }
+    /** @return event for the impact the latest `leadImpact` found, at a given time. */
+    private EncounterEvent impactEvent(double time) {
+        int planetId = collisions.impactedId;
+        ephemeris.stateOf(planetId, time, parentSample);
+        double x = parentSample[0] + collisions.impactX, y = parentSample[1] + collisions.impactY;
+        double referenceX = 0, referenceY = 0;
+        if (parentId != BodyStateStore.NO_PARENT) {
+            ephemeris.stateOf(parentId, time, parentSample);
+            referenceX = parentSample[0];
+            referenceY = parentSample[1];
+        }
+        return new EncounterEvent(EncounterEvent.Type.IMPACT, time, planetId, Math.hypot(collisions.impactX, collisions.impactY),
+                x, y, parentId, referenceX, referenceY);
+    }
+    /**
+     * Allocate a spacecraft lead starting with the kept positions.
+     * @param capacity number of lead positions to make room for.
+     * */
+    private double[] keptLead(int capacity) {
+        double[] craft = new double[capacity * 4];
+        System.arraycopy(keptStates, 0, craft, 0, keptSize * 4);
+        return craft;
+    }
+    /**
+     * Read planet leads back from the ephemeris at the same times as the spacecraft's.
+     * @param count number of lead positions.
+     * @return interleaved lead states of each planet, in `planetIds` order.
+     * */
+    private double[][] planetLeads(int count) {
+        double[][] planets = new double[planetIds.length][count * 4];
+        for (int index = 0; index < count; index++) {
+            samplePlanets(planets, index);
+        }
+        return planets;
+    }
+    /** Write every planet's state at a lead position's time into the planet leads. */
+    private void samplePlanets(double[][] planets, int index) {
+        ephemeris.statesAt(startTime + index * leadInterval, positionX, positionY, velocityX, velocityY);
+        for (int column = 0; column < planetIds.length; column++) {
+            int id = planetIds[column];
+            writeState(planets[column], index, positionX[id], positionY[id], velocityX[id], velocityY[id]);
+        }
+    }
+    /**
+     * Capture the spacecraft's osculating orbit around its parent, if a patched conic describes its trajectory.
+     * That requires a closed orbit whose periapsis clears the parent's surface, whose apoapsis stays within the
+     * parent's sphere of influence, and whose distance range never reaches the sphere of influence of a planet
+     * orbiting the same parent.
+     * The grandparent's tide within the sphere of influence is ignored; the drift check restarts the lead once it shows.
+     * @return the spacecraft's orbit, or null if it must be propagated numerically.
+     * */
+    private ConicOrbit boundOrbit() {
+        if (parentId == BodyStateStore.NO_PARENT) {
+            return null;
+        }
+        ConicOrbit orbit = new ConicOrbit(
+                bodies.positionX[craftId] - bodies.positionX[parentId], bodies.positionY[craftId] - bodies.positionY[parentId],
+                bodies.velocityX[craftId] - bodies.velocityX[parentId], bodies.velocityY[craftId] - bodies.velocityY[parentId],
+                G * bodies.mass[parentId] / 1e9, requestTime
+        );
+        if (!orbit.isBound() || orbit.periapsis <= collisions.radiusOf(parentId)) {
+            return null;
+        }
+        int grandparentId = bodies.parentIds[parentId];
+        if (grandparentId != BodyStateStore.NO_PARENT) {
+            double parentDistance = Math.hypot(bodies.positionX[parentId] - bodies.positionX[grandparentId],
+                    bodies.positionY[parentId] - bodies.positionY[grandparentId]);
+            if (orbit.apoapsis >= ConicOrbit.sphereOfInfluence(parentDistance, bodies.mass[parentId], bodies.mass[grandparentId])) {
+                return null;
+            }
+        }
+        for (int id : planetIds) {
+            if (bodies.parentIds[id] != parentId) {
+                continue;
+            }
+            double distance = Math.hypot(bodies.positionX[id] - bodies.positionX[parentId], bodies.positionY[id] - bodies.positionY[parentId]);
+            double influence = ConicOrbit.sphereOfInfluence(distance, bodies.mass[id], bodies.mass[parentId]);
+            if (orbit.periapsis < distance + influence && orbit.apoapsis > distance - influence) {
+                return null;
+            }
+        }
+        return orbit;
+    }
+    private int columnOf(int id) {
+        for (int column = 0; column < planetIds.length; column++) {
+            if (planetIds[column] == id) {
+                return column;
+            }
+        }
+        throw new IllegalArgumentException("Body " + id + " is not a planet");
+    }
+    private void craftAcceleration(double time, double x, double y, double[] acceleration) {
+        ephemeris.positionsAt(time, positionX, positionY);
+        positionX[craftId] = x;
+        positionY[craftId] = y;
+        gravity.computeAcceleration(bodies, craftId, positionX, positionY, acceleration);
+    }
+    private static void writeState(double[] states, int index, double x, double y, double vx, double vy) {
+        states[index * 4] = x;
+        states[index * 4 + 1] = y;
+        states[index * 4 + 2] = vx;
+        states[index * 4 + 3] = vy;
+    }
+}
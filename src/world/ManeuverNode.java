@@ -0,0 +1,52 @@
+package world;
+
+/**
+ * A planned impulsive burn of the controlled spacecraft.
+ * The change in velocity is given in the frame of the spacecraft's motion relative to a reference body at the time
+ * of the burn, so a node planned well ahead still points the right way when it is executed.
+ * */
+public final class ManeuverNode {
+    public final double time; // simulation time of the burn (s)
+    public final int referenceId; // body id whose frame the burn is relative to, or `NO_PARENT` for the absolute frame
+    public final double progradeDeltaV; // change in velocity along the velocity relative to the reference body (km/s)
+    public final double normalDeltaV; // change in velocity perpendicular to it, counterclockwise (km/s)
+
+    public ManeuverNode(double time, int referenceId, double progradeDeltaV, double normalDeltaV) {
+        this.time = time;
+        this.referenceId = referenceId;
+        this.progradeDeltaV = progradeDeltaV;
+        this.normalDeltaV = normalDeltaV;
+    }
+    /** @return magnitude of the change in velocity (km/s). */
+    public double deltaV() {
+        return Math.hypot(progradeDeltaV, normalDeltaV);
+    }
+    /**
+     * Add the burn's change in velocity to a velocity.
+     * @param relativeVelocityX x-velocity relative to the reference body, which orients the burn (km/s).
+     * @param relativeVelocityY y-velocity relative to the reference body (km/s).
+     * @param velocity (vx, vy) array the change in velocity is added to (km/s).
+     * */
+    void addDeltaV(double relativeVelocityX, double relativeVelocityY, double[] velocity) {
+        double speed = Math.hypot(relativeVelocityX, relativeVelocityY);
+        // a craft at rest relative to its reference has no prograde direction; burn along the x-axis instead
+        double directionX = speed == 0 ? 1 : relativeVelocityX / speed;
+        double directionY = speed == 0 ? 0 : relativeVelocityY / speed;
+        velocity[0] += progradeDeltaV * directionX - normalDeltaV * directionY;
+        velocity[1] += progradeDeltaV * directionY + normalDeltaV * directionX;
+    }
+    /** Perform the burn on a world's controlled spacecraft, at whatever time the world is at. */
+    public void execute(World world) {
+        BodyStateStore state = world.state;
+        int craftId = world.spacecraft.id;
+        double[] velocity = {state.velocityX[craftId], state.velocityY[craftId]};
+        double relativeVelocityX = velocity[0], relativeVelocityY = velocity[1];
+        if (referenceId != BodyStateStore.NO_PARENT) {
+            relativeVelocityX -= state.velocityX[referenceId];
+            relativeVelocityY -= state.velocityY[referenceId];
+        }
+        addDeltaV(relativeVelocityX, relativeVelocityY, velocity);
+        state.velocityX[craftId] = velocity[0];
+        state.velocityY[craftId] = velocity[1];
+    }
+}
@@ -0,0 +1,485 @@
+package world;
+
+import physics.ConicOrbit;
+import physics.DormandPrince;
+import physics.GravityModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Searches for the cheapest single burn that takes the controlled spacecraft to an encounter with a target planet.
+ * A burn is described by its time within a window, its direction relative to the spacecraft's prograde direction
+ * around its parent, and its magnitude. A grid over all three is evaluated first, then the best few candidates are
+ * polished by a compass search; the cheapest burn whose trajectory comes within `encounterRadius` of the target wins.
+ * Planet motion over the whole search is sampled once from a snapshot of the world's ephemeris into a table every
+ * candidate reads, and the coast up to the window is propagated once, so each candidate only propagates the
+ * spacecraft after its own burn. The table only holds the planets that shape a transfer (the target, the burn's
+ * reference, their parents and every planet of significant mass), and long searches sample it more coarsely, so its
+ * size stays bounded however long the window is. Candidates are
+ * propagated with a looser tolerance than leads, since encounters are judged at sphere of influence scale.
+ * Preparing an optimizer copies everything it needs from the world, so `optimize` may run on any thread, where it
+ * spreads candidates over a work-stealing pool of `parallelism` threads. Results don't depend on the thread count.
+ * */
+public class ManeuverOptimizer {
+    private static final double CANDIDATE_TOLERANCE = 0.01; // allowed position error per candidate step (km)
+    private static final int REFINED_CANDIDATES = 4; // best grid candidates polished by the compass search
+    private static final int MAX_REFINEMENT_ROUNDS = 40; // compass search rounds per refined candidate
+    private static final int STRIDE = 4; // (x, y, vx, vy) per sampled state
+    private static final double TRANSFER_ENCOUNTER_MARGIN = 0.9; // fraction of the sphere of influence transfers aim for
+    private static final double SIGNIFICANT_MASS_FRACTION = 1e-4; // lighter planets, relative to the heaviest, are left out
+    private static final int MAX_TRACK_ROWS = 1 << 16; // most planet track rows; longer searches sample more coarsely
+
+    public final int targetId; // body id of the planet to encounter
+    public final double windowStart; // earliest burn time (s)
+    public final double windowEnd; // latest burn time (s)
+    public final double flightTime; // time after the burn within which the encounter must happen (s)
+    public double encounterRadius; // closest approach counting as an encounter (km); the target's sphere of influence by default
+    public double maxDeltaV; // largest burn searched (km/s); the spacecraft's speed relative to its parent by default
+    public int timeSamples = 24; // burn times in the search grid
+    public int directionSamples = 12; // burn directions in the search grid
+    public int magnitudeSamples = 12; // burn magnitudes in the search grid
+    public double timeTolerance = 1; // refinement stops once burn times are pinned down this closely (s)
+    public int parallelism = Runtime.getRuntime().availableProcessors(); // threads propagating candidates
+    public long evaluations; // candidate trajectories propagated by the last `optimize`
+
+    private final double startTime; // simulation time of the copied state (s)
+    private final int craftId;
+    private final int referenceId; // body id the burn's frame is relative to, or `NO_PARENT`
+    private final BodyStateStore bodies; // detached copy of the world's bodies at `startTime`
+    private final double G;
+    private final PlanetEphemeris ephemeris; // snapshot of the world's ephemeris, owned by the optimizing thread
+    private final GravityModel gravity;
+    private final double tolerance, minStep, maxStep; // lead propagator settings the coast is propagated with
+    private PlanetTrack planets; // planet motion from `startTime` until the last candidate ends
+    private double[] coast; // interleaved spacecraft states every `planets.sampleInterval` from `windowStart`
+
+    /** Outcome of a search. */
+    public static final class Result {
+        public final ManeuverNode node; // cheapest burn found; the one passing closest to the target if none encounters it
+        public final boolean encounter; // whether the burn reaches `encounterRadius` of the target
+        public final double closestApproach; // least distance to the target after the burn (km)
+        public final double closestApproachTime; // simulation time of the closest approach, or of entering `encounterRadius` (s)
+
+        Result(ManeuverNode node, boolean encounter, double closestApproach, double closestApproachTime) {
+            this.node = node;
+            this.encounter = encounter;
+            this.closestApproach = closestApproach;
+            this.closestApproachTime = closestApproachTime;
+        }
+    }
+
+    /** A single evaluated burn. */
+    private static final class Candidate {
+        final double burnTime; // (s)
+        final double angle; // direction from prograde, counterclockwise (rad)
+        final double magnitude; // (km/s)
+        final double closestApproach; // (km)
+        final double closestApproachTime; // (s)
+        final double cost; // delta-v, plus a penalty larger than any burn if the target is missed
+
+        Candidate(double burnTime, double angle, double magnitude, double closestApproach, double closestApproachTime, double cost) {
+            this.burnTime = burnTime;
+            this.angle = angle;
+            this.magnitude = magnitude;
+            this.closestApproach = closestApproach;
+            this.closestApproachTime = closestApproachTime;
+            this.cost = cost;
+        }
+    }
+
+    /**
+     * Copy the world's current state. Must be called from the thread that steps the world.
+     * @param target planet to encounter.
+     * @param windowStart earliest burn time; must not precede the world's simulation time (s).
+     * @param windowEnd latest burn time (s).
+     * @param flightTime time after the burn within which the encounter must happen (s).
+     * */
+    public ManeuverOptimizer(World world, Planet target, double windowStart, double windowEnd, double flightTime) {
+        if (windowStart < world.simulationTime || windowEnd < windowStart || flightTime <= 0) {
+            throw new IllegalArgumentException("Invalid burn window [" + windowStart + ", " + windowEnd + "] at time " + world.simulationTime);
+        }
+        this.targetId = target.id;
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+        this.flightTime = flightTime;
+        this.startTime = world.simulationTime;
+        this.craftId = world.spacecraft.id;
+        this.referenceId = world.spacecraft.parent == null ? BodyStateStore.NO_PARENT : world.spacecraft.parent.id;
+        this.bodies = new BodyStateStore(world.state.size);
+        bodies.copyFrom(world.state);
+        this.G = world.G;
+        this.gravity = GravityModel.create(G);
+        this.ephemeris = world.ephemeris.snapshot(startTime, gravity.copy());
+        this.tolerance = world.leadPropagator.tolerance;
+        this.minStep = world.leadPropagator.minStep;
+        this.maxStep = world.leadPropagator.maxStep;
+        int parentId = bodies.parentIds[targetId];
+        if (parentId == BodyStateStore.NO_PARENT) {
+            this.encounterRadius = target.radius;
+        } else {
+            double distance = Math.hypot(bodies.positionX[targetId] - bodies.positionX[parentId], bodies.positionY[targetId] - bodies.positionY[parentId]);
+            this.encounterRadius = ConicOrbit.sphereOfInfluence(distance, bodies.mass[targetId], bodies.mass[parentId]);
+        }
+        double relativeVelocityX = bodies.velocityX[craftId], relativeVelocityY = bodies.velocityY[craftId];
+        if (referenceId != BodyStateStore.NO_PARENT) {
+            relativeVelocityX -= bodies.velocityX[referenceId];
+            relativeVelocityY -= bodies.velocityY[referenceId];
+        }
+        this.maxDeltaV = Math.hypot(relativeVelocityX, relativeVelocityY);
+    }
+    /**
+     * Plan a transfer to a planet orbiting a parent: burn times span one orbital period of the target, and the
+     * encounter may take up to another. The cheapest encounter grazes `encounterRadius`, so transfers aim a little
+     * inside the sphere of influence, leaving room for the flown trajectory to differ from the candidate's.
+     * @param target planet to encounter; must orbit a parent.
+     * @param windowStart earliest burn time (s).
+     * */
+    public static ManeuverOptimizer transferTo(World world, Planet target, double windowStart) {
+        BodyStateStore state = world.state;
+        int parentId = state.parentIds[target.id];
+        ConicOrbit orbit = new ConicOrbit(
+                state.positionX[target.id] - state.positionX[parentId], state.positionY[target.id] - state.positionY[parentId],
+                state.velocityX[target.id] - state.velocityX[parentId], state.velocityY[target.id] - state.velocityY[parentId],
+                world.G * state.mass[parentId] / 1e9, world.simulationTime
+        );
+        ManeuverOptimizer optimizer = new ManeuverOptimizer(world, target, windowStart, windowStart + orbit.period, orbit.period);
+        optimizer.encounterRadius *= TRANSFER_ENCOUNTER_MARGIN;
+        return optimizer;
+    }
+    /**
+     * Search for the cheapest encounter. Stops early, returning null, if the calling thread is interrupted.
+     * @return the best burn found.
+     * */
+    public Result optimize() {
+        int size = bodies.size;
+        // candidates may overshoot their end by up to one step
+        double endTime = windowEnd + flightTime + maxStep;
+        this.planets = new PlanetTrack(ephemeris, bodies, trackedPlanets(), startTime, endTime,
+                new double[size], new double[size], new double[size], new double[size]);
+        this.coast = propagateCoast();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            // one task per burn time; each keeps the best candidate per burn time as a refinement seed
+            List<Callable<Candidate[]>> gridTasks = new ArrayList<>();
+            for (int timeIndex = 0; timeIndex < timeSamples; timeIndex++) {
+                double burnTime = timeSamples == 1 ? windowStart : windowStart + (windowEnd - windowStart) * timeIndex / (timeSamples - 1);
+                gridTasks.add(() -> evaluateGrid(burnTime));
+            }
+            List<Candidate> seeds = new ArrayList<>();
+            long evaluated = 0;
+            for (Future<Candidate[]> task : pool.invokeAll(gridTasks)) {
+                Candidate[] grid = task.get();
+                evaluated += grid.length;
+                seeds.add(Arrays.stream(grid).min(Comparator.comparingDouble(candidate -> candidate.cost)).orElseThrow());
+            }
+            seeds.sort(Comparator.comparingDouble(candidate -> candidate.cost));
+            double timeStep = timeSamples == 1 ? 0 : (windowEnd - windowStart) / (timeSamples - 1) / 2;
+            double angleStep = Math.TAU / directionSamples / 2;
+            double magnitudeStep = maxDeltaV / magnitudeSamples / 2;
+            List<Callable<Long>> refineTasks = new ArrayList<>();
+            Candidate[] refined = new Candidate[Math.min(REFINED_CANDIDATES, seeds.size())];
+            for (int seedIndex = 0; seedIndex < refined.length; seedIndex++) {
+                int index = seedIndex;
+                refineTasks.add(() -> refine(seeds.get(index), timeStep, angleStep, magnitudeStep, refined, index));
+            }
+            for (Future<Long> task : pool.invokeAll(refineTasks)) {
+                evaluated += task.get();
+            }
+            this.evaluations = evaluated;
+            Candidate best = refined[0];
+            for (Candidate candidate : refined) {
+                if (candidate.cost < best.cost) {
+                    best = candidate;
+                }
+            }
+            return new Result(node(best), best.closestApproach <= encounterRadius, best.closestApproach, best.closestApproachTime);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Maneuver candidate failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    /**
+     * Pick the planets candidates are propagated among: the target and the burn's reference with all their parents,
+     * plus every planet at least `SIGNIFICANT_MASS_FRACTION` as heavy as the heaviest one.
+     * @return body ids of the tracked planets, in `bodies.planetIds` order.
+     * */
+    private int[] trackedPlanets() {
+        boolean[] tracked = new boolean[bodies.size];
+        for (int id : new int[]{targetId, referenceId}) {
+            for (int ancestor = id; ancestor != BodyStateStore.NO_PARENT; ancestor = bodies.parentIds[ancestor]) {
+                tracked[ancestor] = true;
+            }
+        }
+        double heaviest = 0;
+        for (int planetIndex = 0; planetIndex < bodies.planetCount; planetIndex++) {
+            heaviest = Math.max(heaviest, bodies.mass[bodies.planetIds[planetIndex]]);
+        }
+        int[] planetIds = new int[bodies.planetCount];
+        int count = 0;
+        for (int planetIndex = 0; planetIndex < bodies.planetCount; planetIndex++) {
+            int planetId = bodies.planetIds[planetIndex];
+            if (tracked[planetId] || bodies.mass[planetId] >= SIGNIFICANT_MASS_FRACTION * heaviest) {
+                planetIds[count++] = planetId;
+            }
+        }
+        return Arrays.copyOf(planetIds, count);
+    }
+    /** @return every grid candidate burning at a given time, direction-major. */
+    private Candidate[] evaluateGrid(double burnTime) {
+        Propagation propagation = new Propagation();
+        Candidate[] grid = new Candidate[directionSamples * magnitudeSamples];
+        for (int directionIndex = 0; directionIndex < directionSamples; directionIndex++) {
+            double angle = Math.TAU * directionIndex / directionSamples;
+            for (int magnitudeIndex = 0; magnitudeIndex < magnitudeSamples; magnitudeIndex++) {
+                double magnitude = maxDeltaV * (magnitudeIndex + 1) / magnitudeSamples;
+                grid[directionIndex * magnitudeSamples + magnitudeIndex] = evaluate(burnTime, angle, magnitude, propagation);
+            }
+        }
+        return grid;
+    }
+    /**
+     * Compass search around a candidate: try one step either way along each parameter, move to the first
+     * improvement, and halve every step once none improves.
+     * @param refined array receiving the polished candidate at `index`.
+     * @return number of candidates evaluated.
+     * */
+    private long refine(Candidate seed, double timeStep, double angleStep, double magnitudeStep, Candidate[] refined, int index) {
+        Propagation propagation = new Propagation();
+        Candidate best = seed;
+        long evaluated = 0;
+        for (int round = 0; round < MAX_REFINEMENT_ROUNDS && (timeStep >= timeTolerance || timeStep == 0); round++) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            boolean improved = false;
+            for (int move = 0; move < 6 && !improved; move++) {
+                double sign = move % 2 == 0 ? 1 : -1;
+                double burnTime = best.burnTime + (move / 2 == 0 ? sign * timeStep : 0);
+                double angle = best.angle + (move / 2 == 1 ? sign * angleStep : 0);
+                double magnitude = best.magnitude + (move / 2 == 2 ? sign * magnitudeStep : 0);
+                if (burnTime < windowStart || burnTime > windowEnd || magnitude <= 0 || magnitude > maxDeltaV
+                        || (burnTime == best.burnTime && angle == best.angle && magnitude == best.magnitude)) {
+                    continue;
+                }
+                Candidate candidate = evaluate(burnTime, angle, magnitude, propagation);
+                evaluated++;
+                if (candidate.cost < best.cost) {
+                    best = candidate;
+                    improved = true;
+                }
+            }
+            if (!improved) {
+                timeStep /= 2;
+                angleStep /= 2;
+                magnitudeStep /= 2;
+            }
+        }
+        refined[index] = best;
+        return evaluated;
+    }
+    /**
+     * Propagate the spacecraft through a single burn and track its distance to the target.
+     * The trajectory stops as soon as it comes within `encounterRadius`, since later approaches can't lower the cost.
+     * */
+    private Candidate evaluate(double burnTime, double angle, double magnitude, Propagation propagation) {
+        double[] sample = propagation.sample;
+        double[] velocity = propagation.velocity;
+        coastStateAt(burnTime, propagation);
+        velocity[0] = sample[2];
+        velocity[1] = sample[3];
+        double relativeVelocityX = sample[2], relativeVelocityY = sample[3];
+        if (referenceId != BodyStateStore.NO_PARENT) {
+            planets.stateOf(referenceId, burnTime, propagation.reference);
+            relativeVelocityX -= propagation.reference[2];
+            relativeVelocityY -= propagation.reference[3];
+        }
+        ManeuverNode node = new ManeuverNode(burnTime, referenceId, magnitude * Math.cos(angle), magnitude * Math.sin(angle));
+        node.addDeltaV(relativeVelocityX, relativeVelocityY, velocity);
+        DormandPrince propagator = propagation.propagator;
+        propagator.reset(propagation, burnTime, sample[0], sample[1], velocity[0], velocity[1], planets.sampleInterval);
+        double closestApproach = propagation.distanceToTarget(burnTime, sample[0], sample[1]);
+        double closestApproachTime = burnTime;
+        double endTime = burnTime + flightTime;
+        while (closestApproach > encounterRadius && propagator.time < endTime) {
+            propagator.step(propagation);
+            double distance = propagation.distanceToTarget(propagator.time, propagator.positionX, propagator.positionY);
+            if (distance < closestApproach) {
+                closestApproach = distance;
+                closestApproachTime = propagator.time;
+            }
+        }
+        double cost = magnitude;
+        if (closestApproach > encounterRadius) {
+            cost += maxDeltaV * (1 + (closestApproach - encounterRadius) / encounterRadius);
+        }
+        return new Candidate(burnTime, angle, magnitude, closestApproach, closestApproachTime, cost);
+    }
+    /** Convert a candidate into the burn its parameters describe. */
+    private ManeuverNode node(Candidate candidate) {
+        return new ManeuverNode(candidate.burnTime, referenceId,
+                candidate.magnitude * Math.cos(candidate.angle), candidate.magnitude * Math.sin(candidate.angle));
+    }
+    /**
+     * Propagate the unburned spacecraft from the copied state to the end of the window.
+     * @return interleaved states every `planets.sampleInterval` from `windowStart`, covering `windowEnd`.
+     * */
+    private double[] propagateCoast() {
+        Propagation propagation = new Propagation();
+        DormandPrince propagator = new DormandPrince(tolerance, minStep, maxStep);
+        double interval = planets.sampleInterval;
+        int count = (int) Math.ceil((windowEnd - windowStart) / interval) + 1;
+        double[] states = new double[count * STRIDE];
+        propagator.reset(propagation, startTime, bodies.positionX[craftId], bodies.positionY[craftId],
+                bodies.velocityX[craftId], bodies.velocityY[craftId], interval);
+        for (int index = 0; index < count; index++) {
+            double time = windowStart + index * interval;
+            while (propagator.time < time) {
+                propagator.step(propagation);
+            }
+            propagator.stateAt(time, propagation.sample);
+            System.arraycopy(propagation.sample, 0, states, index * STRIDE, STRIDE);
+        }
+        return states;
+    }
+    /** Write the unburned spacecraft's state at a time within the window into `propagation.sample`. */
+    private void coastStateAt(double time, Propagation propagation) {
+        double interval = planets.sampleInterval;
+        int index = (int) Math.floor((time - windowStart) / interval);
+        double sampleTime = windowStart + index * interval;
+        int offset = index * STRIDE;
+        if (sampleTime == time) {
+            System.arraycopy(coast, offset, propagation.sample, 0, STRIDE);
+            return;
+        }
+        // continue from the last coast sample with the coast's own accuracy
+        DormandPrince propagator = propagation.coastPropagator;
+        propagator.reset(propagation, sampleTime, coast[offset], coast[offset + 1], coast[offset + 2], coast[offset + 3], time - sampleTime);
+        while (propagator.time < time) {
+            propagator.step(propagation);
+        }
+        propagator.stateAt(time, propagation.sample);
+    }
+
+    /** Scratch state of a single thread propagating candidates, and the acceleration field they move through. */
+    private final class Propagation implements DormandPrince.AccelerationField {
+        final DormandPrince propagator = new DormandPrince(CANDIDATE_TOLERANCE, minStep, maxStep);
+        final DormandPrince coastPropagator = new DormandPrince(tolerance, minStep, maxStep);
+        final double[] planetX = new double[planets.planetIds.length], planetY = new double[planets.planetIds.length]; // by column
+        final double[] sample = new double[STRIDE];
+        final double[] reference = new double[STRIDE];
+        final double[] velocity = new double[2];
+
+        @Override
+        public void accelerationAt(double time, double x, double y, double[] acceleration) {
+            planets.positionsAt(time, planetX, planetY);
+            double accelerationX = 0, accelerationY = 0;
+            for (int column = 0; column < planetX.length; column++) {
+                double deltaX = x - planetX[column];
+                double deltaY = y - planetY[column];
+                double scale = gravity.accelerationScale(bodies.mass[planets.planetIds[column]], deltaX, deltaY);
+                accelerationX += deltaX * scale;
+                accelerationY += deltaY * scale;
+            }
+            acceleration[0] = accelerationX;
+            acceleration[1] = accelerationY;
+        }
+        double distanceToTarget(double time, double x, double y) {
+            planets.stateOf(targetId, time, reference);
+            return Math.hypot(x - reference[0], y - reference[1]);
+        }
+    }
+
+    /**
+     * Planet states sampled at a fixed interval, read concurrently by every candidate.
+     * Interpolated with the same cubic Hermite scheme as `PlanetEphemeris`, at the ephemeris' own interval unless that
+     * would take more than `MAX_TRACK_ROWS` rows, in which case the interval is the smallest multiple of it that fits.
+     * */
+    private static final class PlanetTrack {
+        final double originTime; // time of the first row (s)
+        final double sampleInterval; // time between rows (s)
+        final int[] planetIds; // body id of each column
+        final int[] columnOfBody; // column of each planet, indexed by body id
+        final double[] rows; // interleaved (x, y, vx, vy) of every column, row by row
+
+        /**
+         * Sample some planets of an ephemeris from `originTime` until at least `endTime`,
+         * using scratch arrays indexed by body id.
+         * @param planetIds body ids of the planets to sample, one column each.
+         * */
+        PlanetTrack(PlanetEphemeris ephemeris, BodyStateStore bodies, int[] planetIds, double originTime, double endTime,
+                    double[] positionX, double[] positionY, double[] velocityX, double[] velocityY) {
+            this.originTime = originTime;
+            double ephemerisRows = Math.ceil((endTime - originTime) / ephemeris.sampleInterval) + 2;
+            this.sampleInterval = ephemeris.sampleInterval * Math.max(1, Math.ceil(ephemerisRows / MAX_TRACK_ROWS));
+            this.planetIds = planetIds;
+            this.columnOfBody = new int[bodies.size];
+            for (int column = 0; column < planetIds.length; column++) {
+                columnOfBody[planetIds[column]] = column;
+            }
+            int rowCount = (int) Math.ceil((endTime - originTime) / sampleInterval) + 2;
+            this.rows = new double[rowCount * planetIds.length * STRIDE];
+            for (int row = 0; row < rowCount; row++) {
+                ephemeris.statesAt(originTime + row * sampleInterval, positionX, positionY, velocityX, velocityY);
+                for (int column = 0; column < planetIds.length; column++) {
+                    int offset = (row * planetIds.length + column) * STRIDE;
+                    int id = planetIds[column];
+                    rows[offset] = positionX[id];
+                    rows[offset + 1] = positionY[id];
+                    rows[offset + 2] = velocityX[id];
+                    rows[offset + 3] = velocityY[id];
+                }
+            }
+        }
+        /** Write every planet's interpolated position into arrays indexed by column. */
+        void positionsAt(double time, double[] positionX, double[] positionY) {
+            double rowPosition = (time - originTime) / sampleInterval;
+            int row = (int) rowPosition;
+            double s = rowPosition - row;
+            double s2 = s * s, s3 = s2 * s;
+            double h00 = 2 * s3 - 3 * s2 + 1;
+            double h10 = (s3 - 2 * s2 + s) * sampleInterval;
+            double h01 = -2 * s3 + 3 * s2;
+            double h11 = (s3 - s2) * sampleInterval;
+            int startOffset = row * planetIds.length * STRIDE;
+            int endOffset = startOffset + planetIds.length * STRIDE;
+            for (int column = 0; column < planetIds.length; column++) {
+                int start = startOffset + column * STRIDE;
+                int end = endOffset + column * STRIDE;
+                positionX[column] = h00 * rows[start] + h10 * rows[start + 2] + h01 * rows[end] + h11 * rows[end + 2];
+                positionY[column] = h00 * rows[start + 1] + h10 * rows[start + 3] + h01 * rows[end + 1] + h11 * rows[end + 3];
+            }
+        }
+        /** Write a single planet's interpolated (x, y, vx, vy) state into `output`. */
+        void stateOf(int id, double time, double[] output) {
+            double rowPosition = (time - originTime) / sampleInterval;
+            int row = (int) rowPosition;
+            double s = rowPosition - row;
+            double s2 = s * s, s3 = s2 * s;
+            double h00 = 2 * s3 - 3 * s2 + 1;
+            double h10 = (s3 - 2 * s2 + s) * sampleInterval;
+            double h01 = -2 * s3 + 3 * s2;
+            double h11 = (s3 - s2) * sampleInterval;
+            double d00 = (6 * s2 - 6 * s) / sampleInterval;
+            double d10 = 3 * s2 - 4 * s + 1;
+            double d01 = -d00;
+            double d11 = 3 * s2 - 2 * s;
+            int start = (row * planetIds.length + columnOfBody[id]) * STRIDE;
+            int end = start + planetIds.length * STRIDE;
+            output[0] = h00 * rows[start] + h10 * rows[start + 2] + h01 * rows[end] + h11 * rows[end + 2];
+            output[1] = h00 * rows[start + 1] + h10 * rows[start + 3] + h01 * rows[end + 1] + h11 * rows[end + 3];
+            output[2] = d00 * rows[start] + d10 * rows[start + 2] + d01 * rows[end] + d11 * rows[end + 2];
+            output[3] = d00 * rows[start + 1] + d10 * rows[start + 3] + d01 * rows[end + 1] + d11 * rows[end + 3];
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package world;
+
+import physics.GravityModel;
+
+/**
+ * Multi-rate stepping for large time warps.
+ * Planets are advanced by a whole macro-step at once, straight from the world's ephemeris, while every spacecraft is
+ * sub-cycled through the macro-step with velocity Verlet against planet positions interpolated from the same ephemeris.
+ * Each substep's length is chosen from the spacecraft's local gravity gradient (`accuracy` times its dynamical time
+ * `1 / sqrt(sum GM / r^3)`), so craft near massive bodies take many short substeps and craft in deep space take few.
+ * Parents are re-evaluated after every substep, so encounters shorter than a macro-step aren't missed. Surfaces are
+ * checked after every substep too: near a planet a substep covers a small fraction of the time needed to cross it,
+ * so a spacecraft can't pass through a planet unnoticed, and one found inside lands where it is.
+ * Must only be used from the thread that steps the world.
+ * */
+public class MultiRateStepper {
+    public double accuracy; // substep length as a fraction of the local dynamical time
+    public int maxSubsteps; // most substeps a spacecraft may take per macro-step; bounds the work of a single step
+    public long substeps; // total substeps taken by every spacecraft
+
+    private GravityModel gravity;
+    private double[] positionX = new double[0], positionY = new double[0]; // planet positions at the current substep
+    private double accelerationX, accelerationY; // spacecraft acceleration at the current substep (km/s^2)
+    private final double[] planetState = new double[4]; // state of a planet the spacecraft landed on
+    private double gradient; // sum of GM / r^3 over every planet at the current substep (s^-2)
+
+    /**
+     * @param accuracy substep length as a fraction of the local dynamical time (e.g. 0.01).
+     * @param maxSubsteps most substeps a spacecraft may take per macro-step.
+     * */
+    public MultiRateStepper(double accuracy, int maxSubsteps) {
+        this.accuracy = accuracy;
+        this.maxSubsteps = maxSubsteps;
+    }
+    /** @return new stepper with the same settings and scratch space of its own, e.g. for stepping on another thread. */
+    public MultiRateStepper copy() {
+        return new MultiRateStepper(accuracy, maxSubsteps);
+    }
+    /**
+     * Advance the world by one macro-step.
+     * @param world world to advance.
+     * @param macroStep length of the macro-step (s).
+     * @return whether the controlled spacecraft's parent changed during the macro-step.
+     * */
+    boolean step(World world, double macroStep) {
+        BodyStateStore state = world.state;
+        if (gravity == null || gravity.G != world.G) {
+            gravity = new GravityModel(world.G);
+        }
+        if (positionX.length < state.size) {
+            positionX = new double[state.positionX.length];
+            positionY = new double[state.positionX.length];
+        }
+        boolean controlledParentChanged = false;
+        for (Spacecraft craft : world.fleet) {
+            // landed spacecraft are carried along with their planet by the world
+            if (craft.landedOn != null) {
+                continue;
+            }
+            boolean parentChanged = subcycle(world, craft, macroStep);
+            if (craft == world.spacecraft) {
+                controlledParentChanged = parentChanged;
+            }
+        }
+        world.simulationTime += macroStep;
+        world.ephemeris.statesAt(world.simulationTime, state.positionX, state.positionY, state.velocityX, state.velocityY);
+        world.updateInfluenceRadii();
+        return controlledParentChanged;
+    }
+    /**
+     * Sub-cycle one spacecraft through a macro-step starting at the world's current time.
+     * @return whether the spacecraft's parent changed or it landed.
+     * */
+    private boolean subcycle(World world, Spacecraft craft, double macroStep) {
+        BodyStateStore state = world.state;
+        int craftId = craft.id;
+        double time = world.simulationTime;
+        double endTime = time + macroStep;
+        double minStep = macroStep / maxSubsteps;
+        double x = state.positionX[craftId], y = state.positionY[craftId];
+        double vx = state.velocityX[craftId], vy = state.velocityY[craftId];
+        int parentId = state.parentIds[craftId];
+        boolean parentChanged = false;
+        accelerationAt(state, time, x, y, world.ephemeris);
+        while (time < endTime) {
+            double h = Math.max(accuracy / Math.sqrt(gradient), minStep);
+            // avoid leaving a sliver of a substep at the end of the macro-step
+            if (time + 1.5 * h >= endTime) {
+                h = endTime - time;
+            }
+            vx += accelerationX * h / 2;
+            vy += accelerationY * h / 2;
+            x += vx * h;
+            y += vy * h;
+            time = time + h >= endTime ? endTime : time + h;
+            accelerationAt(state, time, x, y, world.ephemeris);
+            vx += accelerationX * h / 2;
+            vy += accelerationY * h / 2;
+            int influenceId = world.deepestInfluence(x, y, positionX, positionY);
+            if (influenceId != parentId) {
+                parentId = influenceId;
+                parentChanged = true;
+            }
+            substeps++;
+            int impactedId = world.collisions().planetContaining(x, y, positionX, positionY);
+            if (impactedId >= 0) {
+                world.ephemeris.stateOf(impactedId, time, planetState);
+                world.land(craft, impactedId, time, planetState[0], planetState[1], x - planetState[0], y - planetState[1],
+                        Math.hypot(vx - planetState[2], vy - planetState[3]));
+                parentChanged = true;
+                break;
+            }
+        }
+        state.positionX[craftId] = x;
+        state.positionY[craftId] = y;
+        state.velocityX[craftId] = vx;
+        state.velocityY[craftId] = vy;
+        if (parentId != state.parentIds[craftId]) {
+            world.setSpacecraftParent(craft, state.bodies[parentId]);
+        }
+        // a sphere of influence entered and left within the macro-step still counts as a change
+        return parentChanged;
+    }
+    /**
+     * Acceleration of the spacecraft with every planet placed at its ephemeris position,
+     * along with the local gravity gradient.
+     * */
+    private void accelerationAt(BodyStateStore state, double time, double x, double y, PlanetEphemeris ephemeris) {
+        ephemeris.positionsAt(time, positionX, positionY);
+        double xAcceleration = 0, yAcceleration = 0, sum = 0;
+        for (int planetIndex = 0; planetIndex < state.planetCount; planetIndex++) {
+            int planetId = state.planetIds[planetIndex];
+            double deltaX = x - positionX[planetId];
+            double deltaY = y - positionY[planetId];
+            double scale = gravity.accelerationScale(state.mass[planetId], deltaX, deltaY);
+            xAcceleration += deltaX * scale;
+            yAcceleration += deltaY * scale;
+            sum -= scale;
+        }
+        accelerationX = xAcceleration;
+        accelerationY = yAcceleration;
+        gradient = sum;
+    }
+}
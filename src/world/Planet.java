@@ -21,12 +21,14 @@ public class Planet extends Satellite {
         this.radius = radius;
         this.numSlices = 48;
         this.numStacks = 24;
-        createMesh();
     }
 
-    /** Create a UV Sphere surface mesh according to the inputted number of slices/stacks. */
+    /** Create a UV Sphere surface mesh according to the inputted number of slices/stacks, around the origin. */
+    @Override
     public void createMesh() {
-        Coordinate planetPosition = getPosition();
+        // generated lazily, once the body has moved away from the origin, so vertices are placed around an unmoved copy
+        Entity origin = new Entity(0, 0, 0, pitch, yaw, roll);
+        Coordinate planetPosition = origin.getPosition();
         double xPosition = planetPosition.getX();
         double yPosition = planetPosition.getY();
         double zPosition = planetPosition.getZ();
@@ -50,11 +52,11 @@ public class Planet extends Satellite {
 
             double x0 = distanceFromZAxis * Math.cos(theta);
             double y0 = distanceFromZAxis * Math.sin(theta);
-            Coordinate v0 = Transformations.rotateYaw(this, new Coordinate(x0, y0, z));
+            Coordinate v0 = Transformations.rotateYaw(origin, new Coordinate(x0, y0, z));
 
             double x1 = distanceFromZAxis * Math.cos(theta + sliceAngle);
             double y1 = distanceFromZAxis * Math.sin(theta + sliceAngle);
-            Coordinate v1 = Transformations.rotateYaw(this,new Coordinate(x1, y1, z));
+            Coordinate v1 = Transformations.rotateYaw(origin, new Coordinate(x1, y1, z));
 
             meshes.add(new Mesh(this, new Coordinate[]{top, v0, v1}, meshColor));
 
@@ -72,11 +74,11 @@ public class Planet extends Satellite {
 
                 x0 = distanceFromZAxis * Math.cos(theta);
                 y0 = distanceFromZAxis * Math.sin(theta);
-                v0 = Transformations.rotateYaw(this, new Coordinate(x0, y0, z));
+                v0 = Transformations.rotateYaw(origin, new Coordinate(x0, y0, z));
 
                 x1 = xPosition + distanceFromZAxis * Math.cos(theta + sliceAngle);
                 y1 = yPosition + distanceFromZAxis * Math.sin(theta + sliceAngle);
-                v1 = Transformations.rotateYaw(this, new Coordinate(x1, y1, z));
+                v1 = Transformations.rotateYaw(origin, new Coordinate(x1, y1, z));
 
                 meshes.add(new Mesh(this, new Coordinate[]{previousV0, v0, v1, previousV1}, meshColor));
 
@@ -0,0 +1,399 @@
+package world;
+
+import physics.AccelerationModel;
+import physics.Integrator;
+import physics.KeplerianOrbits;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Shared cache answering "where is planet X at time t" for the live step and every prediction.
+ * Planet states are sampled every `sampleInterval` seconds on a fixed grid starting at `originTime`,
+ * and stored in segments of `segmentRows` intervals. Queries between samples use cubic Hermite interpolation.
+ * Segments are generated on demand, either from closed-form orbits (any segment, in any order) or by integrating
+ * a planet-only copy of the world forward from `originTime`. At most `maxSegments` segments are kept;
+ * the least recently used segment is evicted first, which in practice is the oldest part of the past.
+ * An evicted integrated segment keeps its first row, from which it is integrated again when queried; integration is
+ * deterministic, so it comes back exactly as it was first generated.
+ * Must only be used from the thread that steps the world; predictions on other threads work from a `snapshot`.
+ * */
+public class PlanetEphemeris {
+    private static final int STRIDE = 4; // doubles stored per planet per row: (x, y, vx, vy)
+
+    public final double sampleInterval; // time between consecutive samples (s)
+    public final int segmentRows; // sample intervals per segment
+    public final int maxSegments; // segments kept before the least recently used one is evicted
+    public double originTime; // time of the first sample; every sample lies on this grid (s)
+    public long generatedSegments; // number of segments computed since the last reset, including regenerations
+
+    private int planetCount;
+    private int[] planetIds = new int[0]; // body id of the planet stored in each column
+    private int[] columnOfBody = new int[0]; // column storing each body id (only valid for planets)
+    private final LinkedHashMap<Long, double[]> segments; // segment index -> rows, in least recently used order
+    // segment index -> rows of each integrated segment while cached, a copy of just its first row once evicted
+    private final TreeMap<Long, double[]> seeds = new TreeMap<>();
+    private double[] spareSegment; // most recently evicted rows, recycled by the next generated segment
+    private final Set<double[]> sharedSegments = Collections.newSetFromMap(new IdentityHashMap<>()); // rows a snapshot also reads, never recycled
+
+    // closed-form source
+    private KeplerianOrbits orbits;
+    private double[] orbitPositionX = new double[0], orbitPositionY = new double[0]; // scratch states indexed by body id
+    private double[] orbitVelocityX = new double[0], orbitVelocityY = new double[0];
+
+    // integrated source: planet-only store advanced segment by segment
+    private BodyStateStore frontier;
+    private long frontierSegment; // segment whose first row matches the frontier's state
+    private BodyStateStore replay; // planet-only store evicted segments are integrated again in
+    private Integrator integrator;
+    private AccelerationModel model;
+
+    public PlanetEphemeris(double sampleInterval, int segmentRows, int maxSegments) {
+        this.sampleInterval = sampleInterval;
+        this.segmentRows = segmentRows;
+        this.maxSegments = maxSegments;
+        this.segments = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, double[]> eldest) {
+                if (size() > PlanetEphemeris.this.maxSegments) {
+                    if (seeds.containsKey(eldest.getKey())) {
+                        seeds.put(eldest.getKey(), Arrays.copyOf(eldest.getValue(), planetCount * STRIDE));
+                    }
+                    if (!sharedSegments.remove(eldest.getValue())) {
+                        spareSegment = eldest.getValue();
+                    }
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    /**
+     * Discard every cached sample and derive planet states from closed-form orbits.
+     * @param bodies store whose planets are tracked.
+     * @param orbits orbits captured from the same store.
+     * @param originTime time of the first sample (s).
+     * */
+    public void useOrbits(BodyStateStore bodies, KeplerianOrbits orbits, double originTime) {
+        reset(bodies, originTime);
+        this.orbits = orbits;
+        this.frontier = null;
+        if (orbitPositionX.length < bodies.size) {
+            orbitPositionX = new double[bodies.size];
+            orbitPositionY = new double[bodies.size];
+            orbitVelocityX = new double[bodies.size];
+            orbitVelocityY = new double[bodies.size];
+        }
+    }
+    /**
+     * Discard every cached sample and derive planet states by integrating them forward from a store's current state.
+     * Only planets are copied, so the cost doesn't depend on how many spacecraft the world holds.
+     * @param bodies store holding the planet states at `originTime`.
+     * @param originTime time of the first sample (s).
+     * @param integrator integrator advancing the planets by one `sampleInterval` at a time.
+     * @param model acceleration model the planets are integrated with.
+     * */
+    public void useIntegration(BodyStateStore bodies, double originTime, Integrator integrator, AccelerationModel model) {
+        reset(bodies, originTime);
+        this.orbits = null;
+        this.integrator = integrator;
+        this.model = model;
+        this.frontier = new BodyStateStore(Math.max(1, planetCount));
+        for (int column = 0; column < planetCount; column++) {
+            int id = planetIds[column];
+            int parentId = bodies.parentIds[id];
+            // planet ids are sorted, so a parent's column always exists before its children's
+            frontier.addBody(bodies.positionX[id], bodies.positionY[id], bodies.velocityX[id], bodies.velocityY[id],
+                    bodies.mass[id], parentId == BodyStateStore.NO_PARENT ? BodyStateStore.NO_PARENT : columnOfBody[parentId], true);
+        }
+        this.frontierSegment = 0;
+        this.replay = null;
+    }
+    private void reset(BodyStateStore bodies, double originTime) {
+        this.originTime = originTime;
+        this.generatedSegments = 0;
+        this.planetCount = bodies.planetCount;
+        this.planetIds = new int[planetCount];
+        System.arraycopy(bodies.planetIds, 0, planetIds, 0, planetCount);
+        Arrays.sort(planetIds);
+        this.columnOfBody = new int[bodies.size];
+        for (int column = 0; column < planetCount; column++) {
+            columnOfBody[planetIds[column]] = column;
+        }
+        segments.clear();
+        seeds.clear();
+        sharedSegments.clear();
+        spareSegment = null;
+    }
+    /**
+     * Copy the ephemeris for a prediction running on another thread, without generating anything again.
+     * The copy shares every cached segment, whose rows are never written once generated, and continues past them on
+     * its own: closed-form orbits through a copy with scratch space of its own, integrated planets from a copy of the
+     * frontier with a copy of the integrator. Planets only feel their parent under every gravity model, so the copy's
+     * segments come out exactly as this ephemeris' would.
+     * Must be called from the thread using this ephemeris; the copy may then be used by one other thread.
+     * @param fromTime earliest time the copy will be queried at (s).
+     * @param model acceleration model the copy integrates planets with; must not be used by any other thread.
+     * @return independent copy.
+     * */
+    public PlanetEphemeris snapshot(double fromTime, AccelerationModel model) {
+        PlanetEphemeris copy = new PlanetEphemeris(sampleInterval, segmentRows, maxSegments);
+        copy.originTime = originTime;
+        // never modified once a source is set up, so both share them
+        copy.planetCount = planetCount;
+        copy.planetIds = planetIds;
+        copy.columnOfBody = columnOfBody;
+        // iterating doesn't change the eviction order, and the copy inherits it
+        for (Map.Entry<Long, double[]> segment : segments.entrySet()) {
+            copy.segments.put(segment.getKey(), segment.getValue());
+            sharedSegments.add(segment.getValue());
+            copy.sharedSegments.add(segment.getValue());
+        }
+        if (orbits != null) {
+            copy.orbits = orbits.copy();
+            copy.orbitPositionX = new double[orbitPositionX.length];
+            copy.orbitPositionY = new double[orbitPositionY.length];
+            copy.orbitVelocityX = new double[orbitVelocityX.length];
+            copy.orbitVelocityY = new double[orbitVelocityY.length];
+            return copy;
+        }
+        // the copy regenerates segments it doesn't share from the nearest first row at or before `fromTime`
+        long fromSegment = Math.floorDiv((long) Math.floor((fromTime - originTime) / sampleInterval), segmentRows);
+        Map.Entry<Long, double[]> seed = seeds.floorEntry(fromSegment);
+        if (seed != null) {
+            copy.seeds.put(seed.getKey(), seed.getValue());
+        }
+        for (Map.Entry<Long, double[]> segment : copy.segments.entrySet()) {
+            copy.seeds.put(segment.getKey(), segment.getValue());
+        }
+        copy.frontier = new BodyStateStore(Math.max(1, frontier.size));
+        copy.frontier.copyFrom(frontier);
+        copy.frontierSegment = frontierSegment;
+        copy.integrator = integrator.copy();
+        copy.model = model;
+        return copy;
+    }
+    /**
+     * Write the interpolated state of every planet at a given time into arrays indexed by body id.
+     * @param time query time (s); must not precede `originTime`.
+     * @param velocityX output x-velocities, or null if only positions are needed.
+     * */
+    public void statesAt(double time, double[] positionX, double[] positionY, double[] velocityX, double[] velocityY) {
+        double rowPosition = (time - originTime) / sampleInterval;
+        long row = (long) Math.floor(rowPosition);
+        long segmentIndex = Math.floorDiv(row, segmentRows);
+        double[] rows = segment(segmentIndex);
+        int rowInSegment = (int) (row - segmentIndex * segmentRows);
+        double s = rowPosition - row;
+        double s2 = s * s, s3 = s2 * s;
+        // cubic hermite basis functions and their derivatives with respect to s
+        double h00 = 2 * s3 - 3 * s2 + 1;
+        double h10 = (s3 - 2 * s2 + s) * sampleInterval;
+        double h01 = -2 * s3 + 3 * s2;
+        double h11 = (s3 - s2) * sampleInterval;
+        double d00 = (6 * s2 - 6 * s) / sampleInterval;
+        double d10 = 3 * s2 - 4 * s + 1;
+        double d01 = -d00;
+        double d11 = 3 * s2 - 2 * s;
+        int startOffset = rowInSegment * planetCount * STRIDE;
+        int endOffset = startOffset + planetCount * STRIDE;
+        for (int column = 0; column < planetCount; column++) {
+            int start = startOffset + column * STRIDE;
+            int end = endOffset + column * STRIDE;
+            int id = planetIds[column];
+            positionX[id] = h00 * rows[start] + h10 * rows[start + 2] + h01 * rows[end] + h11 * rows[end + 2];
+            positionY[id] = h00 * rows[start + 1] + h10 * rows[start + 3] + h01 * rows[end + 1] + h11 * rows[end + 3];
+            if (velocityX != null) {
+                velocityX[id] = d00 * rows[start] + d10 * rows[start + 2] + d01 * rows[end] + d11 * rows[end + 2];
+                velocityY[id] = d00 * rows[start + 1] + d10 * rows[start + 3] + d01 * rows[end + 1] + d11 * rows[end + 3];
+            }
+        }
+    }
+    /** Write the interpolated positions of every planet at a given time into arrays indexed by body id. */
+    public void positionsAt(double time, double[] positionX, double[] positionY) {
+        statesAt(time, positionX, positionY, null, null);
+    }
+    /**
+     * Interpolate a single planet's state.
+     * @param id body id of the planet.
+     * @param time query time (s); must not precede `originTime`.
+     * @param output array receiving (x, y, vx, vy).
+     * */
+    public void stateOf(int id, double time, double[] output) {
+        double rowPosition = (time - originTime) / sampleInterval;
+        long row = (long) Math.floor(rowPosition);
+        long segmentIndex = Math.floorDiv(row, segmentRows);
+        double[] rows = segment(segmentIndex);
+        int rowInSegment = (int) (row - segmentIndex * segmentRows);
+        double s = rowPosition - row;
+        double s2 = s * s, s3 = s2 * s;
+        double h00 = 2 * s3 - 3 * s2 + 1;
+        double h10 = (s3 - 2 * s2 + s) * sampleInterval;
+        double h01 = -2 * s3 + 3 * s2;
+        double h11 = (s3 - s2) * sampleInterval;
+        double d00 = (6 * s2 - 6 * s) / sampleInterval;
+        double d10 = 3 * s2 - 4 * s + 1;
+        double d01 = -d00;
+        double d11 = 3 * s2 - 2 * s;
+        int start = (rowInSegment * planetCount + columnOfBody[id]) * STRIDE;
+        int end = start + planetCount * STRIDE;
+        output[0] = h00 * rows[start] + h10 * rows[start + 2] + h01 * rows[end] + h11 * rows[end + 2];
+        output[1] = h00 * rows[start + 1] + h10 * rows[start + 3] + h01 * rows[end + 1] + h11 * rows[end + 3];
+        output[2] = d00 * rows[start] + d10 * rows[start + 2] + d01 * rows[end] + d11 * rows[end + 2];
+        output[3] = d00 * rows[start + 1] + d10 * rows[start + 3] + d01 * rows[end + 1] + d11 * rows[end + 3];
+    }
+    /** @return closed-form orbits the samples are derived from, or null while planets are integrated. */
+    KeplerianOrbits orbits() {
+        return orbits;
+    }
+    /** @return planet-only store (indexed by column) the integrated source continues from, or null for orbits. */
+    BodyStateStore frontier() {
+        return frontier;
+    }
+    /** @return segment whose first row matches the frontier's state. */
+    long frontierSegment() {
+        return frontierSegment;
+    }
+    /** @return every cached segment's rows by segment index; iterating it doesn't change the eviction order. */
+    Map<Long, double[]> cachedSegmentRows() {
+        return segments;
+    }
+    /**
+     * Put an integrated source back where a checkpoint left it, after `useIntegration` has set up its planets.
+     * @param segment segment whose first row matches the frontier's state.
+     * @param frontierStates interleaved (x, y, vx, vy) frontier states, one per column.
+     * */
+    void restoreFrontier(long segment, double[] frontierStates) {
+        for (int column = 0; column < planetCount; column++) {
+            frontier.positionX[column] = frontierStates[column * STRIDE];
+            frontier.positionY[column] = frontierStates[column * STRIDE + 1];
+            frontier.velocityX[column] = frontierStates[column * STRIDE + 2];
+            frontier.velocityY[column] = frontierStates[column * STRIDE + 3];
+        }
+        this.frontierSegment = segment;
+    }
+    /** Cache a segment's rows, as previously read from `cachedSegmentRows`. */
+    void restoreSegment(long segmentIndex, double[] rows) {
+        cacheSegment(segmentIndex, rows);
+    }
+    /** @return number of segments currently cached. */
+    public int cachedSegments() {
+        return segments.size();
+    }
+    /**
+     * Fetch a segment's rows, generating it (and, when integrating, every segment before it) if it isn't cached.
+     * Each segment holds `segmentRows + 1` rows; the last row repeats the next segment's first so that
+     * interpolation never has to look past a segment's end.
+     * */
+    private double[] segment(long segmentIndex) {
+        double[] rows = segments.get(segmentIndex);
+        if (rows != null) {
+            return rows;
+        }
+        if (segmentIndex < 0) {
+            throw new IllegalArgumentException("Ephemeris queried before its origin time " + originTime);
+        }
+        if (orbits != null) {
+            rows = newSegmentRows();
+            double segmentStart = originTime + segmentIndex * segmentRows * sampleInterval;
+            for (int row = 0; row <= segmentRows; row++) {
+                orbits.statesAt(segmentStart + row * sampleInterval, orbitPositionX, orbitPositionY, orbitVelocityX, orbitVelocityY);
+                int offset = row * planetCount * STRIDE;
+                for (int column = 0; column < planetCount; column++) {
+                    int id = planetIds[column];
+                    int index = offset + column * STRIDE;
+                    rows[index] = orbitPositionX[id];
+                    rows[index + 1] = orbitPositionY[id];
+                    rows[index + 2] = orbitVelocityX[id];
+                    rows[index + 3] = orbitVelocityY[id];
+                }
+            }
+            segments.put(segmentIndex, rows);
+            generatedSegments++;
+            return rows;
+        }
+        if (segmentIndex < frontierSegment) {
+            return regenerate(segmentIndex);
+        }
+        // integrated planets can only be advanced forward, one segment after another
+        while (frontierSegment <= segmentIndex) {
+            rows = integrateSegment(frontier);
+            cacheSegment(frontierSegment, rows);
+            frontierSegment++;
+            generatedSegments++;
+        }
+        return rows;
+    }
+    /**
+     * Integrate an evicted segment again, starting from the nearest earlier segment whose first row is known.
+     * Every segment on the way is cached as well, since queries usually move forward through time.
+     * */
+    private double[] regenerate(long segmentIndex) {
+        Map.Entry<Long, double[]> seed = seeds.floorEntry(segmentIndex);
+        if (seed == null) {
+            throw new IllegalStateException("Integrated ephemeris segment " + segmentIndex + " was evicted and can't be regenerated");
+        }
+        if (replay == null) {
+            replay = new BodyStateStore(Math.max(1, frontier.size));
+            replay.copyFrom(frontier);
+        }
+        double[] seedRow = seed.getValue();
+        for (int column = 0; column < planetCount; column++) {
+            int index = column * STRIDE;
+            replay.positionX[column] = seedRow[index];
+            replay.positionY[column] = seedRow[index + 1];
+            replay.velocityX[column] = seedRow[index + 2];
+            replay.velocityY[column] = seedRow[index + 3];
+        }
+        double[] rows = null;
+        for (long index = seed.getKey(); index <= segmentIndex; index++) {
+            rows = integrateSegment(replay);
+            cacheSegment(index, rows);
+            generatedSegments++;
+        }
+        return rows;
+    }
+    /** Fill a new segment's rows starting from a planet-only store's state, advancing the store to the segment's end. */
+    private double[] integrateSegment(BodyStateStore planets) {
+        double[] rows = newSegmentRows();
+        writeRow(rows, 0, planets);
+        for (int row = 1; row <= segmentRows; row++) {
+            integrator.step(planets, model, sampleInterval);
+            writeRow(rows, row, planets);
+        }
+        return rows;
+    }
+    /** Cache an integrated segment and remember its first row; only the latest `maxSegments * segmentRows` are kept. */
+    private void cacheSegment(long segmentIndex, double[] rows) {
+        segments.put(segmentIndex, rows);
+        seeds.put(segmentIndex, rows);
+        // a first row takes 1 / (segmentRows + 1) of a segment, so the seeds never outgrow the cache itself
+        while (seeds.size() > (long) maxSegments * segmentRows) {
+            seeds.pollFirstEntry();
+        }
+    }
+    private void writeRow(double[] rows, int row, BodyStateStore planets) {
+        int offset = row * planetCount * STRIDE;
+        for (int column = 0; column < planetCount; column++) {
+            int index = offset + column * STRIDE;
+            rows[index] = planets.positionX[column];
+            rows[index + 1] = planets.positionY[column];
+            rows[index + 2] = planets.velocityX[column];
+            rows[index + 3] = planets.velocityY[column];
+        }
+    }
+    private double[] newSegmentRows() {
+        int length = (segmentRows + 1) * planetCount * STRIDE;
+        if (spareSegment != null && spareSegment.length == length) {
+            double[] rows = spareSegment;
+            spareSegment = null;
+            return rows;
+        }
+        return new double[length];
+    }
+}
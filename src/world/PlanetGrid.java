@@ -0,0 +1,213 @@
+package world;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the boxes planets sweep during a step, so a spacecraft's path is only tested against the planets
+ * in the cells its own box overlaps rather than against every planet.
+ * Cells are hashed into a bucket table sized to the planets, so the grid covers space of any extent without
+ * allocating per cell; planets whose cells share a bucket merely become extra candidates.
+ * The cell size follows the median planet box, and the few boxes covering many cells (e.g. a star's) are kept aside
+ * and returned by every query.
+ * Rebuilt every step; results of the latest query are left in `candidates`, so each thread needs its own instance.
+ * */
+final class PlanetGrid {
+    private static final int MAX_BOX_CELLS = 16; // boxes covering more cells are returned by every query instead
+    static final int MAX_QUERY_CELLS = 64; // queries covering more cells are left to the caller
+    static final int TOO_LARGE = -1;
+
+    public int[] candidates = new int[16]; // body ids of the planets found by the latest query
+    private double cellSize = 1; // edge of a cell (km)
+    private int bucketBits; // log2 of the bucket count
+    private int[] bucketStart = new int[2]; // first index within `entries` of each bucket, by bucket
+    private int[] entries = new int[0]; // body ids of the planets, grouped by bucket
+    private int[] oversized = new int[0]; // body ids of planets whose box covers too many cells
+    private int oversizedCount;
+    private int[] stamp = new int[0]; // query on which each body id was last returned, to drop repeats
+    private int query;
+    private double[] extent = new double[0]; // scratch box extents for picking the cell size
+    private double[] sweptMinX = new double[0], sweptMinY = new double[0]; // box each planet sweeps, by body id
+    private double[] sweptMaxX = new double[0], sweptMaxY = new double[0];
+    private int[] placed = new int[0]; // body ids of the planets placed by `sweep`
+    private final double[] box = new double[4];
+
+    /**
+     * Place the box each planet sweeps during a step, grown by a reach around the planet, into the grid.
+     * A body's path across a step is the cubic Hermite curve through its states at both ends, which lies within the
+     * bounding box of its Bezier control points.
+     * @param planetIds body ids of the planets.
+     * @param planetCount number of planets.
+     * @param from state store holding every body at the start of the step.
+     * @param to state store holding every body at the end of the step.
+     * @param stepLength length of the step (s).
+     * @param reach distance around each planet, by body id, within which it's found (km); planets with an infinite
+     *              reach are left out of the grid.
+     * */
+    void sweep(int[] planetIds, int planetCount, BodyStateStore from, BodyStateStore to, double stepLength, double[] reach) {
+        if (sweptMinX.length < from.size) {
+            sweptMinX = new double[from.size];
+            sweptMinY = new double[from.size];
+            sweptMaxX = new double[from.size];
+            sweptMaxY = new double[from.size];
+            placed = new int[from.size];
+        }
+        int placedCount = 0;
+        for (int planetIndex = 0; planetIndex < planetCount; planetIndex++) {
+            int planetId = planetIds[planetIndex];
+            double r = reach[planetId];
+            if (r == Double.POSITIVE_INFINITY) {
+                continue;
+            }
+            pathBox(planetId, from, to, stepLength);
+            sweptMinX[planetId] = box[0] - r;
+            sweptMinY[planetId] = box[1] - r;
+            sweptMaxX[planetId] = box[2] + r;
+            sweptMaxY[planetId] = box[3] + r;
+            placed[placedCount++] = planetId;
+        }
+        build(placed, placedCount, sweptMinX, sweptMinY, sweptMaxX, sweptMaxY, from.size);
+    }
+    /**
+     * Collect the planets near a body's path across the swept step, as `query` does for the path's box.
+     * @return number of candidates, or `TOO_LARGE`.
+     * */
+    int queryPath(int id, BodyStateStore from, BodyStateStore to, double stepLength) {
+        pathBox(id, from, to, stepLength);
+        return query(box[0], box[1], box[2], box[3]);
+    }
+    /** Bounding box (min x, min y, max x, max y) of the Bezier control points of a body's path, into `box`. */
+    private void pathBox(int id, BodyStateStore from, BodyStateStore to, double stepLength) {
+        double x0 = from.positionX[id], y0 = from.positionY[id];
+        double x3 = to.positionX[id], y3 = to.positionY[id];
+        double x1 = x0 + from.velocityX[id] * stepLength / 3, y1 = y0 + from.velocityY[id] * stepLength / 3;
+        double x2 = x3 - to.velocityX[id] * stepLength / 3, y2 = y3 - to.velocityY[id] * stepLength / 3;
+        box[0] = Math.min(Math.min(x0, x1), Math.min(x2, x3));
+        box[1] = Math.min(Math.min(y0, y1), Math.min(y2, y3));
+        box[2] = Math.max(Math.max(x0, x1), Math.max(x2, x3));
+        box[3] = Math.max(Math.max(y0, y1), Math.max(y2, y3));
+    }
+    /**
+     * Place every planet's box into the grid.
+     * @param planetIds body ids of the planets.
+     * @param planetCount number of planets.
+     * @param minX lower x-bound of each planet's box, by body id (km); likewise for the other bounds.
+     * @param size number of body ids.
+     * */
+    void build(int[] planetIds, int planetCount, double[] minX, double[] minY, double[] maxX, double[] maxY, int size) {
+        if (stamp.length < size) {
+            stamp = new int[size];
+            query = 0;
+        }
+        if (extent.length < planetCount) {
+            extent = new double[planetCount];
+            oversized = new int[planetCount];
+        }
+        for (int planetIndex = 0; planetIndex < planetCount; planetIndex++) {
+            int planetId = planetIds[planetIndex];
+            extent[planetIndex] = Math.max(maxX[planetId] - minX[planetId], maxY[planetId] - minY[planetId]);
+        }
+        Arrays.sort(extent, 0, planetCount);
+        double median = planetCount == 0 ? 0 : extent[planetCount / 2];
+        cellSize = median > 0 ? median : 1;
+        // count each planet's cells, setting the oversized ones aside
+        oversizedCount = 0;
+        int entryCount = 0;
+        for (int planetIndex = 0; planetIndex < planetCount; planetIndex++) {
+            int planetId = planetIds[planetIndex];
+            long cells = cellCount(minX[planetId], minY[planetId], maxX[planetId], maxY[planetId]);
+            if (cells > MAX_BOX_CELLS) {
+                oversized[oversizedCount++] = planetId;
+            } else {
+                entryCount += (int) cells;
+            }
+        }
+        // at least four times as many buckets as entries keeps shared buckets rare
+        bucketBits = 64 - Long.numberOfLeadingZeros(Math.max(8, entryCount) * 4L - 1);
+        int buckets = 1 << bucketBits;
+        if (bucketStart.length < buckets + 1) {
+            bucketStart = new int[buckets + 1];
+        } else {
+            Arrays.fill(bucketStart, 0, buckets + 1, 0);
+        }
+        if (entries.length < entryCount) {
+            entries = new int[entryCount];
+        }
+        for (int pass = 0; pass < 2; pass++) {
+            for (int planetIndex = 0; planetIndex < planetCount; planetIndex++) {
+                int planetId = planetIds[planetIndex];
+                if (cellCount(minX[planetId], minY[planetId], maxX[planetId], maxY[planetId]) > MAX_BOX_CELLS) {
+                    continue;
+                }
+                long lowX = cell(minX[planetId]), highX = cell(maxX[planetId]);
+                long lowY = cell(minY[planetId]), highY = cell(maxY[planetId]);
+                for (long cellX = lowX; cellX <= highX; cellX++) {
+                    for (long cellY = lowY; cellY <= highY; cellY++) {
+                        int bucket = bucket(cellX, cellY);
+                        if (pass == 0) {
+                            bucketStart[bucket + 1]++;
+                        } else {
+                            // filled back to front, leaving each bucket's start in place
+                            entries[--bucketStart[bucket + 1]] = planetId;
+                        }
+                    }
+                }
+            }
+            if (pass == 0) {
+                for (int bucket = 0; bucket < buckets; bucket++) {
+                    bucketStart[bucket + 1] += bucketStart[bucket];
+                }
+            }
+        }
+        // the second pass moved every end back to its bucket's start; shift them into place
+        System.arraycopy(bucketStart, 1, bucketStart, 0, buckets);
+        bucketStart[buckets] = entryCount;
+    }
+    /**
+     * Collect the planets whose boxes may overlap a box into `candidates`, each once.
+     * @return number of candidates, or `TOO_LARGE` if the box covers more than `MAX_QUERY_CELLS` cells.
+     * */
+    int query(double minX, double minY, double maxX, double maxY) {
+        if (cellCount(minX, minY, maxX, maxY) > MAX_QUERY_CELLS) {
+            return TOO_LARGE;
+        }
+        if (++query == 0) {
+            Arrays.fill(stamp, 0);
+            query = 1;
+        }
+        int count = 0;
+        for (int index = 0; index < oversizedCount; index++) {
+            count = add(oversized[index], count);
+        }
+        long highX = cell(maxX), highY = cell(maxY);
+        for (long cellX = cell(minX); cellX <= highX; cellX++) {
+            for (long cellY = cell(minY); cellY <= highY; cellY++) {
+                int bucket = bucket(cellX, cellY);
+                for (int index = bucketStart[bucket]; index < bucketStart[bucket + 1]; index++) {
+                    count = add(entries[index], count);
+                }
+            }
+        }
+        return count;
+    }
+    private int add(int planetId, int count) {
+        if (stamp[planetId] == query) {
+            return count;
+        }
+        stamp[planetId] = query;
+        if (count == candidates.length) {
+            candidates = Arrays.copyOf(candidates, count * 2);
+        }
+        candidates[count] = planetId;
+        return count + 1;
+    }
+    private long cell(double coordinate) {
+        return (long) Math.floor(coordinate / cellSize);
+    }
+    private long cellCount(double minX, double minY, double maxX, double maxY) {
+        return (cell(maxX) - cell(minX) + 1) * (cell(maxY) - cell(minY) + 1);
+    }
+    private int bucket(long cellX, long cellY) {
+        // multiplicative hashing, taking the well-mixed high bits
+        return (int) (((cellX * 0x9E3779B97F4A7C15L) ^ cellY) * 0xC2B2AE3D27D4EB4FL >>> (64 - bucketBits));
+    }
+}
@@ -0,0 +1,268 @@
+package world;
+
+import physics.KeplerianOrbits;
+import physics.LambertSolver;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Porkchop plot of a transfer between two planets orbiting the same parent: the delta-v of the direct prograde
+ * transfer for every pair of departure time and time of flight on a grid.
+ * A cell's delta-v is the departure burn (the transfer's velocity relative to the departure planet) plus the
+ * arrival burn (the arrival planet's velocity relative to the transfer), as if matching both planets' motion.
+ * Planet states come from their closed-form orbits, which are captured once and only read while the grid is
+ * evaluated, so rows of the grid are solved concurrently on a work-stealing pool of `parallelism` threads.
+ * */
+public class Porkchop {
+    public static final int MAGIC = 0x4B52504F; // "OPRK" read as a little-endian int
+    public static final int VERSION = 1;
+    private static final int HEADER_BYTES = 48;
+    private static final double IMAGE_DELTA_V_RANGE = 3; // images shade delta-v from the minimum to this multiple of it
+
+    public final int departureId; // body id of the departure planet
+    public final int arrivalId; // body id of the arrival planet
+    public final double departureStart; // first departure time on the grid (s)
+    public final double departureEnd; // last departure time on the grid (s)
+    public final double minFlightTime; // shortest time of flight on the grid (s)
+    public final double maxFlightTime; // longest time of flight on the grid (s)
+    public final int departureSamples; // grid columns
+    public final int flightTimeSamples; // grid rows
+    public int parallelism = Runtime.getRuntime().availableProcessors(); // threads solving rows
+    public float[] deltaV; // total delta-v of each cell, row by row (one row per time of flight); NaN without a transfer (km/s)
+
+    private final int parentId;
+    private final double mu; // G * parent mass (km^3/s^2)
+    private final KeplerianOrbits orbits;
+
+    /**
+     * Capture the planets' orbits from the world's current state.
+     * @param departure planet the transfer leaves from.
+     * @param arrival planet the transfer arrives at; must share the departure planet's parent.
+     * @param departureStart first departure time (s).
+     * @param departureEnd last departure time (s).
+     * @param minFlightTime shortest time of flight (s).
+     * @param maxFlightTime longest time of flight (s).
+     * @param departureSamples number of departure times.
+     * @param flightTimeSamples number of times of flight.
+     * */
+    public Porkchop(World world, Planet departure, Planet arrival, double departureStart, double departureEnd,
+                    double minFlightTime, double maxFlightTime, int departureSamples, int flightTimeSamples) {
+        BodyStateStore state = world.state;
+        this.parentId = state.parentIds[departure.id];
+        if (parentId == BodyStateStore.NO_PARENT || state.parentIds[arrival.id] != parentId || departure == arrival) {
+            throw new IllegalArgumentException("Transfers need two different planets orbiting the same parent");
+        }
+        if (minFlightTime <= 0 || maxFlightTime < minFlightTime || departureEnd < departureStart
+                || departureSamples < 1 || flightTimeSamples < 1) {
+            throw new IllegalArgumentException("Invalid porkchop grid");
+        }
+        this.departureId = departure.id;
+        this.arrivalId = arrival.id;
+        this.departureStart = departureStart;
+        this.departureEnd = departureEnd;
+        this.minFlightTime = minFlightTime;
+        this.maxFlightTime = maxFlightTime;
+        this.departureSamples = departureSamples;
+        this.flightTimeSamples = flightTimeSamples;
+        this.mu = world.G * state.mass[parentId] / 1e9;
+        this.orbits = world.planetRails != null ? world.planetRails : new KeplerianOrbits(state, world.G, world.simulationTime);
+    }
+    /** @return departure time of a grid column (s). */
+    public double departureTime(int column) {
+        return departureSamples == 1 ? departureStart : departureStart + (departureEnd - departureStart) * column / (departureSamples - 1);
+    }
+    /** @return time of flight of a grid row (s). */
+    public double flightTime(int row) {
+        return flightTimeSamples == 1 ? minFlightTime : minFlightTime + (maxFlightTime - minFlightTime) * row / (flightTimeSamples - 1);
+    }
+    /**
+     * Evaluate every cell of the grid into `deltaV`.
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the rows.
+     * */
+    public void compute() throws InterruptedException {
+        float[] grid = new float[departureSamples * flightTimeSamples];
+        // departure states are shared by every row
+        double[] departures = new double[departureSamples * 4];
+        double[] sample = new double[4];
+        double[] parent = new double[4];
+        for (int column = 0; column < departureSamples; column++) {
+            relativeStateOf(departureId, departureTime(column), sample, parent);
+            System.arraycopy(sample, 0, departures, column * 4, 4);
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Callable<Void>> rows = new ArrayList<>();
+            for (int row = 0; row < flightTimeSamples; row++) {
+                int rowIndex = row;
+                rows.add(() -> {
+                    computeRow(rowIndex, departures, grid);
+                    return null;
+                });
+            }
+            for (Future<Void> row : pool.invokeAll(rows)) {
+                row.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Porkchop row failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        this.deltaV = grid;
+    }
+    private void computeRow(int row, double[] departures, float[] grid) {
+        double flightTime = flightTime(row);
+        double[] arrival = new double[4];
+        double[] parent = new double[4];
+        double[] transfer = new double[4];
+        for (int column = 0; column < departureSamples; column++) {
+            relativeStateOf(arrivalId, departureTime(column) + flightTime, arrival, parent);
+            int offset = column * 4;
+            float cell = Float.NaN;
+            if (LambertSolver.solve(departures[offset], departures[offset + 1], arrival[0], arrival[1], flightTime, mu, true, transfer)) {
+                double departureBurn = Math.hypot(transfer[0] - departures[offset + 2], transfer[1] - departures[offset + 3]);
+                double arrivalBurn = Math.hypot(arrival[2] - transfer[2], arrival[3] - transfer[3]);
+                cell = (float) (departureBurn + arrivalBurn);
+            }
+            grid[row * departureSamples + column] = cell;
+        }
+    }
+    /**
+     * Write a planet's state relative to the common parent.
+     * @param output array receiving (x, y, vx, vy).
+     * @param scratch array of four doubles the parent's state is written to.
+     * */
+    private void relativeStateOf(int id, double time, double[] output, double[] scratch) {
+        // `stateOf` keeps no state, unlike `statesAt`, so rows may query the shared orbits concurrently
+        orbits.stateOf(id, time, output);
+        orbits.stateOf(parentId, time, scratch);
+        for (int index = 0; index < 4; index++) {
+            output[index] -= scratch[index];
+        }
+    }
+    /** @return index of the cheapest cell, or -1 if no cell has a transfer. */
+    public int cheapestCell() {
+        int best = -1;
+        for (int index = 0; index < deltaV.length; index++) {
+            if (!Float.isNaN(deltaV[index]) && (best < 0 || deltaV[index] < deltaV[best])) {
+                best = index;
+            }
+        }
+        return best;
+    }
+    /**
+     * Write the grid to a file, choosing the format from its extension: `.png` renders an image, `.csv` writes a
+     * table and anything else writes the compact binary form.
+     * */
+    public void write(Path path) throws IOException {
+        String name = path.getFileName().toString().toLowerCase();
+        if (name.endsWith(".png")) {
+            writeImage(path);
+        } else if (name.endsWith(".csv")) {
+            writeCsv(path);
+        } else {
+            writeBinary(path);
+        }
+    }
+    /**
+     * Write the grid in binary form: a 48-byte little-endian header (magic, version, columns, rows, departure start
+     * and end, shortest and longest time of flight) followed by every cell as a 32-bit float, row by row.
+     * */
+    public void writeBinary(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + deltaV.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(departureSamples).putInt(flightTimeSamples);
+        buffer.putDouble(departureStart).putDouble(departureEnd).putDouble(minFlightTime).putDouble(maxFlightTime);
+        buffer.asFloatBuffer().put(deltaV);
+        buffer.clear();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+    /**
+     * Read the cells of a grid written by `writeBinary`.
+     * @return cells row by row, as in `deltaV`.
+     * */
+    public static float[] readBinary(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException(path + " isn't a porkchop grid");
+        }
+        if (buffer.getInt() != VERSION) {
+            throw new IOException(path + " has an unsupported porkchop version");
+        }
+        int cells = buffer.getInt() * buffer.getInt();
+        buffer.position(HEADER_BYTES);
+        if (buffer.remaining() != cells * Float.BYTES) {
+            throw new IOException(path + " is truncated");
+        }
+        float[] grid = new float[cells];
+        buffer.asFloatBuffer().get(grid);
+        return grid;
+    }
+    /**
+     * Write the grid as a table: the first line lists departure times, and each following line starts with its
+     * time of flight. Cells without a transfer are left empty.
+     * */
+    public void writeCsv(Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            StringBuilder line = new StringBuilder("flight time \\ departure");
+            for (int column = 0; column < departureSamples; column++) {
+                line.append(',').append(departureTime(column));
+            }
+            writer.write(line.append('\n').toString());
+            for (int row = 0; row < flightTimeSamples; row++) {
+                line.setLength(0);
+                line.append(flightTime(row));
+                for (int column = 0; column < departureSamples; column++) {
+                    float cell = deltaV[row * departureSamples + column];
+                    line.append(',');
+                    if (!Float.isNaN(cell)) {
+                        line.append(cell);
+                    }
+                }
+                writer.write(line.append('\n').toString());
+            }
+        }
+    }
+    /**
+     * Render the grid as an image with departure time to the right and time of flight upward. Delta-v is shaded
+     * from blue at the cheapest cell to red at `IMAGE_DELTA_V_RANGE` times it; costlier cells and cells without a
+     * transfer are black.
+     * */
+    public void writeImage(Path path) throws IOException {
+        BufferedImage image = new BufferedImage(departureSamples, flightTimeSamples, BufferedImage.TYPE_INT_RGB);
+        int cheapest = cheapestCell();
+        double minimum = cheapest < 0 ? 0 : deltaV[cheapest];
+        double range = minimum * (IMAGE_DELTA_V_RANGE - 1);
+        for (int row = 0; row < flightTimeSamples; row++) {
+            for (int column = 0; column < departureSamples; column++) {
+                float cell = deltaV[row * departureSamples + column];
+                int rgb = 0;
+                if (!Float.isNaN(cell) && cell <= minimum + range) {
+                    double fraction = range == 0 ? 0 : (cell - minimum) / range;
+                    rgb = Color.HSBtoRGB((float) (2.0 / 3 * (1 - fraction)), 1, 1);
+                }
+                image.setRGB(column, flightTimeSamples - 1 - row, rgb);
+            }
+        }
+        ImageIO.write(image, "png", path.toFile());
+    }
+}
@@ -6,14 +6,21 @@ import java.util.List;
 
 /**
  * Renderable entities are guaranteed to have meshes that can be rendered to the display.
+ * Meshes are generated on first use, so entities that are never rendered in 3D never pay for them.
  * */
 public class RenderableEntity extends Entity {
-    public List<Mesh> meshes;
+    public List<Mesh> meshes; // surface meshes relative to the entity's center, or null until first rendered
     public RenderableEntity(double x, double y, double z, double pitch, double yaw, double roll) {
         super(x, y, z, pitch, yaw, roll);
-        this.meshes = new ArrayList<>();
     }
     public List<Mesh> getMeshes() {
+        if (meshes == null) {
+            meshes = new ArrayList<>();
+            createMesh();
+        }
         return this.meshes;
     }
+    /** Add the entity's surface meshes to `meshes`, relative to its center. Entities without a surface add none. */
+    public void createMesh() {
+    }
 }
@@ -0,0 +1,388 @@
+package world;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * In-memory history of the world's body states, letting the simulation be rewound to any recorded step.
+ * Every `keyframeInterval` steps a full keyframe is stored; the steps in between only store each value XORed with its
+ * linear extrapolation from the two steps before, with the zero bytes at either end of the XOR dropped, plus the
+ * parents and landings that changed. Bodies move smoothly between steps, so the extrapolation usually shares sign, exponent and
+ * most of the mantissa with the real value. Decoding redoes the same extrapolation, so states are restored exactly.
+ * A keyframe and its deltas form a chunk. Once the history outgrows `memoryBudget` bytes, the oldest chunks are evicted.
+ * Seeking binary searches the chunks and then the chunk's steps, and replays at most `keyframeInterval - 1` deltas.
+ * Recording after a seek discards every step after the restored one, so the history always describes one timeline.
+ * Recording after bodies were added discards the whole history, which was recorded with fewer bodies.
+ * Must only be used from the thread that steps the world.
+ * */
+public class RewindBuffer {
+    private static final int ZERO = 0xFF; // delta header of a value that didn't change
+
+    public final int keyframeInterval; // steps per chunk; a keyframe starts each chunk
+    public final long memoryBudget; // most bytes the history may occupy before the oldest chunks are evicted
+    public long memoryUsed; // bytes currently occupied by the history
+
+    private final List<Chunk> chunks = new ArrayList<>(); // oldest first
+    private int bodyCount;
+    private double[] previous = new double[0]; // (x..., y..., vx..., vy...) of the newest recorded or restored step
+    private double[] beforePrevious = new double[0]; // the same values one step earlier
+    private int[] previousParents = new int[0];
+    private int[] landedIds = new int[0]; // planet each spacecraft rests on at the newest recorded or restored step, or `NO_PARENT`
+    private double[] landedX = new double[0], landedY = new double[0]; // each landed spacecraft's offset from its planet (km)
+    private double[] current = new double[0]; // scratch for the step being recorded
+    private Chunk restoredChunk; // chunk of the most recently restored step, or null once recording resumes
+    private int restoredFrame;
+
+    /** A keyframe followed by the deltas of the next steps. */
+    private static final class Chunk {
+        byte[] bytes = new byte[256];
+        int length; // bytes used
+        double[] times = new double[16]; // simulation time of each step
+        int[] offsets = new int[16]; // offset of each step's encoding
+        int frames; // steps recorded
+
+        long footprint() {
+            return bytes.length + times.length * 8L + offsets.length * 4L;
+        }
+    }
+
+    /**
+     * @param keyframeInterval steps per keyframe; bounds the number of deltas replayed by a seek.
+     * @param memoryBudget most bytes kept before the oldest history is evicted.
+     * */
+    public RewindBuffer(int keyframeInterval, long memoryBudget) {
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("Keyframe interval must be positive: " + keyframeInterval);
+        }
+        this.keyframeInterval = keyframeInterval;
+        this.memoryBudget = memoryBudget;
+    }
+    /** @return whether nothing has been recorded. */
+    public boolean isEmpty() {
+        return chunks.isEmpty();
+    }
+    /** @return simulation time of the oldest recorded step (s). */
+    public double oldestTime() {
+        return chunks.get(0).times[0];
+    }
+    /** @return simulation time of the newest recorded step (s). */
+    public double newestTime() {
+        Chunk newest = chunks.get(chunks.size() - 1);
+        return newest.times[newest.frames - 1];
+    }
+    /**
+     * Append the world's current state as the newest step.
+     * If the world was rewound since the last step, every step after the restored one is discarded first.
+     * @param world world that has just been stepped.
+     * */
+    public void record(World world) {
+        BodyStateStore state = world.state;
+        if (restoredChunk != null) {
+            discardAfterRestored();
+        } else if (!chunks.isEmpty() && world.simulationTime <= newestTime()) {
+            // the world went back in time some other way, e.g. a restored checkpoint
+            clear();
+        }
+        int size = state.size;
+        if (size != bodyCount) {
+            // steps are decoded with the current body count, so older steps can't be restored anymore
+            clear();
+        }
+        Chunk newest = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if (newest == null || newest.frames == keyframeInterval) {
+            if (newest != null) {
+                trim(newest);
+            }
+            newest = new Chunk();
+            chunks.add(newest);
+            memoryUsed += newest.footprint();
+            bodyCount = size;
+            if (previous.length < 4 * size) {
+                previous = new double[4 * size];
+                beforePrevious = new double[4 * size];
+                current = new double[4 * size];
+                previousParents = new int[size];
+                landedIds = new int[size];
+                landedX = new double[size];
+                landedY = new double[size];
+            }
+        }
+        long footprint = newest.footprint();
+        if (newest.frames == newest.times.length) {
+            newest.times = Arrays.copyOf(newest.times, newest.frames * 2);
+            newest.offsets = Arrays.copyOf(newest.offsets, newest.frames * 2);
+        }
+        newest.times[newest.frames] = world.simulationTime;
+        newest.offsets[newest.frames] = newest.length;
+        gather(state, current);
+        if (newest.frames == 0) {
+            for (int index = 0; index < 4 * size; index++) {
+                writeLong(newest, Double.doubleToRawLongBits(current[index]));
+            }
+            for (int id = 0; id < size; id++) {
+                writeInt(newest, state.parentIds[id]);
+            }
+            int landed = 0;
+            for (Spacecraft craft : world.fleet) {
+                landed += craft.landedOn == null ? 0 : 1;
+            }
+            writeInt(newest, landed);
+            for (Spacecraft craft : world.fleet) {
+                if (craft.landedOn != null) {
+                    writeLanding(newest, craft);
+                }
+            }
+        } else {
+            boolean extrapolate = newest.frames > 1;
+            for (int index = 0; index < 4 * size; index++) {
+                double predicted = extrapolate ? 2 * previous[index] - beforePrevious[index] : previous[index];
+                writeDelta(newest, Double.doubleToRawLongBits(current[index]) ^ Double.doubleToRawLongBits(predicted));
+            }
+            int changes = 0;
+            for (int id = 0; id < size; id++) {
+                changes += state.parentIds[id] != previousParents[id] ? 1 : 0;
+            }
+            writeInt(newest, changes);
+            for (int id = 0; id < size && changes > 0; id++) {
+                if (state.parentIds[id] != previousParents[id]) {
+                    writeInt(newest, id);
+                    writeInt(newest, state.parentIds[id]);
+                    changes--;
+                }
+            }
+            int landings = 0;
+            for (Spacecraft craft : world.fleet) {
+                landings += landingChanged(craft) ? 1 : 0;
+            }
+            writeInt(newest, landings);
+            for (Spacecraft craft : world.fleet) {
+                if (landingChanged(craft)) {
+                    writeLanding(newest, craft);
+                }
+            }
+        }
+        for (Spacecraft craft : world.fleet) {
+            int id = craft.id;
+            landedIds[id] = craft.landedOn == null ? BodyStateStore.NO_PARENT : craft.landedOn.id;
+            landedX[id] = craft.landedX;
+            landedY[id] = craft.landedY;
+        }
+        newest.frames++;
+        double[] oldest = beforePrevious;
+        beforePrevious = previous;
+        previous = current;
+        current = oldest;
+        System.arraycopy(state.parentIds, 0, previousParents, 0, size);
+        memoryUsed += newest.footprint() - footprint;
+        // the newest chunk is never evicted, so a single step is always available
+        while (memoryUsed > memoryBudget && chunks.size() > 1) {
+            memoryUsed -= chunks.remove(0).footprint();
+        }
+    }
+    /**
+     * Put the world back at the newest recorded step at or before a time (or the oldest step, for earlier times).
+     * Body states, parents, landings and the simulation time are restored exactly, and impacts after the restored
+     * step are forgotten; leads are left for the caller to restart.
+     * An integrated planet ephemeris is restarted from the restored planets, since its past may have been evicted.
+     * @param world world the history was recorded from.
+     * @param time simulation time to go back (or forward) to (s).
+     * @return whether a step was restored; false if nothing has been recorded or the world's bodies changed since.
+     * */
+    public boolean seek(World world, double time) {
+        if (chunks.isEmpty() || world.state.size != bodyCount) {
+            return false;
+        }
+        // the newest chunk starting at or before the time, then its newest step at or before the time
+        int chunkIndex = Math.max(0, floorIndex(chunks.size(), index -> chunks.get(index).times[0], time));
+        Chunk chunk = chunks.get(chunkIndex);
+        int frame = Math.max(0, floorIndex(chunk.frames, index -> chunk.times[index], time));
+        decode(chunk, frame);
+        BodyStateStore state = world.state;
+        int size = bodyCount;
+        System.arraycopy(previous, 0, state.positionX, 0, size);
+        System.arraycopy(previous, size, state.positionY, 0, size);
+        System.arraycopy(previous, 2 * size, state.velocityX, 0, size);
+        System.arraycopy(previous, 3 * size, state.velocityY, 0, size);
+        for (Spacecraft craft : world.fleet) {
+            int parentId = previousParents[craft.id];
+            world.setSpacecraftParent(craft, parentId == BodyStateStore.NO_PARENT ? null : state.bodies[parentId]);
+            int landedId = landedIds[craft.id];
+            craft.landedOn = landedId == BodyStateStore.NO_PARENT ? null : (Planet) state.bodies[landedId];
+            craft.landedX = landedX[craft.id];
+            craft.landedY = landedY[craft.id];
+        }
+        world.simulationTime = chunk.times[frame];
+        world.impacts.removeIf(impact -> impact.time > world.simulationTime);
+        if (world.planetRails == null) {
+            world.setPlanetsOnRails(false);
+        }
+        world.updateInfluenceRadii();
+        restoredChunk = chunk;
+        restoredFrame = frame;
+        return true;
+    }
+    /** Forget every recorded step. */
+    public void clear() {
+        chunks.clear();
+        memoryUsed = 0;
+        restoredChunk = null;
+    }
+    /** Decode a chunk's steps up to `frame` into `previous`, `beforePrevious` and `previousParents`. */
+    private void decode(Chunk chunk, int frame) {
+        int size = bodyCount;
+        int[] position = {0};
+        for (int index = 0; index < 4 * size; index++) {
+            previous[index] = Double.longBitsToDouble(readLong(chunk, position));
+        }
+        for (int id = 0; id < size; id++) {
+            previousParents[id] = readInt(chunk, position);
+        }
+        Arrays.fill(landedIds, 0, size, BodyStateStore.NO_PARENT);
+        readLandings(chunk, position);
+        for (int step = 1; step <= frame; step++) {
+            for (int index = 0; index < 4 * size; index++) {
+                double predicted = step > 1 ? 2 * previous[index] - beforePrevious[index] : previous[index];
+                beforePrevious[index] = previous[index];
+                previous[index] = Double.longBitsToDouble(Double.doubleToRawLongBits(predicted) ^ readDelta(chunk, position));
+            }
+            int changes = readInt(chunk, position);
+            for (int change = 0; change < changes; change++) {
+                int id = readInt(chunk, position);
+                previousParents[id] = readInt(chunk, position);
+            }
+            readLandings(chunk, position);
+        }
+    }
+    /** @return whether a spacecraft landed, took off or landed elsewhere since the newest recorded step. */
+    private boolean landingChanged(Spacecraft craft) {
+        int id = craft.id;
+        if (craft.landedOn == null) {
+            return landedIds[id] != BodyStateStore.NO_PARENT;
+        }
+        return craft.landedOn.id != landedIds[id] || craft.landedX != landedX[id] || craft.landedY != landedY[id];
+    }
+    /** Write a spacecraft's id and landing: the planet it rests on (or `NO_PARENT`) and its offset from it. */
+    private static void writeLanding(Chunk chunk, Spacecraft craft) {
+        writeInt(chunk, craft.id);
+        writeInt(chunk, craft.landedOn == null ? BodyStateStore.NO_PARENT : craft.landedOn.id);
+        writeLong(chunk, Double.doubleToRawLongBits(craft.landedX));
+        writeLong(chunk, Double.doubleToRawLongBits(craft.landedY));
+    }
+    /** Read a count of landings written by `writeLanding` into `landedIds`, `landedX` and `landedY`. */
+    private void readLandings(Chunk chunk, int[] position) {
+        int landings = readInt(chunk, position);
+        for (int landing = 0; landing < landings; landing++) {
+            int id = readInt(chunk, position);
+            landedIds[id] = readInt(chunk, position);
+            landedX[id] = Double.longBitsToDouble(readLong(chunk, position));
+            landedY[id] = Double.longBitsToDouble(readLong(chunk, position));
+        }
+    }
+    /** Drop every step after the most recently restored one, which becomes the newest. */
+    private void discardAfterRestored() {
+        int chunkIndex = chunks.indexOf(restoredChunk);
+        while (chunks.size() > chunkIndex + 1) {
+            memoryUsed -= chunks.remove(chunks.size() - 1).footprint();
+        }
+        Chunk chunk = restoredChunk;
+        if (restoredFrame + 1 < chunk.frames) {
+            chunk.length = chunk.offsets[restoredFrame + 1];
+            chunk.frames = restoredFrame + 1;
+        }
+        restoredChunk = null;
+    }
+    /** Release a finished chunk's unused capacity. */
+    private void trim(Chunk chunk) {
+        long footprint = chunk.footprint();
+        chunk.bytes = Arrays.copyOf(chunk.bytes, chunk.length);
+        chunk.times = Arrays.copyOf(chunk.times, chunk.frames);
+        chunk.offsets = Arrays.copyOf(chunk.offsets, chunk.frames);
+        memoryUsed += chunk.footprint() - footprint;
+    }
+    private static void gather(BodyStateStore state, double[] values) {
+        int size = state.size;
+        System.arraycopy(state.positionX, 0, values, 0, size);
+        System.arraycopy(state.positionY, 0, values, size, size);
+        System.arraycopy(state.velocityX, 0, values, 2 * size, size);
+        System.arraycopy(state.velocityY, 0, values, 3 * size, size);
+    }
+
+    private interface TimeAt {
+        double time(int index);
+    }
+    /** @return index of the last of `count` ascending times at or before `time`, or -1 if every time is later. */
+    private static int floorIndex(int count, TimeAt times, double time) {
+        int low = 0, high = count - 1, found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (times.time(middle) <= time) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Write an XOR delta as a header byte (leading zero bytes in the high nibble, trailing zero bytes in the low one)
+     * followed by the remaining bytes, most significant first. Unchanged values take a single byte.
+     * */
+    private static void writeDelta(Chunk chunk, long delta) {
+        if (delta == 0) {
+            writeByte(chunk, ZERO);
+            return;
+        }
+        int leading = Long.numberOfLeadingZeros(delta) / 8;
+        int trailing = Long.numberOfTrailingZeros(delta) / 8;
+        writeByte(chunk, leading << 4 | trailing);
+        for (int shift = (7 - leading) * 8; shift >= trailing * 8; shift -= 8) {
+            writeByte(chunk, (int) (delta >>> shift));
+        }
+    }
+    private static long readDelta(Chunk chunk, int[] position) {
+        int header = chunk.bytes[position[0]++] & 0xFF;
+        if (header == ZERO) {
+            return 0;
+        }
+        int leading = header >>> 4;
+        int trailing = header & 0xF;
+        long delta = 0;
+        for (int shift = (7 - leading) * 8; shift >= trailing * 8; shift -= 8) {
+            delta |= (long) (chunk.bytes[position[0]++] & 0xFF) << shift;
+        }
+        return delta;
+    }
+    private static void writeLong(Chunk chunk, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            writeByte(chunk, (int) (value >>> shift));
+        }
+    }
+    private static long readLong(Chunk chunk, int[] position) {
+        long value = 0;
+        for (int byteIndex = 0; byteIndex < 8; byteIndex++) {
+            value = value << 8 | (chunk.bytes[position[0]++] & 0xFF);
+        }
+        return value;
+    }
+    private static void writeInt(Chunk chunk, int value) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            writeByte(chunk, value >>> shift);
+        }
+    }
+    private static int readInt(Chunk chunk, int[] position) {
+        int value = 0;
+        for (int byteIndex = 0; byteIndex < 4; byteIndex++) {
+            value = value << 8 | (chunk.bytes[position[0]++] & 0xFF);
+        }
+        return value;
+    }
+    private static void writeByte(Chunk chunk, int value) {
+        if (chunk.length == chunk.bytes.length) {
+            chunk.bytes = Arrays.copyOf(chunk.bytes, chunk.bytes.length * 2);
+        }
+        chunk.bytes[chunk.length++] = (byte) value;
+    }
+}
@@ -19,8 +19,9 @@ public class Satellite extends RenderableEntity {
     public double orbitalRadius; // initial orbital radius around its parent satellite
     public double orbitalVelocity; // initial orbital (tangential) velocity relative to its parent satellite
     public double trueAnomaly; // angle representing the initial placement of the satellite within its orbit
-    public Deque<Coordinate> leadPositions; // deque containing predicted lead positions
-    public Deque<Coordinate> leadVelocities; // deque containing predicted lead velocities
+    public LeadBuffer lead; // predicted lead positions and velocities
+    public int id; // stable body id within the world's `BodyStateStore` (-1 until registered)
+    public BodyStateStore state; // store holding the satellite's position and velocity once registered
 
     public Satellite(Satellite parent, Color color, double mass, double orbitalRadius, double orbitalVelocity, double trueAnomaly) {
         super(0, 0, 0, 0, 0, 0);
@@ -28,24 +29,29 @@ public class Satellite extends RenderableEntity {
         this.orbitalRadius = orbitalRadius;
         this.orbitalVelocity = orbitalVelocity;
         this.trueAnomaly = trueAnomaly;
-        this.leadPositions = new ArrayDeque<>();
-        this.leadVelocities = new ArrayDeque<>();
+        this.lead = new LeadBuffer();
+        this.id = -1;
 
         this.parent = parent;
         this.color = color;
-        this.children = new HashSet<>();
+        this.children = Collections.emptySet(); // replaced once the first child is added; most satellites have none
         // cause parent to track satellite as one of its children
         if (parent != null) {
             parent.addChild(this);
         }
     }
     /**
-     * Set the velocity of the satellite by instantiating a new `Coordinate`.
+     * Set the velocity of the satellite, instantiating a new `Coordinate` if the satellite has none yet.
      * @param xVelocity satellite's velocity along the x-axis.
      * @param yVelocity satellite's velocity along the y-axis.
      * */
     public void setVelocity(double xVelocity, double yVelocity) {
-        this.velocity = new Coordinate(xVelocity, yVelocity);
+        if (velocity == null) {
+            this.velocity = new Coordinate(xVelocity, yVelocity);
+        } else {
+            velocity.setX(xVelocity);
+            velocity.setY(yVelocity);
+        }
     }
     /**
      * @return the satellite's current velocity `Coordinate`.
@@ -53,11 +59,26 @@ public class Satellite extends RenderableEntity {
     public Coordinate getVelocity() {
         return velocity;
     }
+    /**
+     * Turn the satellite into a thin view over its slot within a `BodyStateStore`.
+     * Called by the store once the satellite's current state has been copied in.
+     * @param store store now holding the satellite's state.
+     * @param id body id assigned by the store.
+     * */
+    public void bindState(BodyStateStore store, int id) {
+        this.state = store;
+        this.id = id;
+        this.position = new BodyStateStore.PositionView(store, id, position.getZ());
+        this.velocity = new BodyStateStore.VelocityView(store, id);
+    }
     /**
      * Track a specific `Satellite` as a child of the target.
      * @param satellite child `Satellite`.
      * */
     public void addChild(Satellite satellite) {
+        if (children.isEmpty()) {
+            children = new LinkedHashSet<>(children); // insertion ordered, so body ids are assigned deterministically
+        }
         children.add(satellite);
     }
     /**
@@ -68,30 +89,31 @@ public class Satellite extends RenderableEntity {
     }
     /**
      * Return an in-order traversal over the hierarchy of satellites, with the target satellite as the root.
+     * Walks the tree with an explicit stack of child iterators, so deep hierarchies can't overflow the call stack.
      * @param root `Satellite` at the root of the satellite hierarchy.
      * @return in-order traversal stored in a list.
      * */
     public List<Satellite> flattenSatelliteTree(Satellite root) {
         List<Satellite> resultList = new ArrayList<>();
-        flattenSatelliteTree(root, resultList);
-        return resultList;
-    }
-    private void flattenSatelliteTree(Satellite current, List<Satellite> resultList) {
-        resultList.add(current);
-        for (Satellite child : current.getChildren()) {
-            flattenSatelliteTree(child, resultList);
+        Deque<Iterator<Satellite>> pending = new ArrayDeque<>();
+        resultList.add(root);
+        pending.push(root.getChildren().iterator());
+        while (!pending.isEmpty()) {
+            Iterator<Satellite> children = pending.peek();
+            if (!children.hasNext()) {
+                pending.pop();
+                continue;
+            }
+            Satellite child = children.next();
+            resultList.add(child);
+            pending.push(child.getChildren().iterator());
         }
+        return resultList;
     }
     /**
-     * @return deque containing all lead position `Coordinate`s.
-     * */
-    public Deque<Coordinate> getLeadPositions() {
-        return leadPositions;
-    }
-    /**
-     * @return deque containing all lead velocity `Coordinate`s.
+     * @return buffer containing all predicted lead positions and velocities.
      * */
-    public Deque<Coordinate> getLeadVelocities() {
-        return leadVelocities;
+    public LeadBuffer getLead() {
+        return lead;
     }
 }
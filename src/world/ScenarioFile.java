@@ -0,0 +1,336 @@
+package world;
+
+import java.awt.Color;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Star systems described by files rather than code, in a text form for authoring and a compiled binary form for
+ * fast startup. Both are read as a stream of records, so building a world only holds the satellites themselves
+ * (plus a name table of the planets while parsing text), however many bodies the file describes.
+ * <p>
+ * Text files hold one record per line; blank lines and anything after `#` are ignored:
+ * <pre>
+ * planet &lt;name&gt; &lt;parent | -&gt; &lt;color&gt; &lt;radius&gt; &lt;mass&gt; [&lt;orbitalRadius&gt; &lt;orbitalVelocity&gt; &lt;trueAnomaly&gt;]
+ * craft &lt;parent&gt; &lt;color&gt; &lt;mass&gt; &lt;orbitalRadius&gt; &lt;orbitalVelocity&gt; &lt;trueAnomaly&gt;
+ * camera &lt;distance&gt; &lt;relativeDirection&gt;
+ * </pre>
+ * Units follow the `Planet` and `Spacecraft` constructors (km, kg, km/s, radians); an orbital velocity of 0 asks for
+ * a circular orbit. Parents are planet names and must be declared before their children, and exactly one planet has
+ * no parent (`-`): the simulation center. The first craft is the controlled spacecraft. Colors are `java.awt.Color`
+ * constant names (e.g. `ORANGE`) or `0xRRGGBB`.
+ * <p>
+ * `compile` turns a text file into the binary form, which `load` recognizes by its header: the same records with
+ * parents referenced by planet index, little-endian, with a fixed-width record per spacecraft.
+ * */
+public final class ScenarioFile {
+    public static final int MAGIC = 0x4E43534F; // "OSCN" in little-endian order
+    public static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32; // magic, version, planet count, craft count, camera distance, camera direction
+    private static final byte PLANET = 0;
+    private static final byte CRAFT = 1;
+    private static final int BATCH_BYTES = 1 << 16; // bytes buffered before each write while compiling
+    private static final double DEFAULT_CAMERA_DISTANCE = 10000;
+    private static final Map<String, Integer> COLOR_NAMES = Map.ofEntries(
+            Map.entry("WHITE", Color.WHITE.getRGB()), Map.entry("LIGHT_GRAY", Color.LIGHT_GRAY.getRGB()),
+            Map.entry("GRAY", Color.GRAY.getRGB()), Map.entry("DARK_GRAY", Color.DARK_GRAY.getRGB()),
+            Map.entry("BLACK", Color.BLACK.getRGB()), Map.entry("RED", Color.RED.getRGB()),
+            Map.entry("PINK", Color.PINK.getRGB()), Map.entry("ORANGE", Color.ORANGE.getRGB()),
+            Map.entry("YELLOW", Color.YELLOW.getRGB()), Map.entry("GREEN", Color.GREEN.getRGB()),
+            Map.entry("MAGENTA", Color.MAGENTA.getRGB()), Map.entry("CYAN", Color.CYAN.getRGB()),
+            Map.entry("BLUE", Color.BLUE.getRGB())
+    );
+
+    private ScenarioFile() {
+    }
+
+    /** Receives a scenario's records in file order. Parent indices count planets in declaration order. */
+    private interface RecordSink {
+        void planet(String name, int parentIndex, int rgb, double radius, double mass,
+                    double orbitalRadius, double orbitalVelocity, double trueAnomaly) throws IOException;
+        void craft(int parentIndex, int rgb, double mass, double orbitalRadius, double orbitalVelocity, double trueAnomaly) throws IOException;
+        void camera(double distance, double relativeDirection);
+    }
+
+    /**
+     * Build the world described by a scenario file, in either its text or its compiled form.
+     * @param path scenario file.
+     * @return initialized world with the camera following the controlled spacecraft.
+     * @throws IOException if the file can't be read or doesn't describe a valid scenario.
+     * */
+    public static World load(Path path) throws IOException {
+        WorldBuilder builder = new WorldBuilder();
+        if (isCompiled(path)) {
+            readBinary(path, builder);
+        } else {
+            readText(path, builder);
+        }
+        return builder.build(path);
+    }
+    /**
+     * Compile a text scenario into the binary form, streaming records from one file to the other.
+     * @param text text scenario file.
+     * @param binary file receiving the compiled scenario; replaced if it exists.
+     * @throws IOException if either file can't be accessed or the text isn't a valid scenario.
+     * */
+    public static void compile(Path text, Path binary) throws IOException {
+        try (FileChannel channel = FileChannel.open(binary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            BinaryWriter writer = new BinaryWriter(channel);
+            readText(text, writer);
+            writer.finish();
+        }
+    }
+    /** @return whether a file starts with the compiled scenario header. */
+    public static boolean isCompiled(Path path) throws IOException {
+        return WorldCheckpoint.startsWithMagic(path, MAGIC);
+    }
+
+    private static void readText(Path path, RecordSink sink) throws IOException {
+        Map<String, Integer> planetIndices = new HashMap<>();
+        List<String> fields = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                split(line, fields);
+                if (fields.isEmpty()) {
+                    continue;
+                }
+                try {
+                    switch (fields.get(0)) {
+                        case "planet" -> {
+                            expectFields(fields, 6, 9);
+                            String name = fields.get(1);
+                            int parentIndex = fields.get(2).equals("-") ? -1 : planetIndex(planetIndices, fields.get(2));
+                            if (planetIndices.putIfAbsent(name, planetIndices.size()) != null) {
+                                throw new IOException("duplicate planet " + name);
+                            }
+                            boolean orbits = fields.size() == 9;
+                            sink.planet(name, parentIndex, parseColor(fields.get(3)), number(fields, 4), number(fields, 5),
+                                    orbits ? number(fields, 6) : 0, orbits ? number(fields, 7) : 0, orbits ? number(fields, 8) : 0);
+                        }
+                        case "craft" -> {
+                            expectFields(fields, 7, 7);
+                            sink.craft(planetIndex(planetIndices, fields.get(1)), parseColor(fields.get(2)),
+                                    number(fields, 3), number(fields, 4), number(fields, 5), number(fields, 6));
+                        }
+                        case "camera" -> {
+                            expectFields(fields, 3, 3);
+                            sink.camera(number(fields, 1), number(fields, 2));
+                        }
+                        default -> throw new IOException("unknown record " + fields.get(0));
+                    }
+                } catch (IOException | NumberFormatException e) {
+                    throw new IOException(path + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+    /** Split a line into whitespace-separated fields, dropping any `#` comment. */
+    private static void split(String line, List<String> fields) {
+        fields.clear();
+        int length = line.indexOf('#');
+        length = length < 0 ? line.length() : length;
+        int start = -1;
+        for (int index = 0; index <= length; index++) {
+            boolean separator = index == length || Character.isWhitespace(line.charAt(index));
+            if (separator && start >= 0) {
+                fields.add(line.substring(start, index));
+                start = -1;
+            } else if (!separator && start < 0) {
+                start = index;
+            }
+        }
+    }
+    private static void expectFields(List<String> fields, int least, int most) throws IOException {
+        int values = fields.size();
+        if (values != least && values != most) {
+            String expected = least == most ? String.valueOf(least - 1) : (least - 1) + " or " + (most - 1);
+            throw new IOException(fields.get(0) + " expects " + expected + " values, got " + (values - 1));
+        }
+    }
+    private static double number(List<String> fields, int index) {
+        return Double.parseDouble(fields.get(index));
+    }
+    private static int planetIndex(Map<String, Integer> planetIndices, String name) throws IOException {
+        Integer index = planetIndices.get(name);
+        if (index == null) {
+            throw new IOException("unknown planet " + name + " (parents must be declared first)");
+        }
+        return index;
+    }
+    private static int parseColor(String color) throws IOException {
+        if (color.startsWith("0x") && color.length() == 8) {
+            return 0xFF000000 | Integer.parseInt(color.substring(2), 16);
+        }
+        Integer rgb = COLOR_NAMES.get(color);
+        if (rgb == null) {
+            throw new IOException("unknown color " + color);
+        }
+        return rgb;
+    }
+
+    private static void readBinary(Path path, RecordSink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            if (in.remaining() < HEADER_BYTES || in.getInt() != MAGIC) {
+                throw new IOException("Not a compiled scenario: " + path);
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported scenario version " + version + ": " + path);
+            }
+            long records = (long) in.getInt() + in.getInt();
+            sink.camera(in.getDouble(), in.getDouble());
+            int planetCount = 0;
+            try {
+                for (long record = 0; record < records; record++) {
+                    byte kind = in.get();
+                    int parentIndex = in.getInt();
+                    if (parentIndex >= planetCount || parentIndex < (kind == PLANET ? -1 : 0)) {
+                        throw new IOException("Record " + record + " has no parent planet " + parentIndex + ": " + path);
+                    }
+                    int rgb = in.getInt();
+                    if (kind == PLANET) {
+                        double radius = in.getDouble();
+                        double mass = in.getDouble();
+                        double orbitalRadius = in.getDouble();
+                        double orbitalVelocity = in.getDouble();
+                        double trueAnomaly = in.getDouble();
+                        byte[] name = new byte[in.getInt()];
+                        in.get(name);
+                        sink.planet(new String(name, StandardCharsets.UTF_8), parentIndex, rgb, radius, mass, orbitalRadius, orbitalVelocity, trueAnomaly);
+                        planetCount++;
+                    } else if (kind == CRAFT) {
+                        sink.craft(parentIndex, rgb, in.getDouble(), in.getDouble(), in.getDouble(), in.getDouble());
+                    } else {
+                        throw new IOException("Unknown record kind " + kind + ": " + path);
+                    }
+                }
+            } catch (RuntimeException e) {
+                // buffer underflow or a negative name length
+                throw new IOException("Truncated scenario: " + path, e);
+            }
+        }
+    }
+
+    /** Writes records in the binary form, patching the header's counts once every record is written. */
+    private static final class BinaryWriter implements RecordSink {
+        private final FileChannel channel;
+        private final ByteBuffer out = ByteBuffer.allocate(BATCH_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private int planetCount;
+        private int craftCount;
+        private double cameraDistance = DEFAULT_CAMERA_DISTANCE;
+        private double cameraDirection;
+
+        BinaryWriter(FileChannel channel) {
+            this.channel = channel;
+            out.position(HEADER_BYTES);
+        }
+        @Override
+        public void planet(String name, int parentIndex, int rgb, double radius, double mass,
+                           double orbitalRadius, double orbitalVelocity, double trueAnomaly) throws IOException {
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            reserve(1 + 4 + 4 + 5 * 8 + 4 + nameBytes.length);
+            out.put(PLANET).putInt(parentIndex).putInt(rgb);
+            out.putDouble(radius).putDouble(mass).putDouble(orbitalRadius).putDouble(orbitalVelocity).putDouble(trueAnomaly);
+            out.putInt(nameBytes.length).put(nameBytes);
+            planetCount++;
+        }
+        @Override
+        public void craft(int parentIndex, int rgb, double mass, double orbitalRadius, double orbitalVelocity, double trueAnomaly) throws IOException {
+            reserve(1 + 4 + 4 + 4 * 8);
+            out.put(CRAFT).putInt(parentIndex).putInt(rgb);
+            out.putDouble(mass).putDouble(orbitalRadius).putDouble(orbitalVelocity).putDouble(trueAnomaly);
+            craftCount++;
+        }
+        @Override
+        public void camera(double distance, double relativeDirection) {
+            cameraDistance = distance;
+            cameraDirection = relativeDirection;
+        }
+        /** Write out buffered records if fewer than `bytes` remain free. */
+        private void reserve(int bytes) throws IOException {
+            if (out.remaining() < bytes) {
+                drain();
+            }
+            if (out.remaining() < bytes) {
+                throw new IOException("Record of " + bytes + " bytes exceeds the write buffer");
+            }
+        }
+        private void drain() throws IOException {
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            out.clear();
+        }
+        void finish() throws IOException {
+            drain();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(planetCount).putInt(craftCount);
+            header.putDouble(cameraDistance).putDouble(cameraDirection).flip();
+            long position = 0;
+            while (header.hasRemaining()) {
+                position += channel.write(header, position);
+            }
+        }
+    }
+
+    /** Creates the satellites as their records arrive and assembles them into a world at the end. */
+    private static final class WorldBuilder implements RecordSink {
+        private final List<Planet> planets = new ArrayList<>();
+        private final Map<Integer, Color> colors = new HashMap<>(); // shared between satellites of the same color
+        private Planet center;
+        private Spacecraft controlled;
+        private double cameraDistance = DEFAULT_CAMERA_DISTANCE;
+        private double cameraDirection;
+
+        @Override
+        public void planet(String name, int parentIndex, int rgb, double radius, double mass,
+                           double orbitalRadius, double orbitalVelocity, double trueAnomaly) throws IOException {
+            Planet parent = parentIndex < 0 ? null : planets.get(parentIndex);
+            if (parent == null && center != null) {
+                throw new IOException("second simulation center " + name + " (only " + center.name + " may have no parent)");
+            }
+            Planet planet = new Planet(name, parent, color(rgb), radius, mass, orbitalRadius, orbitalVelocity, trueAnomaly);
+            planets.add(planet);
+            if (parent == null) {
+                center = planet;
+            }
+        }
+        @Override
+        public void craft(int parentIndex, int rgb, double mass, double orbitalRadius, double orbitalVelocity, double trueAnomaly) {
+            Spacecraft craft = new Spacecraft(planets.get(parentIndex), color(rgb), mass, orbitalRadius, orbitalVelocity, trueAnomaly);
+            if (controlled == null) {
+                controlled = craft;
+            }
+        }
+        @Override
+        public void camera(double distance, double relativeDirection) {
+            cameraDistance = distance;
+            cameraDirection = relativeDirection;
+        }
+        private Color color(int rgb) {
+            return colors.computeIfAbsent(rgb, Color::new);
+        }
+        World build(Path path) throws IOException {
+            if (center == null || controlled == null) {
+                throw new IOException("Scenario needs a planet without a parent and at least one craft: " + path);
+            }
+            return new World(center, controlled, new Camera(controlled, cameraDistance, cameraDirection));
+        }
+    }
+}
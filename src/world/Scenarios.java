@@ -0,0 +1,39 @@
+package world;
+
+import java.awt.Color;
+
+/**
+ * Factory methods for the predefined star systems.
+ * Colors come from `java.awt` so scenarios can be built without opening a display.
+ * */
+public class Scenarios {
+    /**
+     * Build the default two-planet system: Kerbin orbiting the Sun, with a spacecraft in a circular orbit around Kerbin.
+     * @return initialized world with the camera following the spacecraft.
+     * */
+    public static World sunKerbin() {
+        Planet sun = new Planet("Sun", Color.WHITE, 6378, 5.97 * Math.pow(10, 24));
+        Planet kerbin = new Planet("Kerbin", sun, Color.BLUE, 4737, 0.73 * Math.pow(10, 24), 0.384 * Math.pow(10, 6) / 5, 0, 0);
+        Spacecraft spacecraft = new Spacecraft(kerbin, Color.RED, 10, 7878, 0, Math.PI);
+        Camera camera = new Camera(spacecraft, 10000, 0);
+        return new World(sun, spacecraft, camera);
+    }
+    /**
+     * Build the default system with a constellation of additional spacecraft around Kerbin.
+     * Extra craft are spread over circular orbits between 7000 and 27000 km, with evenly spaced true anomalies.
+     * @param fleetSize number of additional spacecraft.
+     * @return initialized world with the camera following the controlled spacecraft.
+     * */
+    public static World sunKerbinFleet(int fleetSize) {
+        Planet sun = new Planet("Sun", Color.WHITE, 6378, 5.97 * Math.pow(10, 24));
+        Planet kerbin = new Planet("Kerbin", sun, Color.BLUE, 4737, 0.73 * Math.pow(10, 24), 0.384 * Math.pow(10, 6) / 5, 0, 0);
+        Spacecraft spacecraft = new Spacecraft(kerbin, Color.RED, 10, 7878, 0, Math.PI);
+        for (int craftIndex = 0; craftIndex < fleetSize; craftIndex++) {
+            double orbitalRadius = 7000 + 20000.0 * craftIndex / fleetSize;
+            double trueAnomaly = Math.TAU * ((craftIndex * 0.618033988749895) % 1);
+            new Spacecraft(kerbin, Color.ORANGE, 10, orbitalRadius, 0, trueAnomaly);
+        }
+        Camera camera = new Camera(spacecraft, 10000, 0);
+        return new World(sun, spacecraft, camera);
+    }
+}
@@ -9,10 +9,11 @@ import java.awt.*;
 
 public class Spacecraft extends Satellite {
     public double shipSize; // size to be displayed on the screen
+    public Planet landedOn; // planet the spacecraft rests on since hitting its surface, or null while flying
+    public double landedX, landedY; // spacecraft's offset from `landedOn` while resting on it (km)
     public Spacecraft(Satellite parent, Color color, double mass, double orbitalRadius, double orbitalVelocity, double trueAnomaly) {
         super(parent, color, mass, orbitalRadius, orbitalVelocity, trueAnomaly);
         this.shipSize = 1000;
-        createMesh();
     }
     /**
      * Engage the Spacecraft's thrust in a specific direction.
@@ -30,19 +31,22 @@ public class Spacecraft extends Satellite {
         velocity.shiftX(thrustMagnitude * Math.cos(craftDirection));
         velocity.shiftY(thrustMagnitude * Math.sin(craftDirection));
     }
-    /** @return distance between the spacecraft and the first lead position in the deque. */
+    /** @return distance between the spacecraft and the first lead position in the buffer. */
     public double distanceToFirstLead() {
-        Coordinate nextLeadPosition = getLeadPositions().getFirst();
-        return nextLeadPosition.distanceTo(getPosition());
+        Coordinate position = getPosition();
+        return Math.hypot(lead.x(0) - position.getX(), lead.y(0) - position.getY());
     }
 
     public double radius = 1000; // radius of the planet (km)
     public int numSlices = 24; // number of vertical slices around the sphere (n)
     public int numStacks = 12; // number of horizontal slices around the sphere (m)
 
-    /** Create a UV Sphere surface mesh according to the inputted number of slices/stacks. */
+    /** Create a UV Sphere surface mesh according to the inputted number of slices/stacks, around the origin. */
+    @Override
     public void createMesh() {
-        Coordinate planetPosition = getPosition();
+        // generated lazily, once the body has moved away from the origin, so vertices are placed around an unmoved copy
+        Entity origin = new Entity(0, 0, 0, pitch, yaw, roll);
+        Coordinate planetPosition = origin.getPosition();
         double xPosition = planetPosition.getX();
         double yPosition = planetPosition.getY();
         double zPosition = planetPosition.getZ();
@@ -67,11 +71,11 @@ public class Spacecraft extends Satellite {
 
             double x0 = distanceFromZAxis * Math.cos(theta);
             double y0 = distanceFromZAxis * Math.sin(theta);
-            Coordinate v0 = Transformations.rotateYaw(this, new Coordinate(x0, y0, z));
+            Coordinate v0 = Transformations.rotateYaw(origin, new Coordinate(x0, y0, z));
 
             double x1 = distanceFromZAxis * Math.cos(theta + sliceAngle);
             double y1 = distanceFromZAxis * Math.sin(theta + sliceAngle);
-            Coordinate v1 = Transformations.rotateYaw(this,new Coordinate(x1, y1, z));
+            Coordinate v1 = Transformations.rotateYaw(origin, new Coordinate(x1, y1, z));
 
             meshes.add(new Mesh(this, new Coordinate[]{top, v0, v1}, meshColor));
 
@@ -89,11 +93,11 @@ public class Spacecraft extends Satellite {
 
                 x0 = distanceFromZAxis * Math.cos(theta);
                 y0 = distanceFromZAxis * Math.sin(theta);
-                v0 = Transformations.rotateYaw(this, new Coordinate(x0, y0, z));
+                v0 = Transformations.rotateYaw(origin, new Coordinate(x0, y0, z));
 
                 x1 = xPosition + distanceFromZAxis * Math.cos(theta + sliceAngle);
                 y1 = yPosition + distanceFromZAxis * Math.sin(theta + sliceAngle);
-                v1 = Transformations.rotateYaw(this, new Coordinate(x1, y1, z));
+                v1 = Transformations.rotateYaw(origin, new Coordinate(x1, y1, z));
 
                 meshes.add(new Mesh(this, new Coordinate[]{previousV0, v0, v1, previousV1}, meshColor));
 
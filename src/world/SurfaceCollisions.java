@@ -0,0 +1,335 @@
+package world;
+
+import physics.ConicOrbit;
+
+import java.util.Arrays;
+
+/**
+ * Continuous collision detection between a spacecraft and planet surfaces.
+ * A spacecraft's path relative to a planet across a step is the cubic Hermite curve through the states at both ends,
+ * so a pass through a planet is caught even when both ends of the step lie outside it.
+ * The broad phase descends the planet hierarchy from its roots: a planet's surface, and those of every planet orbiting
+ * it, lie within its sphere of influence, so planets whose sphere the path's bounding box misses are skipped along with
+ * everything orbiting them, and a check only visits the planets near the path rather than every planet.
+ * Checking a whole fleet against many sibling planets would still test every sibling per spacecraft, so `sweepPlanets`
+ * places the boxes the planets sweep during a step into a `PlanetGrid`, and each spacecraft then only tests the planets
+ * sharing a cell with its own path's box.
+ * The hierarchy is captured on construction; results of the latest query are left in public fields, so each thread
+ * needs its own instance.
+ * */
+final class SurfaceCollisions {
+
+    public int impactedId = -1; // body id of the planet hit by the latest query, or -1
+    public double impactFraction; // fraction of the step at which the impact occurs
+    public double impactX, impactY; // spacecraft position relative to the planet at the impact (km)
+    public int testedPlanets; // number of planets the latest query tested for a crossing
+    final int size; // number of bodies captured
+
+    private final int[] roots; // body ids of the planets without a parent
+    final int[] childStart; // first index within `children` of each planet's children, by body id
+    final int[] children; // body ids of planets, grouped by parent
+    private final int[] parentIds;
+    private final double[] radius; // surface radius of each planet (km)
+    private final double[] influenceScale; // sphere of influence per unit distance from the parent
+    private final int[] planetIds; // body ids of every planet
+    private final PlanetGrid grid = new PlanetGrid();
+    private BodyStateStore sweptFrom, sweptTo; // step the grid was built for
+    private double sweptStepLength;
+    private double[] fromX, fromY, fromVx, fromVy; // scratch states of every body at both ends of a lead interval
+    private double[] toX, toY, toVx, toVy;
+    // state of the current query
+    private int craftId;
+    private double stepLength;
+    private double[] startX, startY, startVx, startVy, endX, endY, endVx, endVy;
+
+    /**
+     * Capture the planet hierarchy and radii of a store's bodies.
+     * @param state store whose `bodies` table holds the planets.
+     * */
+    SurfaceCollisions(BodyStateStore state) {
+        int size = state.size;
+        this.size = size;
+        this.parentIds = new int[size];
+        System.arraycopy(state.parentIds, 0, parentIds, 0, size);
+        this.radius = new double[size];
+        this.influenceScale = new double[size];
+        this.childStart = new int[size + 1];
+        this.planetIds = Arrays.copyOf(state.planetIds, state.planetCount);
+        int rootCount = 0;
+        for (int planetIndex = 0; planetIndex < state.planetCount; planetIndex++) {
+            int planetId = state.planetIds[planetIndex];
+            int parentId = parentIds[planetId];
+            radius[planetId] = ((Planet) state.bodies[planetId]).radius;
+            if (parentId == BodyStateStore.NO_PARENT) {
+                rootCount++;
+            } else {
+                influenceScale[planetId] = ConicOrbit.sphereOfInfluence(1, state.mass[planetId], state.mass[parentId]);
+                childStart[parentId + 1]++;
+            }
+        }
+        for (int id = 0; id < size; id++) {
+            childStart[id + 1] += childStart[id];
+        }
+        this.children = new int[childStart[size]];
+        this.roots = new int[rootCount];
+        int[] filled = new int[size];
+        rootCount = 0;
+        for (int planetIndex = 0; planetIndex < state.planetCount; planetIndex++) {
+            int planetId = state.planetIds[planetIndex];
+            int parentId = parentIds[planetId];
+            if (parentId == BodyStateStore.NO_PARENT) {
+                roots[rootCount++] = planetId;
+            } else {
+                children[childStart[parentId] + filled[parentId]++] = planetId;
+            }
+        }
+    }
+    /**
+     * Place the box each planet's surface sweeps during a step into the grid, so the `firstImpact` checks of a fleet
+     * across that step only test the planets near each spacecraft.
+     * @param from state store holding every body at the start of the step.
+     * @param to state store holding every body at the end of the step.
+     * @param stepLength length of the step (s).
+     * */
+    void sweepPlanets(BodyStateStore from, BodyStateStore to, double stepLength) {
+        grid.sweep(planetIds, planetIds.length, from, to, stepLength, radius);
+        sweptFrom = from;
+        sweptTo = to;
+        sweptStepLength = stepLength;
+    }
+    /**
+     * Find the first planet surface a spacecraft crosses during a step. Planets the spacecraft starts inside are
+     * ignored; landed spacecraft are expected to be left out by the caller.
+     * After `sweepPlanets` for the same step, only the planets sharing a grid cell with the spacecraft are tested.
+     * @param craftId body id of the spacecraft.
+     * @param from state store (or `World.stepStart`) holding every body at the start of the step.
+     * @param to state store holding every body at the end of the step.
+     * @param stepLength length of the step (s).
+     * @return whether a surface is crossed; if so `impactedId`, `impactFraction`, `impactX` and `impactY` describe it.
+     * */
+    boolean firstImpact(int craftId, BodyStateStore from, BodyStateStore to, double stepLength) {
+        if (from != sweptFrom || to != sweptTo || stepLength != sweptStepLength) {
+            return firstImpact(craftId, from.positionX, from.positionY, from.velocityX, from.velocityY,
+                    to.positionX, to.positionY, to.velocityX, to.velocityY, stepLength);
+        }
+        startQuery(craftId, from.positionX, from.positionY, from.velocityX, from.velocityY,
+                to.positionX, to.positionY, to.velocityX, to.velocityY, stepLength);
+        int count = grid.queryPath(craftId, from, to, stepLength);
+        if (count == PlanetGrid.TOO_LARGE) {
+            // a path spanning many cells is better served by the hierarchy
+            for (int root : roots) {
+                visit(root);
+            }
+        } else {
+            for (int index = 0; index < count; index++) {
+                surfaceCrossing(grid.candidates[index]);
+            }
+        }
+        return impactedId >= 0;
+    }
+    /**
+     * Find the first planet surface a spacecraft crosses during a lead interval, reading the planets from an ephemeris.
+     * @param fromState spacecraft's (x, y, vx, vy) at the start of the interval.
+     * @param toState spacecraft's (x, y, vx, vy) at the end of the interval.
+     * @return whether a surface is crossed, as in `firstImpact`.
+     * */
+    boolean leadImpact(PlanetEphemeris ephemeris, int craftId, double fromTime, double[] fromState, double toTime, double[] toState) {
+        if (fromX == null || fromX.length < parentIds.length) {
+            int size = parentIds.length;
+            fromX = new double[size];
+            fromY = new double[size];
+            fromVx = new double[size];
+            fromVy = new double[size];
+            toX = new double[size];
+            toY = new double[size];
+            toVx = new double[size];
+            toVy = new double[size];
+        }
+        ephemeris.statesAt(fromTime, fromX, fromY, fromVx, fromVy);
+        ephemeris.statesAt(toTime, toX, toY, toVx, toVy);
+        fromX[craftId] = fromState[0];
+        fromY[craftId] = fromState[1];
+        fromVx[craftId] = fromState[2];
+        fromVy[craftId] = fromState[3];
+        toX[craftId] = toState[0];
+        toY[craftId] = toState[1];
+        toVx[craftId] = toState[2];
+        toVy[craftId] = toState[3];
+        return firstImpact(craftId, fromX, fromY, fromVx, fromVy, toX, toY, toVx, toVy, toTime - fromTime);
+    }
+    /**
+     * Find the first planet surface a spacecraft crosses, with every body's state at both ends given by scratch arrays.
+     * @return whether a surface is crossed, as in `firstImpact`.
+     * */
+    boolean firstImpact(int craftId, double[] startX, double[] startY, double[] startVx, double[] startVy,
+                        double[] endX, double[] endY, double[] endVx, double[] endVy, double stepLength) {
+        startQuery(craftId, startX, startY, startVx, startVy, endX, endY, endVx, endVy, stepLength);
+        for (int root : roots) {
+            visit(root);
+        }
+        return impactedId >= 0;
+    }
+    private void startQuery(int craftId, double[] startX, double[] startY, double[] startVx, double[] startVy,
+                            double[] endX, double[] endY, double[] endVx, double[] endVy, double stepLength) {
+        this.craftId = craftId;
+        this.stepLength = stepLength;
+        this.startX = startX;
+        this.startY = startY;
+        this.startVx = startVx;
+        this.startVy = startVy;
+        this.endX = endX;
+        this.endY = endY;
+        this.endVx = endVx;
+        this.endVy = endVy;
+        impactedId = -1;
+        testedPlanets = 0;
+    }
+    /** Test a planet's surface, then descend into the planets orbiting it whose spheres of influence the path nears. */
+    private void visit(int planetId) {
+        surfaceCrossing(planetId);
+        for (int index = childStart[planetId]; index < childStart[planetId + 1]; index++) {
+            int childId = children[index];
+            // compared squared, sparing a square root per planet
+            double parentDistanceSquared = Math.max(
+                    lengthSquared(startX[childId] - startX[planetId], startY[childId] - startY[planetId]),
+                    lengthSquared(endX[childId] - endX[planetId], endY[childId] - endY[planetId]));
+            double boundSquared = Math.max(radius[childId] * radius[childId],
+                    influenceScale[childId] * influenceScale[childId] * parentDistanceSquared);
+            if (pathDistanceSquared(childId) <= boundSquared) {
+                visit(childId);
+            }
+        }
+    }
+    /**
+     * Lower bound on the squared distance between the planet and the spacecraft's path relative to it: the Hermite
+     * curve lies within the convex hull of its Bezier control points, so the distance to their bounding box never
+     * exceeds it.
+     * */
+    private double pathDistanceSquared(int planetId) {
+        double x0 = startX[craftId] - startX[planetId], y0 = startY[craftId] - startY[planetId];
+        double x3 = endX[craftId] - endX[planetId], y3 = endY[craftId] - endY[planetId];
+        double x1 = x0 + (startVx[craftId] - startVx[planetId]) * stepLength / 3;
+        double y1 = y0 + (startVy[craftId] - startVy[planetId]) * stepLength / 3;
+        double x2 = x3 - (endVx[craftId] - endVx[planetId]) * stepLength / 3;
+        double y2 = y3 - (endVy[craftId] - endVy[planetId]) * stepLength / 3;
+        double minX = Math.min(Math.min(x0, x1), Math.min(x2, x3)), maxX = Math.max(Math.max(x0, x1), Math.max(x2, x3));
+        double minY = Math.min(Math.min(y0, y1), Math.min(y2, y3)), maxY = Math.max(Math.max(y0, y1), Math.max(y2, y3));
+        return lengthSquared(Math.max(0, Math.max(minX, -maxX)), Math.max(0, Math.max(minY, -maxY)));
+    }
+    /**
+     * Find when the spacecraft's path first enters a planet's surface, keeping it if it's the earliest impact so far.
+     * The path is sampled for a point inside; if none is, the closest sample's neighborhood is searched for a
+     * minimum inside, which catches a path that passes straight through a small planet between samples.
+     * The entry is then refined by bisection.
+     * */
+    private void surfaceCrossing(int planetId) {
+        testedPlanets++;
+        double r = radius[planetId];
+        double x0 = startX[craftId] - startX[planetId], y0 = startY[craftId] - startY[planetId];
+        if (lengthSquared(x0, y0) < r * r || pathDistanceSquared(planetId) > r * r) {
+            return;
+        }
+        double vx0 = (startVx[craftId] - startVx[planetId]) * stepLength, vy0 = (startVy[craftId] - startVy[planetId]) * stepLength;
+        double x1 = endX[craftId] - endX[planetId], y1 = endY[craftId] - endY[planetId];
+        double vx1 = (endVx[craftId] - endVx[planetId]) * stepLength, vy1 = (endVy[craftId] - endVy[planetId]) * stepLength;
+        double inside = -1; // a fraction of the step at which the path is inside the surface
+        double outside = 0; // an earlier fraction at which it's still outside
+        double closest = Double.POSITIVE_INFINITY;
+        int closestSample = 0;
+        for (int sample = 1; sample <= World.EVENT_SAMPLES; sample++) {
+            double s = (double) sample / World.EVENT_SAMPLES;
+            double distance = World.hermiteDistance(s, x0, y0, vx0, vy0, x1, y1, vx1, vy1);
+            if (distance < r) {
+                inside = s;
+                outside = (double) (sample - 1) / World.EVENT_SAMPLES;
+                break;
+            }
+            if (distance < closest) {
+                closest = distance;
+                closestSample = sample;
+            }
+        }
+        if (inside < 0) {
+            // golden-section search for the minimum around the closest sample
+            double lower = (closestSample - 1.0) / World.EVENT_SAMPLES;
+            double upper = Math.min(1, (closestSample + 1.0) / World.EVENT_SAMPLES);
+            double ratio = (Math.sqrt(5) - 1) / 2;
+            for (int iteration = 0; iteration < World.EVENT_BISECTIONS; iteration++) {
+                double left = upper - ratio * (upper - lower), right = lower + ratio * (upper - lower);
+                if (World.hermiteDistance(left, x0, y0, vx0, vy0, x1, y1, vx1, vy1)
+                        < World.hermiteDistance(right, x0, y0, vx0, vy0, x1, y1, vx1, vy1)) {
+                    upper = right;
+                } else {
+                    lower = left;
+                }
+            }
+            double minimum = (lower + upper) / 2;
+            // negated, so a path that isn't finite never counts as inside
+            if (!(World.hermiteDistance(minimum, x0, y0, vx0, vy0, x1, y1, vx1, vy1) < r)) {
+                return;
+            }
+            inside = minimum;
+            outside = (closestSample - 1.0) / World.EVENT_SAMPLES;
+        }
+        if (impactedId >= 0 && outside >= impactFraction) {
+            return;
+        }
+        // bisect, keeping the upper bound inside the surface
+        for (int bisection = 0; bisection < World.EVENT_BISECTIONS; bisection++) {
+            double middle = (outside + inside) / 2;
+            if (World.hermiteDistance(middle, x0, y0, vx0, vy0, x1, y1, vx1, vy1) < r) {
+                inside = middle;
+            } else {
+                outside = middle;
+            }
+        }
+        if (impactedId >= 0 && inside >= impactFraction) {
+            return;
+        }
+        double s = inside, s2 = s * s, s3 = s2 * s;
+        double h00 = 2 * s3 - 3 * s2 + 1, h10 = s3 - 2 * s2 + s, h01 = -2 * s3 + 3 * s2, h11 = s3 - s2;
+        impactedId = planetId;
+        impactFraction = inside;
+        impactX = h00 * x0 + h10 * vx0 + h01 * x1 + h11 * vx1;
+        impactY = h00 * y0 + h10 * vy0 + h01 * y1 + h11 * vy1;
+    }
+    /**
+     * Find a planet whose surface contains a point, descending the hierarchy as `firstImpact` does.
+     * @param positionX x-position of each body (km); may be scratch positions rather than a store's.
+     * @param positionY y-position of each body (km).
+     * @return body id of the planet, or -1.
+     * */
+    int planetContaining(double x, double y, double[] positionX, double[] positionY) {
+        for (int root : roots) {
+            int planetId = planetContaining(root, x, y, positionX, positionY);
+            if (planetId >= 0) {
+                return planetId;
+            }
+        }
+        return -1;
+    }
+    private int planetContaining(int planetId, double x, double y, double[] positionX, double[] positionY) {
+        if (lengthSquared(x - positionX[planetId], y - positionY[planetId]) < radius[planetId] * radius[planetId]) {
+            return planetId;
+        }
+        for (int index = childStart[planetId]; index < childStart[planetId + 1]; index++) {
+            int childId = children[index];
+            double boundSquared = Math.max(radius[childId] * radius[childId], influenceScale[childId] * influenceScale[childId]
+                    * lengthSquared(positionX[childId] - positionX[planetId], positionY[childId] - positionY[planetId]));
+            if (lengthSquared(x - positionX[childId], y - positionY[childId]) <= boundSquared) {
+                int found = planetContaining(childId, x, y, positionX, positionY);
+                if (found >= 0) {
+                    return found;
+                }
+            }
+        }
+        return -1;
+    }
+    private static double lengthSquared(double x, double y) {
+        return x * x + y * y;
+    }
+    /** @return surface radius of a planet (km). */
+    double radiusOf(int planetId) {
+        return radius[planetId];
+    }
+}
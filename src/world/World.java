@@ -1,24 +1,79 @@
 package world;
 
+import physics.*;
 import util.Coordinate;
 
 import java.util.*;
 
 public class World {
+    private static final int MAX_SEGMENT_EVENTS = 16; // most sphere of influence crossings resolved within one propagator step
+    static final int EVENT_SAMPLES = 16; // points per step searched for a sign change before bisecting
+    static final int EVENT_BISECTIONS = 40; // bisections refining a crossing time
+    private static final double NO_EVENT = -1;
     public double G = 6.67408 * Math.pow(10, -11);
     public Set<Satellite> satellites;
     public Set<Planet> planets;
     public List<Satellite> orderedSatellites;
     public Satellite simulationCenter;
-    public Spacecraft spacecraft;
+    public Spacecraft spacecraft; // spacecraft that is controlled and whose lead is calculated
+    public List<Spacecraft> fleet; // every spacecraft within the world, including the controlled one
     public Camera camera;
+    public BodyStateStore state; // primitive position/velocity/mass arrays backing every satellite
+    public double simulationTime; // simulated seconds elapsed since the world was initialized
+    public long leadVersion; // incremented whenever any lead buffer changes, so snapshots can reuse unchanged leads
+    public long leadEpoch; // epoch of the most recently installed lead prediction
+    public List<EncounterEvent> encounters = List.of(); // events along the installed spacecraft lead, in time order
+    public List<ImpactEvent> impacts = new ArrayList<>(); // every spacecraft impact so far, in time order
+    public AccelerationModel gravity; // gravity acting on the bodies, shared by the main and lead steps
+    public Integrator integrator; // integrator used to advance the world
+    public MultiRateStepper multiRate; // sub-cycles spacecraft within long steps, or null to advance everything with the `integrator`
+    public Integrator leadIntegrator; // integrator used to advance the planet ephemeris while planets aren't on rails
+    public DormandPrince leadPropagator; // adaptive propagator used to advance the spacecraft's lead
+    public PlanetEphemeris ephemeris; // planet states shared by the live step and every prediction
+    public KeplerianOrbits planetRails; // closed-form planet orbits while planets are on rails, or null while they're integrated
+    double leadStartTime; // time of the first position within every lead (s)
+    double leadInterval; // time between consecutive lead positions (s)
+    double craftLeadTime; // time of the spacecraft's newest lead position (s)
+    int planetLeadSize; // number of positions within every planet lead
+    public double craftLeadShift; // distance the spacecraft lead was re-anchored by since it was last replaced (km)
+    private double[] leadPositionX = new double[0]; // scratch states for spacecraft lead gravity evaluations and planet lead samples
+    private double[] leadPositionY = new double[0];
+    private double[] leadVelocityX = new double[0];
+    private double[] leadVelocityY = new double[0];
+    private final double[] leadSample = new double[4];
+    private final double[] predictedPosition = new double[2]; // spacecraft position interpolated from its lead (km)
+    private final DormandPrince.AccelerationField craftLeadField = this::craftLeadAcceleration;
+    private final BodyStateStore stepStart = new BodyStateStore(16); // state at the start of the current step, for its events
+    private double[] influenceRadius = new double[0]; // sphere of influence of each planet (km)
+    private double[] influenceScale = new double[0]; // sphere of influence of each planet per km of distance to its parent
+    private SurfaceCollisions collisions; // planet hierarchy and radii for impact checks, rebuilt when bodies change
+    private final PlanetGrid influenceGrid = new PlanetGrid(); // spheres of influence swept during the current step
+    private final DormandPrince eventPropagator = new DormandPrince(0.0001, 0.001, 3600); // re-propagates a spacecraft with events
+    private final DormandPrince.AccelerationField eventField = this::eventAcceleration;
+    private int eventCraftId; // spacecraft being re-propagated by `eventPropagator`
+    private double[] eventPositionX = new double[0], eventPositionY = new double[0]; // scratch positions for its gravity
+    // scratch states of every body at both ends of a propagator step
+    private double[] segmentStartX = new double[0], segmentStartY, segmentStartVx, segmentStartVy;
+    private double[] segmentEndX, segmentEndY, segmentEndVx, segmentEndVy;
+    private final double[] craftState = new double[4];
+    private final double[] planetState = new double[4];
+    private final double[] leadPreviousSample = new double[4];
     public World(Satellite center, Spacecraft spacecraft, Camera camera) {
         this.simulationCenter = center;
         this.spacecraft = spacecraft;
         this.camera = camera;
         this.satellites = new HashSet<>();
         this.planets = new HashSet<>();
+        this.fleet = new ArrayList<>();
+        this.state = new BodyStateStore(16);
+        this.gravity = GravityModel.create(G);
+        this.integrator = new VelocityVerlet();
+        this.leadIntegrator = new Yoshida4();
+        this.leadPropagator = new DormandPrince(0.0001, 0.001, 3600);
+        this.ephemeris = new PlanetEphemeris(60, 256, 32);
         initializeWorld();
+        ephemeris.useIntegration(state, simulationTime, leadIntegrator, gravity);
+        updateInfluenceRadii();
     }
     /**
      * Initialize world by placing all satellites withing their orbits, and calculating their corresponding orbital velocities.
@@ -27,8 +82,10 @@ public class World {
         // simulation center will remain unmoving at the center of the simulation
         simulationCenter.setPosition(0, 0);
         simulationCenter.setVelocity(0, 0);
-        insertSatellite(simulationCenter);
         setOrderedSatelliteList(simulationCenter);
+        // sized up front, so large systems don't rehash while their satellites are inserted
+        satellites = HashSet.newHashSet(orderedSatellites.size());
+        insertSatellite(simulationCenter);
         // iterate through each child of the center satellite and initialize their movement quantities.
         for (int childIndex = 1; childIndex < orderedSatellites.size(); childIndex++) {
             Satellite child = orderedSatellites.get(childIndex);
@@ -70,12 +127,16 @@ public class World {
     }
     /**
      * Declare satellite as a trackable and renderable entity within the world.
+     * Registers the satellite with the body state store, which assigns its body id.
      * */
     public void insertSatellite(Satellite satellite) {
         if (satellite instanceof Planet planet) {
             planets.add(planet);
+        } else if (satellite instanceof Spacecraft craft) {
+            fleet.add(craft);
         }
         satellites.add(satellite);
+        state.register(satellite);
     }
     /**
      * Return the satellite at the center of the simulation.
@@ -100,210 +161,720 @@ public class World {
         return this.orderedSatellites;
     }
     /**
-     * Update all planet movement that occurs during a specified `timeStep` interval.
-     * Gravity calculations only occur relative to their parent to avoid chaotic simulations.
+     * Advance the whole world by one `timeStep` interval using the main `integrator`.
+     * Each spacecraft whose path across the step crosses a sphere of influence or a planet's surface is then
+     * re-propagated alone from the step's start by `resolveEvents`, which finds its events in order, however many
+     * the step holds, and lands it at an impact; every other body keeps the integrated step. Even a spacecraft
+     * passing straight through a planet, or entering and leaving a sphere of influence, within one step is caught.
+     * With a `multiRate` stepper, spacecraft are instead sub-cycled through the step while planets take it whole.
      * @param timeStep length of the time interval during which movement occurs (seconds).
+     * @return whether the controlled spacecraft's parent changed or it landed, either of which invalidates its lead.
      * */
-    public void updatePlanetMovement(double timeStep) {
-        for (int index = 1; index < orderedSatellites.size(); index++) {
-            if (orderedSatellites.get(index) instanceof Planet planet) {
-//                System.out.println(planet.name + ": " + planet.getPosition().getX() + ", " + planet.getPosition().getY() + ", " + + planet.getPosition().getZ());
-                Coordinate planetPosition = planet.getPosition();
-                Coordinate parentPosition = planet.parent.getPosition();
-
-                // calculate the resulting acceleration that occurs in each direction
-                double distanceToParent = parentPosition.distanceTo(planetPosition);
-                double angle = parentPosition.angleBetween(planetPosition);
-                double forceGravity = ((G * planet.mass * planet.parent.mass) / Math.pow(1000 * distanceToParent, 2)) / 1000;
-                double xAcceleration = (forceGravity * -Math.cos(angle)) / planet.mass;
-                double yAcceleration = (forceGravity * -Math.sin(angle)) / planet.mass;
-
-                // shift the planet's position and velocity during the given timeStep interval
-                Coordinate planetVelocity = planet.getVelocity();
-                planetVelocity.shiftX(xAcceleration * timeStep);
-                planetVelocity.shiftY(yAcceleration * timeStep);
-                planetPosition.shiftX(planetVelocity.getX() * timeStep);
-                planetPosition.shiftY(planetVelocity.getY() * timeStep);
+    public boolean step(double timeStep) {
+        releaseLaunchedSpacecraft();
+        if (multiRate != null) {
+            boolean parentChanged = multiRate.step(this, timeStep);
+            pinLandedSpacecraft();
+            return parentChanged;
+        }
+        double startTime = simulationTime;
+        stepStart.copyMotionFrom(state);
+        advance(timeStep);
+        // only the planets near each spacecraft's path are tested, from grids of the surfaces and spheres swept
+        SurfaceCollisions collisions = collisions();
+        collisions.sweepPlanets(stepStart, state, timeStep);
+        influenceGrid.sweep(state.planetIds, state.planetCount, stepStart, state, timeStep, influenceRadius);
+        int impactCount = impacts.size();
+        boolean parentChanged = false;
+        for (Spacecraft craft : fleet) {
+            int craftId = craft.id;
+            if (craft.landedOn == null && (crossesInfluence(craftId, timeStep)
+                    || collisions.firstImpact(craftId, stepStart, state, timeStep))) {
+                parentChanged |= resolveEvents(craft, startTime, timeStep) && craft == spacecraft;
             }
         }
+        if (impacts.size() - impactCount > 1) {
+            impacts.subList(impactCount, impacts.size()).sort(Comparator.comparingDouble(impact -> impact.time));
+        }
+        pinLandedSpacecraft();
+        return updateSpacecraftParents() | parentChanged;
+    }
+    /** Integrate the bodies by `timeStep`, then place the planets on the shared ephemeris. */
+    private void advance(double timeStep) {
+        integrator.step(state, gravity, timeStep);
+        simulationTime += timeStep;
+        // planets follow the shared ephemeris; the integrated planet states only served the step's intermediate stages
+        ephemeris.statesAt(simulationTime, state.positionX, state.positionY, state.velocityX, state.velocityY);
+        updateInfluenceRadii();
+        pinLandedSpacecraft();
     }
     /**
-     * Update spacecraft movement that occurs during a specified `timeStep` interval.
-     * Gravity is calculated between every satellite withing the simulation.
-     * @param timeStep length of the time interval during which movement occurs (seconds).
+     * Switch planets between numerical integration and closed-form Keplerian orbits.
+     * Orbits are captured from the planets' current states, so switching on doesn't cause a jump.
+     * Either way the ephemeris is restarted from the current states.
+     * @param onRails whether planets should follow closed-form orbits.
      * */
-    public boolean updateSpacecraftMovement(double timeStep) {
-        Coordinate spacecraftPosition = spacecraft.getPosition();
-
-        double netXForce = 0;
-        double netYForce = 0;
-
-        Planet strongestInfluence = (Planet) simulationCenter;
-        double strongestGravity = 0;
-        for (Planet planet : planets) {
-            Coordinate planetPosition = planet.getPosition();
-            // calculate the net force of gravity caused by each planet in the simulation
-            double distanceToParent = planetPosition.distanceTo(spacecraftPosition);
-            double angle = planetPosition.angleBetween(spacecraftPosition);
-            double forceGravity = ((G * spacecraft.mass * planet.mass) / Math.pow(1000 * distanceToParent, 2)) / 1000;
-            netXForce += forceGravity * -Math.cos(angle);
-            netYForce += forceGravity * -Math.sin(angle);
-
-            // determine the strongest source of gravity acting upon the spacecraft
-            if (forceGravity > strongestGravity) {
-                strongestInfluence = planet;
-                strongestGravity = forceGravity;
+    public void setPlanetsOnRails(boolean onRails) {
+        if (onRails) {
+            planetRails = new KeplerianOrbits(state, G, simulationTime);
+            ephemeris.useOrbits(state, planetRails, simulationTime);
+        } else {
+            planetRails = null;
+            ephemeris.useIntegration(state, simulationTime, leadIntegrator, gravity);
+        }
+    }
+    /**
+     * Update the parent of every spacecraft within the fleet after a step.
+     * @return whether the controlled spacecraft's parent changed.
+     * */
+    public boolean updateSpacecraftParents() {
+        boolean controlledParentChanged = false;
+        for (Spacecraft craft : fleet) {
+            boolean parentChanged = updateSpacecraftParent(craft);
+            if (craft == spacecraft) {
+                controlledParentChanged = parentChanged;
             }
         }
-        // shift the spacecraft's position and velocity during the given timeStep interval
-        Coordinate spacecraftVelocity = spacecraft.getVelocity();
-        spacecraftVelocity.shiftX((netXForce / spacecraft.mass) * timeStep);
-        spacecraftVelocity.shiftY((netYForce / spacecraft.mass) * timeStep);
-        spacecraftPosition.shiftX(spacecraftVelocity.getX() * timeStep);
-        spacecraftPosition.shiftY(spacecraftVelocity.getY() * timeStep);
-
-        // calculate the spacecraft's velocity relative to its strongest influence (parent)
-        double relativeVelocity = spacecraftVelocity.distanceTo(strongestInfluence.getVelocity());
-        double distanceToStrongest = spacecraft.getPosition().distanceTo(strongestInfluence.getPosition());
-        // determine the escape velocity required to escape the strongest influence's gravitational influence
-        double escapeVelocity = Math.sqrt(2 * G * strongestInfluence.mass / (distanceToStrongest * 1000)) / 1000;
-        boolean recalculateLead = false;
-        // determine whether the spacecraft is escaping its parent's gravitational influence
-        if (spacecraft.parent != null && relativeVelocity >= escapeVelocity) {
-            spacecraft.parent = null;
-            recalculateLead = true;
-        // determine whether the planet is entering a stable orbit around a new planet
-        } else if (spacecraft.parent == null && relativeVelocity < escapeVelocity) {
-            spacecraft.parent = strongestInfluence;
-            recalculateLead = true;
-        }
-        return recalculateLead;
+        return controlledParentChanged;
+    }
+    /**
+     * Decide which satellite a spacecraft orbits after a step.
+     * Patched-conic rule: the parent is the deepest planet whose sphere of influence contains the spacecraft,
+     * descending from the simulation center, whose sphere of influence is unbounded.
+     * @return whether the spacecraft's parent changed.
+     * */
+    public boolean updateSpacecraftParent(Spacecraft spacecraft) {
+        int craftId = spacecraft.id;
+        int parentId = deepestInfluence(state.positionX[craftId], state.positionY[craftId], state.positionX, state.positionY);
+        if (spacecraft.parent == state.bodies[parentId]) {
+            return false;
+        }
+        setSpacecraftParent(spacecraft, state.bodies[parentId]);
+        return true;
+    }
+    /**
+     * Find the deepest planet whose sphere of influence contains a point, descending from the simulation center
+     * through the planet hierarchy, so each level only checks the planets orbiting the last one found.
+     * @param positionX x-position of each body (km); may be scratch positions rather than `state.positionX`.
+     * @param positionY y-position of each body (km).
+     * @return body id of the planet.
+     * */
+    int deepestInfluence(double x, double y, double[] positionX, double[] positionY) {
+        SurfaceCollisions hierarchy = collisions();
+        int parentId = simulationCenter.id;
+        boolean descended = true;
+        while (descended) {
+            descended = false;
+            for (int index = hierarchy.childStart[parentId]; index < hierarchy.childStart[parentId + 1]; index++) {
+                int planetId = hierarchy.children[index];
+                double deltaX = x - positionX[planetId];
+                double deltaY = y - positionY[planetId];
+                if (deltaX * deltaX + deltaY * deltaY < influenceRadius[planetId] * influenceRadius[planetId]) {
+                    parentId = planetId;
+                    descended = true;
+                    break;
+                }
+            }
+        }
+        return parentId;
+    }
+    /**
+     * Re-derive everything cached from body masses after changing some in `state.mass`: spheres of influence and
+     * the planet ephemeris, which is restarted from the current states in its current mode.
+     * */
+    public void updateMasses() {
+        for (int id = 0; id < state.size; id++) {
+            state.bodies[id].mass = state.mass[id];
+        }
+        // forces the mass ratio terms to be evaluated again
+        influenceRadius = new double[0];
+        collisions = null;
+        setPlanetsOnRails(planetRails != null);
+        updateInfluenceRadii();
+    }
+    /** Recompute the sphere of influence of every planet from its current distance to its parent. */
+    void updateInfluenceRadii() {
+        if (influenceRadius.length < state.size) {
+            influenceRadius = new double[state.positionX.length];
+            influenceScale = new double[state.positionX.length];
+            // the mass ratio term only changes with the masses, so it's evaluated again only after `updateMasses`
+            for (int planetIndex = 0; planetIndex < state.planetCount; planetIndex++) {
+                int planetId = state.planetIds[planetIndex];
+                int parentId = state.parentIds[planetId];
+                influenceScale[planetId] = parentId == BodyStateStore.NO_PARENT ? Double.POSITIVE_INFINITY
+                        : ConicOrbit.sphereOfInfluence(1, state.mass[planetId], state.mass[parentId]);
+            }
+        }
+        for (int planetIndex = 0; planetIndex < state.planetCount; planetIndex++) {
+            int planetId = state.planetIds[planetIndex];
+            int parentId = state.parentIds[planetId];
+            influenceRadius[planetId] = parentId == BodyStateStore.NO_PARENT ? Double.POSITIVE_INFINITY
+                    : influenceScale[planetId] * distanceBetween(planetId, parentId);
+        }
+    }
+    private double distanceBetween(int id, int otherId) {
+        double deltaX = state.positionX[id] - state.positionX[otherId];
+        double deltaY = state.positionY[id] - state.positionY[otherId];
+        return Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+    }
+    /**
+     * Check whether a spacecraft's path across the step that just finished crosses a sphere of influence, i.e. leaves
+     * its parent's sphere or enters the sphere of one of its parent's planets.
+     * Only the planets sharing a cell of the `influenceGrid` with the path are checked.
+     * */
+    private boolean crossesInfluence(int craftId, double stepLength) {
+        int parentId = state.parentIds[craftId];
+        int count = influenceGrid.queryPath(craftId, stepStart, state, stepLength);
+        if (count == PlanetGrid.TOO_LARGE) {
+            return nextInfluenceCrossing(craftId, parentId, stepStart.positionX, stepStart.positionY, stepStart.velocityX,
+                    stepStart.velocityY, state.positionX, state.positionY, state.velocityX, state.velocityY, stepLength) != NO_EVENT;
+        }
+        for (int index = 0; index < count; index++) {
+            int planetId = influenceGrid.candidates[index];
+            if ((planetId == parentId || state.parentIds[planetId] == parentId)
+                    && influenceCrossing(craftId, planetId, influenceRadius[planetId], stepStart.positionX, stepStart.positionY,
+                    stepStart.velocityX, stepStart.velocityY, state.positionX, state.positionY, state.velocityX,
+                    state.velocityY, stepLength) != NO_EVENT) {
+                return true;
+            }
+        }
+        return false;
+    }
+    /**
+     * Re-propagate one spacecraft alone through the step that just finished, from its state at the step's start,
+     * with the adaptive `eventPropagator` against planets read from the ephemeris.
+     * The short path of each propagator step is searched for sphere of influence crossings (of the parent being
+     * followed and of its planets) and surface impacts, so events are found in order and none are skipped however
+     * many the step holds: the followed parent changes at each crossing, and the spacecraft lands at an impact.
+     * Its state at the end of the step replaces the one from the world's `integrator`.
+     * @param startTime time of the step's start (s).
+     * @param stepLength length of the step (s).
+     * @return whether its parent changed during the step or it landed.
+     * */
+    private boolean resolveEvents(Spacecraft craft, double startTime, double stepLength) {
+        int craftId = craft.id;
+        if (segmentStartX.length < state.size) {
+            int capacity = state.positionX.length;
+            eventPositionX = new double[capacity];
+            eventPositionY = new double[capacity];
+            segmentStartX = new double[capacity];
+            segmentStartY = new double[capacity];
+            segmentStartVx = new double[capacity];
+            segmentStartVy = new double[capacity];
+            segmentEndX = new double[capacity];
+            segmentEndY = new double[capacity];
+            segmentEndVx = new double[capacity];
+            segmentEndVy = new double[capacity];
+        }
+        SurfaceCollisions collisions = collisions();
+        double endTime = startTime + stepLength;
+        int parentId = state.parentIds[craftId];
+        boolean changed = false;
+        eventCraftId = craftId;
+        eventPropagator.maxStep = stepLength;
+        eventPropagator.reset(eventField, startTime, stepStart.positionX[craftId], stepStart.positionY[craftId],
+                stepStart.velocityX[craftId], stepStart.velocityY[craftId], stepLength);
+        double segmentStart = startTime;
+        craftState[0] = stepStart.positionX[craftId];
+        craftState[1] = stepStart.positionY[craftId];
+        craftState[2] = stepStart.velocityX[craftId];
+        craftState[3] = stepStart.velocityY[craftId];
+        while (segmentStart < endTime) {
+            eventPropagator.step(eventField);
+            // the propagator may step past the end; its dense output covers the rest of the step
+            double segmentEnd = Math.min(eventPropagator.time, endTime);
+            ephemeris.statesAt(segmentEnd, segmentEndX, segmentEndY, segmentEndVx, segmentEndVy);
+            eventPropagator.stateAt(segmentEnd, planetState);
+            segmentEndX[craftId] = planetState[0];
+            segmentEndY[craftId] = planetState[1];
+            segmentEndVx[craftId] = planetState[2];
+            segmentEndVy[craftId] = planetState[3];
+            for (int event = 0; ; event++) {
+                ephemeris.statesAt(segmentStart, segmentStartX, segmentStartY, segmentStartVx, segmentStartVy);
+                segmentStartX[craftId] = craftState[0];
+                segmentStartY[craftId] = craftState[1];
+                segmentStartVx[craftId] = craftState[2];
+                segmentStartVy[craftId] = craftState[3];
+                double length = segmentEnd - segmentStart;
+                // past the bound, the parent is still settled from the end state by `updateSpacecraftParents`
+                double crossing = event < MAX_SEGMENT_EVENTS ? nextInfluenceCrossing(craftId, parentId,
+                        segmentStartX, segmentStartY, segmentStartVx, segmentStartVy,
+                        segmentEndX, segmentEndY, segmentEndVx, segmentEndVy, length) : NO_EVENT;
+                if (length > 0 && collisions.firstImpact(craftId, segmentStartX, segmentStartY, segmentStartVx, segmentStartVy,
+                        segmentEndX, segmentEndY, segmentEndVx, segmentEndVy, length)
+                        && (crossing == NO_EVENT || collisions.impactFraction * length <= crossing)) {
+                    double time = segmentStart + collisions.impactFraction * length;
+                    int planetId = collisions.impactedId;
+                    eventPropagator.stateAt(time, craftState);
+                    ephemeris.stateOf(planetId, time, planetState);
+                    land(craft, planetId, time, planetState[0], planetState[1], collisions.impactX, collisions.impactY,
+                            Math.hypot(craftState[2] - planetState[2], craftState[3] - planetState[3]));
+                    return true;
+                }
+                if (crossing == NO_EVENT) {
+                    break;
+                }
+                // continue the segment from just past the crossing, following the new parent
+                segmentStart += crossing;
+                eventPropagator.stateAt(segmentStart, craftState);
+                ephemeris.positionsAt(segmentStart, eventPositionX, eventPositionY);
+                parentId = deepestInfluence(craftState[0], craftState[1], eventPositionX, eventPositionY);
+                changed = true;
+            }
+            segmentStart = segmentEnd;
+            craftState[0] = segmentEndX[craftId];
+            craftState[1] = segmentEndY[craftId];
+            craftState[2] = segmentEndVx[craftId];
+            craftState[3] = segmentEndVy[craftId];
+        }
+        state.positionX[craftId] = craftState[0];
+        state.positionY[craftId] = craftState[1];
+        state.velocityX[craftId] = craftState[2];
+        state.velocityY[craftId] = craftState[3];
+        return changed;
+    }
+    /** Acceleration of the spacecraft being re-propagated, with every planet placed at its ephemeris position. */
+    private void eventAcceleration(double time, double x, double y, double[] acceleration) {
+        ephemeris.positionsAt(time, eventPositionX, eventPositionY);
+        eventPositionX[eventCraftId] = x;
+        eventPositionY[eventCraftId] = y;
+        gravity.computeAcceleration(state, eventCraftId, eventPositionX, eventPositionY, acceleration);
+    }
+    /**
+     * Find a spacecraft's first sphere of influence crossing across an interval: leaving the sphere of the parent
+     * it follows, or entering the sphere of one of the planets orbiting that parent. Only those planets are checked.
+     * @param parentId body id of the parent the spacecraft follows.
+     * @param startX x-position of every body at the start of the interval (km); likewise for the other states.
+     * @param stepLength length of the interval (s).
+     * @return time after the interval's start just past the earliest crossing (s), or `NO_EVENT`.
+     * */
+    private double nextInfluenceCrossing(int craftId, int parentId, double[] startX, double[] startY, double[] startVx, double[] startVy,
+                                         double[] endX, double[] endY, double[] endVx, double[] endVy, double stepLength) {
+        if (parentId == BodyStateStore.NO_PARENT) {
+            return NO_EVENT;
+        }
+        SurfaceCollisions hierarchy = collisions();
+        double earliest = influenceRadius[parentId] == Double.POSITIVE_INFINITY ? NO_EVENT : influenceCrossing(craftId, parentId,
+                influenceRadius[parentId], startX, startY, startVx, startVy, endX, endY, endVx, endVy, stepLength);
+        for (int index = hierarchy.childStart[parentId]; index < hierarchy.childStart[parentId + 1]; index++) {
+            int planetId = hierarchy.children[index];
+            double crossing = influenceCrossing(craftId, planetId, influenceRadius[planetId],
+                    startX, startY, startVx, startVy, endX, endY, endVx, endVy, stepLength);
+            if (crossing != NO_EVENT && (earliest == NO_EVENT || crossing < earliest)) {
+                earliest = crossing;
+            }
+        }
+        return earliest;
+    }
+    /**
+     * Find when a spacecraft's distance to a planet first crosses a radius across an interval.
+     * The motion relative to the planet is interpolated with a cubic Hermite curve (from the states at both ends),
+     * so an encounter entered and left within the interval is still caught; the crossing is refined by bisection.
+     * @return time after the interval's start just past the crossing (s), or `NO_EVENT`.
+     * */
+    private double influenceCrossing(int craftId, int planetId, double radius, double[] startPositionX, double[] startPositionY,
+                                     double[] startVelocityX, double[] startVelocityY, double[] endPositionX, double[] endPositionY,
+                                     double[] endVelocityX, double[] endVelocityY, double stepLength) {
+        double startX = startPositionX[craftId] - startPositionX[planetId];
+        double startY = startPositionY[craftId] - startPositionY[planetId];
+        double startVx = (startVelocityX[craftId] - startVelocityX[planetId]) * stepLength;
+        double startVy = (startVelocityY[craftId] - startVelocityY[planetId]) * stepLength;
+        double endX = endPositionX[craftId] - endPositionX[planetId];
+        double endY = endPositionY[craftId] - endPositionY[planetId];
+        double endVx = (endVelocityX[craftId] - endVelocityX[planetId]) * stepLength;
+        double endVy = (endVelocityY[craftId] - endVelocityY[planetId]) * stepLength;
+        double startOffset = Math.sqrt(startX * startX + startY * startY) - radius;
+        double endOffset = Math.sqrt(endX * endX + endY * endY) - radius;
+        // the curve can't travel further than its endpoint speeds allow, so distant pairs are skipped cheaply
+        double reach = Math.sqrt(Math.max(startVx * startVx + startVy * startVy, endVx * endVx + endVy * endVy));
+        if (Math.min(Math.abs(startOffset), Math.abs(endOffset)) > reach) {
+            return NO_EVENT;
+        }
+        double previous = 0;
+        for (int sample = 1; sample <= EVENT_SAMPLES; sample++) {
+            double s = (double) sample / EVENT_SAMPLES;
+            double offset = hermiteDistance(s, startX, startY, startVx, startVy, endX, endY, endVx, endVy) - radius;
+            if ((offset < 0) != (startOffset < 0)) {
+                // bisect, keeping the upper bound on the far side of the crossing
+                double lower = previous, upper = s;
+                for (int bisection = 0; bisection < EVENT_BISECTIONS; bisection++) {
+                    double middle = (lower + upper) / 2;
+                    double middleOffset = hermiteDistance(middle, startX, startY, startVx, startVy, endX, endY, endVx, endVy) - radius;
+                    if ((middleOffset < 0) == (startOffset < 0)) {
+                        lower = middle;
+                    } else {
+                        upper = middle;
+                    }
+                }
+                return upper * stepLength;
+            }
+            previous = s;
+        }
+        return NO_EVENT;
+    }
+    /** Distance along a cubic Hermite curve; velocities are pre-scaled by the step length. */
+    static double hermiteDistance(double s, double startX, double startY, double startVx, double startVy,
+                                          double endX, double endY, double endVx, double endVy) {
+        double s2 = s * s, s3 = s2 * s;
+        double h00 = 2 * s3 - 3 * s2 + 1;
+        double h10 = s3 - 2 * s2 + s;
+        double h01 = -2 * s3 + 3 * s2;
+        double h11 = s3 - s2;
+        double x = h00 * startX + h10 * startVx + h01 * endX + h11 * endVx;
+        double y = h00 * startY + h10 * startVy + h01 * endY + h11 * endVy;
+        return Math.sqrt(x * x + y * y);
+    }
+    /**
+     * Bring a spacecraft to rest on a planet's surface, directly above its offset from the planet, and record the impact.    /**
+     * Bring a spacecraft to rest on a planet's surface, directly above its offset from the planet, and record the impact.
+     * The spacecraft is only placed on the surface by the next `pinLandedSpacecraft`.
+     * @param time time of the impact (s).
+     * @param planetX x-position of the planet at the impact (km).
+     * @param planetY y-position of the planet at the impact (km).
+     * @param relativeX x-offset of the spacecraft from the planet at the impact (km).
+     * @param relativeY y-offset of the spacecraft from the planet at the impact (km).
+     * @param speed spacecraft's speed relative to the planet at the impact (km/s).
+     * @return whether it's the controlled spacecraft, whose lead the landing invalidates.
+     * */
+    boolean land(Spacecraft craft, int planetId, double time, double planetX, double planetY,
+                 double relativeX, double relativeY, double speed) {
+        double distance = Math.hypot(relativeX, relativeY);
+        if (distance == 0) {
+            relativeX = 1;
+            distance = 1;
+        }
+        double radius = collisions().radiusOf(planetId);
+        craft.landedOn = (Planet) state.bodies[planetId];
+        craft.landedX = relativeX * radius / distance;
+        craft.landedY = relativeY * radius / distance;
+        impacts.add(new ImpactEvent(time, craft.id, planetId, planetX + craft.landedX, planetY + craft.landedY, speed));
+        return craft == spacecraft;
+    }
+    /** Keep every landed spacecraft at its spot on the surface, moving along with its planet. */
+    private void pinLandedSpacecraft() {
+        for (Spacecraft craft : fleet) {
+            if (craft.landedOn != null) {
+                int craftId = craft.id, planetId = craft.landedOn.id;
+                state.positionX[craftId] = state.positionX[planetId] + craft.landedX;
+                state.positionY[craftId] = state.positionY[planetId] + craft.landedY;
+                state.velocityX[craftId] = state.velocityX[planetId];
+                state.velocityY[craftId] = state.velocityY[planetId];
+            }
+        }
+    }
+    /** Let go of every landed spacecraft that a burn has given a velocity away from the surface. */
+    private void releaseLaunchedSpacecraft() {
+        for (Spacecraft craft : fleet) {
+            if (craft.landedOn != null) {
+                int craftId = craft.id, planetId = craft.landedOn.id;
+                double radialVelocity = (state.velocityX[craftId] - state.velocityX[planetId]) * craft.landedX
+                        + (state.velocityY[craftId] - state.velocityY[planetId]) * craft.landedY;
+                if (radialVelocity > 0) {
+                    craft.landedOn = null;
+                }
+            }
+        }
+    }
+    /** @return planet hierarchy for impact checks, captured again whenever bodies were added or masses changed. */
+    SurfaceCollisions collisions() {
+        if (collisions == null || collisions.size != state.size) {
+            collisions = new SurfaceCollisions(state);
+        }
+        return collisions;
+    }
+    /**
+     * Change the satellite a spacecraft is considered to orbit, keeping the body state store in sync.
+     * @param parent new parent satellite, or null if the spacecraft is escaping.
+     * */
+    public void setSpacecraftParent(Spacecraft spacecraft, Satellite parent) {
+        spacecraft.parent = parent;
+        state.parentIds[spacecraft.id] = parent == null ? BodyStateStore.NO_PARENT : parent.id;
     }
     /**
      * Calculate an entire spacecraft lead. Clears previous leads and starts from scratch.
+     * A bound spacecraft's lead is sampled from its conic orbit; otherwise it's propagated through the planet
+     * ephemeris with the adaptive `leadPropagator`. Planet leads are read back from the ephemeris at the same times.
      * @param leadStep length of the time interval during which lead movement occurs (seconds).
      * @param leadLength max number of lead intervals to be calculated.
      * */
     public void calculateFullLead(double leadStep, int leadLength) {
-        // clear all previous lead predictions
+        LeadPrediction prediction = new LeadPrediction(this, leadStep, leadLength, leadEpoch);
+        prediction.compute();
+        installLead(prediction);
+    }
+    /**
+     * Clear every lead down to the current state, without calculating any lead intervals yet, e.g. after a seek
+     * while a full prediction is computed. Later intervals are calculated from the current state.
+     * @param leadStep length of the time interval during which lead movement occurs (seconds).
+     * */
+    public void startFullLead(double leadStep) {
+        // clear all previous lead predictions; only planets and the controlled spacecraft have leads
         for (Satellite satellite : satellites) {
-            satellite.getLeadPositions().clear();
-            satellite.getLeadVelocities().clear();
-            satellite.getLeadPositions().addLast(satellite.getPosition().copyCoordinate());
-            satellite.getLeadVelocities().addLast(satellite.getVelocity().copyCoordinate());
-        }
-        // calculate lead intervals until max lead length reached, or duplicate positions computed
-        boolean outsideRadius = false;
-        for (int leadIndex = 0; leadIndex < leadLength; leadIndex++) {
-            calculateOneLeadInterval(leadStep);
-            // duplicate lead positions may be calculated during a stable orbit around a parent satellite
-            if (spacecraft.parent != null) {
-                Coordinate lastLead = spacecraft.getLeadPositions().getLast();
-                Coordinate parentLastLead = spacecraft.parent.getLeadPositions().getLast();
-                // calculate distance between the newest lead positions of the spacecraft and its parent
-                double futureDistanceToParent = parentLastLead.distanceTo(lastLead);
-                double angleBetween = parentLastLead.angleBetween(lastLead);
-                /* calculate the distance between the spacecraft and the newest lead position
-                adjusted relative to its parent's current position */
-                Coordinate parentPosition = spacecraft.parent.getPosition();
-                Coordinate futureRelativeToParent = new Coordinate(
-                        parentPosition.getX() + futureDistanceToParent * Math.cos(angleBetween),
-                        parentPosition.getY() + futureDistanceToParent * Math.sin(angleBetween)
-                );
-                // if the distance is within a certain threshold, cease future lead calculations
-                double newLeadDistance = spacecraft.getPosition().distanceTo(futureRelativeToParent);
-                if (!outsideRadius && newLeadDistance >= 1000) {
-                    outsideRadius = true;
-                }
-                if (outsideRadius && newLeadDistance < 1000) {
-                    break;
-                }
+            satellite.getLead().clear();
+            if (hasLead(satellite)) {
+                int id = satellite.id;
+                satellite.getLead().append(state.positionX[id], state.positionY[id], state.velocityX[id], state.velocityY[id]);
             }
         }
+        ensureLeadScratch();
+        planetLeadSize = 1;
+        leadInterval = leadStep;
+        leadStartTime = simulationTime;
+        craftLeadTime = simulationTime;
+        craftLeadShift = 0;
+        int craftId = spacecraft.id;
+        leadPropagator.reset(craftLeadField, simulationTime,
+                state.positionX[craftId], state.positionY[craftId], state.velocityX[craftId], state.velocityY[craftId], leadInterval);
+        // events of the discarded lead no longer apply; the next installed prediction brings new ones
+        encounters = List.of();
+        leadVersion++;
     }
     /**
-     * Calculate one interval of planet and spacecraft lead predictions.
-     * @param leadStep length of the time interval during which lead movement occurs (seconds).
+     * Install a prediction computed away from the physics thread. A full prediction replaces every lead; a craft-only
+     * one replaces just the spacecraft's (see `installCraftLead`).
+     * The prediction was requested at an earlier simulation time, so positions the simulation has since passed are
+     * dropped by the next `advanceLead`, and later intervals are extended from the prediction's newest spacecraft state.
+     * Predictions of another spacecraft, or with an epoch older than the installed one, are ignored.
+     * @param prediction computed prediction.
+     * @return whether the prediction was installed.
+     * */
+    public boolean installLead(LeadPrediction prediction) {
+        if (prediction.craftId != spacecraft.id || prediction.epoch < leadEpoch || prediction.requestTime > simulationTime) {
+            return false;
+        }
+        if (prediction.craftOnly) {
+            return installCraftLead(prediction);
+        }
+        for (Satellite satellite : satellites) {
+            satellite.getLead().clear();
+        }
+        int leadSize = prediction.leadSize;
+        fillLead(spacecraft.getLead(), prediction.craftLead, leadSize);
+        for (int column = 0; column < prediction.planetIds.length; column++) {
+            fillLead(state.bodies[prediction.planetIds[column]].getLead(), prediction.planetLeads[column], leadSize);
+        }
+        ensureLeadScratch();
+        leadEpoch = prediction.epoch;
+        encounters = prediction.encounters;
+        leadInterval = prediction.leadInterval;
+        leadStartTime = prediction.startTime;
+        planetLeadSize = leadSize;
+        craftLeadTime = leadStartTime + (leadSize - 1) * leadInterval;
+        craftLeadShift = 0;
+        resumeLeadPropagation();
+        leadVersion++;
+        return true;
+    }
+    /**
+     * Replace the spacecraft lead with a craft-only prediction, keeping every planet lead: planet leads are only
+     * trimmed to the new spacecraft lead's length, or extended from the ephemeris, never recalculated.
+     * The prediction shares the installed leads' time grid, so positions the simulation has passed since the request
+     * are skipped. Predictions whose grid no longer matches, e.g. after a full lead was installed, are ignored.
+     * @return whether the prediction was installed.
+     * */
+    private boolean installCraftLead(LeadPrediction prediction) {
+        double passed = (leadStartTime - prediction.startTime) / leadInterval;
+        int skipped = (int) Math.round(passed);
+        if (prediction.leadInterval != leadInterval || skipped < 0 || Math.abs(passed - skipped) > 1e-6 || skipped >= prediction.leadSize) {
+            return false;
+        }
+        LeadBuffer craftLead = spacecraft.getLead();
+        craftLead.clear();
+        for (int index = skipped; index < prediction.leadSize; index++) {
+            int offset = index * 4;
+            double[] states = prediction.craftLead;
+            craftLead.append(states[offset], states[offset + 1], states[offset + 2], states[offset + 3]);
+        }
+        int leadSize = craftLead.size();
+        extendPlanetLeads(leadSize);
+        if (planetLeadSize > leadSize) {
+            for (Planet planet : planets) {
+                planet.getLead().truncate(leadSize);
+            }
+            planetLeadSize = leadSize;
+        }
+        leadEpoch = prediction.epoch;
+        encounters = prediction.encounters;
+        craftLeadTime = leadStartTime + (leadSize - 1) * leadInterval;
+        craftLeadShift = 0;
+        resumeLeadPropagation();
+        leadVersion++;
+        return true;
+    }
+    /**
+     * Encounter events of the installed lead that the simulation hasn't passed yet. Events are only found for
+     * installed predictions, so intervals added to the lead afterwards by `advanceLead` have none.
+     * @return events at or after the current simulation time, in time order.
+     * */
+    public List<EncounterEvent> upcomingEncounters() {
+        List<EncounterEvent> upcoming = new ArrayList<>();
+        for (EncounterEvent event : encounters) {
+            if (event.time >= simulationTime) {
+                upcoming.add(event);
+            }
+        }
+        return upcoming;
+    }
+    /** Restart the `leadPropagator` from the spacecraft's newest lead state, so later intervals continue from it. */
+    void resumeLeadPropagation() {
+        LeadBuffer craftLead = spacecraft.getLead();
+        int last = craftLead.size() - 1;
+        leadPropagator.reset(craftLeadField, craftLeadTime,
+                craftLead.x(last), craftLead.y(last), craftLead.vx(last), craftLead.vy(last), leadInterval);
+    }
+    void ensureLeadScratch() {
+        if (leadPositionX.length < state.size) {
+            leadPositionX = new double[state.positionX.length];
+            leadPositionY = new double[state.positionX.length];
+            leadVelocityX = new double[state.positionX.length];
+            leadVelocityY = new double[state.positionX.length];
+        }
+    }
+    private static void fillLead(LeadBuffer lead, double[] states, int leadSize) {
+        for (int index = 0; index < leadSize; index++) {
+            lead.append(states[index * 4], states[index * 4 + 1], states[index * 4 + 2], states[index * 4 + 3]);
+        }
+    }
+    /**
+     * Calculate one more spacecraft lead position, one `leadStep` after the newest one,
+     * extending the planet leads whenever they're shorter than the spacecraft's.
+     * If the spacecraft would hit a planet's surface during the interval, nothing is added.
+     * @param leadStep length of the time interval during which lead movement occurs (seconds);
+     *                 must match the step of the last full lead calculation.
      * */
     public void calculateOneLeadInterval(double leadStep) {
-        calculatePlanetLeadInterval(leadStep);
-        calculateCraftLeadInterval(leadStep);
+        double targetTime = craftLeadTime + leadStep;
+        LeadBuffer craftLead = spacecraft.getLead();
+        if (spacecraft.landedOn != null) {
+            // a landed spacecraft moves along with its planet
+            ephemeris.stateOf(spacecraft.landedOn.id, targetTime, leadSample);
+            leadSample[0] += spacecraft.landedX;
+            leadSample[1] += spacecraft.landedY;
+        } else {
+            while (leadPropagator.time < targetTime) {
+                leadPropagator.step(craftLeadField);
+            }
+            leadPropagator.stateAt(targetTime, leadSample);
+            int last = craftLead.size() - 1;
+            leadPreviousSample[0] = craftLead.x(last);
+            leadPreviousSample[1] = craftLead.y(last);
+            leadPreviousSample[2] = craftLead.vx(last);
+            leadPreviousSample[3] = craftLead.vy(last);
+            // the lead ends at the last position before the spacecraft hits a surface
+            if (collisions().leadImpact(ephemeris, spacecraft.id, craftLeadTime, leadPreviousSample, targetTime, leadSample)) {
+                return;
+            }
+        }
+        craftLead.append(leadSample[0], leadSample[1], leadSample[2], leadSample[3]);
+        craftLeadTime = targetTime;
+        extendPlanetLeads(craftLead.size());
+        leadVersion++;
+    }
+    /** Sample the planets from the ephemeris until every planet lead holds at least `size` positions. */
+    private void extendPlanetLeads(int size) {
+        // lead index i of every satellite always refers to `leadStartTime + i * leadInterval`
+        while (planetLeadSize < size) {
+            double planetLeadTime = leadStartTime + planetLeadSize * leadInterval;
+            ephemeris.statesAt(planetLeadTime, leadPositionX, leadPositionY, leadVelocityX, leadVelocityY);
+            for (Planet planet : planets) {
+                int planetId = planet.id;
+                planet.getLead().append(leadPositionX[planetId], leadPositionY[planetId], leadVelocityX[planetId], leadVelocityY[planetId]);
+            }
+            planetLeadSize++;
+        }
     }
     /**
-     * Remove the first lead positions/velocities contained within each lead deque.
-     * Should be triggered roughly when the spacecraft passes by.
+     * Move every lead forward so that the first lead position is the last one the simulation has passed,
+     * calculating one new lead interval for each one dropped so leads keep their length.
+     * Keeps lead positions anchored to the simulation time regardless of the step size.
      * */
-    public void removeLeadInterval() {
-        for (Satellite satellite : satellites) {
-            satellite.getLeadPositions().removeFirst();
-            satellite.getLeadVelocities().removeFirst();
+    public void advanceLead() {
+        while (spacecraft.getLead().size() > 1 && leadStartTime + leadInterval <= simulationTime) {
+            calculateOneLeadInterval(leadInterval);
+            removeLeadInterval();
         }
     }
     /**
-     * Calculate one interval of planet lead predictions.
-     * @param leadStep length of the time interval during which lead movement occurs (seconds).
+     * Distance between the spacecraft and where its lead predicted it to be at the current time.
+     * @return deviation from the lead (km), or 0 if the lead doesn't cover the current time.
      * */
-    public void calculatePlanetLeadInterval(double leadStep) {
-        // the satellite at the simulation center should never move
-        simulationCenter.getLeadPositions().add(
-                new Coordinate(0, 0)
-        );
-        simulationCenter.getLeadVelocities().add(
-                new Coordinate(0, 0)
-        );
-
-        for (int index = 1; index < orderedSatellites.size(); index++) {
-            if (orderedSatellites.get(index) instanceof Planet planet) {
-                Coordinate planetLeadPosition = planet.getLeadPositions().getLast();
-                Coordinate parentLeadPosition = planet.parent.getLeadPositions().getLast();
-                // calculate the force of gravity relative to their parent planet
-                double distanceToParent = parentLeadPosition.distanceTo(planetLeadPosition);
-                double angle = parentLeadPosition.angleBetween(planetLeadPosition);
-                double forceGravity = ((G * planet.mass * planet.parent.mass) / Math.pow(1000 * distanceToParent, 2)) / 1000;
-                double xAcceleration = (forceGravity * -Math.cos(angle)) / planet.mass;
-                double yAcceleration = (forceGravity * -Math.sin(angle)) / planet.mass;
-
-                // calculate new positions and velocities and add them to the corresponding deques
-                Coordinate planetVelocity = planet.getLeadVelocities().getLast();
-                Coordinate newVelocity = new Coordinate(
-                        planetVelocity.getX() + xAcceleration * leadStep,
-                        planetVelocity.getY() + yAcceleration * leadStep
-                );
-                Coordinate newPosition = new Coordinate(
-                        planetLeadPosition.getX() + newVelocity.getX() * leadStep,
-                        planetLeadPosition.getY() + newVelocity.getY() * leadStep
-                );
-                planet.getLeadVelocities().addLast(newVelocity);
-                planet.getLeadPositions().addLast(newPosition);
+    public double craftLeadDeviation() {
+        if (predictCraftPosition() < 0) {
+            return 0;
+        }
+        int craftId = spacecraft.id;
+        return Math.hypot(state.positionX[craftId] - predictedPosition[0], state.positionY[craftId] - predictedPosition[1]);
+    }
+    /**
+     * Re-anchor the spacecraft lead on the spacecraft: every lead position from the one preceding the current time
+     * onward is moved by the spacecraft's deviation from the lead, so the lead passes through the spacecraft again.
+     * The lead keeps its shape and encounters, so a small drift is corrected without a new prediction; intervals
+     * added later continue from the moved newest state. Adds the distance moved to `craftLeadShift`.
+     * @return distance the lead was moved by (km), or 0 if the lead doesn't cover the current time.
+     * */
+    public double reanchorCraftLead() {
+        int index = predictCraftPosition();
+        if (index < 0) {
+            return 0;
+        }
+        int craftId = spacecraft.id;
+        double deltaX = state.positionX[craftId] - predictedPosition[0];
+        double deltaY = state.positionY[craftId] - predictedPosition[1];
+        spacecraft.getLead().shift(index, deltaX, deltaY);
+        resumeLeadPropagation();
+        double distance = Math.hypot(deltaX, deltaY);
+        craftLeadShift += distance;
+        leadVersion++;
+        return distance;
+    }
+    /**
+     * Interpolate where the spacecraft lead predicts the spacecraft to be at the current time into `predictedPosition`,
+     * between the surrounding lead positions (cubic Hermite, using the lead velocities).
+     * @return index of the lead position preceding the current time, or -1 if the lead doesn't cover the current time.
+     * */
+    private int predictCraftPosition() {
+        LeadBuffer craftLead = spacecraft.getLead();
+        double position = (simulationTime - leadStartTime) / leadInterval;
+        int index = (int) Math.floor(position);
+        if (index < 0 || index + 1 >= craftLead.size()) {
+            return -1;
+        }
+        double s = position - index;
+        double s2 = s * s, s3 = s2 * s;
+        double h00 = 2 * s3 - 3 * s2 + 1;
+        double h10 = (s3 - 2 * s2 + s) * leadInterval;
+        double h01 = -2 * s3 + 3 * s2;
+        double h11 = (s3 - s2) * leadInterval;
+        predictedPosition[0] = h00 * craftLead.x(index) + h10 * craftLead.vx(index) + h01 * craftLead.x(index + 1) + h11 * craftLead.vx(index + 1);
+        predictedPosition[1] = h00 * craftLead.y(index) + h10 * craftLead.vy(index) + h01 * craftLead.y(index + 1) + h11 * craftLead.vy(index + 1);
+        return index;
+    }
+    /**
+     * Acceleration felt by the spacecraft's lead at a given time, with planets placed at their ephemeris positions.
+     * */
+    private void craftLeadAcceleration(double time, double x, double y, double[] acceleration) {
+        ephemeris.positionsAt(time, leadPositionX, leadPositionY);
+        int craftId = spacecraft.id;
+        leadPositionX[craftId] = x;
+        leadPositionY[craftId] = y;
+        gravity.computeAcceleration(state, craftId, leadPositionX, leadPositionY, acceleration);
+    }
+    /**
+     * Remove the first lead position/velocity contained within each lead buffer.
+     * Should be triggered roughly when the spacecraft passes by.
+     * */
+    public void removeLeadInterval() {
+        for (Satellite satellite : satellites) {
+            if (hasLead(satellite)) {
+                satellite.getLead().removeFirst();
             }
         }
+        planetLeadSize--;
+        leadStartTime += leadInterval;
+        leadVersion++;
     }
-    public void calculateCraftLeadInterval(double leadStep) {
-        Coordinate spacecraftLeadPosition = spacecraft.getLeadPositions().getLast();
-
-        double netXForce = 0;
-        double netYForce = 0;
-
-        for (Planet planet : planets) {
-            Coordinate planetLeadPosition = planet.getLeadPositions().getLast();
-            // calculate the net force of gravity caused by each planet in the simulation
-            double distanceToParent = planetLeadPosition.distanceTo(spacecraftLeadPosition);
-            double angle = planetLeadPosition.angleBetween(spacecraftLeadPosition);
-            double forceGravity = ((G * spacecraft.mass * planet.mass) / Math.pow(1000 * distanceToParent, 2)) / 1000;
-            netXForce += forceGravity * -Math.cos(angle);
-            netYForce += forceGravity * -Math.sin(angle);
-        }
-        // calculate new positions and velocities and add them to the corresponding deques
-        Coordinate spacecraftLeadVelocity = spacecraft.getLeadVelocities().getLast();
-        Coordinate newVelocity = new Coordinate(
-                spacecraftLeadVelocity.getX() + (netXForce / spacecraft.mass) * leadStep,
-                spacecraftLeadVelocity.getY() + (netYForce / spacecraft.mass) * leadStep
-        );
-        Coordinate newPosition = new Coordinate(
-                spacecraftLeadPosition.getX() + newVelocity.getX() * leadStep,
-                spacecraftLeadPosition.getY() + newVelocity.getY() * leadStep
-        );
-        spacecraft.getLeadVelocities().addLast(newVelocity);
-        spacecraft.getLeadPositions().addLast(newPosition);
+    /** @return whether the satellite's lead is predicted: planets and the controlled spacecraft, but not the rest of the fleet. */
+    private boolean hasLead(Satellite satellite) {
+        return satellite instanceof Planet || satellite == spacecraft;
     }
 }
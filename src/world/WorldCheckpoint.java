@@ -0,0 +1,500 @@
+package world;
+
+import physics.GravityModel;
+import physics.KeplerianOrbits;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Binary checkpoint of a complete world: the satellite hierarchy, body states, leads, planet ephemeris, camera
+ * and the time multiplier the world was running at.
+ * Bodies are stored column by column in little-endian order, and checkpoints are read through a memory-mapped
+ * `FileChannel`, so restoring the body states is a handful of bulk copies straight into the `BodyStateStore` arrays.
+ * Everything the next step depends on is restored bit for bit, so a restored world follows exactly the trajectory
+ * the saved one would have. The integrator, gravity model and multi-rate stepper belong to whoever runs the world
+ * and aren't saved.
+ * */
+public final class WorldCheckpoint {
+    public static final int MAGIC = 0x4342524F; // "ORBC" in little-endian order
+    public static final int VERSION = 3;
+    private static final int HEADER_BYTES = 64;
+    private static final byte PLANET = 0, SPACECRAFT = 1, SATELLITE = 2; // body kinds
+    private static final byte ORBIT_SOURCE = 0, INTEGRATION_SOURCE = 1; // ephemeris sources
+
+    public final World world; // restored world
+    public final double timeMultiplier; // time multiplier the world was running at when it was saved
+
+    private WorldCheckpoint(World world, double timeMultiplier) {
+        this.world = world;
+        this.timeMultiplier = timeMultiplier;
+    }
+    /**
+     * Write a checkpoint of the world, replacing any file at `path` once the checkpoint is complete.
+     * Must be called from the thread that steps the world.
+     * @param world world to save.
+     * @param timeMultiplier time multiplier the world is running at.
+     * @param path destination file.
+     * */
+    public static void save(World world, double timeMultiplier, Path path) throws IOException {
+        ByteBuffer out = encode(world, timeMultiplier);
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    /**
+     * Encode a checkpoint of the world in memory, in the same layout as checkpoint files, e.g. to copy it with `decode`.
+     * Must be called from the thread that steps the world.
+     * @param world world to save.
+     * @param timeMultiplier time multiplier the world is running at.
+     * @return checkpoint, positioned at its start.
+     * */
+    public static ByteBuffer encode(World world, double timeMultiplier) {
+        BodyStateStore state = world.state;
+        int size = state.size;
+        byte[] kinds = new byte[size];
+        int[] treeParentIds = new int[size];
+        int[] colors = new int[size];
+        double[] orbitalRadius = new double[size], orbitalVelocity = new double[size], trueAnomaly = new double[size];
+        byte[][] names = new byte[size][];
+        long length = HEADER_BYTES + (long) size * (1 + 3 * 4 + 8 * 8);
+        Arrays.fill(treeParentIds, BodyStateStore.NO_PARENT);
+        for (int id = 0; id < size; id++) {
+            Satellite satellite = state.bodies[id];
+            // the hierarchy that assigned the body ids; spacecraft parents may have changed since
+            for (Satellite child : satellite.getChildren()) {
+                treeParentIds[child.id] = id;
+            }
+            colors[id] = satellite.color == null ? 0 : satellite.color.getRGB();
+            orbitalRadius[id] = satellite.orbitalRadius;
+            orbitalVelocity[id] = satellite.orbitalVelocity;
+            trueAnomaly[id] = satellite.trueAnomaly;
+            if (satellite instanceof Planet planet) {
+                kinds[id] = PLANET;
+                names[id] = planet.name.getBytes(StandardCharsets.UTF_8);
+                length += 8 + 4 + names[id].length;
+            } else {
+                kinds[id] = satellite instanceof Spacecraft ? SPACECRAFT : SATELLITE;
+            }
+            if (!satellite.getLead().isEmpty()) {
+                length += 8 + 32L * satellite.getLead().size();
+            }
+        }
+        // landed spacecraft
+        int landedCount = 0;
+        for (Spacecraft craft : world.fleet) {
+            landedCount += craft.landedOn == null ? 0 : 1;
+        }
+        length += 4 + landedCount * (2 * 4 + 2 * 8L);
+        // camera, lead progress and ephemeris settings
+        length += 4 + 8 * 8;
+        length += 3 * 8 + 2 * 4;
+        length += 8 + 2 * 4 + 8 + 1;
+        PlanetEphemeris ephemeris = world.ephemeris;
+        KeplerianOrbits orbits = ephemeris.orbits();
+        int planetCount = state.planetCount;
+        if (orbits != null) {
+            length += 8 + 32L * planetCount;
+        } else {
+            length += 8 + 32L * planetCount + 4;
+            for (double[] rows : ephemeris.cachedSegmentRows().values()) {
+                length += 8 + 8L * rows.length;
+            }
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(Math.toIntExact(length)).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        out.putInt(size);
+        out.putInt(world.simulationCenter.id);
+        out.putInt(world.spacecraft.id);
+        out.putDouble(world.G);
+        out.putDouble(world.simulationTime);
+        out.putDouble(timeMultiplier);
+        out.putLong(world.leadVersion);
+        out.putLong(world.leadEpoch);
+        out.position(HEADER_BYTES);
+        // hierarchy, needed before any satellite can be rebuilt
+        out.put(kinds, 0, size);
+        putInts(out, treeParentIds, size);
+        putInts(out, colors, size);
+        putDoubles(out, state.mass, size);
+        putDoubles(out, orbitalRadius, size);
+        putDoubles(out, orbitalVelocity, size);
+        putDoubles(out, trueAnomaly, size);
+        for (int id = 0; id < size; id++) {
+            if (names[id] != null) {
+                out.putDouble(((Planet) state.bodies[id]).radius);
+                out.putInt(names[id].length);
+                out.put(names[id]);
+            }
+        }
+        // motion
+        putDoubles(out, state.positionX, size);
+        putDoubles(out, state.positionY, size);
+        putDoubles(out, state.velocityX, size);
+        putDoubles(out, state.velocityY, size);
+        putInts(out, state.parentIds, size);
+        out.putInt(landedCount);
+        for (Spacecraft craft : world.fleet) {
+            if (craft.landedOn != null) {
+                out.putInt(craft.id);
+                out.putInt(craft.landedOn.id);
+                out.putDouble(craft.landedX);
+                out.putDouble(craft.landedY);
+            }
+        }
+
+        Camera camera = world.camera;
+        out.putInt(camera.getTarget().id);
+        out.putDouble(camera.relativeDirection);
+        out.putDouble(camera.distanceToTarget);
+        out.putDouble(camera.position.getX());
+        out.putDouble(camera.position.getY());
+        out.putDouble(camera.position.getZ());
+        out.putDouble(camera.pitch);
+        out.putDouble(camera.yaw);
+        out.putDouble(camera.roll);
+
+        out.putDouble(world.leadStartTime);
+        out.putDouble(world.leadInterval);
+        out.putDouble(world.craftLeadTime);
+        out.putInt(world.planetLeadSize);
+        // only planets and the controlled spacecraft have leads, so just the non-empty ones are listed
+        int leadCount = 0;
+        for (int id = 0; id < size; id++) {
+            leadCount += state.bodies[id].getLead().isEmpty() ? 0 : 1;
+        }
+        out.putInt(leadCount);
+        for (int id = 0; id < size; id++) {
+            LeadBuffer lead = state.bodies[id].getLead();
+            if (lead.isEmpty()) {
+                continue;
+            }
+            out.putInt(id);
+            out.putInt(lead.size());
+            for (int index = 0; index < lead.size(); index++) {
+                out.putDouble(lead.x(index));
+                out.putDouble(lead.y(index));
+                out.putDouble(lead.vx(index));
+                out.putDouble(lead.vy(index));
+            }
+        }
+
+        out.putDouble(ephemeris.sampleInterval);
+        out.putInt(ephemeris.segmentRows);
+        out.putInt(ephemeris.maxSegments);
+        out.putDouble(ephemeris.originTime);
+        double[] planetStates = new double[planetCount * 4];
+        if (orbits != null) {
+            out.put(ORBIT_SOURCE);
+            out.putDouble(orbits.epoch);
+            orbits.epochStates(planetStates);
+            putDoubles(out, planetStates, planetStates.length);
+        } else {
+            out.put(INTEGRATION_SOURCE);
+            out.putLong(ephemeris.frontierSegment());
+            BodyStateStore frontier = ephemeris.frontier();
+            for (int column = 0; column < planetCount; column++) {
+                planetStates[column * 4] = frontier.positionX[column];
+                planetStates[column * 4 + 1] = frontier.positionY[column];
+                planetStates[column * 4 + 2] = frontier.velocityX[column];
+                planetStates[column * 4 + 3] = frontier.velocityY[column];
+            }
+            putDoubles(out, planetStates, planetStates.length);
+            // a restored ephemeris can only regenerate evicted segments from cached ones, so every cached one is kept
+            Map<Long, double[]> segments = ephemeris.cachedSegmentRows();
+            out.putInt(segments.size());
+            for (Map.Entry<Long, double[]> segment : segments.entrySet()) {
+                out.putLong(segment.getKey());
+                putDoubles(out, segment.getValue(), segment.getValue().length);
+            }
+        }
+        out.flip();
+        return out;
+    }
+    /**
+     * Rebuild the saved world from scratch, satellite hierarchy included.
+     * @param path checkpoint file.
+     * @return restored world and the time multiplier it was running at.
+     * @throws IOException if the file can't be read or isn't a checkpoint of this version.
+     * */
+    public static WorldCheckpoint restore(Path path) throws IOException {
+        return read(path, null);
+    }
+    /**
+     * Restore a checkpoint into a world holding the same bodies, e.g. the scenario the checkpoint was started from.
+     * Only states, leads, ephemeris and camera are overwritten, so no satellite is rebuilt.
+     * @param path checkpoint file.
+     * @param world world whose satellite hierarchy matches the checkpoint's; must not be stepped concurrently.
+     * @return the world and the time multiplier it was running at.
+     * @throws IOException if the file can't be read or isn't a checkpoint of this version.
+     * @throws IllegalArgumentException if the world's bodies don't match the checkpoint's.
+     * */
+    public static WorldCheckpoint restore(Path path, World world) throws IOException {
+        return read(path, world);
+    }
+    /** @return whether a file starts with the checkpoint header, as opposed to e.g. a scenario file. */
+    public static boolean isCheckpoint(Path path) throws IOException {
+        return startsWithMagic(path, MAGIC);
+    }
+    /** @return whether a file starts with a little-endian magic number. */
+    static boolean startsWithMagic(Path path, int magic) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            return !header.hasRemaining() && header.getInt(0) == magic;
+        }
+    }
+    /**
+     * Rebuild a world from a checkpoint encoded in memory. The buffer itself isn't modified, so several threads
+     * may decode copies of the same checkpoint at once.
+     * @param checkpoint checkpoint returned by `encode`.
+     * @return rebuilt world and the time multiplier it was running at.
+     * @throws IOException if the buffer doesn't hold a checkpoint of this version.
+     * */
+    public static WorldCheckpoint decode(ByteBuffer checkpoint) throws IOException {
+        return decode(checkpoint, null);
+    }
+    /**
+     * Rebuild a world from a checkpoint encoded in memory, letting the caller choose how it is run.
+     * @param checkpoint checkpoint returned by `encode`.
+     * @param setup called on the rebuilt world before its ephemeris is restored, e.g. to install the integrators,
+     *              gravity model and multi-rate stepper it runs with, or null.
+     * @return rebuilt world and the time multiplier it was running at.
+     * @throws IOException if the buffer doesn't hold a checkpoint of this version.
+     * */
+    public static WorldCheckpoint decode(ByteBuffer checkpoint, Consumer<World> setup) throws IOException {
+        return read(checkpoint.duplicate().order(ByteOrder.LITTLE_ENDIAN), "in-memory checkpoint", null, setup);
+    }
+    private static WorldCheckpoint read(Path path, World target) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            return read(in, path.toString(), target, null);
+        }
+    }
+    private static WorldCheckpoint read(ByteBuffer in, String path, World target, Consumer<World> setup) throws IOException {
+        if (in.remaining() < HEADER_BYTES || in.getInt() != MAGIC) {
+            throw new IOException("Not a world checkpoint: " + path);
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported checkpoint version " + version + ": " + path);
+        }
+        int size = in.getInt();
+        int centerId = in.getInt();
+        int spacecraftId = in.getInt();
+        double G = in.getDouble();
+        double simulationTime = in.getDouble();
+        double timeMultiplier = in.getDouble();
+        long leadVersion = in.getLong();
+        long leadEpoch = in.getLong();
+        in.position(HEADER_BYTES);
+
+        byte[] kinds = new byte[size];
+        in.get(kinds);
+        int[] treeParentIds = getInts(in, size);
+        int[] colors = getInts(in, size);
+        double[] mass = getDoubles(in, size);
+        double[] orbitalRadius = getDoubles(in, size);
+        double[] orbitalVelocity = getDoubles(in, size);
+        double[] trueAnomaly = getDoubles(in, size);
+        double[] radius = new double[size];
+        String[] names = new String[size];
+        for (int id = 0; id < size; id++) {
+            if (kinds[id] == PLANET) {
+                radius[id] = in.getDouble();
+                byte[] name = new byte[in.getInt()];
+                in.get(name);
+                names[id] = new String(name, StandardCharsets.UTF_8);
+            }
+        }
+        World world;
+        if (target == null) {
+            world = rebuild(path, in, kinds, treeParentIds, colors, mass, orbitalRadius, orbitalVelocity, trueAnomaly,
+                    radius, names, centerId, spacecraftId);
+        } else {
+            world = target;
+            checkBodies(world, kinds, treeParentIds, mass, centerId, spacecraftId);
+        }
+
+        BodyStateStore state = world.state;
+        if (world.G != G) {
+            world.G = G;
+            world.gravity = GravityModel.create(G);
+        }
+        if (setup != null) {
+            setup.accept(world);
+        }
+        getDoubles(in, state.positionX, size);
+        getDoubles(in, state.positionY, size);
+        getDoubles(in, state.velocityX, size);
+        getDoubles(in, state.velocityY, size);
+        int[] parentIds = getInts(in, size);
+        for (Spacecraft craft : world.fleet) {
+            int parentId = parentIds[craft.id];
+            world.setSpacecraftParent(craft, parentId == BodyStateStore.NO_PARENT ? null : state.bodies[parentId]);
+            craft.landedOn = null;
+        }
+        int landedCount = in.getInt();
+        for (int landed = 0; landed < landedCount; landed++) {
+            Spacecraft craft = (Spacecraft) state.bodies[in.getInt()];
+            craft.landedOn = (Planet) state.bodies[in.getInt()];
+            craft.landedX = in.getDouble();
+            craft.landedY = in.getDouble();
+        }
+        world.simulationTime = simulationTime;
+        world.leadEpoch = leadEpoch;
+        // snapshots compare lead versions, so a restored lead must never reuse an earlier version
+        world.leadVersion = Math.max(world.leadVersion, leadVersion) + 1;
+
+        Camera camera = world.camera;
+        camera.setTarget(state.bodies[in.getInt()]);
+        camera.relativeDirection = in.getDouble();
+        camera.distanceToTarget = in.getDouble();
+        camera.setPosition(in.getDouble(), in.getDouble(), in.getDouble());
+        camera.setDirection(in.getDouble(), in.getDouble(), in.getDouble());
+
+        world.leadStartTime = in.getDouble();
+        world.leadInterval = in.getDouble();
+        world.craftLeadTime = in.getDouble();
+        world.planetLeadSize = in.getInt();
+        for (int planetIndex = 0; planetIndex < state.planetCount; planetIndex++) {
+            state.bodies[state.planetIds[planetIndex]].getLead().clear();
+        }
+        world.spacecraft.getLead().clear();
+        int leadCount = in.getInt();
+        for (int leadIndex = 0; leadIndex < leadCount; leadIndex++) {
+            LeadBuffer lead = state.bodies[in.getInt()].getLead();
+            int leadSize = in.getInt();
+            for (int index = 0; index < leadSize; index++) {
+                lead.append(in.getDouble(), in.getDouble(), in.getDouble(), in.getDouble());
+            }
+        }
+
+        double sampleInterval = in.getDouble();
+        int segmentRows = in.getInt();
+        int maxSegments = in.getInt();
+        double originTime = in.getDouble();
+        PlanetEphemeris ephemeris = world.ephemeris;
+        if (ephemeris.sampleInterval != sampleInterval || ephemeris.segmentRows != segmentRows || ephemeris.maxSegments != maxSegments) {
+            ephemeris = new PlanetEphemeris(sampleInterval, segmentRows, maxSegments);
+            world.ephemeris = ephemeris;
+        }
+        int planetCount = state.planetCount;
+        byte source = in.get();
+        if (source == ORBIT_SOURCE) {
+            double epoch = in.getDouble();
+            world.planetRails = new KeplerianOrbits(state, G, epoch, getDoubles(in, planetCount * 4));
+            ephemeris.useOrbits(state, world.planetRails, originTime);
+        } else if (source == INTEGRATION_SOURCE) {
+            world.planetRails = null;
+            ephemeris.useIntegration(state, originTime, world.leadIntegrator, world.gravity);
+            long frontierSegment = in.getLong();
+            ephemeris.restoreFrontier(frontierSegment, getDoubles(in, planetCount * 4));
+            int segmentCount = in.getInt();
+            int rowsLength = (segmentRows + 1) * planetCount * 4;
+            // written least recently used first, so eviction continues in the saved order
+            for (int segment = 0; segment < segmentCount; segment++) {
+                long segmentIndex = in.getLong();
+                ephemeris.restoreSegment(segmentIndex, getDoubles(in, rowsLength));
+            }
+        } else {
+            throw new IOException("Unknown ephemeris source " + source + ": " + path);
+        }
+        world.updateInfluenceRadii();
+        world.ensureLeadScratch();
+        if (!world.spacecraft.getLead().isEmpty()) {
+            world.resumeLeadPropagation();
+        }
+        return new WorldCheckpoint(world, timeMultiplier);
+    }
+    /** Recreate every satellite in body id order, so that the new world assigns them their saved ids. */
+    private static World rebuild(String path, ByteBuffer in, byte[] kinds, int[] treeParentIds, int[] colors, double[] mass,
+                                 double[] orbitalRadius, double[] orbitalVelocity, double[] trueAnomaly,
+                                 double[] radius, String[] names, int centerId, int spacecraftId) throws IOException {
+        int size = kinds.length;
+        Satellite[] satellites = new Satellite[size];
+        for (int id = 0; id < size; id++) {
+            int treeParentId = treeParentIds[id];
+            Satellite parent = treeParentId == BodyStateStore.NO_PARENT ? null : satellites[treeParentId];
+            Color color = new Color(colors[id], true);
+            satellites[id] = switch (kinds[id]) {
+                case PLANET -> {
+                    if (parent != null && !(parent instanceof Planet)) {
+                        throw new IOException("Planet " + id + " orbits a body that isn't a planet: " + path);
+                    }
+                    yield new Planet(names[id], (Planet) parent, color, radius[id], mass[id], orbitalRadius[id], orbitalVelocity[id], trueAnomaly[id]);
+                }
+                case SPACECRAFT -> new Spacecraft(parent, color, mass[id], orbitalRadius[id], orbitalVelocity[id], trueAnomaly[id]);
+                case SATELLITE -> new Satellite(parent, color, mass[id], orbitalRadius[id], orbitalVelocity[id], trueAnomaly[id]);
+                default -> throw new IOException("Unknown body kind " + kinds[id] + ": " + path);
+            };
+        }
+        if (!(satellites[spacecraftId] instanceof Spacecraft spacecraft)) {
+            throw new IOException("Controlled body " + spacecraftId + " isn't a spacecraft: " + path);
+        }
+        // the camera is placed once the world exists
+        World world = new World(satellites[centerId], spacecraft, new Camera(spacecraft, 0, 0));
+        for (int id = 0; id < size; id++) {
+            if (world.state.bodies[id] != satellites[id]) {
+                throw new IOException("Checkpoint hierarchy doesn't reproduce its body ids: " + path);
+            }
+        }
+        return world;
+    }
+    private static void checkBodies(World world, byte[] kinds, int[] treeParentIds, double[] mass, int centerId, int spacecraftId) {
+        BodyStateStore state = world.state;
+        if (state.size != kinds.length || world.simulationCenter.id != centerId || world.spacecraft.id != spacecraftId) {
+            throw new IllegalArgumentException("Checkpoint holds different bodies than the world");
+        }
+        for (int id = 0; id < state.size; id++) {
+            Satellite satellite = state.bodies[id];
+            byte kind = satellite instanceof Planet ? PLANET : satellite instanceof Spacecraft ? SPACECRAFT : SATELLITE;
+            // planets never change parent; spacecraft parents are overwritten by the checkpoint's anyway
+            boolean parentMatches = kind != PLANET || state.parentIds[id] == treeParentIds[id];
+            if (kind != kinds[id] || state.mass[id] != mass[id] || !parentMatches) {
+                throw new IllegalArgumentException("Body " + id + " of the checkpoint doesn't match the world's");
+            }
+        }
+    }
+    private static void putDoubles(ByteBuffer out, double[] values, int count) {
+        out.asDoubleBuffer().put(values, 0, count);
+        out.position(out.position() + count * 8);
+    }
+    private static void putInts(ByteBuffer out, int[] values, int count) {
+        out.asIntBuffer().put(values, 0, count);
+        out.position(out.position() + count * 4);
+    }
+    private static double[] getDoubles(ByteBuffer in, int count) {
+        double[] values = new double[count];
+        getDoubles(in, values, count);
+        return values;
+    }
+    private static void getDoubles(ByteBuffer in, double[] values, int count) {
+        in.asDoubleBuffer().get(values, 0, count);
+        in.position(in.position() + count * 8);
+    }
+    private static int[] getInts(ByteBuffer in, int count) {
+        int[] values = new int[count];
+        in.asIntBuffer().get(values, 0, count);
+        in.position(in.position() + count * 4);
+        return values;
+    }
+}
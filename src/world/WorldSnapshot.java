@@ -0,0 +1,175 @@
+package world;
+
+import util.Coordinate;
+
+import java.util.List;
+
+/**
+ * An immutable copy of everything the renderers need from a `World` at one physics step:
+ * body positions, parents, lead positions, encounter events and the camera's placement.
+ * Snapshots are published by the physics thread and read by the render thread, so they must never be mutated.
+ * */
+public final class WorldSnapshot {
+    public final long sequence; // physics iteration that produced the snapshot
+    public final double simulationTime; // simulated time of the snapshot (s)
+    public final long capturedNanos; // wall-clock time at which the snapshot was captured (ns)
+    public final int size; // number of bodies within the snapshot
+    private final Satellite[] bodies; // shared id -> satellite table (entries are never reassigned)
+    private final double[] positionX;
+    private final double[] positionY;
+    private final int[] parentIds;
+    private final long leadVersion; // lead revision the lead arrays were copied from
+    private final double[][] leadX; // lead x-positions for each body
+    private final double[][] leadY; // lead y-positions for each body
+    public final List<EncounterEvent> encounters; // events along the spacecraft's lead, in time order (immutable)
+    private final Coordinate cameraPosition;
+    private final Coordinate cameraDirection; // (pitch, yaw, roll) in degrees
+
+    private WorldSnapshot(long sequence, double simulationTime, long capturedNanos, int size, Satellite[] bodies,
+                          double[] positionX, double[] positionY, int[] parentIds,
+                          long leadVersion, double[][] leadX, double[][] leadY, List<EncounterEvent> encounters,
+                          Coordinate cameraPosition, Coordinate cameraDirection) {
+        this.sequence = sequence;
+        this.simulationTime = simulationTime;
+        this.capturedNanos = capturedNanos;
+        this.size = size;
+        this.bodies = bodies;
+        this.positionX = positionX;
+        this.positionY = positionY;
+        this.parentIds = parentIds;
+        this.leadVersion = leadVersion;
+        this.leadX = leadX;
+        this.leadY = leadY;
+        this.encounters = encounters;
+        this.cameraPosition = cameraPosition;
+        this.cameraDirection = cameraDirection;
+    }
+    /**
+     * Capture the current state of the world.
+     * Lead arrays are shared with the previous snapshot when the leads haven't changed since it was taken.
+     * @param world world to capture; must only be called from the thread that steps it.
+     * @param sequence physics iteration that produced the snapshot.
+     * @param previous most recently captured snapshot, or null.
+     * @return new immutable snapshot.
+     * */
+    public static WorldSnapshot capture(World world, long sequence, WorldSnapshot previous) {
+        BodyStateStore state = world.state;
+        int size = state.size;
+        double[] positionX = new double[size];
+        double[] positionY = new double[size];
+        int[] parentIds = new int[size];
+        System.arraycopy(state.positionX, 0, positionX, 0, size);
+        System.arraycopy(state.positionY, 0, positionY, 0, size);
+        System.arraycopy(state.parentIds, 0, parentIds, 0, size);
+
+        double[][] leadX;
+        double[][] leadY;
+        if (previous != null && previous.leadVersion == world.leadVersion && previous.size == size) {
+            leadX = previous.leadX;
+            leadY = previous.leadY;
+        } else {
+            leadX = new double[size][];
+            leadY = new double[size][];
+            for (int id = 0; id < size; id++) {
+                LeadBuffer lead = state.bodies[id].getLead();
+                leadX[id] = new double[lead.size()];
+                leadY[id] = new double[lead.size()];
+                lead.copyPositions(leadX[id], leadY[id]);
+            }
+        }
+        Camera camera = world.camera;
+        Coordinate cameraPosition = camera.getPosition();
+        return new WorldSnapshot(
+                sequence, world.simulationTime, System.nanoTime(), size, state.bodies,
+                positionX, positionY, parentIds, world.leadVersion, leadX, leadY, world.encounters,
+                new Coordinate(cameraPosition.getX(), cameraPosition.getY(), cameraPosition.getZ()),
+                camera.getDirection()
+        );
+    }
+    /**
+     * Blend two consecutive snapshots. Positions and the camera are interpolated linearly,
+     * while parents and leads are taken from the newer snapshot.
+     * @param older earlier snapshot.
+     * @param newer later snapshot.
+     * @param alpha blend factor (0: `older`, 1: `newer`).
+     * @return interpolated snapshot.
+     * */
+    public static WorldSnapshot interpolate(WorldSnapshot older, WorldSnapshot newer, double alpha) {
+        if (older == null || older.size != newer.size || alpha >= 1) {
+            return newer;
+        }
+        alpha = Math.max(alpha, 0);
+        int size = newer.size;
+        double[] positionX = new double[size];
+        double[] positionY = new double[size];
+        for (int id = 0; id < size; id++) {
+            positionX[id] = older.positionX[id] + alpha * (newer.positionX[id] - older.positionX[id]);
+            positionY[id] = older.positionY[id] + alpha * (newer.positionY[id] - older.positionY[id]);
+        }
+        Coordinate cameraPosition = new Coordinate(
+                lerp(older.cameraPosition.getX(), newer.cameraPosition.getX(), alpha),
+                lerp(older.cameraPosition.getY(), newer.cameraPosition.getY(), alpha),
+                lerp(older.cameraPosition.getZ(), newer.cameraPosition.getZ(), alpha)
+        );
+        Coordinate cameraDirection = new Coordinate(
+                lerpDegrees(older.cameraDirection.getX(), newer.cameraDirection.getX(), alpha),
+                lerpDegrees(older.cameraDirection.getY(), newer.cameraDirection.getY(), alpha),
+                lerpDegrees(older.cameraDirection.getZ(), newer.cameraDirection.getZ(), alpha)
+        );
+        return new WorldSnapshot(
+                newer.sequence, lerp(older.simulationTime, newer.simulationTime, alpha), newer.capturedNanos,
+                size, newer.bodies, positionX, positionY, newer.parentIds,
+                newer.leadVersion, newer.leadX, newer.leadY, newer.encounters, cameraPosition, cameraDirection
+        );
+    }
+    private static double lerp(double from, double to, double alpha) {
+        return from + alpha * (to - from);
+    }
+    /** Interpolate angles along the shortest arc so that a wrap from 180 to -180 degrees doesn't spin the camera. */
+    private static double lerpDegrees(double from, double to, double alpha) {
+        double delta = ((to - from) % 360 + 540) % 360 - 180;
+        return from + alpha * delta;
+    }
+    /** @return position of the satellite within this snapshot (falls back to the live entity if it isn't tracked). */
+    public Coordinate positionOf(Entity entity) {
+        if (entity instanceof Satellite satellite && satellite.id >= 0 && satellite.id < size) {
+            return new Coordinate(positionX[satellite.id], positionY[satellite.id], satellite.getPosition().getZ());
+        }
+        return entity.getPosition();
+    }
+    /** @return parent of the satellite within this snapshot, or null. */
+    public Satellite parentOf(Satellite satellite) {
+        int parentId = parentIds[satellite.id];
+        return parentId == BodyStateStore.NO_PARENT ? null : bodies[parentId];
+    }
+    /** @return x-components of the satellite's lead positions; must not be modified. */
+    public double[] leadXOf(Satellite satellite) {
+        return leadX[satellite.id];
+    }
+    /** @return y-components of the satellite's lead positions; must not be modified. */
+    public double[] leadYOf(Satellite satellite) {
+        return leadY[satellite.id];
+    }
+    /** @return satellite with a given body id. */
+    public Satellite bodyOf(int id) {
+        return bodies[id];
+    }
+    /**
+     * Where to mark an event: leads are drawn relative to the spacecraft's parent, so the event's offset from its
+     * reference body is carried along with that body's position within this snapshot.
+     * @return marker position (km).
+     * */
+    public Coordinate encounterPosition(EncounterEvent event) {
+        if (event.referenceId == BodyStateStore.NO_PARENT || event.referenceId >= size) {
+            return new Coordinate(event.x, event.y, 0);
+        }
+        return new Coordinate(positionX[event.referenceId] + event.x - event.referenceX,
+                positionY[event.referenceId] + event.y - event.referenceY, 0);
+    }
+    public Coordinate getCameraPosition() {
+        return cameraPosition;
+    }
+    public Coordinate getCameraDirection() {
+        return cameraDirection;
+    }
+}
@@ -0,0 +1,54 @@
+package physics;
+
+import org.junit.Test;
+import world.BodyStateStore;
+
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestBarnesHutGravity {
+    private static final double G = 6.67408 * Math.pow(10, -11);
+
+    /** Build a store with a central star, a disc of random planets orbiting it and a few craft among them. */
+    private BodyStateStore randomSystem(int planets, int craft) {
+        Random random = new Random(42);
+        BodyStateStore store = new BodyStateStore(planets + craft + 1);
+        int center = store.addBody(0, 0, 0, 0, 2e30, BodyStateStore.NO_PARENT, true);
+        for (int planet = 0; planet < planets; planet++) {
+            double radius = 1e6 + 1e8 * random.nextDouble();
+            double angle = Math.TAU * random.nextDouble();
+            store.addBody(radius * Math.cos(angle), radius * Math.sin(angle), 0, 0,
+                    1e20 + 1e24 * random.nextDouble(), center, true);
+        }
+        for (int spacecraft = 0; spacecraft < craft; spacecraft++) {
+            store.addBody(1e8 * (random.nextDouble() - 0.5), 1e8 * (random.nextDouble() - 0.5), 0, 0,
+                    1000, center, false);
+        }
+        return store;
+    }
+    /** @return largest acceleration error of the approximation relative to the exact acceleration's magnitude. */
+    private double maxRelativeError(BodyStateStore store, double openingAngle) {
+        double[] exactX = new double[store.size], exactY = new double[store.size];
+        double[] approximateX = new double[store.size], approximateY = new double[store.size];
+        new GravityModel(G).computeAccelerations(store, store.positionX, store.positionY, exactX, exactY);
+        new BarnesHutGravity(G, openingAngle).computeAccelerations(store, store.positionX, store.positionY, approximateX, approximateY);
+        double maxError = 0;
+        for (int id = 0; id < store.size; id++) {
+            double error = Math.hypot(approximateX[id] - exactX[id], approximateY[id] - exactY[id]);
+            double magnitude = Math.hypot(exactX[id], exactY[id]);
+            maxError = Math.max(maxError, magnitude == 0 ? error : error / magnitude);
+        }
+        return maxError;
+    }
+
+    @Test
+    public void testZeroOpeningAngleMatchesExactSum() {
+        assertThat(maxRelativeError(randomSystem(500, 20), 0)).isLessThan(1e-12);
+    }
+
+    @Test
+    public void testApproximationStaysCloseToExactSum() {
+        assertThat(maxRelativeError(randomSystem(5000, 50), 0.5)).isLessThan(0.01);
+    }
+}
@@ -0,0 +1,47 @@
+package physics;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestConicOrbit {
+    private static final double MU = 6.67408e-11 * 0.73e24 / 1e9; // kerbin (km^3/s^2)
+
+    /** Orbit rotated so that its periapsis lies along `argument`, starting at periapsis. */
+    private ConicOrbit orbitFromPeriapsis(double periapsis, double eccentricity, double argument) {
+        double speed = Math.sqrt(MU * (1 + eccentricity) / periapsis);
+        return new ConicOrbit(periapsis * Math.cos(argument), periapsis * Math.sin(argument),
+                -speed * Math.sin(argument), speed * Math.cos(argument), MU, 100);
+    }
+
+    @Test
+    public void testElementsFromState() {
+        ConicOrbit orbit = orbitFromPeriapsis(7000, 0.3, 1.2);
+        assertThat(orbit.isBound()).isTrue();
+        assertThat(orbit.eccentricity).isWithin(1e-12).of(0.3);
+        assertThat(orbit.semiMajorAxis).isWithin(1e-6).of(10000);
+        assertThat(orbit.periapsis).isWithin(1e-6).of(7000);
+        assertThat(orbit.apoapsis).isWithin(1e-6).of(13000);
+        assertThat(orbit.argumentOfPeriapsis).isWithin(1e-9).of(1.2);
+        assertThat(orbit.period).isWithin(1e-6).of(Math.TAU * Math.sqrt(1e12 / MU));
+    }
+
+    @Test
+    public void testHalfPeriodReachesApoapsis() {
+        ConicOrbit orbit = orbitFromPeriapsis(7000, 0.3, 0);
+        double[] state = new double[4];
+        orbit.stateAt(orbit.epoch + orbit.period / 2, state);
+        assertThat(state[0]).isWithin(1e-6).of(-13000);
+        assertThat(state[1]).isWithin(1e-6).of(0);
+        orbit.stateAt(orbit.epoch + 3 * orbit.period, state);
+        assertThat(state[0]).isWithin(1e-6).of(7000);
+    }
+
+    @Test
+    public void testEscapeTrajectoryIsUnbound() {
+        ConicOrbit orbit = orbitFromPeriapsis(7000, 1.5, 0);
+        assertThat(orbit.isBound()).isFalse();
+        assertThat(orbit.periapsis).isWithin(1e-6).of(7000);
+        assertThat(orbit.apoapsis).isEqualTo(Double.POSITIVE_INFINITY);
+    }
+}
@@ -0,0 +1,81 @@
+package physics;
+
+import org.junit.Test;
+import world.BodyStateStore;
+import world.Planet;
+
+import java.awt.Color;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestIntegrators {
+    private static final double G = 6.67408 * Math.pow(10, -11);
+    private static final double SUN_MASS = 5.97 * Math.pow(10, 24);
+    private static final double ORBITAL_RADIUS = 76800; // km
+
+    /** Build a store with a planet in a circular orbit around a fixed sun. */
+    private BodyStateStore circularOrbit() {
+        Planet sun = new Planet("Sun", Color.WHITE, 6378, SUN_MASS);
+        Planet kerbin = new Planet("Kerbin", sun, Color.BLUE, 4737, 0.73 * Math.pow(10, 24), ORBITAL_RADIUS, 0, 0);
+        sun.setVelocity(0, 0);
+        kerbin.setPosition(ORBITAL_RADIUS, 0);
+        kerbin.setVelocity(0, circularVelocity());
+        BodyStateStore store = new BodyStateStore(2);
+        store.register(sun);
+        store.register(kerbin);
+        return store;
+    }
+    private double circularVelocity() {
+        return Math.sqrt(G * SUN_MASS / (1000 * ORBITAL_RADIUS)) / 1000;
+    }
+    /** Propagate one full period in `steps` steps and return the distance from the starting point (km). */
+    private double closureError(Integrator integrator, int steps) {
+        BodyStateStore store = circularOrbit();
+        GravityModel gravity = new GravityModel(G);
+        double period = 2 * Math.PI * ORBITAL_RADIUS / circularVelocity();
+        for (int step = 0; step < steps; step++) {
+            integrator.step(store, gravity, period / steps);
+        }
+        return Math.hypot(store.positionX[1] - ORBITAL_RADIUS, store.positionY[1]);
+    }
+
+    @Test
+    public void testHigherOrderIntegratorsCloseOrbitWithFewerSteps() {
+        double eulerError = closureError(new SemiImplicitEuler(), 1000);
+        // fourth-order methods with 10x fewer steps still beat first-order euler
+        assertThat(closureError(new Yoshida4(), 100)).isLessThan(eulerError);
+        assertThat(closureError(new RungeKutta4(), 100)).isLessThan(eulerError);
+        assertThat(closureError(new VelocityVerlet(), 1000)).isLessThan(eulerError);
+    }
+
+    @Test
+    public void testSimulationCenterStaysFixed() {
+        BodyStateStore store = circularOrbit();
+        Integrator integrator = Integrator.forName("rk4");
+        integrator.step(store, new GravityModel(G), 60);
+        assertThat(store.positionX[0]).isEqualTo(0.0);
+        assertThat(store.positionY[0]).isEqualTo(0.0);
+    }
+
+    @Test
+    public void testDormandPrinceAdaptsStepToTolerance() {
+        double gravitationalParameter = G * SUN_MASS / 1e9; // km^3/s^2
+        DormandPrince.AccelerationField field = (time, x, y, acceleration) -> {
+            double distance = Math.hypot(x, y);
+            acceleration[0] = -gravitationalParameter * x / (distance * distance * distance);
+            acceleration[1] = -gravitationalParameter * y / (distance * distance * distance);
+        };
+        double period = 2 * Math.PI * ORBITAL_RADIUS / circularVelocity();
+        DormandPrince propagator = new DormandPrince(1e-4, 1e-3, period);
+        propagator.reset(field, 0, ORBITAL_RADIUS, 0, 0, circularVelocity(), 60);
+        while (propagator.time < period) {
+            propagator.step(field);
+        }
+        double[] state = new double[4];
+        propagator.stateAt(period, state);
+
+        // a smooth circular orbit needs far fewer steps than the fixed-step lead (~1 minute steps)
+        assertThat(propagator.acceptedSteps).isLessThan((long) (period / 600));
+        assertThat(Math.hypot(state[0] - ORBITAL_RADIUS, state[1])).isLessThan(0.01);
+    }
+}
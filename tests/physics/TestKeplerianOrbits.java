@@ -0,0 +1,50 @@
+package physics;
+
+import org.junit.Test;
+import world.BodyStateStore;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestKeplerianOrbits {
+    private static final double G = 6.67408 * Math.pow(10, -11);
+    private static final double SUN_MASS = 5.97 * Math.pow(10, 24);
+
+    /** Build a store with a planet in an eccentric orbit around a fixed sun, and a moon around that planet. */
+    private BodyStateStore eccentricSystem() {
+        BodyStateStore store = new BodyStateStore(3);
+        int sun = store.addBody(0, 0, 0, 0, SUN_MASS, BodyStateStore.NO_PARENT, true);
+        int kerbin = store.addBody(76800, 0, 0.5, 2.6, 0.73e24, sun, true);
+        store.addBody(76800, 9000, -1.8, 2.6, 1e20, kerbin, true);
+        return store;
+    }
+
+    @Test
+    public void testMatchesNumericalIntegration() {
+        BodyStateStore integrated = eccentricSystem();
+        KeplerianOrbits orbits = new KeplerianOrbits(integrated, G, 0);
+        Integrator integrator = new RungeKutta4();
+        for (int step = 0; step < 10000; step++) {
+            integrator.step(integrated, new GravityModel(G), 10);
+        }
+        BodyStateStore onRails = eccentricSystem();
+        orbits.statesAt(100000, onRails);
+
+        assertThat(onRails.positionX[1]).isWithin(1e-3).of(integrated.positionX[1]);
+        assertThat(onRails.positionY[1]).isWithin(1e-3).of(integrated.positionY[1]);
+        assertThat(onRails.velocityY[1]).isWithin(1e-8).of(integrated.velocityY[1]);
+    }
+
+    @Test
+    public void testSingleQueryMatchesWholeSystem() {
+        BodyStateStore store = eccentricSystem();
+        KeplerianOrbits orbits = new KeplerianOrbits(store, G, 0);
+        double[] moon = new double[4];
+        // far enough ahead that many periods are dropped before solving Kepler's equation
+        orbits.stateOf(2, 3.7e8, moon);
+        orbits.statesAt(3.7e8, store);
+
+        assertThat(moon[0]).isWithin(1e-6).of(store.positionX[2]);
+        assertThat(moon[1]).isWithin(1e-6).of(store.positionY[2]);
+        assertThat(moon[3]).isWithin(1e-12).of(store.velocityY[2]);
+    }
+}
@@ -0,0 +1,73 @@
+package physics;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestLambertSolver {
+    private static final double MU = 6.67408e-11 * 5.97e24 / 1e9; // sun (km^3/s^2)
+
+    /** Propagate a state in closed form, solve for the transfer between its ends, and compare the velocities. */
+    private void assertRecoversTransfer(double x, double y, double vx, double vy, double timeOfFlight) {
+        ConicOrbit orbit = new ConicOrbit(x, y, vx, vy, MU, 0);
+        double[] arrival = new double[4];
+        orbit.stateAt(timeOfFlight, arrival);
+        double[] velocities = new double[4];
+        boolean prograde = x * vy - y * vx > 0;
+        assertThat(LambertSolver.solve(x, y, arrival[0], arrival[1], timeOfFlight, MU, prograde, velocities)).isTrue();
+        assertThat(velocities[0]).isWithin(1e-8).of(vx);
+        assertThat(velocities[1]).isWithin(1e-8).of(vy);
+        assertThat(velocities[2]).isWithin(1e-8).of(arrival[2]);
+        assertThat(velocities[3]).isWithin(1e-8).of(arrival[3]);
+    }
+
+    @Test
+    public void testRecoversEllipticTransfers() {
+        double circularSpeed = Math.sqrt(MU / 50000);
+        // less and more than half a revolution, both directions
+        assertRecoversTransfer(50000, 0, 0, circularSpeed * 1.1, 20000);
+        assertRecoversTransfer(50000, 0, 0, circularSpeed * 1.1, 90000);
+        assertRecoversTransfer(0, 50000, circularSpeed * 1.2, 0.3, 40000);
+    }
+
+    @Test
+    public void testRecoversHyperbolicTransfer() {
+        // escape velocity is sqrt(2) times the circular speed; the closed-form propagation only covers bound orbits
+        double circularSpeed = Math.sqrt(MU / 50000);
+        double speed = circularSpeed * 1.8;
+        double[] velocities = new double[4];
+        // integrate the escape with small steps of the two-body acceleration as reference
+        double x = 50000, y = 0, vx = 0, vy = speed;
+        double step = 0.1, time = 0;
+        while (time < 10000) {
+            double r = Math.hypot(x, y);
+            double ax = -MU * x / (r * r * r), ay = -MU * y / (r * r * r);
+            vx += ax * step / 2;
+            vy += ay * step / 2;
+            x += vx * step;
+            y += vy * step;
+            r = Math.hypot(x, y);
+            vx += -MU * x / (r * r * r) * step / 2;
+            vy += -MU * y / (r * r * r) * step / 2;
+            time += step;
+        }
+        assertThat(LambertSolver.solve(50000, 0, x, y, time, MU, true, velocities)).isTrue();
+        assertThat(velocities[0]).isWithin(1e-6).of(0);
+        assertThat(velocities[1]).isWithin(1e-6).of(speed);
+        assertThat(velocities[2]).isWithin(1e-6).of(vx);
+        assertThat(velocities[3]).isWithin(1e-6).of(vy);
+    }
+
+    @Test
+    public void testHalfRevolutionMatchesHohmannTransfer() {
+        // collinear ends are degenerate; just short of half a turn approaches the hohmann transfer, though sensitively
+        double r1 = 76800, r2 = 130000;
+        double semiMajorAxis = (r1 + r2) / 2;
+        double halfPeriod = Math.PI * Math.sqrt(semiMajorAxis * semiMajorAxis * semiMajorAxis / MU);
+        double angle = Math.PI - 1e-6;
+        double[] velocities = new double[4];
+        assertThat(LambertSolver.solve(r1, 0, r2 * Math.cos(angle), r2 * Math.sin(angle), halfPeriod, MU, true, velocities)).isTrue();
+        assertThat(Math.hypot(velocities[0], velocities[1])).isWithin(1e-3).of(Math.sqrt(MU * (2 / r1 - 1 / semiMajorAxis)));
+        assertThat(LambertSolver.solve(r1, 0, -r2, 0, halfPeriod, MU, true, velocities)).isFalse();
+    }
+}
@@ -0,0 +1,47 @@
+package physics;
+
+import org.junit.Test;
+import world.BodyStateStore;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestParallelGravity {
+    private static final double G = 6.67408 * Math.pow(10, -11);
+
+    /** Build a store with a planet orbiting a fixed sun and a constellation of craft around the planet. */
+    private BodyStateStore constellation(int craftCount) {
+        BodyStateStore store = new BodyStateStore(craftCount + 2);
+        int sun = store.addBody(0, 0, 0, 0, 5.97e24, BodyStateStore.NO_PARENT, true);
+        int kerbin = store.addBody(76800, 0, 0, 2.27, 0.73e24, sun, true);
+        for (int craft = 0; craft < craftCount; craft++) {
+            double radius = 7000 + 20000.0 * craft / craftCount;
+            double angle = Math.TAU * craft / craftCount;
+            double speed = Math.sqrt(G * 0.73e24 / (1000 * radius)) / 1000;
+            store.addBody(76800 + radius * Math.cos(angle), radius * Math.sin(angle),
+                    -speed * Math.sin(angle), 2.27 + speed * Math.cos(angle), 10, kerbin, false);
+        }
+        return store;
+    }
+    /** Advance a constellation with a given acceleration model and return its final state. */
+    private BodyStateStore propagate(AccelerationModel model) {
+        BodyStateStore store = constellation(1000);
+        Integrator integrator = new VelocityVerlet();
+        for (int step = 0; step < 50; step++) {
+            integrator.step(store, model, 10);
+        }
+        return store;
+    }
+
+    @Test
+    public void testResultsMatchBitForBitRegardlessOfThreadCount() {
+        BodyStateStore sequential = propagate(new GravityModel(G));
+        BodyStateStore singleThread = propagate(new ParallelGravity(new GravityModel(G), new ForkJoinPool(1)));
+        BodyStateStore manyThreads = propagate(new ParallelGravity(new GravityModel(G), new ForkJoinPool(4)));
+
+        assertThat(singleThread.positionX).isEqualTo(sequential.positionX);
+        assertThat(manyThreads.positionX).isEqualTo(sequential.positionX);
+        assertThat(manyThreads.velocityY).isEqualTo(sequential.velocityY);
+    }
+}
@@ -0,0 +1,54 @@
+package physics;
+
+import org.junit.Test;
+import world.BodyStateStore;
+
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestVectorGravity {
+    private static final double G = 6.67408 * Math.pow(10, -11);
+
+    /** Build a store with a central star and planets interleaved with craft, so vector blocks mix both kinds. */
+    private BodyStateStore mixedSystem(int bodies) {
+        Random random = new Random(7);
+        BodyStateStore store = new BodyStateStore(bodies + 1);
+        int center = store.addBody(0, 0, 0, 0, 2e30, BodyStateStore.NO_PARENT, true);
+        for (int body = 0; body < bodies; body++) {
+            double radius = 1e6 + 1e8 * random.nextDouble();
+            double angle = Math.TAU * random.nextDouble();
+            boolean planet = random.nextInt(3) == 0;
+            store.addBody(radius * Math.cos(angle), radius * Math.sin(angle), 0, 0,
+                    planet ? 1e20 + 1e24 * random.nextDouble() : 1000, center, planet);
+        }
+        return store;
+    }
+
+    @Test
+    public void testBulkAccelerationsMatchScalarModelExactly() {
+        BodyStateStore store = mixedSystem(203);
+        double[] scalarX = new double[store.size], scalarY = new double[store.size];
+        double[] vectorX = new double[store.size], vectorY = new double[store.size];
+        new GravityModel(G).computeAccelerations(store, store.positionX, store.positionY, scalarX, scalarY);
+        // an odd range leaves a scalar tail and starts blocks off lane boundaries
+        new VectorGravity(G).computeAccelerations(store, store.positionX, store.positionY, vectorX, vectorY, 0, 5);
+        new VectorGravity(G).computeAccelerations(store, store.positionX, store.positionY, vectorX, vectorY, 5, store.size);
+        for (int id = 0; id < store.size; id++) {
+            assertThat(vectorX[id]).isEqualTo(scalarX[id]);
+            assertThat(vectorY[id]).isEqualTo(scalarY[id]);
+        }
+    }
+
+    @Test
+    public void testSingleBodyAccelerationMatchesScalarModel() {
+        BodyStateStore store = mixedSystem(203);
+        double[] scalar = new double[2], vector = new double[2];
+        for (int id = 0; id < store.size; id++) {
+            new GravityModel(G).computeAcceleration(store, id, store.positionX, store.positionY, scalar);
+            new VectorGravity(G).computeAcceleration(store, id, store.positionX, store.positionY, vector);
+            double magnitude = Math.hypot(scalar[0], scalar[1]);
+            assertThat(Math.hypot(vector[0] - scalar[0], vector[1] - scalar[1])).isAtMost(1e-12 * magnitude);
+        }
+    }
+}
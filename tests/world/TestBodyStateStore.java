@@ -0,0 +1,46 @@
+package world;
+
+import org.junit.Test;
+
+import java.awt.Color;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestBodyStateStore {
+    @Test
+    public void testSatelliteViewsWriteThroughToStore() {
+        Planet sun = new Planet("Sun", Color.WHITE, 6378, 5.97 * Math.pow(10, 24));
+        Planet kerbin = new Planet("Kerbin", sun, Color.BLUE, 4737, 0.73 * Math.pow(10, 24), 76800, 0, 0);
+        BodyStateStore store = new BodyStateStore(1);
+        kerbin.setPosition(76800, 0);
+        kerbin.setVelocity(0, 2.5);
+
+        store.register(sun);
+        store.register(kerbin);
+        assertThat(sun.id).isEqualTo(0);
+        assertThat(kerbin.id).isEqualTo(1);
+        assertThat(store.parentIds[kerbin.id]).isEqualTo(sun.id);
+        assertThat(store.planetCount).isEqualTo(2);
+        assertThat(store.positionX[kerbin.id]).isEqualTo(76800.0);
+        assertThat(store.velocityY[kerbin.id]).isEqualTo(2.5);
+
+        // writes through the satellite's coordinates land in the primitive arrays, and vice versa
+        kerbin.getPosition().shiftX(10);
+        store.velocityX[kerbin.id] = 1.5;
+        assertThat(store.positionX[kerbin.id]).isEqualTo(76810.0);
+        assertThat(kerbin.getVelocity().getX()).isEqualTo(1.5);
+    }
+
+    @Test
+    public void testCopyFromIsDetachedFromSource() {
+        Planet sun = new Planet("Sun", Color.WHITE, 6378, 5.97 * Math.pow(10, 24));
+        BodyStateStore store = new BodyStateStore(4);
+        store.register(sun);
+        BodyStateStore copy = new BodyStateStore(1);
+        copy.copyFrom(store);
+        copy.positionX[sun.id] = 100;
+
+        assertThat(copy.size).isEqualTo(1);
+        assertThat(sun.getPosition().getX()).isEqualTo(0.0);
+    }
+}
@@ -0,0 +1,76 @@
+package world;
+
+import org.junit.Test;
+import physics.RungeKutta4;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestDispersionRunner {
+    private DispersionRunner burnRunner(World prototype) {
+        Planet kerbin = (Planet) prototype.spacecraft.parent;
+        DispersionRunner runner = new DispersionRunner(prototype, 10, 30000, kerbin);
+        runner.burns.add(new DispersionRunner.Burn(1000, 1, 0.2));
+        runner.burns.add(new DispersionRunner.Burn(5005, -1, 0.1));
+        return runner;
+    }
+
+    @Test
+    public void testUnperturbedSamplesMatchHandFlownPrototype() {
+        World prototype = Scenarios.sunKerbin();
+        prototype.setPlanetsOnRails(true);
+        // samples run with the prototype's integrator, not the default one
+        prototype.integrator = new RungeKutta4();
+        DispersionRunner.Summary summary = burnRunner(prototype).run(4, 1, null);
+        assertThat(summary.closestApproach.count).isEqualTo(4L);
+        assertThat(summary.closestApproach.standardDeviation()).isEqualTo(0.0);
+
+        // the same flight flown by hand; the second burn splits a step in two
+        BodyStateStore state = prototype.state;
+        Spacecraft spacecraft = prototype.spacecraft;
+        int kerbinId = spacecraft.parent.id;
+        double closestApproach = Double.POSITIVE_INFINITY;
+        double deltaV = 0;
+        while (prototype.simulationTime < 30000) {
+            if (prototype.simulationTime == 1000 || prototype.simulationTime == 5005) {
+                double velocityX = state.velocityX[spacecraft.id], velocityY = state.velocityY[spacecraft.id];
+                spacecraft.engageThrust(prototype.simulationTime == 1000 ? 1 : -1, prototype.simulationTime == 1000 ? 0.2 : 0.1);
+                deltaV += Math.hypot(state.velocityX[spacecraft.id] - velocityX, state.velocityY[spacecraft.id] - velocityY);
+            }
+            prototype.step(prototype.simulationTime == 5000 ? 5 : Math.min(10, 30000 - prototype.simulationTime));
+            double distance = Math.hypot(state.positionX[spacecraft.id] - state.positionX[kerbinId],
+                    state.positionY[spacecraft.id] - state.positionY[kerbinId]);
+            closestApproach = Math.min(closestApproach, distance);
+        }
+        assertThat(summary.closestApproach.mean).isEqualTo(closestApproach);
+        assertThat(summary.deltaV.mean).isEqualTo(deltaV);
+        assertThat(summary.finalParents.get(state.parentIds[spacecraft.id])).isEqualTo(4L);
+    }
+
+    @Test
+    public void testSamplesDontDependOnThreadCount() {
+        World prototype = Scenarios.sunKerbin();
+        prototype.setPlanetsOnRails(true);
+        Map<Long, DispersionRunner.SampleResult> single = new HashMap<>();
+        Map<Long, DispersionRunner.SampleResult> parallel = new HashMap<>();
+        for (int parallelism : new int[]{1, 3}) {
+            DispersionRunner runner = burnRunner(prototype);
+            runner.burnSigma = 0.5;
+            runner.anomalySigma = 0.1;
+            runner.massSigma = 0.01;
+            runner.parallelism = parallelism;
+            Map<Long, DispersionRunner.SampleResult> results = parallelism == 1 ? single : parallel;
+            DispersionRunner.Summary summary = runner.run(12, 42, result -> results.put(result.index, result));
+            assertThat(summary.deltaV.count).isEqualTo(12L);
+            assertThat(summary.deltaV.standardDeviation()).isGreaterThan(0.0);
+        }
+        assertThat(parallel.size()).isEqualTo(12);
+        for (long index = 0; index < 12; index++) {
+            assertThat(parallel.get(index).closestApproach).isEqualTo(single.get(index).closestApproach);
+            assertThat(parallel.get(index).deltaV).isEqualTo(single.get(index).deltaV);
+            assertThat(parallel.get(index).finalParentId).isEqualTo(single.get(index).finalParentId);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package world;
+
+import org.junit.Test;
+import physics.ConicOrbit;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestEncounterFinder {
+    /** A spacecraft leaving the Sun on a transfer orbit toward Kerbin, with two more planets elsewhere. */
+    private World transferToKerbin() {
+        Planet sun = new Planet("Sun", Color.WHITE, 6378, 5.97e24);
+        new Planet("Kerbin", sun, Color.BLUE, 4737, 0.73e24, 76800, 0, 2);
+        new Planet("Eve", sun, Color.MAGENTA, 3000, 0.5e24, 48000, 0, 4);
+        new Planet("Duna", sun, Color.RED, 2500, 0.3e24, 130000, 0, 1);
+        Spacecraft spacecraft = new Spacecraft(sun, Color.RED, 10, 20000, 0, 0);
+        World world = new World(sun, spacecraft, new Camera(spacecraft, 10000, 0));
+        world.setPlanetsOnRails(true);
+        // speed up to a transfer orbit whose apoapsis reaches Kerbin's orbit
+        BodyStateStore state = world.state;
+        int craftId = spacecraft.id;
+        double relativeVelocityX = state.velocityX[craftId] - state.velocityX[0];
+        double relativeVelocityY = state.velocityY[craftId] - state.velocityY[0];
+        double scale = 5.62 / Math.hypot(relativeVelocityX, relativeVelocityY);
+        state.velocityX[craftId] = state.velocityX[0] + relativeVelocityX * scale;
+        state.velocityY[craftId] = state.velocityY[0] + relativeVelocityY * scale;
+        return world;
+    }
+
+    @Test
+    public void testSphereCrossingsMatchFullScan() {
+        World world = transferToKerbin();
+        LeadPrediction prediction = new LeadPrediction(world, 100, 1000, 1);
+        assertThat(prediction.compute()).isTrue();
+
+        // scan every sample of every planet for sign changes of the distance beyond its sphere of influence
+        BodyStateStore state = world.state;
+        List<Double> expected = new ArrayList<>();
+        for (int column = 0; column < prediction.planetIds.length; column++) {
+            int id = prediction.planetIds[column];
+            if (state.parentIds[id] == BodyStateStore.NO_PARENT) {
+                continue;
+            }
+            double scale = ConicOrbit.sphereOfInfluence(1, state.mass[id], state.mass[state.parentIds[id]]);
+            double[] planet = prediction.planetLeads[column];
+            double[] parent = prediction.planetLeads[0];
+            double previousExcess = 0;
+            for (int sample = 0; sample < prediction.leadSize; sample++) {
+                int offset = sample * 4;
+                double excess = Math.hypot(prediction.craftLead[offset] - planet[offset], prediction.craftLead[offset + 1] - planet[offset + 1])
+                        - scale * Math.hypot(planet[offset] - parent[offset], planet[offset + 1] - parent[offset + 1]);
+                if (sample > 0 && (excess < 0) != (previousExcess < 0)) {
+                    expected.add(prediction.startTime + (sample - 1 + previousExcess / (previousExcess - excess)) * prediction.leadInterval);
+                }
+                previousExcess = excess;
+            }
+        }
+        List<Double> actual = new ArrayList<>();
+        for (EncounterEvent event : prediction.encounters) {
+            if (event.type == EncounterEvent.Type.SPHERE_ENTRY || event.type == EncounterEvent.Type.SPHERE_EXIT) {
+                actual.add(event.time);
+            }
+        }
+        assertThat(expected).hasSize(2);
+        assertThat(actual).hasSize(2);
+        expected.sort(null);
+        for (int index = 0; index < expected.size(); index++) {
+            assertThat(actual.get(index)).isWithin(1e-6).of(expected.get(index));
+        }
+        // within Kerbin's sphere of influence the spacecraft passes Kerbin's periapsis, between the crossings
+        List<EncounterEvent> kerbin = new ArrayList<>();
+        for (EncounterEvent event : prediction.encounters) {
+            if (event.bodyId == 1) {
+                kerbin.add(event);
+            }
+        }
+        assertThat(kerbin).hasSize(3);
+        assertThat(kerbin.get(0).type).isEqualTo(EncounterEvent.Type.SPHERE_ENTRY);
+        assertThat(kerbin.get(1).type).isEqualTo(EncounterEvent.Type.PERIAPSIS);
+        assertThat(kerbin.get(2).type).isEqualTo(EncounterEvent.Type.SPHERE_EXIT);
+        assertThat(kerbin.get(1).label(state.bodies[1]).startsWith("Pe Kerbin ")).isTrue();
+    }
+
+    @Test
+    public void testApsidesMatchConic() {
+        World world = Scenarios.sunKerbin();
+        BodyStateStore state = world.state;
+        int craftId = world.spacecraft.id;
+        // add a radial component so that neither apsis falls on the start of the lead
+        state.velocityX[craftId] += 0.5 * (state.positionX[craftId] - state.positionX[1]) / 7878;
+        state.velocityY[craftId] += 0.5 * (state.positionY[craftId] - state.positionY[1]) / 7878;
+        LeadPrediction prediction = new LeadPrediction(world, 10000 / 240.0, 1000, 1);
+        assertThat(prediction.compute()).isTrue();
+        assertThat(prediction.conic).isNotNull();
+
+        assertThat(prediction.encounters).hasSize(2);
+        EncounterEvent apoapsis = prediction.encounters.get(0);
+        EncounterEvent periapsis = prediction.encounters.get(1);
+        assertThat(apoapsis.type).isEqualTo(EncounterEvent.Type.APOAPSIS);
+        assertThat(periapsis.type).isEqualTo(EncounterEvent.Type.PERIAPSIS);
+        assertThat(apoapsis.distance).isWithin(1).of(prediction.conic.apoapsis);
+        assertThat(periapsis.distance).isWithin(1).of(prediction.conic.periapsis);
+        assertThat(periapsis.time - apoapsis.time).isWithin(prediction.leadInterval).of(prediction.conic.period / 2);
+    }
+
+    @Test
+    public void testPassedEventsAreNotUpcoming() {
+        World world = transferToKerbin();
+        LeadPrediction prediction = new LeadPrediction(world, 100, 1000, 1);
+        prediction.compute();
+        assertThat(world.installLead(prediction)).isTrue();
+        assertThat(world.upcomingEncounters()).isEqualTo(prediction.encounters);
+        EncounterEvent first = prediction.encounters.get(0);
+        while (world.simulationTime <= first.time) {
+            world.step(100);
+        }
+        assertThat(world.upcomingEncounters()).isEqualTo(prediction.encounters.subList(1, prediction.encounters.size()));
+        // restarting the lead drops events until a new prediction is installed
+        world.startFullLead(100);
+        assertThat(world.encounters).isEmpty();
+    }
+}
@@ -0,0 +1,66 @@
+package world;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestFlightRecorder {
+    private static final long SEGMENT_BYTES = FlightRecorder.HEADER_BYTES + 100 * FlightRecorder.RECORD_BYTES;
+
+    @Test
+    public void testRecordingReadsBackAcrossSegments() throws IOException {
+        Path directory = Files.createTempDirectory("recording");
+        World world = Scenarios.sunKerbin();
+        FlightRecorder recorder = new FlightRecorder(directory, SEGMENT_BYTES, 0);
+        for (int step = 0; step < 500; step++) {
+            world.step(10);
+            recorder.record(world);
+        }
+        recorder.close();
+        assertThat(recorder.droppedRecords).isEqualTo(0L);
+        assertThat(FlightRecordingReader.segmentFiles(directory).size()).isEqualTo(15);
+
+        long records = 0;
+        double lastTime = 0;
+        try (FlightRecordingReader reader = FlightRecordingReader.open(directory)) {
+            while (reader.next()) {
+                assertThat(reader.bodyId()).isEqualTo((int) (records % world.state.size));
+                assertThat(reader.time()).isAtLeast(lastTime);
+                lastTime = reader.time();
+                if (records >= recorder.recordedRecords - world.state.size) {
+                    // the final step matches the world's current state
+                    int id = reader.bodyId();
+                    assertThat(reader.x()).isEqualTo(world.state.positionX[id]);
+                    assertThat(reader.vy()).isEqualTo(world.state.velocityY[id]);
+                    assertThat(reader.parentId()).isEqualTo(world.state.parentIds[id]);
+                }
+                records++;
+            }
+        }
+        assertThat(records).isEqualTo(1500L);
+        assertThat(lastTime).isEqualTo(world.simulationTime);
+    }
+
+    @Test
+    public void testOldestSegmentsAreDeletedBeyondLimit() throws IOException {
+        Path directory = Files.createTempDirectory("recording");
+        World world = Scenarios.sunKerbin();
+        FlightRecorder recorder = new FlightRecorder(directory, SEGMENT_BYTES, 2);
+        for (int step = 0; step < 500; step++) {
+            world.step(10);
+            recorder.record(world);
+        }
+        recorder.close();
+        assertThat(FlightRecordingReader.segmentFiles(directory).size()).isEqualTo(2);
+        try (FlightRecordingReader reader = FlightRecordingReader.open(directory)) {
+            assertThat(reader.next()).isTrue();
+            // only the last 2 of 15 full segments are left, starting at record 1300 of 1500
+            assertThat(reader.time()).isEqualTo(10.0 * (1300 / 3 + 1));
+            assertThat(reader.bodyId()).isEqualTo(1300 % 3);
+        }
+    }
+}
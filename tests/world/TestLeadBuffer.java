@@ -0,0 +1,46 @@
+package world;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestLeadBuffer {
+    @Test
+    public void testRingWrapsAroundInOrder() {
+        LeadBuffer lead = new LeadBuffer();
+        for (int index = 0; index < 16; index++) {
+            lead.append(index, -index, 0, 0);
+        }
+        // slide the window far enough that the ring wraps without growing
+        for (int index = 16; index < 40; index++) {
+            lead.removeFirst();
+            lead.append(index, -index, 0.5, 0);
+        }
+        assertThat(lead.size()).isEqualTo(16);
+        assertThat(lead.x(0)).isEqualTo(24.0);
+        assertThat(lead.y(15)).isEqualTo(-39.0);
+        assertThat(lead.vx(15)).isEqualTo(0.5);
+
+        double[] positionX = new double[16];
+        double[] positionY = new double[16];
+        lead.copyPositions(positionX, positionY);
+        assertThat(positionX[0]).isEqualTo(24.0);
+        assertThat(positionX[15]).isEqualTo(39.0);
+        assertThat(positionY[8]).isEqualTo(-32.0);
+    }
+
+    @Test
+    public void testGrowingKeepsContents() {
+        LeadBuffer lead = new LeadBuffer();
+        for (int index = 0; index < 10; index++) {
+            lead.append(index, 0, 0, 0);
+        }
+        lead.removeFirst();
+        for (int index = 10; index < 100; index++) {
+            lead.append(index, 0, 0, 0);
+        }
+        assertThat(lead.size()).isEqualTo(99);
+        assertThat(lead.x(0)).isEqualTo(1.0);
+        assertThat(lead.x(98)).isEqualTo(99.0);
+    }
+}
@@ -0,0 +1,102 @@
+package world;
+
+import org.junit.Test;
+import physics.RungeKutta4;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestLeadPrediction {
+    private static final double LEAD_STEP = 10000 / 240.0;
+
+    @Test
+    public void testBoundSpacecraftLeadFollowsConic() {
+        World numerical = Scenarios.sunKerbin();
+        numerical.startFullLead(LEAD_STEP);
+        for (int interval = 0; interval < 1000; interval++) {
+            numerical.calculateOneLeadInterval(LEAD_STEP);
+        }
+        World conic = Scenarios.sunKerbin();
+        LeadPrediction prediction = new LeadPrediction(conic, LEAD_STEP, 1000, 1);
+        assertThat(prediction.compute()).isTrue();
+        assertThat(conic.installLead(prediction)).isTrue();
+
+        // one full period, sampled in closed form
+        assertThat(prediction.conic).isNotNull();
+        assertThat(prediction.leadSize).isEqualTo((int) Math.ceil(prediction.conic.period / LEAD_STEP) + 1);
+        LeadBuffer expected = numerical.spacecraft.getLead();
+        LeadBuffer actual = conic.spacecraft.getLead();
+        // the sun's tide is left out of the conic, so it only matches the integrated lead closely at first
+        for (int index = 0; index < 10; index++) {
+            assertThat(Math.hypot(actual.x(index) - expected.x(index), actual.y(index) - expected.y(index))).isLessThan(2.0);
+        }
+        LeadBuffer kerbinLead = conic.state.bodies[1].getLead();
+        assertThat(kerbinLead.size()).isEqualTo(actual.size());
+        assertThat(kerbinLead.x(10)).isWithin(1e-6).of(numerical.state.bodies[1].getLead().x(10));
+    }
+
+    @Test
+    public void testStalePredictionIsIgnored() {
+        World world = Scenarios.sunKerbin();
+        LeadPrediction older = new LeadPrediction(world, LEAD_STEP, 100, 1);
+        LeadPrediction newer = new LeadPrediction(world, LEAD_STEP, 100, 2);
+        older.compute();
+        newer.compute();
+        assertThat(world.installLead(newer)).isTrue();
+        assertThat(world.installLead(older)).isFalse();
+        assertThat(world.leadEpoch).isEqualTo(2L);
+    }
+
+    @Test
+    public void testInterruptedPredictionStops() {
+        LeadPrediction prediction = new LeadPrediction(Scenarios.sunKerbin(), LEAD_STEP, 1000, 1);
+        Thread.currentThread().interrupt();
+        try {
+            assertThat(prediction.compute()).isFalse();
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void testLeadOutlastsIntegratedEphemerisCache() {
+        World world = Scenarios.sunKerbin();
+        world.setPlanetsOnRails(false);
+        // escaping the sun, so the lead runs its full length: far longer than the ephemeris keeps cached
+        world.spacecraft.setPosition(0, 200000);
+        world.spacecraft.setVelocity(3, 0);
+        world.updateSpacecraftParents();
+        double leadStep = 100 * LEAD_STEP;
+        PlanetEphemeris ephemeris = world.ephemeris;
+        assertThat(1000 * leadStep).isGreaterThan(ephemeris.maxSegments * ephemeris.segmentRows * ephemeris.sampleInterval);
+        LeadPrediction prediction = new LeadPrediction(world, leadStep, 1000, 1);
+        assertThat(prediction.compute()).isTrue();
+        assertThat(prediction.leadSize).isEqualTo(1001);
+        assertThat(world.installLead(prediction)).isTrue();
+
+        // the live step keeps working after extending the lead past the cache
+        for (int step = 0; step < 10; step++) {
+            world.step(leadStep / 4);
+            world.advanceLead();
+        }
+        LeadBuffer kerbinLead = world.state.bodies[1].getLead();
+        double[] kerbin = new double[4];
+        world.ephemeris.stateOf(1, world.leadStartTime + (kerbinLead.size() - 1) * leadStep, kerbin);
+        assertThat(kerbinLead.x(kerbinLead.size() - 1)).isWithin(1e-6).of(kerbin[0]);
+    }
+
+    @Test
+    public void testPlanetLeadsComeFromWorldEphemeris() {
+        World world = Scenarios.sunKerbin();
+        world.leadIntegrator = new RungeKutta4();
+        world.setPlanetsOnRails(false);
+        LeadPrediction prediction = new LeadPrediction(world, LEAD_STEP, 1000, 1);
+        assertThat(prediction.compute()).isTrue();
+        // planets advanced by the world's lead integrator, exactly as the live ephemeris has them
+        double[] kerbin = new double[4];
+        int last = prediction.leadSize - 1;
+        world.ephemeris.stateOf(1, prediction.startTime + last * LEAD_STEP, kerbin);
+        double[] kerbinLead = prediction.planetLeads[1];
+        assertThat(kerbinLead[last * 4]).isEqualTo(kerbin[0]);
+        assertThat(kerbinLead[last * 4 + 1]).isEqualTo(kerbin[1]);
+    }
+}
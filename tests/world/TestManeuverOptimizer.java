@@ -0,0 +1,102 @@
+package world;
+
+import org.junit.Test;
+
+import java.awt.Color;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestManeuverOptimizer {
+    /** A spacecraft in a circular orbit around the Sun, well inside Kerbin's orbit. */
+    private World innerOrbit() {
+        Planet sun = new Planet("Sun", Color.WHITE, 6378, 5.97e24);
+        new Planet("Kerbin", sun, Color.BLUE, 4737, 0.73e24, 76800, 0, 0);
+        Spacecraft spacecraft = new Spacecraft(sun, Color.RED, 10, 25000, 0, 2.0);
+        World world = new World(sun, spacecraft, new Camera(spacecraft, 10000, 0));
+        world.setPlanetsOnRails(true);
+        return world;
+    }
+    private ManeuverOptimizer transfer(World world) {
+        ManeuverOptimizer optimizer = ManeuverOptimizer.transferTo(world, (Planet) world.state.bodies[1], 0);
+        optimizer.timeSamples = 12;
+        optimizer.directionSamples = 8;
+        optimizer.magnitudeSamples = 8;
+        return optimizer;
+    }
+
+    @Test
+    public void testFlownManeuverEncountersTarget() {
+        World world = innerOrbit();
+        ManeuverOptimizer optimizer = transfer(world);
+        ManeuverOptimizer.Result result = optimizer.optimize();
+        assertThat(result.encounter).isTrue();
+        assertThat(result.node.deltaV()).isLessThan(optimizer.maxDeltaV);
+
+        // fly the burn in the world itself, landing a step exactly on the node
+        int craftId = world.spacecraft.id, targetId = optimizer.targetId;
+        double closestApproach = Double.POSITIVE_INFINITY;
+        boolean executed = false;
+        while (world.simulationTime < result.closestApproachTime + 1000) {
+            if (!executed && world.simulationTime >= result.node.time - 1e-6) {
+                result.node.execute(world);
+                executed = true;
+            }
+            world.step(executed ? 10 : Math.min(10, result.node.time - world.simulationTime));
+            closestApproach = Math.min(closestApproach, Math.hypot(world.state.positionX[craftId] - world.state.positionX[targetId],
+                    world.state.positionY[craftId] - world.state.positionY[targetId]));
+        }
+        assertThat(closestApproach).isLessThan(optimizer.encounterRadius / 0.9);
+    }
+
+    @Test
+    public void testResultDoesntDependOnThreadCount() {
+        World world = innerOrbit();
+        ManeuverOptimizer single = transfer(world);
+        single.parallelism = 1;
+        ManeuverOptimizer parallel = transfer(world);
+        parallel.parallelism = 3;
+        ManeuverNode expected = single.optimize().node;
+        ManeuverNode actual = parallel.optimize().node;
+        assertThat(actual.time).isEqualTo(expected.time);
+        assertThat(actual.progradeDeltaV).isEqualTo(expected.progradeDeltaV);
+        assertThat(actual.normalDeltaV).isEqualTo(expected.normalDeltaV);
+        assertThat(parallel.evaluations).isEqualTo(single.evaluations);
+    }
+
+    @Test
+    public void testLightPlanetsDontAffectSearch() {
+        World world = innerOrbit();
+        // the same system with a moon far too light to matter, which the search leaves out
+        Planet sun = new Planet("Sun", Color.WHITE, 6378, 5.97e24);
+        Planet kerbin = new Planet("Kerbin", sun, Color.BLUE, 4737, 0.73e24, 76800, 0, 0);
+        new Planet("Moon", kerbin, Color.GRAY, 100, 1e15, 10000, 0, 0);
+        Spacecraft spacecraft = new Spacecraft(sun, Color.RED, 10, 25000, 0, 2.0);
+        World withMoon = new World(sun, spacecraft, new Camera(spacecraft, 10000, 0));
+        withMoon.setPlanetsOnRails(true);
+        assertThat(withMoon.state.bodies[1]).isSameInstanceAs(kerbin);
+        ManeuverNode expected = transfer(world).optimize().node;
+        ManeuverNode actual = transfer(withMoon).optimize().node;
+        assertThat(actual.time).isEqualTo(expected.time);
+        assertThat(actual.progradeDeltaV).isEqualTo(expected.progradeDeltaV);
+        assertThat(actual.normalDeltaV).isEqualTo(expected.normalDeltaV);
+    }
+
+    @Test
+    public void testNodeBurnsRelativeToReferenceBody() {
+        World world = Scenarios.sunKerbin();
+        BodyStateStore state = world.state;
+        int craftId = world.spacecraft.id, kerbinId = world.spacecraft.parent.id;
+        double relativeVelocityX = state.velocityX[craftId] - state.velocityX[kerbinId];
+        double relativeVelocityY = state.velocityY[craftId] - state.velocityY[kerbinId];
+        double speed = Math.hypot(relativeVelocityX, relativeVelocityY);
+        new ManeuverNode(0, kerbinId, 0.1, 0).execute(world);
+        double newRelativeVelocityX = state.velocityX[craftId] - state.velocityX[kerbinId];
+        double newRelativeVelocityY = state.velocityY[craftId] - state.velocityY[kerbinId];
+        assertThat(Math.hypot(newRelativeVelocityX, newRelativeVelocityY)).isWithin(1e-12).of(speed + 0.1);
+        // a normal burn is perpendicular to the velocity, leaving its prograde component unchanged
+        new ManeuverNode(0, kerbinId, 0, 0.1).execute(world);
+        double dot = (state.velocityX[craftId] - state.velocityX[kerbinId]) * newRelativeVelocityX
+                + (state.velocityY[craftId] - state.velocityY[kerbinId]) * newRelativeVelocityY;
+        assertThat(dot).isWithin(1e-9).of((speed + 0.1) * (speed + 0.1));
+    }
+}
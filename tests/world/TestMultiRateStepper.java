@@ -0,0 +1,49 @@
+package world;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestMultiRateStepper {
+    /** @return osculating semi-major axis of the spacecraft around Kerbin (km). */
+    private double semiMajorAxis(World world) {
+        BodyStateStore state = world.state;
+        int craft = world.spacecraft.id, kerbin = 1;
+        double x = state.positionX[craft] - state.positionX[kerbin];
+        double y = state.positionY[craft] - state.positionY[kerbin];
+        double vx = state.velocityX[craft] - state.velocityX[kerbin];
+        double vy = state.velocityY[craft] - state.velocityY[kerbin];
+        double mu = world.G * state.mass[kerbin] / 1e9;
+        return 1 / (2 / Math.hypot(x, y) - (vx * vx + vy * vy) / mu);
+    }
+
+    @Test
+    public void testShortStepsMatchSingleRateStepping() {
+        World singleRate = Scenarios.sunKerbin();
+        World multiRate = Scenarios.sunKerbin();
+        multiRate.multiRate = new MultiRateStepper(0.01, 1000);
+        for (int step = 0; step < 1000; step++) {
+            singleRate.step(1);
+            multiRate.step(1);
+        }
+        int craft = singleRate.spacecraft.id;
+        assertThat(multiRate.state.positionX[craft]).isWithin(1e-3).of(singleRate.state.positionX[craft]);
+        assertThat(multiRate.state.positionY[craft]).isWithin(1e-3).of(singleRate.state.positionY[craft]);
+    }
+
+    @Test
+    public void testOrbitSurvivesStepsLongerThanItsPeriod() {
+        World world = Scenarios.sunKerbin();
+        world.setPlanetsOnRails(true);
+        world.multiRate = new MultiRateStepper(0.01, 100000);
+        double initialSemiMajorAxis = semiMajorAxis(world);
+        // the spacecraft's period is about 20000 s, so every macro-step spans two orbits
+        for (int step = 0; step < 100; step++) {
+            world.step(41667);
+        }
+        assertThat(world.spacecraft.parent).isEqualTo(world.state.bodies[1]);
+        // the sun's tide makes the osculating orbit breathe by a few percent, but it must not decay
+        assertThat(semiMajorAxis(world)).isWithin(0.05 * initialSemiMajorAxis).of(initialSemiMajorAxis);
+        assertThat(world.multiRate.substeps).isGreaterThan(100L * 100);
+    }
+}
@@ -0,0 +1,97 @@
+package world;
+
+import org.junit.Test;
+import physics.GravityModel;
+import physics.KeplerianOrbits;
+import physics.Yoshida4;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestPlanetEphemeris {
+    private static final double G = 6.67408 * Math.pow(10, -11);
+
+    /** Build a store with a planet in a circular orbit around a fixed sun. */
+    private BodyStateStore circularOrbit() {
+        BodyStateStore store = new BodyStateStore(2);
+        int sun = store.addBody(0, 0, 0, 0, 5.97e24, BodyStateStore.NO_PARENT, true);
+        double speed = Math.sqrt(G * 5.97e24 / (1000 * 76800)) / 1000;
+        store.addBody(76800, 0, 0, speed, 0.73e24, sun, true);
+        return store;
+    }
+
+    @Test
+    public void testIntegratedAndClosedFormSourcesAgree() {
+        BodyStateStore store = circularOrbit();
+        PlanetEphemeris integrated = new PlanetEphemeris(60, 64, 8);
+        integrated.useIntegration(store, 0, new Yoshida4(), new GravityModel(G));
+        PlanetEphemeris onRails = new PlanetEphemeris(60, 64, 8);
+        onRails.useOrbits(store, new KeplerianOrbits(store, G, 0), 0);
+
+        double[] integratedState = new double[4];
+        double[] closedFormState = new double[4];
+        // a query between samples, a few segments ahead
+        integrated.stateOf(1, 20000.5, integratedState);
+        onRails.stateOf(1, 20000.5, closedFormState);
+        assertThat(integratedState[0]).isWithin(1e-3).of(closedFormState[0]);
+        assertThat(integratedState[1]).isWithin(1e-3).of(closedFormState[1]);
+        assertThat(integratedState[3]).isWithin(1e-6).of(closedFormState[3]);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedSegmentsAreEvicted() {
+        BodyStateStore store = circularOrbit();
+        PlanetEphemeris ephemeris = new PlanetEphemeris(60, 10, 3);
+        ephemeris.useOrbits(store, new KeplerianOrbits(store, G, 0), 0);
+        double[] state = new double[4];
+        for (int segment = 0; segment < 10; segment++) {
+            ephemeris.stateOf(1, segment * 600 + 30, state);
+        }
+        assertThat(ephemeris.cachedSegments()).isEqualTo(3);
+        assertThat(ephemeris.generatedSegments).isEqualTo(10L);
+
+        // cached segments are reused, evicted ones are regenerated
+        ephemeris.stateOf(1, 9 * 600 + 45, state);
+        assertThat(ephemeris.generatedSegments).isEqualTo(10L);
+        ephemeris.stateOf(1, 30, state);
+        assertThat(ephemeris.generatedSegments).isEqualTo(11L);
+    }
+
+    @Test
+    public void testEvictedIntegratedSegmentsAreRegeneratedExactly() {
+        BodyStateStore store = circularOrbit();
+        PlanetEphemeris ephemeris = new PlanetEphemeris(60, 10, 3);
+        ephemeris.useIntegration(store, 0, new Yoshida4(), new GravityModel(G));
+        double[] first = new double[4];
+        ephemeris.stateOf(1, 30, first);
+        double[] state = new double[4];
+        ephemeris.stateOf(1, 9 * 600 + 30, state);
+        assertThat(ephemeris.generatedSegments).isEqualTo(10L);
+
+        // integrated again from the first row it kept
+        double[] regenerated = new double[4];
+        ephemeris.stateOf(1, 30, regenerated);
+        assertThat(ephemeris.generatedSegments).isEqualTo(11L);
+        assertThat(regenerated).isEqualTo(first);
+    }
+
+    @Test
+    public void testSnapshotSharesSegmentsAndContinuesIdentically() {
+        BodyStateStore store = circularOrbit();
+        PlanetEphemeris ephemeris = new PlanetEphemeris(60, 10, 3);
+        ephemeris.useIntegration(store, 0, new Yoshida4(), new GravityModel(G));
+        double[] first = new double[4];
+        ephemeris.stateOf(1, 30, first);
+        PlanetEphemeris snapshot = ephemeris.snapshot(0, new GravityModel(G));
+
+        // segments generated afterwards by the original recycle evicted rows, but never the shared ones
+        double[] state = new double[4];
+        ephemeris.stateOf(1, 9 * 600 + 30, state);
+        double[] shared = new double[4];
+        snapshot.stateOf(1, 30, shared);
+        assertThat(shared).isEqualTo(first);
+        assertThat(snapshot.generatedSegments).isEqualTo(0L);
+        double[] continued = new double[4];
+        snapshot.stateOf(1, 9 * 600 + 30, continued);
+        assertThat(continued).isEqualTo(state);
+    }
+}
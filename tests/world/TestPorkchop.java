@@ -0,0 +1,70 @@
+package world;
+
+import org.junit.Test;
+import physics.LambertSolver;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestPorkchop {
+    private World innerSystem() {
+        Planet sun = new Planet("Sun", Color.WHITE, 6378, 5.97e24);
+        new Planet("Kerbin", sun, Color.BLUE, 4737, 0.73e24, 76800, 0, 0);
+        new Planet("Duna", sun, Color.ORANGE, 2500, 0.05e24, 130000, 0, 1.2);
+        Spacecraft spacecraft = new Spacecraft(sun, Color.RED, 10, 25000, 0, 0);
+        World world = new World(sun, spacecraft, new Camera(spacecraft, 10000, 0));
+        world.setPlanetsOnRails(true);
+        return world;
+    }
+    private Porkchop kerbinToDuna(World world, int parallelism) throws InterruptedException {
+        Porkchop porkchop = new Porkchop(world, (Planet) world.state.bodies[1], (Planet) world.state.bodies[2],
+                0, 400000, 50000, 300000, 120, 100);
+        porkchop.parallelism = parallelism;
+        porkchop.compute();
+        return porkchop;
+    }
+
+    @Test
+    public void testCheapestCellApproachesHohmannTransfer() throws InterruptedException {
+        Porkchop porkchop = kerbinToDuna(innerSystem(), 2);
+        double mu = 6.67408e-11 * 5.97e24 / 1e9;
+        double r1 = 76800, r2 = 130000, semiMajorAxis = (r1 + r2) / 2;
+        double hohmann = Math.sqrt(mu / r1) * (Math.sqrt(r2 / semiMajorAxis) - 1) + Math.sqrt(mu / r2) * (1 - Math.sqrt(r1 / semiMajorAxis));
+        int cheapest = porkchop.cheapestCell();
+        assertThat((double) porkchop.deltaV[cheapest]).isAtLeast(hohmann - 1e-4);
+        assertThat((double) porkchop.deltaV[cheapest]).isWithin(0.01).of(hohmann);
+        assertThat(porkchop.flightTime(cheapest / 120)).isWithin(5000).of(Math.PI * Math.sqrt(semiMajorAxis * semiMajorAxis * semiMajorAxis / mu));
+    }
+
+    @Test
+    public void testCellsMatchDirectSolvesForAnyThreadCount() throws InterruptedException {
+        World world = innerSystem();
+        Porkchop single = kerbinToDuna(world, 1);
+        Porkchop parallel = kerbinToDuna(world, 3);
+        assertThat(parallel.deltaV).isEqualTo(single.deltaV);
+        // one cell by hand
+        int row = 37, column = 81;
+        double departureTime = single.departureTime(column), flightTime = single.flightTime(row);
+        double[] departure = new double[4], arrival = new double[4], transfer = new double[4];
+        world.planetRails.stateOf(1, departureTime, departure);
+        world.planetRails.stateOf(2, departureTime + flightTime, arrival);
+        double mu = world.G * world.state.mass[0] / 1e9;
+        assertThat(LambertSolver.solve(departure[0], departure[1], arrival[0], arrival[1], flightTime, mu, true, transfer)).isTrue();
+        double deltaV = Math.hypot(transfer[0] - departure[2], transfer[1] - departure[3]) + Math.hypot(arrival[2] - transfer[2], arrival[3] - transfer[3]);
+        assertThat((double) single.deltaV[row * 120 + column]).isWithin(1e-5).of(deltaV);
+    }
+
+    @Test
+    public void testBinaryGridRoundTrips() throws IOException, InterruptedException {
+        Porkchop porkchop = kerbinToDuna(innerSystem(), 1);
+        Path path = Files.createTempFile("porkchop", ".bin");
+        porkchop.write(path);
+        assertThat(Files.size(path)).isEqualTo(48L + 120 * 100 * 4);
+        assertThat(Porkchop.readBinary(path)).isEqualTo(porkchop.deltaV);
+        Files.delete(path);
+    }
+}
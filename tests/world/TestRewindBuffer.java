@@ -0,0 +1,92 @@
+package world;
+
+import org.junit.Test;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestRewindBuffer {
+    /** Step and record a world, keeping a copy of every recorded state. */
+    private List<BodyStateStore> recordSteps(World world, RewindBuffer rewind, int steps, double timeStep) {
+        List<BodyStateStore> states = new ArrayList<>();
+        for (int step = 0; step < steps; step++) {
+            world.step(timeStep);
+            rewind.record(world);
+            BodyStateStore copy = new BodyStateStore(world.state.size);
+            copy.copyFrom(world.state);
+            states.add(copy);
+        }
+        return states;
+    }
+    private void assertSameState(BodyStateStore expected, BodyStateStore actual) {
+        for (int id = 0; id < expected.size; id++) {
+            assertThat(actual.positionX[id]).isEqualTo(expected.positionX[id]);
+            assertThat(actual.positionY[id]).isEqualTo(expected.positionY[id]);
+            assertThat(actual.velocityX[id]).isEqualTo(expected.velocityX[id]);
+            assertThat(actual.velocityY[id]).isEqualTo(expected.velocityY[id]);
+            assertThat(actual.parentIds[id]).isEqualTo(expected.parentIds[id]);
+        }
+    }
+
+    @Test
+    public void testSeekRestoresRecordedStepsExactly() {
+        World world = Scenarios.sunKerbinFleet(5);
+        world.setPlanetsOnRails(true);
+        world.spacecraft.engageThrust(1, 0.2);
+        RewindBuffer rewind = new RewindBuffer(50, Long.MAX_VALUE);
+        // long enough for the controlled spacecraft to leave Kerbin's sphere of influence
+        List<BodyStateStore> states = recordSteps(world, rewind, 3000, 10);
+        for (int step : new int[]{2999, 1234, 0, 49, 50, 2500}) {
+            assertThat(rewind.seek(world, 10.0 * (step + 1))).isTrue();
+            assertThat(world.simulationTime).isEqualTo(10.0 * (step + 1));
+            assertSameState(states.get(step), world.state);
+        }
+        // between two steps, the earlier one is restored
+        rewind.seek(world, 10.0 * 700 + 5);
+        assertSameState(states.get(699), world.state);
+    }
+
+    @Test
+    public void testRecordingAfterSeekDiscardsLaterHistory() {
+        World world = Scenarios.sunKerbin();
+        RewindBuffer rewind = new RewindBuffer(20, Long.MAX_VALUE);
+        List<BodyStateStore> states = recordSteps(world, rewind, 100, 30);
+        rewind.seek(world, 30.0 * 45);
+        List<BodyStateStore> branch = recordSteps(world, rewind, 10, 60);
+        assertThat(rewind.newestTime()).isEqualTo(30.0 * 45 + 600);
+        rewind.seek(world, 30.0 * 45 + 60);
+        assertSameState(branch.get(0), world.state);
+        rewind.seek(world, 30.0 * 45);
+        assertSameState(states.get(44), world.state);
+    }
+
+    @Test
+    public void testOldestHistoryIsEvictedBeyondBudget() {
+        World world = Scenarios.sunKerbin();
+        RewindBuffer rewind = new RewindBuffer(100, 20000);
+        List<BodyStateStore> states = recordSteps(world, rewind, 2000, 10);
+        assertThat(rewind.memoryUsed).isAtMost(20000L);
+        assertThat(rewind.oldestTime()).isGreaterThan(10.0);
+        assertThat(rewind.newestTime()).isEqualTo(world.simulationTime);
+        // seeking before the oldest step restores the oldest step
+        double oldestTime = rewind.oldestTime();
+        rewind.seek(world, 0);
+        assertThat(world.simulationTime).isEqualTo(oldestTime);
+        assertSameState(states.get((int) Math.round(oldestTime / 10) - 1), world.state);
+    }
+
+    @Test
+    public void testAddedBodyDiscardsOlderHistory() {
+        World world = Scenarios.sunKerbin();
+        RewindBuffer rewind = new RewindBuffer(20, Long.MAX_VALUE);
+        recordSteps(world, rewind, 30, 10);
+        world.insertSatellite(new Spacecraft((Planet) world.state.bodies[1], Color.ORANGE, 10, 9000, 0, 0));
+        List<BodyStateStore> states = recordSteps(world, rewind, 5, 10);
+        assertThat(rewind.oldestTime()).isEqualTo(310.0);
+        assertThat(rewind.seek(world, 0)).isTrue();
+        assertSameState(states.get(0), world.state);
+    }
+}
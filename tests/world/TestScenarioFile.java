@@ -0,0 +1,101 @@
+package world;
+
+import org.junit.Test;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestScenarioFile {
+    private static final String SUN_KERBIN = """
+            # Kerbin orbiting the Sun
+            planet Sun - WHITE 6378 5.97e24
+            planet Kerbin Sun BLUE 4737 0.73e24 76800 0 0
+            craft Kerbin RED 10 7878 0 3.141592653589793   # controlled
+            craft Kerbin 0xFF8000 10 9000 0 1
+            camera 20000 0.5
+            """;
+
+    private Path write(String text) throws IOException {
+        Path path = Files.createTempFile("scenario", ".txt");
+        Files.writeString(path, text);
+        return path;
+    }
+
+    @Test
+    public void testTextScenarioMatchesBuiltInScenario() throws IOException {
+        Path path = write(SUN_KERBIN);
+        World loaded = ScenarioFile.load(path);
+        World builtIn = Scenarios.sunKerbin();
+        assertThat(loaded.state.size).isEqualTo(4);
+        assertThat(loaded.getSimulationCenter().mass).isWithin(1e12).of(builtIn.getSimulationCenter().mass);
+        for (int id = 0; id < builtIn.state.size; id++) {
+            assertThat(loaded.state.positionX[id]).isWithin(1e-6).of(builtIn.state.positionX[id]);
+            assertThat(loaded.state.velocityY[id]).isWithin(1e-9).of(builtIn.state.velocityY[id]);
+            assertThat(loaded.state.parentIds[id]).isEqualTo(builtIn.state.parentIds[id]);
+        }
+        assertThat(loaded.spacecraft.id).isEqualTo(builtIn.spacecraft.id);
+        assertThat(loaded.fleet.get(1).color).isEqualTo(new Color(0xFF8000));
+        assertThat(loaded.camera.getDistanceToTarget()).isEqualTo(20000.0);
+        Files.delete(path);
+    }
+
+    @Test
+    public void testCompiledScenarioBuildsSameWorld() throws IOException {
+        Path text = write(SUN_KERBIN);
+        Path binary = Files.createTempFile("scenario", ".bin");
+        ScenarioFile.compile(text, binary);
+        assertThat(ScenarioFile.isCompiled(binary)).isTrue();
+        assertThat(ScenarioFile.isCompiled(text)).isFalse();
+
+        World fromText = ScenarioFile.load(text);
+        World fromBinary = ScenarioFile.load(binary);
+        assertThat(fromBinary.state.size).isEqualTo(fromText.state.size);
+        for (int id = 0; id < fromText.state.size; id++) {
+            assertThat(fromBinary.state.positionX[id]).isEqualTo(fromText.state.positionX[id]);
+            assertThat(fromBinary.state.positionY[id]).isEqualTo(fromText.state.positionY[id]);
+            assertThat(fromBinary.state.velocityX[id]).isEqualTo(fromText.state.velocityX[id]);
+            assertThat(fromBinary.state.velocityY[id]).isEqualTo(fromText.state.velocityY[id]);
+            assertThat(fromBinary.state.mass[id]).isEqualTo(fromText.state.mass[id]);
+            assertThat(fromBinary.state.parentIds[id]).isEqualTo(fromText.state.parentIds[id]);
+            assertThat(fromBinary.state.bodies[id].color).isEqualTo(fromText.state.bodies[id].color);
+        }
+        assertThat(((Planet) fromBinary.state.bodies[1]).name).isEqualTo("Kerbin");
+        assertThat(fromBinary.camera.getRelativeDirection()).isEqualTo(0.5);
+        Files.delete(text);
+        Files.delete(binary);
+    }
+
+    @Test
+    public void testUndeclaredParentIsReportedWithLine() throws IOException {
+        Path path = write("planet Sun - WHITE 6378 5.97e24\ncraft Kerbin RED 10 7878 0 0\n");
+        String message = null;
+        try {
+            ScenarioFile.load(path);
+        } catch (IOException e) {
+            message = e.getMessage();
+        }
+        assertThat(message.endsWith(":2: unknown planet Kerbin (parents must be declared first)")).isTrue();
+        Files.delete(path);
+    }
+
+    @Test
+    public void testDeepHierarchyFlattensInOrder() {
+        // far deeper than the call stack could recurse
+        Satellite root = new Satellite(null, Color.WHITE, 1, 0, 0, 0);
+        Satellite sibling = new Satellite(root, Color.WHITE, 1, 0, 0, 0);
+        Satellite deepest = root;
+        for (int depth = 0; depth < 200000; depth++) {
+            deepest = new Satellite(deepest, Color.WHITE, 1, 0, 0, 0);
+        }
+        List<Satellite> flattened = root.flattenSatelliteTree(root);
+        assertThat(flattened.size()).isEqualTo(200002);
+        assertThat(flattened.get(0) == root).isTrue();
+        assertThat(flattened.get(1) == sibling).isTrue();
+        assertThat(flattened.get(200001) == deepest).isTrue();
+    }
+}
@@ -0,0 +1,74 @@
+package world;
+
+import org.junit.Test;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestSphereOfInfluence {
+    /** Place the spacecraft relative to Kerbin and let the world pick its parent. */
+    private World worldWithCraftNearKerbin(double x, double y, double vx, double vy) {
+        World world = Scenarios.sunKerbin();
+        Planet kerbin = (Planet) world.spacecraft.parent;
+        world.spacecraft.setPosition(kerbin.getPosition().getX() + x, kerbin.getPosition().getY() + y);
+        world.spacecraft.setVelocity(kerbin.getVelocity().getX() + vx, kerbin.getVelocity().getY() + vy);
+        world.updateSpacecraftParents();
+        return world;
+    }
+
+    @Test
+    public void testParentIsDeepestContainingSphere() {
+        World inside = worldWithCraftNearKerbin(20000, 0, 0, 1);
+        assertThat(inside.spacecraft.parent).isEqualTo(inside.state.bodies[1]);
+        World outside = worldWithCraftNearKerbin(50000, 0, 0, 1);
+        assertThat(outside.spacecraft.parent).isEqualTo(outside.getSimulationCenter());
+    }
+
+    @Test
+    public void testFlybyWithinOneStepIsDetected() {
+        // enters and leaves kerbin's sphere of influence (~33000 km) within a single 2000 s step, clear of its surface
+        World world = worldWithCraftNearKerbin(-50000, 10000, 50, 0);
+        assertThat(world.spacecraft.parent).isEqualTo(world.getSimulationCenter());
+        assertThat(world.step(2000)).isTrue();
+        assertThat(world.spacecraft.parent).isEqualTo(world.getSimulationCenter());
+        assertThat(world.simulationTime).isWithin(1e-9).of(2000);
+    }
+
+    @Test
+    public void testManyCrossingsDontHideALaterFlyby() {
+        // the controlled spacecraft enters and leaves kerbin's sphere of influence late in a single 3000 s step
+        World world = worldWithCraftNearKerbin(10000, -90000, 0, 50);
+        Planet kerbin = (Planet) world.state.bodies[1];
+        // while a dozen others leave it at different times early in the step
+        List<Spacecraft> leaving = new ArrayList<>();
+        for (int index = 0; index < 12; index++) {
+            Spacecraft craft = new Spacecraft(kerbin, Color.ORANGE, 10, 0, 0, 0);
+            world.insertSatellite(craft);
+            double angle = -1.2 + 2.4 * index / 11, distance = 32000 - 1500 * index;
+            craft.setPosition(kerbin.getPosition().getX() + distance * Math.cos(angle), kerbin.getPosition().getY() + distance * Math.sin(angle));
+            craft.setVelocity(kerbin.getVelocity().getX() + 50 * Math.cos(angle), kerbin.getVelocity().getY() + 50 * Math.sin(angle));
+            leaving.add(craft);
+        }
+        world.updateSpacecraftParents();
+        assertThat(world.spacecraft.parent).isEqualTo(world.getSimulationCenter());
+        for (Spacecraft craft : leaving) {
+            assertThat(craft.parent).isEqualTo(kerbin);
+        }
+        assertThat(world.step(3000)).isTrue();
+        assertThat(world.spacecraft.parent).isEqualTo(world.getSimulationCenter());
+        for (Spacecraft craft : leaving) {
+            assertThat(craft.parent).isEqualTo(world.getSimulationCenter());
+        }
+        assertThat(world.simulationTime).isWithin(1e-9).of(3000);
+    }
+
+    @Test
+    public void testQuietStepKeepsParent() {
+        World world = Scenarios.sunKerbin();
+        assertThat(world.step(1)).isFalse();
+        assertThat(world.spacecraft.parent).isEqualTo(world.state.bodies[1]);
+    }
+}
@@ -0,0 +1,196 @@
+package world;
+
+import org.junit.Test;
+
+import java.awt.Color;
+import java.io.IOException;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestSurfaceCollisions {
+    /** A spacecraft 50000 km from Kerbin, flying at 50 km/s along a line passing 1000 km from its center. */
+    private World craftAimedAtKerbin() {
+        World world = Scenarios.sunKerbin();
+        Planet kerbin = (Planet) world.spacecraft.parent;
+        world.spacecraft.setPosition(kerbin.getPosition().getX() - 50000, kerbin.getPosition().getY() + 1000);
+        world.spacecraft.setVelocity(kerbin.getVelocity().getX() + 50, kerbin.getVelocity().getY());
+        world.updateSpacecraftParents();
+        return world;
+    }
+    private static double distance(World world, int id, int otherId) {
+        return Math.hypot(world.state.positionX[id] - world.state.positionX[otherId], world.state.positionY[id] - world.state.positionY[otherId]);
+    }
+
+    /** 1000 small planets spread around a ring, each with a spacecraft orbiting it. */
+    private static World siblingPlanets() {
+        Planet sun = new Planet("Sun", Color.WHITE, 6378, 5.97e24);
+        for (int index = 0; index < 1000; index++) {
+            Planet planet = new Planet("Planet " + index, sun, Color.BLUE, 100, 1e18, 1e6, 0, 2 * Math.PI * index / 1000);
+            new Spacecraft(planet, Color.RED, 10, 1000, 0, 0);
+        }
+        Spacecraft spacecraft = new Spacecraft(sun, Color.RED, 10, 20000, 0, 0);
+        return new World(sun, spacecraft, new Camera(spacecraft, 10000, 0));
+    }
+
+    @Test
+    public void testFleetOnlyTestsNearbySiblings() {
+        World world = siblingPlanets();
+        assertThat(world.state.planetCount).isEqualTo(1001);
+        assertThat(world.fleet).hasSize(1001);
+        BodyStateStore start = new BodyStateStore(world.state.size);
+        start.copyFrom(world.state);
+        world.step(60);
+        SurfaceCollisions collisions = world.collisions();
+        collisions.sweepPlanets(start, world.state, 60);
+        int tested = 0;
+        for (Spacecraft craft : world.fleet) {
+            assertThat(collisions.firstImpact(craft.id, start, world.state, 60)).isFalse();
+            // the sun and the odd planet sharing a grid bucket, rather than every sibling
+            assertThat(collisions.testedPlanets).isAtMost(8);
+            tested += collisions.testedPlanets;
+        }
+        assertThat(tested).isLessThan(3 * world.fleet.size());
+    }
+
+    @Test
+    public void testImpactAmongSiblingsLands() {
+        World world = siblingPlanets();
+        Planet target = (Planet) world.state.bodies[world.state.planetIds[500]];
+        Spacecraft craft = world.fleet.get(500);
+        craft.setPosition(target.getPosition().getX() - 300, target.getPosition().getY());
+        craft.setVelocity(target.getVelocity().getX() + 10, target.getVelocity().getY());
+        world.step(60);
+        assertThat(craft.landedOn).isSameInstanceAs(target);
+        assertThat(world.impacts).hasSize(1);
+        assertThat(world.impacts.get(0).time).isWithin(1).of(20);
+    }
+
+    @Test
+    public void testPassThroughPlanetWithinOneStepLands() {
+        World world = craftAimedAtKerbin();
+        int craftId = world.spacecraft.id;
+        Planet kerbin = (Planet) world.state.bodies[1];
+        // both ends of the step lie outside Kerbin
+        assertThat(world.step(2000)).isTrue();
+        assertThat(world.simulationTime).isWithin(1e-9).of(2000);
+        assertThat(world.spacecraft.landedOn).isSameInstanceAs(kerbin);
+        assertThat(world.impacts).hasSize(1);
+        ImpactEvent impact = world.impacts.get(0);
+        assertThat(impact.bodyId).isEqualTo(kerbin.id);
+        assertThat(impact.time).isWithin(10).of((50000 - Math.sqrt(kerbin.radius * kerbin.radius - 1000 * 1000)) / 50);
+        assertThat(impact.speed).isGreaterThan(50.0);
+        assertThat(distance(world, craftId, kerbin.id)).isWithin(1e-6).of(kerbin.radius);
+
+        // a landed spacecraft stays on the surface, with either stepper
+        world.step(2000);
+        world.multiRate = new MultiRateStepper(0.01, 1000);
+        world.step(20000);
+        assertThat(distance(world, craftId, kerbin.id)).isWithin(1e-6).of(kerbin.radius);
+        assertThat(world.impacts).hasSize(1);
+    }
+
+    @Test
+    public void testBurnAwayFromSurfaceReleasesSpacecraft() {
+        World world = craftAimedAtKerbin();
+        world.step(2000);
+        BodyStateStore state = world.state;
+        int craftId = world.spacecraft.id, kerbinId = 1;
+        double upX = world.spacecraft.landedX / 4737, upY = world.spacecraft.landedY / 4737;
+        state.velocityX[craftId] += 5 * upX;
+        state.velocityY[craftId] += 5 * upY;
+        world.step(100);
+        assertThat(world.spacecraft.landedOn).isNull();
+        assertThat(distance(world, craftId, kerbinId)).isGreaterThan(4737.0 + 100);
+    }
+
+    @Test
+    public void testRestoredCheckpointStaysLanded() throws IOException {
+        World original = craftAimedAtKerbin();
+        original.step(2000);
+        World restored = WorldCheckpoint.decode(WorldCheckpoint.encode(original, 1)).world;
+        assertThat(restored.spacecraft.landedOn).isSameInstanceAs(restored.state.bodies[1]);
+        assertThat(restored.spacecraft.landedX).isEqualTo(original.spacecraft.landedX);
+        assertThat(restored.spacecraft.landedY).isEqualTo(original.spacecraft.landedY);
+        for (int step = 0; step < 100; step++) {
+            original.step(100);
+            restored.step(100);
+        }
+        int craftId = original.spacecraft.id;
+        assertThat(restored.state.positionX[craftId]).isEqualTo(original.state.positionX[craftId]);
+        assertThat(restored.state.positionY[craftId]).isEqualTo(original.state.positionY[craftId]);
+        // resting on the surface isn't another impact
+        assertThat(restored.impacts).isEmpty();
+    }
+
+    @Test
+    public void testRewindRestoresLandingsAndImpacts() {
+        World world = craftAimedAtKerbin();
+        // planets on rails aren't restarted by a seek, so the replayed impact is the same one
+        world.setPlanetsOnRails(true);
+        RewindBuffer rewind = new RewindBuffer(8, Long.MAX_VALUE);
+        for (int step = 0; step < 20; step++) {
+            world.step(100);
+            rewind.record(world);
+        }
+        Planet kerbin = world.spacecraft.landedOn;
+        double landedX = world.spacecraft.landedX, landedY = world.spacecraft.landedY;
+        assertThat(world.impacts).hasSize(1);
+        double impactTime = world.impacts.get(0).time;
+
+        // before the impact, the spacecraft flies again and the impact hasn't happened yet
+        assertThat(rewind.seek(world, 500)).isTrue();
+        assertThat(world.spacecraft.landedOn).isNull();
+        assertThat(world.impacts).isEmpty();
+        for (int step = 0; step < 15; step++) {
+            world.step(100);
+            rewind.record(world);
+        }
+        assertThat(world.impacts).hasSize(1);
+        assertThat(world.impacts.get(0).time).isEqualTo(impactTime);
+
+        // after the impact, the spacecraft rests where it landed
+        assertThat(rewind.seek(world, 1500)).isTrue();
+        assertThat(world.spacecraft.landedOn).isSameInstanceAs(kerbin);
+        assertThat(world.spacecraft.landedX).isEqualTo(landedX);
+        assertThat(world.spacecraft.landedY).isEqualTo(landedY);
+        assertThat(world.impacts).hasSize(1);
+    }
+
+    @Test
+    public void testLeadEndsAtImpact() {
+        Planet sun = new Planet("Sun", Color.WHITE, 6378, 5.97e24);
+        new Planet("Kerbin", sun, Color.BLUE, 4737, 0.73e24, 76800, 0, 1.6);
+        Spacecraft spacecraft = new Spacecraft(sun, Color.RED, 10, 20000, 0, 0);
+        World world = new World(sun, spacecraft, new Camera(spacecraft, 10000, 0));
+        world.setPlanetsOnRails(true);
+        // speed up to a transfer orbit whose apoapsis reaches Kerbin's orbit
+        BodyStateStore state = world.state;
+        int craftId = spacecraft.id;
+        double relativeVelocityX = state.velocityX[craftId] - state.velocityX[0];
+        double relativeVelocityY = state.velocityY[craftId] - state.velocityY[0];
+        double scale = 5.62 / Math.hypot(relativeVelocityX, relativeVelocityY);
+        state.velocityX[craftId] = state.velocityX[0] + relativeVelocityX * scale;
+        state.velocityY[craftId] = state.velocityY[0] + relativeVelocityY * scale;
+
+        LeadPrediction prediction = new LeadPrediction(world, 100, 1000, 1);
+        assertThat(prediction.compute()).isTrue();
+        EncounterEvent impact = prediction.impact;
+        assertThat(impact).isNotNull();
+        assertThat(impact.type).isEqualTo(EncounterEvent.Type.IMPACT);
+        assertThat(impact.bodyId).isEqualTo(1);
+        assertThat(prediction.encounters.get(prediction.encounters.size() - 1)).isSameInstanceAs(impact);
+        // the lead stops at its last position before the impact
+        assertThat(prediction.leadSize).isLessThan(1001);
+        assertThat(impact.time).isGreaterThan(prediction.startTime + (prediction.leadSize - 1) * prediction.leadInterval);
+        assertThat(impact.time).isAtMost(prediction.startTime + prediction.leadSize * prediction.leadInterval);
+
+        // the flown spacecraft lands where the lead ended
+        while (world.impacts.isEmpty() && world.simulationTime < impact.time + 1000) {
+            world.step(100);
+        }
+        assertThat(world.impacts).hasSize(1);
+        ImpactEvent flown = world.impacts.get(0);
+        assertThat(flown.time).isWithin(30).of(impact.time);
+        assertThat(Math.hypot(flown.x - impact.x, flown.y - impact.y)).isLessThan(100.0);
+    }
+}
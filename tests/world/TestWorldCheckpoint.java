@@ -0,0 +1,84 @@
+package world;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestWorldCheckpoint {
+    private static final double LEAD_STEP = 10000 / 240.0;
+
+    /** Step both worlds identically and check that every body stays bit-for-bit equal. */
+    private void assertSameTrajectory(World original, World restored, int steps, double timeStep) {
+        for (int step = 0; step < steps; step++) {
+            original.step(timeStep);
+            restored.step(timeStep);
+        }
+        assertThat(restored.simulationTime).isEqualTo(original.simulationTime);
+        for (int id = 0; id < original.state.size; id++) {
+            assertThat(restored.state.positionX[id]).isEqualTo(original.state.positionX[id]);
+            assertThat(restored.state.positionY[id]).isEqualTo(original.state.positionY[id]);
+            assertThat(restored.state.velocityX[id]).isEqualTo(original.state.velocityX[id]);
+            assertThat(restored.state.velocityY[id]).isEqualTo(original.state.velocityY[id]);
+            assertThat(restored.state.parentIds[id]).isEqualTo(original.state.parentIds[id]);
+        }
+    }
+
+    @Test
+    public void testRestoredWorldOnRailsFollowsSameTrajectory() throws IOException {
+        World original = Scenarios.sunKerbinFleet(5);
+        original.setPlanetsOnRails(true);
+        original.calculateFullLead(LEAD_STEP, 1000);
+        for (int step = 0; step < 500; step++) {
+            original.step(10);
+            original.advanceLead();
+        }
+        original.spacecraft.engageThrust(1, 0.2);
+        Path path = Files.createTempFile("world", ".checkpoint");
+        WorldCheckpoint.save(original, 1000, path);
+        WorldCheckpoint restored = WorldCheckpoint.restore(path);
+
+        assertThat(restored.timeMultiplier).isEqualTo(1000.0);
+        assertThat(restored.world.state.size).isEqualTo(original.state.size);
+        LeadBuffer originalLead = original.spacecraft.getLead();
+        LeadBuffer restoredLead = restored.world.spacecraft.getLead();
+        assertThat(restoredLead.size()).isEqualTo(originalLead.size());
+        assertThat(restoredLead.x(originalLead.size() - 1)).isEqualTo(originalLead.x(originalLead.size() - 1));
+        assertThat(restored.world.camera.getTarget().id).isEqualTo(original.camera.getTarget().id);
+        // long enough to leave Kerbin's sphere of influence after the burn
+        assertSameTrajectory(original, restored.world, 3000, 10);
+        Files.delete(path);
+    }
+
+    @Test
+    public void testRestoreIntoIntegratedWorldFollowsSameTrajectory() throws IOException {
+        World original = Scenarios.sunKerbin();
+        for (int step = 0; step < 2000; step++) {
+            original.step(30);
+        }
+        Path path = Files.createTempFile("world", ".checkpoint");
+        WorldCheckpoint.save(original, 1, path);
+        // restored into a freshly built scenario, which shares the checkpoint's bodies
+        World restored = WorldCheckpoint.restore(path, Scenarios.sunKerbin()).world;
+        assertThat(restored.planetRails).isNull();
+        assertSameTrajectory(original, restored, 2000, 30);
+        Files.delete(path);
+    }
+
+    @Test
+    public void testRestoreIntoDifferentWorldFails() throws IOException {
+        Path path = Files.createTempFile("world", ".checkpoint");
+        WorldCheckpoint.save(Scenarios.sunKerbinFleet(2), 1, path);
+        boolean rejected = false;
+        try {
+            WorldCheckpoint.restore(path, Scenarios.sunKerbin());
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        assertThat(rejected).isTrue();
+        Files.delete(path);
+    }
+}
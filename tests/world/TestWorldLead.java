@@ -0,0 +1,85 @@
+package world;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestWorldLead {
+    private static final double LEAD_STEP = 10000 / 240.0;
+
+    @Test
+    public void testBurnKeepsPlanetLeadsAndRestartsFromBurnPoint() {
+        World world = Scenarios.sunKerbin();
+        world.calculateFullLead(LEAD_STEP, 1000);
+        for (int step = 0; step < 100; step++) {
+            world.step(1);
+            world.advanceLead();
+        }
+        LeadBuffer kerbinLead = world.state.bodies[1].getLead();
+        int planetLeadSize = kerbinLead.size();
+        double[] kerbinLeadX = new double[planetLeadSize];
+        for (int index = 0; index < planetLeadSize; index++) {
+            kerbinLeadX[index] = kerbinLead.x(index);
+        }
+
+        world.spacecraft.engageThrust(1, 0.05);
+        LeadPrediction prediction = new LeadPrediction(world, LEAD_STEP, 1000, world.leadEpoch + 1, true);
+        assertThat(prediction.craftOnly).isTrue();
+        assertThat(prediction.compute()).isTrue();
+        // the prediction is installed a while after it was requested, as it would be from the lead worker
+        for (int step = 0; step < 100; step++) {
+            world.step(1.0 / 8);
+            world.advanceLead();
+        }
+        int passedPositions = (int) Math.round((world.leadStartTime - prediction.startTime) / LEAD_STEP);
+        assertThat(world.installLead(prediction)).isTrue();
+        assertThat(world.spacecraft.getLead().x(0)).isEqualTo(prediction.craftLead[passedPositions * 4]);
+
+        // planet leads are only trimmed or extended, never recalculated
+        int keptPlanetPositions = Math.min(planetLeadSize, kerbinLead.size());
+        assertThat(kerbinLead.x(keptPlanetPositions - 1)).isEqualTo(kerbinLeadX[keptPlanetPositions - 1 + passedPositions]);
+        assertThat(kerbinLead.size()).isEqualTo(world.spacecraft.getLead().size());
+        assertThat(world.craftLeadDeviation()).isLessThan(1.0);
+        // the restarted lead follows the spacecraft after its burn
+        for (int step = 0; step < 2000; step++) {
+            world.step(1.0 / 8);
+            world.advanceLead();
+        }
+        assertThat(world.craftLeadDeviation()).isLessThan(1.0);
+    }
+
+    @Test
+    public void testReanchorMovesLeadOntoSpacecraft() {
+        World world = Scenarios.sunKerbin();
+        world.calculateFullLead(LEAD_STEP, 1000);
+        for (int step = 0; step < 100; step++) {
+            world.step(1);
+            world.advanceLead();
+        }
+        LeadBuffer craftLead = world.spacecraft.getLead();
+        LeadBuffer kerbinLead = world.state.bodies[1].getLead();
+        int leadSize = craftLead.size();
+        double newestX = craftLead.x(leadSize - 1), kerbinX = kerbinLead.x(leadSize - 1);
+
+        // nudge the spacecraft off its lead
+        world.state.positionX[world.spacecraft.id] += 100;
+        assertThat(world.craftLeadDeviation()).isWithin(1).of(100);
+        assertThat(world.reanchorCraftLead()).isWithin(1).of(100);
+        assertThat(world.craftLeadDeviation()).isLessThan(1e-6);
+        assertThat(world.craftLeadShift).isWithin(1).of(100);
+        // the whole spacecraft lead moved, and nothing was recalculated
+        assertThat(craftLead.size()).isEqualTo(leadSize);
+        assertThat(craftLead.x(leadSize - 1) - newestX).isWithin(1).of(100);
+        assertThat(kerbinLead.x(leadSize - 1)).isEqualTo(kerbinX);
+
+        // intervals added later continue from the moved lead
+        for (int step = 0; step < 100; step++) {
+            world.step(1);
+            world.advanceLead();
+        }
+        assertThat(world.craftLeadDeviation()).isLessThan(1.0);
+        // a new prediction starts over
+        world.calculateFullLead(LEAD_STEP, 1000);
+        assertThat(world.craftLeadShift).isEqualTo(0.0);
+    }
+}